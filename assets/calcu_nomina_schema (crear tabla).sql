@@ -1,11 +1,167 @@
-
--- Script para crear la tabla 'calculos' en SQLite
+-- Script para crear las tablas de cálculos en SQLite
+-- (equivale a la versión 11 del esquema; la aplicación migra sola las bases de datos antiguas)
 CREATE TABLE "calculos" (
-    fecha TEXT PRIMARY KEY,
-    salario_bruto REAL NOT NULL,
-    salario_neto REAL NOT NULL,
-    detalle_json TEXT
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    empleado TEXT NOT NULL DEFAULT 'GENERAL',
+    periodo TEXT NOT NULL,
+    secuencia INTEGER NOT NULL,
+    fecha TEXT NOT NULL,
+    bruto_centimos INTEGER NOT NULL,     -- importes en céntimos; los euros se calculan al leer
+    neto_centimos INTEGER NOT NULL,
+    detalle_json TEXT,
+    mes INTEGER NOT NULL DEFAULT 0,      -- periodo en meses desde el año 0 (año * 12 + mes - 1)
+    instante INTEGER NOT NULL DEFAULT 0, -- fecha en segundos desde 1970, sin zona horaria
+    UNIQUE (empleado, periodo, secuencia)
+);
+-- La clave única sirve también las consultas de un empleado por rango de periodos.
+-- Historial completo y búsqueda por fecha
+CREATE INDEX idx_calculos_fecha ON calculos (fecha);
+-- Exportación y páginas de nóminas de un rango de periodos
+CREATE INDEX idx_calculos_mes ON calculos (mes, empleado, secuencia);
+-- Historial de un empleado en orden de fecha
+CREATE INDEX idx_calculos_empleado_fecha ON calculos (empleado, fecha);
+
+-- Desglose numérico de cada cálculo: un importe por concepto (solo los distintos de cero)
+CREATE TABLE conceptos (
+    id INTEGER PRIMARY KEY,
+    codigo TEXT NOT NULL UNIQUE
+);
+CREATE TABLE calculo_conceptos (
+    calculo_id INTEGER NOT NULL,
+    concepto_id INTEGER NOT NULL,
+    centimos INTEGER NOT NULL,
+    PRIMARY KEY (calculo_id, concepto_id)
+) WITHOUT ROWID;
+
+-- Resúmenes para los informes. Solo cuentan la última versión de cada nómina (la de mayor
+-- secuencia del empleado en el periodo); la aplicación los actualiza al final de cada tramo
+-- de inserción y los triggers al borrar cálculos.
+CREATE TABLE resumen_periodo (
+    periodo TEXT PRIMARY KEY,
+    nominas INTEGER NOT NULL,
+    bruto_centimos INTEGER NOT NULL,
+    neto_centimos INTEGER NOT NULL
+) WITHOUT ROWID;
+CREATE TABLE resumen_periodo_empleado (
+    periodo TEXT NOT NULL,
+    empleado TEXT NOT NULL,
+    nominas INTEGER NOT NULL,
+    bruto_centimos INTEGER NOT NULL,
+    neto_centimos INTEGER NOT NULL,
+    PRIMARY KEY (periodo, empleado)
+) WITHOUT ROWID;
+CREATE TABLE resumen_periodo_concepto (
+    periodo TEXT NOT NULL,
+    concepto_id INTEGER NOT NULL,
+    nominas INTEGER NOT NULL,
+    centimos INTEGER NOT NULL,
+    PRIMARY KEY (periodo, concepto_id)
+) WITHOUT ROWID;
+-- Borrar una versión anterior no cambia los resúmenes
+CREATE TRIGGER trg_calculos_borrar AFTER DELETE ON calculos
+WHEN EXISTS (SELECT 1 FROM calculos WHERE empleado = OLD.empleado AND periodo = OLD.periodo
+             AND secuencia > OLD.secuencia) BEGIN
+    DELETE FROM calculo_conceptos WHERE calculo_id = OLD.id;
+END;
+-- Borrar la última la resta y suma en su lugar la versión anterior, si queda alguna
+CREATE TRIGGER trg_calculos_borrar_ultima AFTER DELETE ON calculos
+WHEN NOT EXISTS (SELECT 1 FROM calculos WHERE empleado = OLD.empleado AND periodo = OLD.periodo
+                 AND secuencia > OLD.secuencia) BEGIN
+    UPDATE resumen_periodo SET
+        nominas = nominas - 1 + (SELECT COUNT(*) FROM calculos WHERE id = (SELECT id FROM calculos WHERE empleado = OLD.empleado AND periodo = OLD.periodo ORDER BY secuencia DESC LIMIT 1)),
+        bruto_centimos = bruto_centimos - OLD.bruto_centimos
+            + COALESCE((SELECT bruto_centimos FROM calculos WHERE id = (SELECT id FROM calculos WHERE empleado = OLD.empleado AND periodo = OLD.periodo ORDER BY secuencia DESC LIMIT 1)), 0),
+        neto_centimos = neto_centimos - OLD.neto_centimos
+            + COALESCE((SELECT neto_centimos FROM calculos WHERE id = (SELECT id FROM calculos WHERE empleado = OLD.empleado AND periodo = OLD.periodo ORDER BY secuencia DESC LIMIT 1)), 0)
+        WHERE periodo = OLD.periodo;
+    DELETE FROM resumen_periodo WHERE periodo = OLD.periodo AND nominas = 0;
+    DELETE FROM resumen_periodo_empleado WHERE periodo = OLD.periodo AND empleado = OLD.empleado;
+    INSERT INTO resumen_periodo_empleado
+        SELECT periodo, empleado, 1, bruto_centimos, neto_centimos FROM calculos WHERE id = (SELECT id FROM calculos WHERE empleado = OLD.empleado AND periodo = OLD.periodo ORDER BY secuencia DESC LIMIT 1);
+    UPDATE resumen_periodo_concepto SET nominas = nominas - 1, centimos = centimos -
+        (SELECT l.centimos FROM calculo_conceptos l
+         WHERE l.calculo_id = OLD.id AND l.concepto_id = resumen_periodo_concepto.concepto_id)
+        WHERE periodo = OLD.periodo
+        AND concepto_id IN (SELECT concepto_id FROM calculo_conceptos WHERE calculo_id = OLD.id);
+    INSERT OR IGNORE INTO resumen_periodo_concepto (periodo, concepto_id, nominas, centimos)
+        SELECT OLD.periodo, concepto_id, 0, 0 FROM calculo_conceptos WHERE calculo_id = (SELECT id FROM calculos WHERE empleado = OLD.empleado AND periodo = OLD.periodo ORDER BY secuencia DESC LIMIT 1);
+    UPDATE resumen_periodo_concepto SET nominas = nominas + 1, centimos = centimos +
+        (SELECT l.centimos FROM calculo_conceptos l
+         WHERE l.calculo_id = (SELECT id FROM calculos WHERE empleado = OLD.empleado AND periodo = OLD.periodo ORDER BY secuencia DESC LIMIT 1) AND l.concepto_id = resumen_periodo_concepto.concepto_id)
+        WHERE periodo = OLD.periodo
+        AND concepto_id IN (SELECT concepto_id FROM calculo_conceptos WHERE calculo_id = (SELECT id FROM calculos WHERE empleado = OLD.empleado AND periodo = OLD.periodo ORDER BY secuencia DESC LIMIT 1));
+    DELETE FROM resumen_periodo_concepto WHERE periodo = OLD.periodo AND nominas = 0;
+    DELETE FROM calculo_conceptos WHERE calculo_id = OLD.id;
+END;
+-- Perfiles de tarifas por convenio, versionados y con fecha de vigencia
+CREATE TABLE perfiles (
+    id INTEGER PRIMARY KEY,
+    convenio TEXT NOT NULL,
+    version INTEGER NOT NULL,
+    vigente_desde TEXT NOT NULL,
+    creado TEXT NOT NULL,
+    UNIQUE (convenio, version)
+);
+CREATE INDEX idx_perfiles_vigencia ON perfiles (convenio, vigente_desde);
+CREATE TABLE perfil_valores (
+    perfil_id INTEGER NOT NULL,
+    parametro TEXT NOT NULL,
+    valor REAL NOT NULL,
+    PRIMARY KEY (perfil_id, parametro)
+) WITHOUT ROWID;
+-- Registros de cada diario de cálculos ya pasados a `calculos`
+CREATE TABLE diario (
+    id INTEGER PRIMARY KEY,
+    generacion INTEGER NOT NULL,
+    compactados INTEGER NOT NULL
 );
+-- Empleados con su perfil de tarifas y los valores que cambian respecto a él
+CREATE TABLE empleados (
+    codigo TEXT PRIMARY KEY,
+    nombre TEXT NOT NULL,
+    perfil TEXT NOT NULL DEFAULT 'general',
+    alta TEXT NOT NULL
+) WITHOUT ROWID;
+CREATE TABLE empleado_valores (
+    empleado TEXT NOT NULL,
+    parametro TEXT NOT NULL,
+    valor REAL NOT NULL,
+    PRIMARY KEY (empleado, parametro)
+) WITHOUT ROWID;
+INSERT INTO empleados VALUES ('GENERAL', 'GENERAL', 'general', date('now'));
+PRAGMA user_version = 11;
 
 -- Consulta de ejemplo para ver el historial
 SELECT * FROM calculos ORDER BY fecha DESC;
+
+-- Consulta de ejemplo para ver el historial de un empleado; busca en idx_calculos_empleado_fecha
+SELECT id, fecha, bruto_centimos / 100.0, neto_centimos / 100.0 FROM calculos
+WHERE empleado = 'E1' ORDER BY fecha DESC, id DESC LIMIT 200;
+
+-- Consulta de ejemplo para ver el total de FOGASA de un mes (última versión de cada nómina)
+SELECT SUM(l.centimos) / 100.0
+FROM calculos c
+JOIN calculo_conceptos l ON l.calculo_id = c.id
+JOIN conceptos k ON k.id = l.concepto_id
+WHERE c.periodo = '2025-01' AND k.codigo = 'FOGASA'
+AND NOT EXISTS (SELECT 1 FROM calculos d
+                WHERE d.empleado = c.empleado AND d.periodo = c.periodo AND d.secuencia > c.secuencia);
+
+-- Lo mismo desde el resumen, sin recorrer los cálculos
+SELECT r.centimos / 100.0
+FROM resumen_periodo_concepto r
+JOIN conceptos k ON k.id = r.concepto_id
+WHERE r.periodo = '2025-01' AND k.codigo = 'FOGASA';
+
+-- Consulta de ejemplo para ver lo acumulado por un empleado en lo que va de 2025, con la
+-- última versión de cada mes; busca en la clave única (empleado, periodo, secuencia)
+SELECT COUNT(*), SUM(bruto_centimos) / 100.0, SUM(neto_centimos) / 100.0
+FROM calculos c
+WHERE empleado = 'E1' AND periodo BETWEEN '2025-01' AND '2025-03'
+AND NOT EXISTS (SELECT 1 FROM calculos d
+                WHERE d.empleado = c.empleado AND d.periodo = c.periodo AND d.secuencia > c.secuencia);
+
+-- Consulta de ejemplo para ver la versión de un convenio vigente en una fecha
+SELECT * FROM perfiles
+WHERE convenio = 'hosteleria' AND vigente_desde <= '2025-03-15'
+ORDER BY vigente_desde DESC, version DESC LIMIT 1;
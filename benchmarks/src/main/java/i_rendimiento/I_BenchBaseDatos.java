@@ -0,0 +1,182 @@
+/**
+ * Objetivo de la clase: Medir las inserciones y consultas sobre SQLite con la
+ *                       tabla `calculos` ya cargada con 10.000, 100.000 y 1.000.000
+ *                       de cálculos.
+ *
+ * Cada tamaño usa un fichero temporal nuevo que se borra al terminar. La carga
+ * inicial se hace con la inserción masiva y no forma parte de la medida. El
+ * diario de cálculos también es temporal y solo recibe registros en anadirAlDiario().
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package i_rendimiento;
+
+import d_basedatos.D_BaseDatos;
+import d_basedatos.D_Calculo;
+import d_basedatos.D_CursorHistorial;
+import d_basedatos.D_Diario;
+import d_basedatos.D_Informes;
+import d_basedatos.D_RegistroHistorial;
+import d_basedatos.D_TotalConcepto;
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class I_BenchBaseDatos {
+
+    /*
+     * Cálculos guardados antes de medir.
+     */
+    @Param({"10000", "100000", "1000000"})
+    public int filas;
+
+    /*
+     * Filas de cada inserción por lotes.
+     */
+    private static final int FILAS_LOTE = 1000;
+
+    private File fichero;
+    private File ficheroDiario;
+    private D_Diario diario;
+    private List<D_Calculo> lote;
+    private D_Calculo calculo;
+    private final Random aleatorio = new Random(7);
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException, SQLException {
+        fichero = File.createTempFile("bench_calcu_nomina", ".db");
+        fichero.delete();
+        D_BaseDatos.usarBaseDatos(fichero.getPath());
+        D_BaseDatos.inicializar();
+        D_BaseDatos.insertarCalculos(IntStream.range(0, filas).mapToObj(I_Datos::calculo),
+                D_BaseDatos.FILAS_POR_TRANSACCION_POR_DEFECTO);
+
+        lote = new ArrayList<>(FILAS_LOTE);
+        for (int i = 0; i < FILAS_LOTE; i++) {
+            lote.add(I_Datos.calculo(i));
+        }
+        calculo = I_Datos.calculo(1);
+
+        ficheroDiario = File.createTempFile("bench_calcu_nomina", ".diario");
+        ficheroDiario.delete();
+        diario = D_Diario.abrir(ficheroDiario.toPath());
+    }
+
+    @TearDown(Level.Trial)
+    public void terminar() throws IOException, SQLException {
+        diario.close();
+        ficheroDiario.delete();
+        D_BaseDatos.cerrar();
+        for (String sufijo : new String[] {"", "-wal", "-shm"}) {
+            new File(fichero.getPath() + sufijo).delete();
+        }
+    }
+
+    /*
+     * Un cálculo con su desglose, en su propia transacción (guardado desde la interfaz).
+     */
+    @Benchmark
+    public long insertarUno() throws SQLException {
+        return D_BaseDatos.insertarCalculo(calculo);
+    }
+
+    /*
+     * Un cálculo añadido al diario; pasa a la base de datos en segundo plano.
+     */
+    @Benchmark
+    public long anadirAlDiario() throws SQLException {
+        return diario.anadir(calculo);
+    }
+
+    /*
+     * Inserción masiva en una transacción (importación de hojas de horas).
+     */
+    @Benchmark
+    @OperationsPerInvocation(FILAS_LOTE)
+    public long insertarLote() throws SQLException {
+        return D_BaseDatos.insertarCalculos(lote, FILAS_LOTE).getFilas();
+    }
+
+    /*
+     * Primera página del historial.
+     */
+    @Benchmark
+    public List<D_RegistroHistorial> consultarPaginaHistorial() throws SQLException {
+        return D_BaseDatos.obtenerPaginaHistorial(null, 200);
+    }
+
+    /*
+     * Detalle de un cálculo al azar (casi nunca está en la caché).
+     */
+    @Benchmark
+    public String consultarDetalle() throws SQLException {
+        return D_BaseDatos.obtenerDetalle(1 + aleatorio.nextInt(filas));
+    }
+
+    /*
+     * Totales por concepto de un periodo, leídos del resumen.
+     */
+    @Benchmark
+    public List<D_TotalConcepto> consultarTotalesPeriodo() throws SQLException {
+        return D_Informes.totalesPorConcepto(I_Datos.PERIODO, I_Datos.PERIODO);
+    }
+
+    /*
+     * Recorrido completo del historial página a página, como al desplazarse por la lista.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long recorrerHistorial() throws SQLException {
+        long n = 0;
+        D_RegistroHistorial ultimo = null;
+        List<D_RegistroHistorial> pagina;
+        do {
+            pagina = D_BaseDatos.obtenerPaginaHistorial(ultimo, 200);
+            n += pagina.size();
+            if (!pagina.isEmpty()) {
+                ultimo = pagina.get(pagina.size() - 1);
+            }
+        } while (pagina.size() == 200);
+        return n;
+    }
+
+    /*
+     * Recorrido completo del historial con el cursor de solo avance, en una sola consulta.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long recorrerHistorialCursor() throws SQLException {
+        long[] bruto = new long[1];
+        D_BaseDatos.recorrerHistorial(D_CursorHistorial.FILAS_POR_LECTURA_POR_DEFECTO,
+                registro -> bruto[0] += Math.round(registro.getBruto() * 100));
+        return bruto[0];
+    }
+}
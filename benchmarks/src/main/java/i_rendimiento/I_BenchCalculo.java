@@ -0,0 +1,171 @@
+/**
+ * Objetivo de la clase: Medir el cálculo de nóminas, de una en una y por lotes, y
+ *                       el recálculo de un lote ya calculado tras cambiar una tarifa.
+ *
+ * Antes de medir comprueba con parámetros aleatorios que el cálculo en línea de
+ * F_MotorNomina.calcular() da los mismos importes que concepto() uno a uno, que
+ * es lo que usa el recálculo incremental.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package i_rendimiento;
+
+import f_calculo.F_CalculoIncremental;
+import f_calculo.F_Concepto;
+import f_calculo.F_MotorNomina;
+import f_calculo.F_Parametro;
+import f_calculo.F_ParametrosNomina;
+import f_calculo.F_ResultadoNomina;
+import g_lotes.G_ProcesadorLotes;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class I_BenchCalculo {
+
+    /*
+     * Trabajadores por lote.
+     */
+    @Param({"1000", "100000"})
+    public int lineas;
+
+    private F_ParametrosNomina parametros;
+    private F_ResultadoNomina resultado;
+    private String hoja;
+
+    /*
+     * Lote ya calculado, para medir el recálculo tras cambiar el plus de turnicidad.
+     */
+    private F_ParametrosNomina[] loteParametros;
+    private F_ResultadoNomina[] loteResultados;
+    private boolean plusAlto;
+
+    /*
+     * Nóminas al azar con las que se comparan los dos caminos del cálculo.
+     */
+    private static final int CASOS_COMPROBACION = 100000;
+
+    @Setup
+    public void preparar() {
+        comprobarFormulas();
+        parametros = I_Datos.parametros(1);
+        resultado = new F_ResultadoNomina();
+        hoja = I_Datos.hojaHoras(lineas);
+        loteParametros = new F_ParametrosNomina[lineas];
+        loteResultados = new F_ResultadoNomina[lineas];
+        for (int i = 0; i < lineas; i++) {
+            loteParametros[i] = I_Datos.parametros(i);
+            loteResultados[i] = F_MotorNomina.calcular(loteParametros[i]);
+        }
+    }
+
+    /*
+     * Una nómina reutilizando el resultado (sin reservar memoria).
+     */
+    @Benchmark
+    public F_ResultadoNomina calcularUna() {
+        F_MotorNomina.calcular(parametros, resultado);
+        return resultado;
+    }
+
+    /*
+     * Una nómina con concepto() para cada importe, lo que haría calcular() sin el código en línea.
+     */
+    @Benchmark
+    public F_ResultadoNomina calcularUnaPorConceptos() {
+        F_MotorNomina.calcularPorConceptos(parametros, resultado);
+        return resultado;
+    }
+
+    /*
+     * Una nómina creando un resultado nuevo, como hace la interfaz.
+     */
+    @Benchmark
+    public F_ResultadoNomina calcularUnaNueva() {
+        return F_MotorNomina.calcular(parametros);
+    }
+
+    /*
+     * Lote completo: lectura de la hoja, validación y cálculo en paralelo por bloques.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long calcularLote(Blackhole bh) throws IOException {
+        G_ProcesadorLotes procesador = new G_ProcesadorLotes(parametros, G_ProcesadorLotes.TAMANO_BLOQUE_POR_DEFECTO);
+        try (BufferedReader lector = new BufferedReader(new StringReader(hoja))) {
+            return procesador.procesar(lector, bh::consume);
+        }
+    }
+
+    /*
+     * Cambio del plus de turnicidad en todo el lote, recalculando cada nómina entera.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public F_ResultadoNomina[] recalcularLoteCompleto() {
+        double plus = siguientePlus();
+        for (int i = 0; i < lineas; i++) {
+            loteParametros[i].set(F_Parametro.PLUS_TURNICIDAD, plus);
+            F_MotorNomina.calcular(loteParametros[i], loteResultados[i]);
+        }
+        return loteResultados;
+    }
+
+    /*
+     * El mismo cambio rehaciendo solo los importes que dependen del plus.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public F_ResultadoNomina[] recalcularLoteIncremental() {
+        double plus = siguientePlus();
+        for (int i = 0; i < lineas; i++) {
+            loteParametros[i].set(F_Parametro.PLUS_TURNICIDAD, plus);
+            F_CalculoIncremental.recalcular(loteParametros[i], loteResultados[i], F_Parametro.PLUS_TURNICIDAD);
+        }
+        return loteResultados;
+    }
+
+    private static void comprobarFormulas() {
+        F_ResultadoNomina enLinea = new F_ResultadoNomina();
+        F_ResultadoNomina porConceptos = new F_ResultadoNomina();
+        for (int semilla = 0; semilla < CASOS_COMPROBACION; semilla++) {
+            F_ParametrosNomina p = I_Datos.parametrosAleatorios(semilla);
+            F_MotorNomina.calcular(p, enLinea);
+            F_MotorNomina.calcularPorConceptos(p, porConceptos);
+            for (F_Concepto c : F_Concepto.values()) {
+                if (enLinea.getCentimos(c) != porConceptos.getCentimos(c)) {
+                    throw new IllegalStateException("calcular() y concepto() no coinciden en " + c
+                            + " con los parámetros aleatorios de semilla " + semilla);
+                }
+            }
+        }
+    }
+
+    private double siguientePlus() {
+        plusAlto = !plusAlto;
+        return plusAlto ? 2.45 : 2.23;
+    }
+}
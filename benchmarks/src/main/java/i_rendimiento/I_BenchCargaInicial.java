@@ -0,0 +1,110 @@
+/**
+ * Objetivo de la clase: Medir la carga inicial que la interfaz hace en segundo plano
+ *                       al arrancar, desde que se abre la JVM hasta tener las tarifas
+ *                       del empleado por defecto, sin construir la ventana.
+ *
+ * Cada medida es la única de una JVM nueva (SingleShotTime, sin calentamiento), así
+ * que incluye la carga de clases y el código sin compilar, como al abrir el
+ * programa. Se mide lo mismo que lanza B_InterfazPrincipalController al crearse:
+ * leer los perfiles, abrir (y crear o migrar) `calcu_nomina.db`, listar los
+ * empleados del selector y resolver las tarifas del empleado por defecto. No se
+ * carga el FXML ni se crea la escena, porque necesitan el toolkit de JavaFX y una
+ * pantalla; ese tiempo lo registra la aplicación en `ui.mostrarVentana`, y esta misma
+ * carga vista desde la interfaz en `ui.arranque` (ver M_Metricas).
+ *
+ * Con `base=existente` la base de datos se prepara antes en el mismo proceso, así
+ * que las clases de SQLite ya están cargadas y solo queda la apertura y las consultas.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package i_rendimiento;
+
+import d_basedatos.D_BaseDatos;
+import d_basedatos.D_Empleado;
+import d_basedatos.D_Empleados;
+import d_basedatos.D_Esquema;
+import d_basedatos.D_Perfiles;
+import f_calculo.F_CatalogoPerfiles;
+import f_calculo.F_PerfilTarifas;
+import j_configuracion.J_Configuracion;
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class I_BenchCargaInicial {
+
+    /*
+     * `nueva` si es la primera vez que se abre el programa (se crea todo el esquema)
+     * o `existente` si ya hay una base de datos con cálculos guardados.
+     */
+    @Param({"nueva", "existente"})
+    public String base;
+
+    /*
+     * Empleados con cálculos en la base de datos existente.
+     */
+    private static final int EMPLEADOS = 10000;
+
+    /*
+     * Empleados que carga el selector de la interfaz.
+     */
+    private static final int EMPLEADOS_EN_SELECTOR = 500;
+
+    private File fichero;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException, SQLException {
+        fichero = File.createTempFile("bench_calcu_nomina", ".db");
+        fichero.delete();
+        D_BaseDatos.usarBaseDatos(fichero.getPath());
+        if (base.equals("existente")) {
+            D_BaseDatos.inicializar();
+            D_BaseDatos.insertarCalculos(IntStream.range(0, EMPLEADOS).mapToObj(I_Datos::calculo),
+                    D_BaseDatos.FILAS_POR_TRANSACCION_POR_DEFECTO);
+            D_BaseDatos.cerrar();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void terminar() {
+        D_BaseDatos.cerrar();
+        for (String sufijo : new String[] {"", "-wal", "-shm"}) {
+            new File(fichero.getPath() + sufijo).delete();
+        }
+    }
+
+    /*
+     * Hasta la primera interacción: perfiles, base de datos, selector y empleado por defecto.
+     */
+    @Benchmark
+    public F_PerfilTarifas cargar() throws IOException, SQLException {
+        F_CatalogoPerfiles perfiles = J_Configuracion.recargar();
+        D_BaseDatos.inicializar();
+        D_Empleados.listar(EMPLEADOS_EN_SELECTOR);
+        D_Empleado empleado = D_Empleados.obtener(D_Esquema.EMPLEADO_POR_DEFECTO); // Lo crea el esquema
+        return empleado.tarifas(D_Perfiles.indice().catalogoEn(LocalDate.now(), perfiles));
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Objetivo de la clase: Medir la generación y lectura del detalle JSON de un
+ *                       cálculo, con org.json y con el JSON escrito a mano.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package i_rendimiento;
+
+import f_calculo.F_Concepto;
+import f_calculo.F_MotorNomina;
+import f_calculo.F_ResultadoNomina;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class I_BenchJson {
+
+    private F_ResultadoNomina resultado;
+    private String textoDatosSalariales;
+    private String textoGastosAdicionales;
+    private String textoRetenciones;
+    private String detalleImportes;
+    private final StringBuilder sb = new StringBuilder(512);
+
+    @Setup
+    public void preparar() {
+        resultado = F_MotorNomina.calcular(I_Datos.parametros(1));
+        textoDatosSalariales = resultado.textoDatosSalariales(I_Datos.FECHA);
+        textoGastosAdicionales = resultado.textoGastosAdicionales();
+        textoRetenciones = resultado.textoRetenciones();
+        detalleImportes = serializarImportesAMano();
+    }
+
+    /*
+     * Detalle con los textos ya formateados, como lo guardaba antes la interfaz.
+     */
+    @Benchmark
+    public String serializarTextosOrgJson() {
+        JSONObject detalle = new JSONObject();
+        detalle.put("fecha", I_Datos.FECHA);
+        detalle.put("bruto", resultado.getSalarioBruto());
+        detalle.put("neto", resultado.getSalarioNeto());
+        detalle.put("datosSalariales", textoDatosSalariales);
+        detalle.put("gastosAdicionales", textoGastosAdicionales);
+        detalle.put("retenciones", textoRetenciones);
+        return detalle.toString();
+    }
+
+    /*
+     * Detalle con los importes numéricos usando org.json.
+     */
+    @Benchmark
+    public String serializarImportesOrgJson() {
+        JSONObject detalle = new JSONObject();
+        detalle.put("fecha", I_Datos.FECHA);
+        detalle.put("bruto", resultado.getSalarioBruto());
+        detalle.put("neto", resultado.getSalarioNeto());
+        JSONArray importes = new JSONArray();
+        for (F_Concepto c : F_Concepto.values()) {
+            importes.put(resultado.get(c));
+        }
+        detalle.put("importes", importes);
+        return detalle.toString();
+    }
+
+    /*
+     * Detalle con los importes numéricos escrito a mano, como lo devuelve D_BaseDatos.obtenerDetalle()
+     * a partir del desglose por conceptos.
+     */
+    @Benchmark
+    public String serializarImportesAMano() {
+        sb.setLength(0);
+        sb.append("{\"fecha\":").append(JSONObject.quote(I_Datos.FECHA))
+                .append(",\"bruto\":").append(resultado.getSalarioBruto())
+                .append(",\"neto\":").append(resultado.getSalarioNeto())
+                .append(",\"importes\":");
+        return resultado.anadirImportesJson(sb).append('}').toString();
+    }
+
+    /*
+     * Lectura del detalle al abrirlo desde el historial.
+     */
+    @Benchmark
+    public F_ResultadoNomina leerDetalle() {
+        return F_ResultadoNomina.desdeJson(new JSONObject(detalleImportes).getJSONArray("importes"));
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Objetivo de la clase: Medir un barrido de escenarios sobre una plantilla, la
+ *                       primera vez (calculando) y repetido (desde la caché).
+ *
+ * La plantilla se lee de una hoja de horas temporal que se borra al terminar.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package i_rendimiento;
+
+import f_calculo.F_CatalogoPerfiles;
+import f_calculo.F_ParametrosNomina;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import l_simulacion.L_Escenario;
+import l_simulacion.L_Plantilla;
+import l_simulacion.L_Rejilla;
+import l_simulacion.L_ResultadoEscenario;
+import l_simulacion.L_Simulador;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class I_BenchSimulacion {
+
+    /*
+     * Trabajadores de la plantilla.
+     */
+    @Param({"10000", "100000"})
+    public int trabajadores;
+
+    /*
+     * Rejilla de 3 x 2 x 2 = 12 escenarios: un tipo de empresa, un plus y las horas extras.
+     */
+    private static final String REJILLA = "ccEmpresa=23.6,24,24.5 plusNocturnidad+=0,0.5 horasExtras*=1,1.1";
+
+    private L_Plantilla plantilla;
+    private List<L_Escenario> escenarios;
+    private L_Simulador conCache;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        File hoja = File.createTempFile("bench_plantilla", ".tsv");
+        try {
+            Files.write(hoja.toPath(), I_Datos.hojaHoras(trabajadores).getBytes(StandardCharsets.UTF_8));
+            plantilla = L_Plantilla.leer(hoja.toPath(), F_CatalogoPerfiles.de(new F_ParametrosNomina()), error -> { });
+        } finally {
+            hoja.delete();
+        }
+        escenarios = L_Rejilla.parsear(REJILLA);
+        conCache = new L_Simulador(plantilla);
+        conCache.simular(escenarios);
+    }
+
+    /*
+     * Barrido completo con un simulador nuevo (sin nada en caché).
+     */
+    @Benchmark
+    public List<L_ResultadoEscenario> barrerRejilla() {
+        return new L_Simulador(plantilla).simular(escenarios);
+    }
+
+    /*
+     * El mismo barrido repetido: todos los escenarios salen de la caché.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<L_ResultadoEscenario> barrerRejillaEnCache() {
+        return conCache.simular(escenarios);
+    }
+}
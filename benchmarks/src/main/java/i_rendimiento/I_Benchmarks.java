@@ -0,0 +1,42 @@
+/**
+ * Objetivo de la clase: Lanzar los benchmarks guardando siempre los resultados en
+ *                       un fichero JSON para poder comparar entre versiones.
+ *
+ * Acepta las mismas opciones que JMH (por ejemplo `I_BenchCalculo -f 2`). Si no
+ * se indica `-rf`/`-rff`, los resultados van a `resultados-jmh.json` en formato JSON.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package i_rendimiento;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class I_Benchmarks {
+
+    /*
+     * Fichero de resultados si no se indica otro.
+     */
+    private static final String RESULTADOS_POR_DEFECTO = "resultados-jmh.json";
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions linea = new CommandLineOptions(args);
+        ChainedOptionsBuilder opciones = new OptionsBuilder().parent(linea);
+        if (!linea.getResultFormat().hasValue()) {
+            opciones.resultFormat(ResultFormatType.JSON);
+        }
+        if (!linea.getResult().hasValue()) {
+            opciones.result(RESULTADOS_POR_DEFECTO);
+        }
+        if (linea.getIncludes().isEmpty()) {
+            opciones.include("i_rendimiento\\..*");
+        }
+        new Runner(opciones.build()).run();
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Objetivo de la clase: Generar datos de prueba reproducibles para los benchmarks
+ *                       (parámetros de nómina, hojas de horas y cálculos listos para
+ *                       guardar).
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package i_rendimiento;
+
+import d_basedatos.D_Calculo;
+import f_calculo.F_MotorNomina;
+import f_calculo.F_Parametro;
+import f_calculo.F_ParametrosNomina;
+import f_calculo.F_ResultadoNomina;
+import f_calculo.F_RetencionIrpf;
+import java.util.Random;
+import org.json.JSONObject;
+
+final class I_Datos {
+
+    static final String FECHA = "2025-01-31 12:00:00";
+    static final String PERIODO = "2025-01";
+
+    private I_Datos() {
+    }
+
+    /**
+     * @param semilla Semilla del generador.
+     * @return Parámetros por defecto con horas variables.
+     */
+    static F_ParametrosNomina parametros(long semilla) {
+        Random aleatorio = new Random(semilla);
+        F_ParametrosNomina p = new F_ParametrosNomina();
+        p.set(F_Parametro.HORAS_NORMALES, 120 + aleatorio.nextInt(50));
+        p.set(F_Parametro.HORAS_NOCTURNAS, aleatorio.nextInt(20));
+        p.set(F_Parametro.HORAS_EXTRAS, aleatorio.nextInt(10));
+        return p;
+    }
+
+    /**
+     * @param semilla Semilla del generador.
+     * @return Parámetros con todos los valores al azar, incluido el IRPF automático.
+     */
+    static F_ParametrosNomina parametrosAleatorios(long semilla) {
+        Random aleatorio = new Random(semilla);
+        F_ParametrosNomina p = new F_ParametrosNomina();
+        for (F_Parametro parametro : F_Parametro.values()) {
+            if (parametro != F_Parametro.ESCALA_IRPF) { // Solo admite escalas registradas
+                p.set(parametro, aleatorio.nextInt(1000000) / 10000.0);
+            }
+        }
+        p.set(F_Parametro.IRPF_AUTOMATICO, aleatorio.nextInt(2));
+        p.set(F_Parametro.ESCALA_IRPF, F_RetencionIrpf.ESCALA_GENERAL);
+        p.set(F_Parametro.DESCENDIENTES, aleatorio.nextInt(5));
+        p.set(F_Parametro.PERIODOS_ANUALES, aleatorio.nextBoolean() ? 12 : 14);
+        return p;
+    }
+
+    /**
+     * @param lineas Número de trabajadores.
+     * @return Hoja de horas en TSV con cabecera, como la que importa G_ImportadorHoras.
+     */
+    static String hojaHoras(int lineas) {
+        Random aleatorio = new Random(42);
+        StringBuilder sb = new StringBuilder(lineas * 24);
+        sb.append("empleado\thorasNormales\tnocturnas\thorasExtras\n");
+        for (int i = 0; i < lineas; i++) {
+            sb.append('E').append(i).append('\t')
+                    .append(120 + aleatorio.nextInt(50)).append('\t')
+                    .append(aleatorio.nextInt(20)).append('\t')
+                    .append(aleatorio.nextInt(10)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param i Número del trabajador.
+     * @return Cálculo con su detalle y desglose por conceptos, como los que guarda la importación.
+     */
+    static D_Calculo calculo(int i) {
+        F_ResultadoNomina resultado = F_MotorNomina.calcular(parametros(i));
+        double bruto = Math.round(resultado.getSalarioBruto() * 100.0) / 100.0;
+        double neto = Math.round(resultado.getSalarioNeto() * 100.0) / 100.0;
+        StringBuilder detalle = new StringBuilder(128);
+        detalle.append("{\"fecha\":").append(JSONObject.quote(FECHA))
+                .append(",\"bruto\":").append(bruto)
+                .append(",\"neto\":").append(neto)
+                .append(",\"empleado\":").append(JSONObject.quote("E" + i))
+                .append('}');
+        return new D_Calculo("E" + i, PERIODO, FECHA, bruto, neto, detalle.toString(), resultado);
+    }
+}
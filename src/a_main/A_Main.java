@@ -8,7 +8,13 @@
 
 package a_main;
 
+import d_basedatos.D_BaseDatos;
+import d_basedatos.D_Diario;
+import h_concurrencia.H_EjecutorBD;
+import j_configuracion.J_Configuracion;
+import m_metricas.M_Metricas;
 import java.io.File;
+import java.nio.file.Paths;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.image.Image;
@@ -21,14 +27,39 @@ import javafx.stage.Stage;
  */
 public class A_Main extends Application {
 
+    /*
+     * Instante en que se carga la clase, casi al arrancar la JVM: desde aquí se mide
+     * cuánto tarda en verse la ventana (ver M_Metricas).
+     */
+    private static final long INICIO = System.nanoTime();
+
     /**
-     * Inicia la aplicación cargando la interfaz principal.
+     * Inicia la aplicación cargando la interfaz principal. Lo que lee de disco (el
+     * diario, la base de datos, la configuración y el icono) se hace en segundo plano
+     * para que la ventana se muestre en cuanto está construida.
      * 
      * @param primaryStage La ventana principal de la aplicación.
      * @throws Exception Si ocurre un error al cargar la interfaz.
      */
     @Override
     public void start(Stage primaryStage) throws Exception {
+        // Con --metricas=fichero las métricas se publican por JMX y se vuelcan a ese fichero
+        String metricas = getParameters().getNamed().get("metricas");
+        if (metricas != null) {
+            M_Metricas.activar(Paths.get(metricas), M_Metricas.SEGUNDOS_ENTRE_VOLCADOS_POR_DEFECTO);
+        }
+
+        // Con --diario=fichero los cálculos guardados pasan antes por el diario (ver D_Diario).
+        // Abrirlo pasa lo pendiente a la base de datos; hasta que termina se guarda directamente
+        String diario = getParameters().getNamed().get("diario");
+        if (diario != null) {
+            H_EjecutorBD.ejecutar(avance -> {
+                D_Diario.activar(Paths.get(diario));
+                return diario;
+            }, abierto -> {
+            }, error -> System.err.println("No se pudo abrir el diario, se guardará directamente: " + error.getMessage()));
+        }
+
         // Cargar el archivo FXML como nodo raíz
         Parent root = FXMLLoader.load(getClass().getResource("/c_view/C_InterfazPrincipal.fxml"));
 
@@ -36,21 +67,38 @@ public class A_Main extends Application {
         Scene scene = new Scene(root, 700, 860);
         scene.getStylesheets().add(getClass().getResource("/e_estilos/E_Estilo1.css").toExternalForm());
 
+        // Establecer el icono; se lee en segundo plano y se pone cuando está listo
+        Image icono = new Image(new File("icono1_png.png").toURI().toString(), true);
+        icono.progressProperty().addListener((propiedad, anterior, avance) -> {
+            if (avance.doubleValue() >= 1 && !icono.isError()) {
+                primaryStage.getIcons().add(icono);
+            }
+        });
+
         // Configurar y mostrar la ventana
         primaryStage.setTitle("Calculadora de Nómina");
         primaryStage.setScene(scene);
         primaryStage.show();
-        
-        // Establecer el icono
-        primaryStage.getIcons().add(
-                new Image(new File("icono1_png.png").toURI().toString())
-        );
+        M_Metricas.metrica("ui.mostrarVentana").registrar(INICIO);
+    }
+
+    /**
+     * Pasa a la base de datos lo pendiente del diario y cierra la conexión compartida al salir.
+     */
+    @Override
+    public void stop() {
+        J_Configuracion.cerrar();
+        H_EjecutorBD.cerrar(5);
+        D_Diario.desactivar();
+        D_BaseDatos.cerrar();
+        M_Metricas.desactivar();
     }
 
     /**
      * Método principal que lanza la aplicación.
      * 
-     * @param args Argumentos de línea de comandos.
+     * @param args Argumentos de línea de comandos (`--diario=fichero` para usar un diario de cálculos,
+     *             `--metricas=fichero` para publicar y volcar las métricas).
      */
     public static void main(String[] args) {
         launch(args);
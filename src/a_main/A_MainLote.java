@@ -0,0 +1,493 @@
+/**
+ * Objetivo del proyecto: Calcular nóminas de forma automática.
+ * Objetivo de la clase: Punto de entrada por línea de comandos para calcular
+ * las nóminas de muchos trabajadores a partir de un fichero CSV/TSV, sin abrir
+ * la interfaz gráfica.
+ *
+ * Uso:
+ *   java -cp CalcuNominaFxml.jar a_main.A_MainLote entrada.csv [salida.csv]
+ *   java -cp CalcuNominaFxml.jar a_main.A_MainLote --importar entrada.csv [yyyy-MM [diario]]
+ *   java -cp CalcuNominaFxml.jar a_main.A_MainLote --informe desde [hasta]
+ *   java -cp CalcuNominaFxml.jar a_main.A_MainLote --comparar entrada.csv [hilos]
+ *   java -cp CalcuNominaFxml.jar a_main.A_MainLote --perfil convenio yyyy-MM-dd tarifas.properties
+ *   java -cp CalcuNominaFxml.jar a_main.A_MainLote --perfiles
+ *   java -cp CalcuNominaFxml.jar a_main.A_MainLote --exportar yyyy-MM directorio [cuentas.csv empresa iban]
+ *   java -cp CalcuNominaFxml.jar a_main.A_MainLote --simular plantilla.csv eje [eje...]
+ *
+ * Delante de cualquiera de ellos, `--metricas=fichero` publica las métricas por JMX
+ * y las vuelca a ese fichero al terminar (ver M_Metricas).
+ *
+ * Las tarifas y porcentajes se leen de `config.properties` y de los perfiles de
+ * `perfiles/`; el fichero de entrada aporta por trabajador su perfil (columna
+ * `perfil`) y las columnas que quiera sobrescribir.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package a_main;
+
+import d_basedatos.D_BaseDatos;
+import d_basedatos.D_Diario;
+import d_basedatos.D_Informes;
+import d_basedatos.D_Perfiles;
+import d_basedatos.D_TotalConcepto;
+import d_basedatos.D_TotalEmpleado;
+import d_basedatos.D_TotalPeriodo;
+import f_calculo.F_CatalogoPerfiles;
+import f_calculo.F_Concepto;
+import f_calculo.F_Dinero;
+import f_calculo.F_Parametro;
+import f_calculo.F_ResultadoNomina;
+import f_calculo.F_VersionPerfil;
+import g_lotes.G_ComparadorParalelo;
+import g_lotes.G_ImportadorHoras;
+import g_lotes.G_ProcesadorLotes;
+import g_lotes.G_RegistroLote;
+import g_lotes.G_ResumenImportacion;
+import j_configuracion.J_Configuracion;
+import k_exportacion.K_Cuenta;
+import k_exportacion.K_Cuentas;
+import k_exportacion.K_Exportador;
+import k_exportacion.K_FormatoCsv;
+import k_exportacion.K_FormatoPdf;
+import k_exportacion.K_FormatoSepa;
+import k_exportacion.K_ResumenExportacion;
+import l_simulacion.L_Escenario;
+import l_simulacion.L_Plantilla;
+import l_simulacion.L_Rejilla;
+import l_simulacion.L_ResultadoEscenario;
+import l_simulacion.L_Simulador;
+import m_metricas.M_Metricas;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Clase principal del modo por lotes.
+ */
+public class A_MainLote {
+
+    /*
+     * Conceptos en el orden de las columnas de salida.
+     */
+    private static final F_Concepto[] CONCEPTOS = F_Concepto.values();
+
+    /**
+     * Método principal del modo por lotes.
+     *
+     * @param args Fichero de entrada y, opcionalmente, fichero de salida.
+     */
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].startsWith("--metricas=")) {
+            M_Metricas.activar(Paths.get(args[0].substring("--metricas=".length())),
+                    M_Metricas.SEGUNDOS_ENTRE_VOLCADOS_POR_DEFECTO);
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        if (args.length < 1) {
+            System.err.println("Uso: java -cp CalcuNominaFxml.jar a_main.A_MainLote entrada.csv [salida.csv]");
+            System.err.println("     java -cp CalcuNominaFxml.jar a_main.A_MainLote --importar entrada.csv [yyyy-MM [diario]]");
+            System.err.println("     java -cp CalcuNominaFxml.jar a_main.A_MainLote --informe yyyy-MM [yyyy-MM]");
+            System.err.println("     java -cp CalcuNominaFxml.jar a_main.A_MainLote --comparar entrada.csv [hilos]");
+            System.err.println("     java -cp CalcuNominaFxml.jar a_main.A_MainLote --perfil convenio yyyy-MM-dd tarifas.properties");
+            System.err.println("     java -cp CalcuNominaFxml.jar a_main.A_MainLote --perfiles");
+            System.err.println("     java -cp CalcuNominaFxml.jar a_main.A_MainLote --exportar yyyy-MM directorio "
+                    + "[cuentas.csv empresa iban]");
+            System.err.println("     java -cp CalcuNominaFxml.jar a_main.A_MainLote --simular plantilla.csv eje [eje...]");
+            System.err.println("     (delante de cualquiera, --metricas=fichero vuelca las métricas al terminar)");
+            System.exit(2);
+        }
+
+        if ("--importar".equals(args[0])) {
+            importar(args);
+            return;
+        }
+        if ("--informe".equals(args[0])) {
+            informe(args);
+            return;
+        }
+        if ("--comparar".equals(args[0])) {
+            comparar(args);
+            return;
+        }
+        if ("--perfil".equals(args[0])) {
+            guardarPerfil(args);
+            return;
+        }
+        if ("--perfiles".equals(args[0])) {
+            listarPerfiles();
+            return;
+        }
+        if ("--exportar".equals(args[0])) {
+            exportar(args);
+            return;
+        }
+        if ("--simular".equals(args[0])) {
+            simular(args);
+            return;
+        }
+
+        try {
+            F_CatalogoPerfiles perfiles = cargarPerfiles();
+            G_ProcesadorLotes procesador = new G_ProcesadorLotes(perfiles, G_ProcesadorLotes.TAMANO_BLOQUE_POR_DEFECTO);
+
+            long[] errores = new long[1];
+            long inicio = System.nanoTime();
+            long total;
+
+            try (BufferedReader lector = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8);
+                    Writer salida = abrirSalida(args)) {
+                escribirCabecera(salida);
+                StringBuilder sb = new StringBuilder(512);
+                total = procesador.procesar(lector, registro -> {
+                    if (registro.tieneError()) {
+                        errores[0]++;
+                        System.err.println(registro.getError());
+                        return;
+                    }
+                    sb.setLength(0);
+                    escribirRegistro(sb, registro);
+                    try {
+                        salida.append(sb);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+            System.err.printf("Procesadas %d nóminas (%d con errores) en %.2f s (%.0f nóminas/s)%n",
+                    total, errores[0], segundos, total / Math.max(segundos, 1e-9));
+            if (errores[0] > 0) {
+                System.exit(1);
+            }
+        } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+            System.err.println("Error en el cálculo por lotes: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Importa una hoja de horas y guarda cada nómina en la base de datos.
+     *
+     * @param args `--importar` seguido del fichero de entrada y, opcionalmente, el periodo (por defecto el mes
+     *             actual) y un diario de cálculos por el que pasan las nóminas antes de la base de datos.
+     */
+    private static void importar(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Falta el fichero a importar.");
+            System.exit(2);
+        }
+        int codigoSalida = 0;
+        try {
+            F_CatalogoPerfiles perfiles = cargarPerfiles();
+            String periodo = args.length > 2 ? args[2] : YearMonth.now().toString();
+            G_ImportadorHoras importador = new G_ImportadorHoras(perfiles, G_ProcesadorLotes.TAMANO_BLOQUE_POR_DEFECTO, periodo);
+            if (args.length > 3) {
+                D_Diario.activar(Paths.get(args[3]));
+            }
+            G_ResumenImportacion resumen = importador.importar(Paths.get(args[1]), System.err::println);
+            System.err.println(resumen);
+            if (resumen.getErrores() > 0) {
+                codigoSalida = 1;
+            }
+        } catch (IOException | SQLException | IllegalArgumentException e) {
+            System.err.println("Error en la importación: " + e.getMessage());
+            codigoSalida = 1;
+        } finally {
+            D_Diario.desactivar(); // Pasa a la base de datos lo que quede en el diario
+            D_BaseDatos.cerrar();
+        }
+        System.exit(codigoSalida);
+    }
+
+    /**
+     * Muestra los totales guardados entre dos periodos: por periodo, acumulado,
+     * por concepto y por empleado.
+     *
+     * @param args `--informe` seguido del primer periodo y, opcionalmente, el último (por defecto el mismo).
+     */
+    private static void informe(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Falta el periodo del informe.");
+            System.exit(2);
+        }
+        int codigoSalida = 0;
+        try {
+            String desde = args[1];
+            String hasta = args.length > 2 ? args[2] : desde;
+            StringBuilder sb = new StringBuilder();
+
+            sb.append("periodo;nominas;bruto;neto;aportaciones_empresa;coste_empresa;media_bruto;media_neto\n");
+            for (D_TotalPeriodo t : D_Informes.totalesPorPeriodo(desde, hasta)) {
+                anadirTotalPeriodo(sb, t);
+            }
+            anadirTotalPeriodo(sb, D_Informes.totalAcumulado(desde, hasta));
+
+            sb.append("\nconcepto;nominas;importe;media\n");
+            for (D_TotalConcepto t : D_Informes.totalesPorConcepto(desde, hasta)) {
+                sb.append(t.getConcepto().name().toLowerCase()).append(';').append(t.getNominas());
+                anadirImportes(sb, t.getImporte(), t.getMedia());
+            }
+
+            sb.append("\nempleado;nominas;bruto;neto;media_bruto;media_neto\n");
+            for (D_TotalEmpleado t : D_Informes.totalesPorEmpleado(desde, hasta)) {
+                sb.append(t.getEmpleado()).append(';').append(t.getNominas());
+                anadirImportes(sb, t.getBruto(), t.getNeto(), t.getMediaBruto(), t.getMediaNeto());
+            }
+
+            Writer salida = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+            salida.append(sb).flush();
+        } catch (IOException | SQLException | IllegalArgumentException e) {
+            System.err.println("Error en el informe: " + e.getMessage());
+            codigoSalida = 1;
+        } finally {
+            D_BaseDatos.cerrar();
+        }
+        System.exit(codigoSalida);
+    }
+
+    /**
+     * Guarda en la base de datos una versión nueva de las tarifas de un convenio.
+     *
+     * @param args `--perfil` seguido del convenio, la fecha de vigencia y un fichero
+     *             `.properties` con las claves que cambian respecto a `config.properties`.
+     */
+    private static void guardarPerfil(String[] args) {
+        if (args.length < 4) {
+            System.err.println("Faltan el convenio, la fecha de vigencia o el fichero de tarifas.");
+            System.exit(2);
+        }
+        int codigoSalida = 0;
+        try {
+            LocalDate vigenteDesde = LocalDate.parse(args[2]);
+            Properties props = new Properties();
+            try (InputStream input = Files.newInputStream(Paths.get(args[3]))) {
+                props.load(input);
+            }
+            Map<F_Parametro, Double> valores = new EnumMap<>(F_Parametro.class);
+            for (String clave : props.stringPropertyNames()) {
+                F_Parametro p = F_Parametro.porClave(clave);
+                if (p == null) {
+                    throw new IllegalArgumentException("Clave desconocida: " + clave);
+                }
+                valores.put(p, Double.parseDouble(props.getProperty(clave).trim()));
+            }
+            System.err.println("Guardado " + D_Perfiles.guardar(args[1], vigenteDesde, valores));
+        } catch (IOException | SQLException | IllegalArgumentException | DateTimeParseException e) {
+            System.err.println("Error al guardar el perfil: " + e.getMessage());
+            codigoSalida = 1;
+        } finally {
+            D_BaseDatos.cerrar();
+        }
+        System.exit(codigoSalida);
+    }
+
+    /**
+     * Lista todas las versiones de perfiles guardadas, con los valores que cambia cada una.
+     */
+    private static void listarPerfiles() {
+        int codigoSalida = 0;
+        try {
+            StringBuilder sb = new StringBuilder("convenio;version;vigente_desde;valores\n");
+            for (F_VersionPerfil version : D_Perfiles.historial()) {
+                sb.append(version.getConvenio()).append(';').append(version.getVersion()).append(';')
+                        .append(version.getVigenteDesde()).append(';');
+                String separador = "";
+                for (Map.Entry<F_Parametro, Double> valor : version.getValores().entrySet()) {
+                    sb.append(separador).append(valor.getKey().getClave()).append('=').append(valor.getValue());
+                    separador = " ";
+                }
+                sb.append('\n');
+            }
+            System.out.print(sb);
+        } catch (SQLException e) {
+            System.err.println("Error al leer los perfiles: " + e.getMessage());
+            codigoSalida = 1;
+        } finally {
+            D_BaseDatos.cerrar();
+        }
+        System.exit(codigoSalida);
+    }
+
+    /**
+     * Exporta las nóminas guardadas de un periodo a CSV y PDF y, si se indican las
+     * cuentas, a una remesa SEPA con el neto de cada empleado.
+     *
+     * @param args `--exportar` seguido del periodo, el directorio de salida y, opcionalmente,
+     *             el fichero de cuentas (`empleado;iban;nombre`), el nombre y el IBAN de la empresa.
+     */
+    private static void exportar(String[] args) {
+        if (args.length != 3 && args.length != 6) {
+            System.err.println("Se esperan el periodo y el directorio, y opcionalmente las cuentas, la empresa y su IBAN.");
+            System.exit(2);
+        }
+        int codigoSalida = 0;
+        try {
+            String periodo = YearMonth.parse(args[1]).toString();
+            Path directorio = Files.createDirectories(Paths.get(args[2]));
+            try (K_FormatoCsv csv = new K_FormatoCsv(directorio.resolve("nominas-" + periodo + ".csv"));
+                    K_FormatoPdf pdf = new K_FormatoPdf(directorio.resolve("nominas-" + periodo + ".pdf"))) {
+                K_ResumenExportacion resumen;
+                if (args.length == 6) {
+                    K_Cuentas cuentas = K_Cuentas.leer(Paths.get(args[3]));
+                    K_Cuenta empresa = new K_Cuenta(args[4], args[5]);
+                    // Se paga el último día del periodo, o hoy si ya ha pasado
+                    LocalDate ejecucion = YearMonth.parse(periodo).atEndOfMonth();
+                    if (ejecucion.isBefore(LocalDate.now())) {
+                        ejecucion = LocalDate.now();
+                    }
+                    try (K_FormatoSepa sepa = new K_FormatoSepa(directorio.resolve("sepa-" + periodo + ".xml"), periodo,
+                            empresa, cuentas, ejecucion)) {
+                        resumen = K_Exportador.exportar(periodo, csv, pdf, sepa);
+                        System.err.printf("Remesa SEPA: %d transferencias por %s €%n", sepa.getTransferencias(),
+                                F_Dinero.anadir(new StringBuilder(), sepa.getTotalCentimos()));
+                    }
+                } else {
+                    resumen = K_Exportador.exportar(periodo, csv, pdf);
+                }
+                System.err.println(resumen);
+            }
+        } catch (IOException | SQLException | IllegalArgumentException | DateTimeParseException e) {
+            System.err.println("Error en la exportación: " + e.getMessage());
+            codigoSalida = 1;
+        } finally {
+            D_BaseDatos.cerrar();
+        }
+        System.exit(codigoSalida);
+    }
+
+    /**
+     * Evalúa una rejilla de escenarios sobre la plantilla de una hoja de horas y
+     * escribe en la salida estándar el coste y el neto de cada uno frente a los actuales.
+     *
+     * @param args `--simular` seguido de la hoja de horas y los ejes de la rejilla
+     *             (por ejemplo `ccEmpresa=23.6,24 plusNocturnidad+=0,0.5`; ver L_Rejilla).
+     */
+    private static void simular(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Faltan la plantilla o los ejes de la rejilla.");
+            System.exit(2);
+        }
+        try {
+            List<L_Escenario> escenarios = L_Rejilla.parsear(Arrays.copyOfRange(args, 2, args.length));
+            L_Plantilla plantilla = L_Plantilla.leer(Paths.get(args[1]), cargarPerfiles(), System.err::println);
+
+            long inicio = System.nanoTime();
+            List<L_ResultadoEscenario> resultados = new L_Simulador(plantilla).simular(escenarios);
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+
+            StringBuilder sb = new StringBuilder("escenario;nominas;descartadas;coste_empresa;diferencia_coste;"
+                    + "neto;diferencia_neto\n");
+            for (L_ResultadoEscenario resultado : resultados) {
+                resultado.anadirCsv(sb).append('\n');
+            }
+            Writer salida = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+            salida.append(sb).flush();
+            System.err.printf("%d escenarios sobre %d trabajadores (%d líneas descartadas) en %.2f s%n",
+                    escenarios.size(), plantilla.getTamano(), plantilla.getErrores(), segundos);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error en la simulación: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Calcula el lote de forma secuencial y en paralelo y muestra la aceleración obtenida.
+     *
+     * @param args `--comparar` seguido del fichero y, opcionalmente, los hilos (por defecto todos los núcleos).
+     */
+    private static void comparar(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Falta el fichero a calcular.");
+            System.exit(2);
+        }
+        try {
+            F_CatalogoPerfiles perfiles = cargarPerfiles();
+            int hilos = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            G_ComparadorParalelo comparador = new G_ComparadorParalelo(perfiles, G_ProcesadorLotes.TAMANO_BLOQUE_POR_DEFECTO,
+                    hilos);
+            System.out.println(comparador.comparar(Paths.get(args[1]), 3));
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error en la comparación: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void anadirTotalPeriodo(StringBuilder sb, D_TotalPeriodo t) {
+        sb.append(t.getPeriodo()).append(';').append(t.getNominas());
+        anadirImportes(sb, t.getBruto(), t.getNeto(), t.getAportacionesEmpresa(), t.getCosteEmpresa(),
+                t.getMediaBruto(), t.getMediaNeto());
+    }
+
+    /*
+     * Añade los importes separados por ';' y termina la línea.
+     */
+    private static void anadirImportes(StringBuilder sb, double... importes) {
+        for (double importe : importes) {
+            sb.append(';');
+            F_ResultadoNomina.anadirImporte(sb, importe);
+        }
+        sb.append('\n');
+    }
+
+    /**
+     * Compila los perfiles de tarifas una sola vez para todo el lote. Si no existe
+     * `config.properties` el perfil por defecto usa los valores por defecto.
+     *
+     * @return Perfiles de tarifas del lote.
+     * @throws IOException Si algún fichero de configuración existe pero no se puede leer.
+     * @throws NumberFormatException Si algún perfil tiene un valor no válido.
+     */
+    static F_CatalogoPerfiles cargarPerfiles() throws IOException {
+        F_CatalogoPerfiles perfiles = J_Configuracion.recargar();
+        if (!J_Configuracion.hayFichero()) {
+            System.err.println("No se encontró " + J_Configuracion.FICHERO + ". Se usarán valores por defecto.");
+        }
+        return perfiles;
+    }
+
+    /*
+     * Salida en fichero si se indica, o en la salida estándar.
+     */
+    private static Writer abrirSalida(String[] args) throws IOException {
+        if (args.length > 1) {
+            return Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8);
+        }
+        return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    private static void escribirCabecera(Writer salida) throws IOException {
+        StringBuilder sb = new StringBuilder("linea;empleado");
+        for (F_Concepto c : CONCEPTOS) {
+            sb.append(';').append(c.name().toLowerCase());
+        }
+        salida.append(sb).append('\n');
+    }
+
+    private static void escribirRegistro(StringBuilder sb, G_RegistroLote registro) {
+        F_ResultadoNomina resultado = registro.getResultado();
+        sb.append(registro.getLinea()).append(';').append(registro.getEmpleado());
+        for (F_Concepto c : CONCEPTOS) {
+            sb.append(';');
+            F_ResultadoNomina.anadirImporte(sb, resultado.get(c));
+        }
+        sb.append('\n');
+    }
+}
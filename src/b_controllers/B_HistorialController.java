@@ -0,0 +1,194 @@
+/**
+ * Objetivo de la clase: Es el controlador de la pestaña Historial (C_Historial.fxml):
+ *                       carga por páginas los cálculos guardados del empleado
+ *                       seleccionado, abre su detalle y los elimina.
+ *
+ * Lo crea B_InterfazPrincipalController al abrir la pestaña por primera vez, y le
+ * pasa cómo saber el empleado seleccionado, dónde mostrar los mensajes y cómo abrir
+ * el detalle de un cálculo, que siguen siendo de la vista principal.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package b_controllers;
+
+import d_basedatos.D_BaseDatos;
+import d_basedatos.D_RegistroHistorial;
+import h_concurrencia.H_EjecutorBD;
+import m_metricas.M_Metrica;
+import m_metricas.M_Metricas;
+import java.net.URL;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+
+public class B_HistorialController implements Initializable {
+
+    @FXML private ListView<D_RegistroHistorial> lvHistoriallv;
+
+    /*
+     * Desde que se pide una página del historial hasta que llega al hilo de JavaFX (ver M_Metricas).
+     */
+    private static final M_Metrica METRICA_HISTORIAL = M_Metricas.metrica("ui.paginaHistorial");
+
+    /*
+     * Estado de la carga paginada del historial.
+     */
+    private static final int TAMANO_PAGINA_HISTORIAL = 200;
+    private static final int MARGEN_CARGA_HISTORIAL = 20; // Filas antes del final en que se pide la siguiente página
+    private D_RegistroHistorial ultimoRegistroHistorial;
+    private boolean historialCompleto;
+    private boolean cargandoHistorial;
+    private int generacionHistorial; // Descarta páginas de una carga anterior si se recarga el historial
+    private String empleadoHistorial; // Empleado del historial mostrado, o `null` para todos
+    private Task<List<D_RegistroHistorial>> tareaHistorial;
+
+    /*
+     * Lo que el historial necesita de la vista principal.
+     */
+    private final Supplier<String> empleadoSeleccionado;
+    private final Consumer<String> mostrarMensaje;
+    private final Consumer<D_RegistroHistorial> mostrarDetalle;
+
+    /**
+     * @param empleadoSeleccionado Código del empleado seleccionado, o `null` si aún no hay.
+     * @param mostrarMensaje Muestra un aviso o un error en la vista principal.
+     * @param mostrarDetalle Abre el detalle de un cálculo del historial.
+     */
+    public B_HistorialController(Supplier<String> empleadoSeleccionado, Consumer<String> mostrarMensaje,
+            Consumer<D_RegistroHistorial> mostrarDetalle) {
+        this.empleadoSeleccionado = empleadoSeleccionado;
+        this.mostrarMensaje = mostrarMensaje;
+        this.mostrarDetalle = mostrarDetalle;
+    }
+
+    /**
+     * Prepara la lista: las páginas se piden al mostrarse las últimas filas y el doble
+     * clic abre el detalle.
+     */
+    @Override
+    public void initialize(URL location, ResourceBundle resources) {
+        // El historial se va cargando por páginas a medida que se muestran las últimas filas
+        lvHistoriallv.setCellFactory(lista -> new ListCell<D_RegistroHistorial>() {
+            @Override
+            protected void updateItem(D_RegistroHistorial item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null
+                        : "Fecha: " + item.getFecha() + " - Bruto: " + item.getBruto() + " € - Neto: " + item.getNeto() + " €");
+                if (!empty && getIndex() >= lista.getItems().size() - MARGEN_CARGA_HISTORIAL) {
+                    cargarPaginaHistorial();
+                }
+            }
+        });
+
+        // Mostrar ventana de detalle al hacer doble clic en un ítem del historial
+        lvHistoriallv.setOnMouseClicked(event -> {
+            if (event.getClickCount() == 2) {
+                D_RegistroHistorial selectedItem = lvHistoriallv.getSelectionModel().getSelectedItem();
+                if (selectedItem != null) {
+                    mostrarDetalle.accept(selectedItem);
+                }
+            }
+        });
+    }
+
+    /**
+     * Vuelve a cargar el historial con el empleado seleccionado, si ya se había consultado.
+     */
+    public void empleadoCambiado() {
+        if (generacionHistorial > 0) {
+            verHistorial();
+        }
+    }
+
+    /**
+     * Consulta y muestra los cálculos anteriores del empleado seleccionado.
+     * Solo se carga la primera página; el resto se pide al desplazarse por la lista.
+     */
+    @FXML
+    private void verHistorial() {
+        if (tareaHistorial != null) {
+            tareaHistorial.cancel();
+        }
+        generacionHistorial++;
+        empleadoHistorial = empleadoSeleccionado.get();
+        ultimoRegistroHistorial = null;
+        historialCompleto = false;
+        cargandoHistorial = false;
+        lvHistoriallv.setItems(FXCollections.observableArrayList());
+        cargarPaginaHistorial();
+    }
+
+    /**
+     * Pide en segundo plano la siguiente página del historial y la añade a la lista
+     * al terminar. Si ya hay una carga en curso o no quedan registros no hace nada.
+     */
+    private void cargarPaginaHistorial() {
+        if (cargandoHistorial || historialCompleto) {
+            return;
+        }
+        cargandoHistorial = true;
+
+        int generacion = generacionHistorial;
+        String empleado = empleadoHistorial;
+        D_RegistroHistorial anterior = ultimoRegistroHistorial;
+        ObservableList<D_RegistroHistorial> historialItems = lvHistoriallv.getItems();
+
+        long inicio = System.nanoTime();
+        tareaHistorial = H_EjecutorBD.ejecutar(
+                avance -> D_BaseDatos.obtenerPaginaHistorial(empleado, anterior, TAMANO_PAGINA_HISTORIAL),
+                pagina -> {
+                    METRICA_HISTORIAL.registrar(inicio);
+                    if (generacion != generacionHistorial) {
+                        return; // El historial se ha recargado mientras tanto
+                    }
+                    historialItems.addAll(pagina);
+                    if (!pagina.isEmpty()) {
+                        ultimoRegistroHistorial = pagina.get(pagina.size() - 1);
+                    }
+                    historialCompleto = pagina.size() < TAMANO_PAGINA_HISTORIAL;
+                    cargandoHistorial = false;
+                },
+                error -> {
+                    METRICA_HISTORIAL.fallo(inicio);
+                    if (generacion != generacionHistorial) {
+                        return;
+                    }
+                    mostrarMensaje.accept("Error al consultar la base de datos: " + error.getMessage());
+                    historialCompleto = true;
+                    cargandoHistorial = false;
+                });
+    }
+
+    /**
+     * Elimina un cálculo seleccionado del historial, basado en su identificador.
+     */
+    @FXML
+    private void eliminarRegistro() {
+        D_RegistroHistorial seleccionado = lvHistoriallv.getSelectionModel().getSelectedItem();
+        if (seleccionado != null) {
+            String fecha = seleccionado.getFecha();
+            H_EjecutorBD.ejecutar(
+                    avance -> D_BaseDatos.eliminarCalculo(seleccionado.getId()),
+                    filas -> {
+                        if (filas > 0) {
+                            mostrarMensaje.accept("Registro con fecha " + fecha + " eliminado.");
+                            lvHistoriallv.getItems().remove(seleccionado); // No hace falta recargar la lista
+                        } else {
+                            mostrarMensaje.accept("Fecha " + fecha + " no encontrada.");
+                        }
+                    },
+                    error -> mostrarMensaje.accept("Error al eliminar: " + error.getMessage()));
+        } else {
+            mostrarMensaje.accept("Selecciona un registro en el historial para eliminarlo.");
+        }
+    }
+}
@@ -9,22 +9,60 @@
 package b_controllers;
 
 import d_basedatos.D_BaseDatos;
+import d_basedatos.D_Calculo;
+import d_basedatos.D_Diario;
+import d_basedatos.D_Empleado;
+import d_basedatos.D_Empleados;
+import d_basedatos.D_Esquema;
+import d_basedatos.D_Perfiles;
+import d_basedatos.D_RegistroHistorial;
+import f_calculo.F_CalculoIncremental;
+import f_calculo.F_CatalogoPerfiles;
+import f_calculo.F_Parametro;
+import f_calculo.F_ParametrosNomina;
+import f_calculo.F_PerfilTarifas;
+import f_calculo.F_ResultadoNomina;
+import h_concurrencia.H_EjecutorBD;
+import j_configuracion.J_Configuracion;
+import k_exportacion.K_Exportador;
+import k_exportacion.K_FormatoCsv;
+import k_exportacion.K_FormatoPdf;
+import l_simulacion.L_Escenario;
+import l_simulacion.L_Plantilla;
+import l_simulacion.L_Rejilla;
+import l_simulacion.L_ResultadoEscenario;
+import l_simulacion.L_Simulador;
+import m_metricas.M_Metrica;
+import m_metricas.M_Metricas;
 import javafx.scene.input.MouseEvent;
 import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
 import java.io.*;
+import java.math.BigDecimal;
 import java.net.URL;
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
 import java.util.ResourceBundle;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.layout.Region;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
+import javafx.util.StringConverter;
+import org.json.JSONArray;
 import org.json.JSONObject;
 
 public class B_InterfazPrincipalController implements Initializable {
@@ -83,9 +121,21 @@ public class B_InterfazPrincipalController implements Initializable {
     @FXML private TextField tfPensionesMEIEmpresa;
     
     /*
-     * Lista de historial de cálculos anteriores.
+     * Pestaña del historial. Su contenido es otra vista con su propio controlador
+     * (B_HistorialController), que se carga la primera vez que se abre la pestaña.
      */
-    @FXML private ListView<String> lvHistoriallv;
+    private static final URL VISTA_HISTORIAL = B_InterfazPrincipalController.class.getResource("/c_view/C_Historial.fxml");
+    @FXML private Tab tabHistorial;
+    private B_HistorialController historial;
+
+    /*
+     * Selector del empleado cuya nómina se calcula y empleado seleccionado (`null`
+     * hasta que se abre la base de datos). La lista solo trae los primeros empleados
+     * por código; a cualquier otro se llega escribiendo su código.
+     */
+    private static final int EMPLEADOS_EN_SELECTOR = 500;
+    @FXML private ComboBox<D_Empleado> cbEmpleado;
+    private D_Empleado empleadoActual;
 
     /*
      * Variables para almacenar resultados del cálculo actual.
@@ -94,26 +144,151 @@ public class B_InterfazPrincipalController implements Initializable {
     private double salarioBruto;
     private double salarioNeto;
     private String fechaActual;
+    private F_ResultadoNomina resultadoActual;
+
+    /*
+     * Cálculo que se mantiene al día mientras se editan los campos (a partir del primer
+     * "Calcular") y texto que se puso en las áreas que solo se reponen si les afecta un
+     * cambio, para saber si entretanto muestran otro mensaje.
+     */
+    private static final long CONCEPTOS_GASTOS = F_ResultadoNomina.conceptosGastosAdicionales();
+    private static final long CONCEPTOS_RETENCIONES = F_ResultadoNomina.conceptosRetenciones();
+    private F_CalculoIncremental calculoEnVivo;
+    private String textoGastosMostrado;
+    private String textoRetencionesMostrado;
+
+    /*
+     * Tiempos de la interfaz vistos por el usuario (ver M_Metricas): el cálculo, cada
+     * recálculo en vivo y, desde que se piden hasta que llegan al hilo de JavaFX, los
+     * detalles (las páginas del historial las mide B_HistorialController).
+     */
+    private static final M_Metrica METRICA_CALCULO = M_Metricas.metrica("ui.calcularNomina");
+    private static final M_Metrica METRICA_RECALCULO = M_Metricas.metrica("ui.recalcularCampo");
+    private static final M_Metrica METRICA_DETALLE = M_Metricas.metrica("ui.detalle");
+
+    /*
+     * Arranque: desde que se crea la vista hasta que los campos tienen las tarifas del
+     * empleado por defecto. La ventana ya se ve y se puede escribir mientras tanto.
+     */
+    private static final M_Metrica METRICA_ARRANQUE = M_Metricas.metrica("ui.arranque");
+    private long inicioArranque;
+
+    /*
+     * Campo de texto de cada parámetro, el perfil de tarifas con que se rellenaron y el
+     * texto que puso el perfil en cada campo, para saber qué campos ha cambiado el usuario.
+     */
+    private final Map<F_Parametro, TextField> campos = new EnumMap<>(F_Parametro.class);
+    private final Map<F_Parametro, String> textosPerfil = new EnumMap<>(F_Parametro.class);
+    private F_PerfilTarifas perfilCargado;
+
+    /*
+     * Último simulador usado, con su caché de escenarios. Se reutiliza mientras no
+     * cambien el fichero de la plantilla ni las tarifas.
+     */
+    private L_Simulador simulador;
+    private File plantillaSimulada;
+    private long versionPlantillaSimulada;
+    private F_CatalogoPerfiles perfilesSimulados;
+    private String ultimaRejilla = "ccEmpresa=23.6,24,24.5 plusNocturnidad+=0,0.5";
 
     /**
-     * Inicializa el controlador y carga la configuración almacenada.
-     * También configura el evento de doble clic sobre el historial.
+     * Inicializa el controlador y lanza en segundo plano la carga de la configuración y
+     * la apertura de la base de datos, para que la ventana se muestre sin esperarlas.
      */
     @Override
     public void initialize(URL location, ResourceBundle resources) {
-        cargarConfiguracion();
-
-        // Mostrar ventana de detalle al hacer doble clic en un ítem del historial
-        lvHistoriallv.setOnMouseClicked(event -> {
-            if (event.getClickCount() == 2) {
-                String selectedItem = lvHistoriallv.getSelectionModel().getSelectedItem();
-                if (selectedItem != null) {
-                    mostrarVentanaDetalle(selectedItem);
+        inicioArranque = System.nanoTime();
+        asociarCampos();
+
+        // Tras el primer cálculo, cada cambio en un campo recalcula solo los importes que dependen de él
+        for (Map.Entry<F_Parametro, TextField> campo : campos.entrySet()) {
+            F_Parametro parametro = campo.getKey();
+            TextField tf = campo.getValue();
+            tf.textProperty().addListener((propiedad, anterior, texto) -> recalcularCampo(parametro, tf, texto));
+        }
+
+        // Las tarifas se recargan solas al cambiar los ficheros; los campos que ha editado el usuario se respetan
+        J_Configuracion.alCambiar(catalogo -> Platform.runLater(() -> {
+            if (empleadoActual != null) {
+                aplicarEmpleado(empleadoActual, true);
+            } else {
+                aplicarPerfil(catalogo.getPorDefecto(), true);
+            }
+        }));
+
+        // Los perfiles se leen y se empiezan a vigilar en segundo plano; lo que se escriba mientras tanto se respeta
+        H_EjecutorBD.ejecutar(avance -> {
+            try {
+                J_Configuracion.vigilar();
+            } catch (IOException e) {
+                System.out.println("No se puede vigilar config.properties: " + e.getMessage());
+            }
+            return J_Configuracion.perfiles();
+        }, catalogo -> {
+            if (empleadoActual == null) {
+                aplicarPerfil(catalogo.getPorDefecto(), true);
+            }
+            mostrarEstadoConfiguracion();
+        }, error -> taDatosSalariales.setText("Error al cargar la configuración: " + error.getMessage()));
+
+        // El esquema se crea (y se migra si hace falta) una sola vez al arrancar, en segundo plano;
+        // después se selecciona el empleado por defecto respetando lo que se haya escrito mientras
+        H_EjecutorBD.ejecutar(avance -> {
+            D_BaseDatos.inicializar();
+            return D_Empleados.listar(EMPLEADOS_EN_SELECTOR);
+        }, empleados -> {
+            cbEmpleado.setItems(FXCollections.observableArrayList(empleados));
+            elegirEmpleado(D_Esquema.EMPLEADO_POR_DEFECTO, true);
+        }, error -> {
+            METRICA_ARRANQUE.fallo(inicioArranque);
+            inicioArranque = 0;
+            taDatosSalariales.setText("Error al abrir la base de datos: " + error.getMessage());
+        });
+
+        // Se puede escribir el código de un empleado que no esté en la lista (o de uno nuevo)
+        cbEmpleado.setConverter(new StringConverter<D_Empleado>() {
+            @Override
+            public String toString(D_Empleado empleado) {
+                return empleado == null ? "" : empleado.toString();
+            }
+
+            @Override
+            public D_Empleado fromString(String texto) {
+                String codigo = texto.trim();
+                if (codigo.isEmpty()) {
+                    return null;
                 }
+                for (D_Empleado empleado : cbEmpleado.getItems()) {
+                    if (empleado.getCodigo().equals(codigo) || empleado.toString().equals(codigo)) {
+                        return empleado;
+                    }
+                }
+                return D_Empleado.nuevo(codigo);
             }
         });
     }
 
+    /**
+     * Carga la vista del historial la primera vez que se abre su pestaña.
+     */
+    @FXML
+    private void abrirHistorial() {
+        if (!tabHistorial.isSelected() || tabHistorial.getContent() != null) {
+            return;
+        }
+        FXMLLoader loader = new FXMLLoader(VISTA_HISTORIAL);
+        loader.setControllerFactory(tipo -> new B_HistorialController(
+                () -> empleadoActual != null ? empleadoActual.getCodigo() : null,
+                this::mostrarMensaje, this::mostrarVentanaDetalle));
+        try {
+            tabHistorial.setContent(loader.load());
+        } catch (IOException e) {
+            taDatosSalariales.setText("Error al cargar el historial: " + e.getMessage());
+            return;
+        }
+        historial = loader.getController();
+    }
+
     /**
      * Valida y convierte el valor numérico introducido en un campo de texto.
      *
@@ -141,230 +316,140 @@ public class B_InterfazPrincipalController implements Initializable {
      */
     @FXML
     private void calcularNomina() {
+        long inicio = System.nanoTime();
         try {
-            // Lectura y validación de todos los campos necesarios
-            double horasNormales = lecturaConValidacionDeCampo(tfHorasNormales, "Horas Normales");
-            double horasNocturnas = lecturaConValidacionDeCampo(tfHorasNocturnas, "Horas Nocturnas");
-            double horasExtras = lecturaConValidacionDeCampo(tfHorasExtras, "Horas Extras");
-            double horasFestivas = lecturaConValidacionDeCampo(tfHorasFestivas, "Horas Festivas");
-            double diasConDieta = lecturaConValidacionDeCampo(tfDiasConDieta, "Días con Dieta");
-            double kilometrosRecorridos = lecturaConValidacionDeCampo(tfKilometrosRecorridos, "Kilómetros Recorridos");
-            double diasAlojamiento = lecturaConValidacionDeCampo(tfNochesFuera, "Noches Fuera");
-            double totalTransportePublico = lecturaConValidacionDeCampo(tfTotalTransportePublico, "Transporte Público");
-            double otrosGastos = lecturaConValidacionDeCampo(tfOtrosGastos, "Otros Gastos");
-            double salarioBase = lecturaConValidacionDeCampo(tfSalarioBase, "Salario Base");
-            double plusTurnicidad = lecturaConValidacionDeCampo(tfPlusTurnicidad, "Plus Turnicidad");
-            double plusNocturnidad = lecturaConValidacionDeCampo(tfPlusNocturnidad, "Plus Nocturnidad");
-            double plusHorasExtras = lecturaConValidacionDeCampo(tfPlusHorasExtras, "Plus Horas Extras");
-            double plusFestivos = lecturaConValidacionDeCampo(tfPlusFestivos, "Plus Festivos");
-            double prorrataPagaExtra = lecturaConValidacionDeCampo(tfProrrataPagaExtra, "Prorrata Paga Extra");
-            double prorrataVacaciones = lecturaConValidacionDeCampo(tfProrrataVacaciones, "Prorrata Vacaciones");
-            double compensacionFinContrato = lecturaConValidacionDeCampo(tfCompensacionFinContrato, "Compensación Fin Contrato");
-            double atrasos = lecturaConValidacionDeCampo(tfAtrasos, "Atrasos");
-
-            double dietaDiaria = lecturaConValidacionDeCampo(tfDietaDiaria, "Dieta Diaria");
-            double precioPorKilometro = lecturaConValidacionDeCampo(tfPrecioPorKilometro, "Precio por Kilómetro");
-            double precioAlojamiento = lecturaConValidacionDeCampo(tfPrecioPorNoche, "Precio por Noche");
-
-            double IRPF = lecturaConValidacionDeCampo(tfIRPF, "IRPF");
-            double contingenciasComunesTrabajador = lecturaConValidacionDeCampo(tfContingenciasComunesTrabajador, "Contingencias Comunes Trabajador") / 100;
-            double desempleoTrabajador = lecturaConValidacionDeCampo(tfDesempleoTrabajador, "Desempleo Trabajador") / 100;
-            double fpTrabajador = lecturaConValidacionDeCampo(tfFormacionProfesionalTrabajador, "Formación Profesional Trabajador") / 100;
-            double meiTrabajador = lecturaConValidacionDeCampo(tfPensionesMEITrabajador, "M.E.I. Trabajador") / 100;
-            double contingenciasComunesEmpresa = lecturaConValidacionDeCampo(tfContingenciasComunesEmpresa, "Contingencias Comunes Empresa") / 100;
-            double atEpEmpresa = lecturaConValidacionDeCampo(tfATEPEmpresa, "AT y EP Empresa") / 100;
-            double desempleoEmpresa = lecturaConValidacionDeCampo(tfDesempleoEmpresa, "Desempleo Empresa") / 100;
-            double fpEmpresa = lecturaConValidacionDeCampo(tfFormacionProfesionalEmpresa, "Formación Profesional Empresa") / 100;
-            double fogasa = lecturaConValidacionDeCampo(tfFOGASAEmpresa, "FOGASA") / 100;
-            double meiEmpresa = lecturaConValidacionDeCampo(tfPensionesMEIEmpresa, "M.E.I. Empresa") / 100;
-
-            double devengosHorasNormales = salarioBase * horasNormales;
-            double devengosPlusTurnicidad = plusTurnicidad * (horasNormales + horasNocturnas + horasExtras + horasFestivas);
-            double devengosHorasNocturnas= (salarioBase + plusNocturnidad) * horasNocturnas;
-            double devengosHorasExtras = (salarioBase + plusHorasExtras) * horasExtras;
-            double devengosHorasFestivas= (salarioBase + plusFestivos) * horasFestivas;
-            double devengosProrrataPagaExtra = prorrataPagaExtra * (horasNormales + horasNocturnas + horasExtras + horasFestivas);
-            double devengosProrrataVacaciones = prorrataVacaciones * (horasNormales + horasNocturnas + horasExtras + horasFestivas);
-            double devengosCompensacionFinContrato = compensacionFinContrato * (horasNormales + horasNocturnas + horasExtras + horasFestivas);
-
-            double totalDietas = dietaDiaria * diasConDieta;
-            double totalKilometraje = kilometrosRecorridos * precioPorKilometro;
-            double totalAlojamiento = diasAlojamiento * precioAlojamiento;
-            double totalGastosAdicionales = totalDietas + totalKilometraje + totalAlojamiento + totalTransportePublico + otrosGastos;
-
-            double basesDeCotizacion = devengosHorasNormales + devengosPlusTurnicidad + devengosHorasNocturnas + devengosHorasExtras
-                    + devengosHorasFestivas + devengosProrrataPagaExtra + devengosProrrataVacaciones + atrasos;
-
-            double totalAportaciones_trabajador = basesDeCotizacion * (contingenciasComunesTrabajador + desempleoTrabajador + fpTrabajador + meiTrabajador);
-            double totalAportaciones_empresa = basesDeCotizacion * (contingenciasComunesEmpresa + atEpEmpresa + desempleoEmpresa + fpEmpresa + fogasa + meiEmpresa);
-
-            salarioBrutoTributable = devengosHorasNormales + devengosPlusTurnicidad + devengosHorasNocturnas
-                    + devengosHorasExtras + devengosHorasFestivas + devengosProrrataPagaExtra
-                    + devengosProrrataVacaciones + devengosCompensacionFinContrato + atrasos;
-            
-            salarioBruto = salarioBrutoTributable + totalGastosAdicionales;
-
-            double retencionIRPF = salarioBrutoTributable * (IRPF / 100);
-            double totalRetenciones = totalAportaciones_trabajador + retencionIRPF;
-            salarioNeto = salarioBrutoTributable - totalRetenciones + totalGastosAdicionales;
-
-            fechaActual = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-
-            taDatosSalariales.setText(
-                    "=== Datos Salariales ===\n"
-                    + "Fecha: " + fechaActual + "\n"
-                    + "Horas normales: " + String.format("%.2f", devengosHorasNormales) + " €\n"
-                    + "Horas nocturnas: " + String.format("%.2f", devengosHorasNocturnas) + " €\n"
-                    + "Horas extras: " + String.format("%.2f", devengosHorasExtras) + " €\n"
-                    + "Horas festivas: " + String.format("%.2f", devengosHorasFestivas) + " €\n"
-                    + "Plus turnicidad: " + String.format("%.2f", devengosPlusTurnicidad) + " €\n"
-                    + "Prorrata paga extra: " + String.format("%.2f", devengosProrrataPagaExtra) + " €\n"
-                    + "Prorrata vacaciones: " + String.format("%.2f", devengosProrrataVacaciones) + " €\n"
-                    + "Compensación fin contrato: " + String.format("%.2f", devengosCompensacionFinContrato) + " €\n"
-                    + "Atrasos: " + String.format("%.2f", atrasos) + " €\n"
-                    + "Salario bruto: " + String.format("%.2f", salarioBrutoTributable) + " €\n"
-                    + "Salario neto: " + String.format("%.2f", salarioNeto) + " €"
-            );
-
-            taGastosAdicionales.setText(
-                    "=== Gastos Adicionales (Exentos) ===\n"
-                    + "Dietas: " + String.format("%.2f", totalDietas) + " €\n"
-                    + "Kilometraje: " + String.format("%.2f", totalKilometraje) + " €\n"
-                    + "Alojamiento: " + String.format("%.2f", totalAlojamiento) + " €\n"
-                    + "Transporte público: " + String.format("%.2f", totalTransportePublico) + " €\n"
-                    + "Otros gastos: " + String.format("%.2f", otrosGastos) + " €\n"
-                    + "Total gastos adicionales: " + String.format("%.2f", totalGastosAdicionales) + " €"
-            );
-
-            taRetenciones.setText(
-                    "=== Retenciones ===\n"
-                    + "Aportaciones empresa: " + String.format("%.2f", totalAportaciones_empresa) + " €\n"
-                    + "Aportaciones trabajador: " + String.format("%.2f", totalAportaciones_trabajador) + " €\n"
-                    + "IRPF retenido: " + String.format("%.2f", retencionIRPF) + " €\n"
-                    + "Total retenciones trabajador: " + String.format("%.2f", totalRetenciones) + " €"
-            );
+            // Se parte del perfil ya compilado y solo se leen los campos que ha cambiado el usuario
+            F_ParametrosNomina parametros = perfilCargado != null ? perfilCargado.nuevosParametros() : new F_ParametrosNomina();
+            for (Map.Entry<F_Parametro, TextField> campo : campos.entrySet()) {
+                TextField tf = campo.getValue();
+                if (tf.getText().equals(textosPerfil.get(campo.getKey()))) {
+                    tf.setStyle("");
+                } else {
+                    parametros.set(campo.getKey(), lecturaConValidacionDeCampo(tf, campo.getKey().getNombre()));
+                }
+            }
+
+            // El cálculo se hace en el motor, independiente de la interfaz; si ya había uno
+            // solo se rehacen los importes que dependen de los parámetros distintos
+            if (calculoEnVivo == null) {
+                calculoEnVivo = new F_CalculoIncremental(parametros);
+            } else {
+                calculoEnVivo.cambiar(parametros);
+            }
+            mostrarResultado(-1L);
+            METRICA_CALCULO.registrar(inicio);
 
         } catch (NumberFormatException e) {
+            METRICA_CALCULO.fallo(inicio);
             taDatosSalariales.setText("Error: " + e.getMessage());
             taGastosAdicionales.setText("Error: " + e.getMessage());
             taRetenciones.setText("Error: " + e.getMessage());
+        } catch (ArithmeticException e) {
+            // El motor trabaja con céntimos en long: solo se desborda con valores absurdos
+            METRICA_CALCULO.fallo(inicio);
+            taDatosSalariales.setText("Error: importes fuera de rango.");
+            taGastosAdicionales.setText("Error: importes fuera de rango.");
+            taRetenciones.setText("Error: importes fuera de rango.");
         }
     }
 
-    /**
-     * Guarda el cálculo actual en la base de datos en formato JSON.
+    /*
+     * Recalcula al editar un campo. Si el texto no es válido el campo queda en rojo y
+     * se sigue mostrando el último cálculo correcto.
      */
-    @FXML
-    private void guardarCalculo() {
-        if (fechaActual != null) {
-            D_BaseDatos.crearTabla();
-
-            // Crear JSON extendido
-            JSONObject detalle = new JSONObject();
-            double brutoRedondeado = Math.round(salarioBruto * 100.0) / 100.0;
-            double netoRedondeado = Math.round(salarioNeto * 100.0) / 100.0;
-
-            detalle.put("fecha", fechaActual);
-            detalle.put("bruto", brutoRedondeado);
-            detalle.put("neto", netoRedondeado);
-            detalle.put("datosSalariales", taDatosSalariales.getText());
-            detalle.put("gastosAdicionales", taGastosAdicionales.getText());
-            detalle.put("retenciones", taRetenciones.getText());
-
-            try (Connection conn = D_BaseDatos.conectar()) {
-                // Insertar el nuevo cálculo
-                PreparedStatement pstmt = conn.prepareStatement(
-                        "INSERT INTO calculos (fecha, salario_bruto, salario_neto, detalle_json) VALUES (?, ?, ?, ?)");
-                pstmt.setString(1, fechaActual);
-                pstmt.setDouble(2, brutoRedondeado);
-                pstmt.setDouble(3, netoRedondeado);
-                pstmt.setString(4, detalle.toString());
-                pstmt.executeUpdate();
-
-                taDatosSalariales.appendText("\n(Cálculo guardado)");
-                taGastosAdicionales.setText("\n(Cálculo guardado)");
-                taRetenciones.setText("\n(Cálculo guardado)");
-
-            } catch (SQLException e) {
-                taDatosSalariales.setText("Error al guardar: " + e.getMessage());
-                taGastosAdicionales.setText("Error al guardar: " + e.getMessage());
-                taRetenciones.setText("Error al guardar: " + e.getMessage());
-            }
-        } else {
-            taDatosSalariales.setText("Primero calcula la nómina.");
-            taGastosAdicionales.setText("Primero calcula la nómina.");
-            taRetenciones.setText("Primero calcula la nómina.");
+    private void recalcularCampo(F_Parametro parametro, TextField tf, String texto) {
+        if (calculoEnVivo == null) {
+            return;
         }
-
-        // Retardo para evitar registros duplicados
+        long inicio = System.nanoTime();
         try {
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+            double valor;
+            if (perfilCargado != null && texto.equals(textosPerfil.get(parametro))) {
+                tf.setStyle("");
+                valor = perfilCargado.get(parametro);
+            } else {
+                valor = lecturaConValidacionDeCampo(tf, parametro.getNombre());
+            }
+            long cambios = calculoEnVivo.set(parametro, valor);
+            if (cambios != 0) {
+                mostrarResultado(cambios);
+            }
+            METRICA_RECALCULO.registrar(inicio); // Los textos a medio escribir no cuentan
+        } catch (NumberFormatException e) {
+            tf.setStyle("-fx-border-color: red;");
+        } catch (ArithmeticException e) {
+            tf.setStyle("-fx-border-color: red;");
+            taDatosSalariales.setText("Error: importes fuera de rango.");
         }
     }
 
-    /**
-     * Consulta y muestra los cálculos anteriores almacenados en la base de datos.
+    /*
+     * Muestra el cálculo en vivo. La fecha cambia en cada cálculo, así que los datos
+     * salariales siempre se reponen; los otros dos bloques solo si cambia alguno de
+     * sus importes o si el área muestra otro texto.
      */
-    @FXML
-    private void verHistorial() {
-        ObservableList<String> historialItems = FXCollections.observableArrayList();
-        lvHistoriallv.setItems(historialItems);
+    private void mostrarResultado(long cambios) {
+        F_ResultadoNomina resultado = calculoEnVivo.getResultado();
 
-        try (Connection conn = D_BaseDatos.conectar();
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery("SELECT * FROM calculos ORDER BY fecha DESC")) {
-            while (rs.next()) {
-                String fecha = rs.getString("fecha");
-                double bruto = rs.getDouble("salario_bruto");
-                double neto = rs.getDouble("salario_neto");
+        salarioBrutoTributable = resultado.getSalarioBrutoTributable();
+        salarioBruto = resultado.getSalarioBruto();
+        salarioNeto = resultado.getSalarioNeto();
+        resultadoActual = resultado;
 
-                String linea = "Fecha: " + fecha + " - Bruto: " + bruto + " € - Neto: " + neto + " €\n";
-
-                historialItems.add(linea.trim()); // Añadir a la lista sin salto de línea
-            }
+        fechaActual = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
 
-        } catch (SQLException e) {
-            historialItems.add("Error al consultar la base de datos: " + e.getMessage());
+        taDatosSalariales.setText(resultado.textoDatosSalariales(fechaActual));
+        if ((cambios & CONCEPTOS_GASTOS) != 0 || !taGastosAdicionales.getText().equals(textoGastosMostrado)) {
+            textoGastosMostrado = resultado.textoGastosAdicionales();
+            taGastosAdicionales.setText(textoGastosMostrado);
+        }
+        if ((cambios & CONCEPTOS_RETENCIONES) != 0 || !taRetenciones.getText().equals(textoRetencionesMostrado)) {
+            textoRetencionesMostrado = resultado.textoRetenciones();
+            taRetenciones.setText(textoRetencionesMostrado);
         }
     }
 
     /**
-     * Elimina un cálculo seleccionado del historial, basado en la fecha.
+     * Guarda el cálculo actual en la base de datos: el resumen en JSON y el desglose
+     * numérico por conceptos.
      */
     @FXML
-    private void eliminarRegistro() {
-        String itemSeleccionado = lvHistoriallv.getSelectionModel().getSelectedItem();
-        if (itemSeleccionado != null) {
-            try {
-                // Extrae la fecha del registro seleccionado y elimina de la base de datos.
-                String fecha = itemSeleccionado.substring(itemSeleccionado.indexOf("Fecha: ") + 7, itemSeleccionado.indexOf(" - Bruto"));
-
-                try (Connection conn = D_BaseDatos.conectar();
-                        PreparedStatement stmt = conn.prepareStatement("DELETE FROM calculos WHERE fecha = ?")) {
-                    stmt.setString(1, fecha);
-                    int filas = stmt.executeUpdate();
-                    if (filas > 0) {
-                        taDatosSalariales.setText("Registro con fecha " + fecha + " eliminado.");
-                        taGastosAdicionales.setText("Registro con fecha " + fecha + " eliminado.");
-                        taRetenciones.setText("Registro con fecha " + fecha + " eliminado.");
-                        verHistorial(); // Actualizar lista
-                    } else {
-                        taDatosSalariales.setText("Fecha " + fecha + " no encontrada.");
-                        taGastosAdicionales.setText("Fecha " + fecha + " no encontrada.");
-                        taRetenciones.setText("Fecha " + fecha + " no encontrada.");
-                    }
-                }
-            } catch (Exception e) {
-                taDatosSalariales.setText("Error al eliminar: " + e.getMessage());
-                taGastosAdicionales.setText("Error al eliminar: " + e.getMessage());
-                taRetenciones.setText("Error al eliminar: " + e.getMessage());
-            }
+    private void guardarCalculo() {
+        if (fechaActual != null) {
+            double brutoRedondeado = Math.round(salarioBruto * 100.0) / 100.0;
+            double netoRedondeado = Math.round(salarioNeto * 100.0) / 100.0;
+
+            // Los importes (no los textos ya formateados) se guardan en el desglose por conceptos
+            // y se formatean al mostrarlos; el JSON solo lleva el resumen
+            StringBuilder detalle = new StringBuilder(128);
+            detalle.append("{\"fecha\":").append(JSONObject.quote(fechaActual))
+                    .append(",\"bruto\":").append(brutoRedondeado)
+                    .append(",\"neto\":").append(netoRedondeado)
+                    .append(",\"empleado\":").append(JSONObject.quote(codigoEmpleado()))
+                    .append('}');
+
+            D_Calculo calculo = new D_Calculo(codigoEmpleado(), fechaActual.substring(0, 7), fechaActual,
+                    brutoRedondeado, netoRedondeado, detalle.toString(), resultadoActual);
+
+            // Insertar el nuevo cálculo sin bloquear la interfaz; con el diario activo se
+            // añade a él y pasa a la base de datos en la siguiente compactación
+            D_Diario diario = D_Diario.activo();
+            H_EjecutorBD.ejecutar(
+                    avance -> diario != null ? diario.anadir(calculo) : D_BaseDatos.insertarCalculo(calculo),
+                    id -> {
+                        taDatosSalariales.appendText("\n(Cálculo guardado)");
+                        taGastosAdicionales.setText("\n(Cálculo guardado)");
+                        taRetenciones.setText("\n(Cálculo guardado)");
+                    },
+                    error -> {
+                        taDatosSalariales.setText("Error al guardar: " + error.getMessage());
+                        taGastosAdicionales.setText("Error al guardar: " + error.getMessage());
+                        taRetenciones.setText("Error al guardar: " + error.getMessage());
+                    });
         } else {
-            taDatosSalariales.setText("Selecciona un registro en el historial para eliminarlo.");
-            taGastosAdicionales.setText("Selecciona un registro en el historial para eliminarlo.");
-            taRetenciones.setText("Selecciona un registro en el historial para eliminarlo.");
+            taDatosSalariales.setText("Primero calcula la nómina.");
+            taGastosAdicionales.setText("Primero calcula la nómina.");
+            taRetenciones.setText("Primero calcula la nómina.");
         }
     }
 
@@ -375,52 +460,28 @@ public class B_InterfazPrincipalController implements Initializable {
     @FXML
     private void guardarConfiguracion() {
         Properties props = new Properties();
-
-        props.setProperty("atrasos", tfAtrasos.getText());
-        props.setProperty("atepEmpresa", tfATEPEmpresa.getText());
-        props.setProperty("ccEmpresa", tfContingenciasComunesEmpresa.getText());
-        props.setProperty("ccTrabajador", tfContingenciasComunesTrabajador.getText());
-        props.setProperty("compensacionFin", tfCompensacionFinContrato.getText());
-        props.setProperty("desempleoEmpresa", tfDesempleoEmpresa.getText());
-        props.setProperty("desempleoTrabajador", tfDesempleoTrabajador.getText());
-        props.setProperty("dietaDiaria", tfDietaDiaria.getText());
-        props.setProperty("diasDieta", tfDiasConDieta.getText());
-        props.setProperty("festivas", tfHorasFestivas.getText());
-        props.setProperty("fogasaEmpresa", tfFOGASAEmpresa.getText());
-        props.setProperty("fpEmpresa", tfFormacionProfesionalEmpresa.getText());
-        props.setProperty("fpTrabajador", tfFormacionProfesionalTrabajador.getText());
-        props.setProperty("horasExtras", tfHorasExtras.getText());
-        props.setProperty("horasNormales", tfHorasNormales.getText());
-        props.setProperty("irpf", tfIRPF.getText());
-        props.setProperty("kilometros", tfKilometrosRecorridos.getText());
-        props.setProperty("meiEmpresa", tfPensionesMEIEmpresa.getText());
-        props.setProperty("meiTrabajador", tfPensionesMEITrabajador.getText());
-        props.setProperty("nochesFuera", tfNochesFuera.getText());
-        props.setProperty("nocturnas", tfHorasNocturnas.getText());
-        props.setProperty("otrosGastos", tfOtrosGastos.getText());
-        props.setProperty("plusFestivos", tfPlusFestivos.getText());
-        props.setProperty("plusHorasExtras", tfPlusHorasExtras.getText());
-        props.setProperty("plusNocturnidad", tfPlusNocturnidad.getText());
-        props.setProperty("plusTurnicidad", tfPlusTurnicidad.getText());
-        props.setProperty("precioKilometro", tfPrecioPorKilometro.getText());
-        props.setProperty("precioNoche", tfPrecioPorNoche.getText());
-        props.setProperty("prorrataExtra", tfProrrataPagaExtra.getText());
-        props.setProperty("prorrataVacaciones", tfProrrataVacaciones.getText());
-        props.setProperty("salarioBase", tfSalarioBase.getText());
-        props.setProperty("transporte", tfTotalTransportePublico.getText());
+        for (Map.Entry<F_Parametro, TextField> campo : campos.entrySet()) {
+            props.setProperty(campo.getKey().getClave(), campo.getValue().getText());
+        }
 
         try {
-            File file = new File("config.properties");
+            File file = J_Configuracion.FICHERO.toFile();
             if (!file.exists()) {
                 file.createNewFile(); // Crear si no existe
             }
 
             try (OutputStream out = new FileOutputStream(file)) {
                 props.store(out, "Configuración de Nómina");
-                taDatosSalariales.setText("Configuración guardada correctamente.");
-                taGastosAdicionales.setText("Configuración guardada correctamente.");
-                taRetenciones.setText("Configuración guardada correctamente.");
             }
+            // Se recompila al momento, sin esperar a la vigilancia del fichero
+            aplicarPerfil(J_Configuracion.recargar().getPorDefecto(), false);
+            taDatosSalariales.setText("Configuración guardada correctamente.");
+            taGastosAdicionales.setText("Configuración guardada correctamente.");
+            taRetenciones.setText("Configuración guardada correctamente.");
+        } catch (NumberFormatException e) {
+            taDatosSalariales.setText("Configuración guardada con valores no válidos: " + e.getMessage());
+            taGastosAdicionales.setText("Configuración guardada con valores no válidos: " + e.getMessage());
+            taRetenciones.setText("Configuración guardada con valores no válidos: " + e.getMessage());
         } catch (IOException e) {
             taDatosSalariales.setText("Error al guardar configuración: " + e.getMessage());
             taGastosAdicionales.setText("Error al guardar configuración: " + e.getMessage());
@@ -430,93 +491,437 @@ public class B_InterfazPrincipalController implements Initializable {
 
 
     /**
-     * Lee el archivo de configuración (`config.properties`) y devuelve las propiedades.
-     * 
-     * @return Objeto Properties cargado desde archivo.
+     * Guarda las tarifas y porcentajes de los campos en la base de datos como una
+     * versión nueva del perfil de un convenio, vigente desde la fecha indicada.
+     * Las versiones anteriores del convenio se conservan.
      */
-    private Properties leerConfiguracionDesdeArchivo() {
-        Properties props = new Properties();
-        try (InputStream input = new FileInputStream("config.properties")) {
-            props.load(input);
-        } catch (IOException e) {
-            System.out.println("No se pudo cargar el archivo config.properties.");
-            taDatosSalariales.setText("No se pudo cargar la configuración. Se usarán valores por defecto.");
-            taGastosAdicionales.setText("No se pudo cargar la configuración. Se usarán valores por defecto.");
-            taRetenciones.setText("No se pudo cargar la configuración. Se usarán valores por defecto.");
+    @FXML
+    private void guardarPerfilConvenio() {
+        Map<F_Parametro, Double> valores = new EnumMap<>(F_Parametro.class);
+        try {
+            for (Map.Entry<F_Parametro, TextField> campo : campos.entrySet()) {
+                if (!campo.getKey().isPorTrabajador()) {
+                    valores.put(campo.getKey(), lecturaConValidacionDeCampo(campo.getValue(), campo.getKey().getNombre()));
+                }
+            }
+        } catch (NumberFormatException e) {
+            taDatosSalariales.setText("Error: " + e.getMessage());
+            taGastosAdicionales.setText("Error: " + e.getMessage());
+            taRetenciones.setText("Error: " + e.getMessage());
+            return;
         }
-        return props;
+
+        Optional<String> convenio = pedirTexto("Guardar perfil de convenio", "Nombre del convenio:", "");
+        if (!convenio.isPresent()) {
+            return;
+        }
+        Optional<String> fecha = pedirTexto("Guardar perfil de convenio", "Vigente desde (aaaa-mm-dd):",
+                LocalDate.now().toString());
+        if (!fecha.isPresent()) {
+            return;
+        }
+        LocalDate vigenteDesde;
+        try {
+            vigenteDesde = LocalDate.parse(fecha.get().trim());
+        } catch (DateTimeParseException e) {
+            taDatosSalariales.setText("Fecha no válida: " + fecha.get());
+            taGastosAdicionales.setText("Fecha no válida: " + fecha.get());
+            taRetenciones.setText("Fecha no válida: " + fecha.get());
+            return;
+        }
+
+        H_EjecutorBD.ejecutar(avance -> D_Perfiles.guardar(convenio.get(), vigenteDesde, valores),
+                version -> {
+                    taDatosSalariales.setText("Perfil guardado: " + version);
+                    taGastosAdicionales.setText("Perfil guardado: " + version);
+                    taRetenciones.setText("Perfil guardado: " + version);
+                },
+                error -> {
+                    taDatosSalariales.setText("Error al guardar el perfil: " + error.getMessage());
+                    taGastosAdicionales.setText("Error al guardar el perfil: " + error.getMessage());
+                    taRetenciones.setText("Error al guardar el perfil: " + error.getMessage());
+                });
     }
 
     /**
-     * Carga la configuración desde archivo y actualiza los campos de entrada con dichos valores.
+     * Guarda como empleado (nuevo o existente) el código, nombre y perfil que se indiquen,
+     * con los valores de los campos que difieren de ese perfil como sus valores por defecto.
+     */
+    @FXML
+    private void guardarEmpleado() {
+        Map<F_Parametro, Double> valores = new EnumMap<>(F_Parametro.class);
+        try {
+            for (Map.Entry<F_Parametro, TextField> campo : campos.entrySet()) {
+                valores.put(campo.getKey(), lecturaConValidacionDeCampo(campo.getValue(), campo.getKey().getNombre()));
+            }
+        } catch (NumberFormatException e) {
+            taDatosSalariales.setText("Error: " + e.getMessage());
+            taGastosAdicionales.setText("Error: " + e.getMessage());
+            taRetenciones.setText("Error: " + e.getMessage());
+            return;
+        }
+
+        Optional<String> codigo = pedirTexto("Guardar empleado", "Código del empleado:", codigoEmpleado());
+        if (!codigo.isPresent()) {
+            return;
+        }
+        Optional<String> nombre = pedirTexto("Guardar empleado", "Nombre:",
+                empleadoActual != null && empleadoActual.getCodigo().equals(codigo.get().trim())
+                        ? empleadoActual.getNombre() : "");
+        if (!nombre.isPresent()) {
+            return;
+        }
+        Optional<String> perfil = pedirTexto("Guardar empleado", "Perfil de tarifas:",
+                empleadoActual != null ? empleadoActual.getPerfil() : F_CatalogoPerfiles.PERFIL_POR_DEFECTO);
+        if (!perfil.isPresent()) {
+            return;
+        }
+
+        H_EjecutorBD.ejecutar(avance -> {
+            F_CatalogoPerfiles catalogo = D_Perfiles.indice().catalogoEn(LocalDate.now(), J_Configuracion.perfiles());
+            F_PerfilTarifas tarifas = catalogo.buscar(perfil.get().trim());
+            if (tarifas == null) {
+                throw new IllegalArgumentException("Perfil desconocido: " + perfil.get());
+            }
+            // Solo se guarda lo que cambia respecto al perfil, para que le lleguen sus cambios de tarifas
+            valores.entrySet().removeIf(valor -> valor.getValue() == tarifas.get(valor.getKey()));
+            return D_Empleados.guardar(codigo.get(), nombre.get(), perfil.get(), valores);
+        }, guardado -> {
+            // Pasa a ser el empleado seleccionado y sus valores, los del perfil de los campos
+            empleadoActual = guardado;
+            cbEmpleado.setValue(guardado);
+            aplicarEmpleado(guardado, false);
+            taDatosSalariales.setText("Empleado guardado: " + guardado);
+            taGastosAdicionales.setText("Empleado guardado: " + guardado);
+            taRetenciones.setText("Empleado guardado: " + guardado);
+        }, error -> {
+            taDatosSalariales.setText("Error al guardar el empleado: " + error.getMessage());
+            taGastosAdicionales.setText("Error al guardar el empleado: " + error.getMessage());
+            taRetenciones.setText("Error al guardar el empleado: " + error.getMessage());
+        });
+    }
+
+    /**
+     * Exporta las nóminas guardadas de un periodo a CSV y PDF en el directorio que
+     * se elija. Las nóminas se leen y escriben de una en una en segundo plano.
+     * La remesa SEPA necesita las cuentas de los empleados y se genera desde la
+     * línea de comandos (`A_MainLote --exportar`).
+     */
+    @FXML
+    private void exportarPeriodo() {
+        Optional<String> texto = pedirTexto("Exportar nóminas", "Periodo (aaaa-mm):", YearMonth.now().toString());
+        if (!texto.isPresent()) {
+            return;
+        }
+        String periodo;
+        try {
+            periodo = YearMonth.parse(texto.get().trim()).toString();
+        } catch (DateTimeParseException e) {
+            taDatosSalariales.setText("Periodo no válido: " + texto.get());
+            return;
+        }
+        DirectoryChooser selector = new DirectoryChooser();
+        selector.setTitle("Directorio de exportación");
+        File directorio = selector.showDialog(taDatosSalariales.getScene().getWindow());
+        if (directorio == null) {
+            return;
+        }
+
+        taDatosSalariales.setText("Exportando las nóminas de " + periodo + "...");
+        H_EjecutorBD.ejecutar(avance -> {
+            try (K_FormatoCsv csv = new K_FormatoCsv(directorio.toPath().resolve("nominas-" + periodo + ".csv"));
+                    K_FormatoPdf pdf = new K_FormatoPdf(directorio.toPath().resolve("nominas-" + periodo + ".pdf"))) {
+                return K_Exportador.exportar(periodo, avance, csv, pdf);
+            }
+        }, resumen -> taDatosSalariales.setText(resumen + "\nFicheros en " + directorio),
+                error -> taDatosSalariales.setText("Error en la exportación: " + error.getMessage()));
+    }
+
+    /**
+     * Evalúa una rejilla de escenarios sobre la plantilla de una hoja de horas y muestra
+     * cuánto cambiarían el coste para la empresa y el neto. Repetir escenarios ya
+     * evaluados con la misma plantilla es inmediato.
+     */
+    @FXML
+    private void simularEscenarios() {
+        FileChooser selector = new FileChooser();
+        selector.setTitle("Plantilla (hoja de horas)");
+        selector.getExtensionFilters().add(new FileChooser.ExtensionFilter("Hojas de horas", "*.csv", "*.tsv", "*.txt"));
+        if (plantillaSimulada != null) {
+            selector.setInitialDirectory(plantillaSimulada.getParentFile());
+        }
+        File fichero = selector.showOpenDialog(taDatosSalariales.getScene().getWindow());
+        if (fichero == null) {
+            return;
+        }
+        Optional<String> texto = pedirTexto("Simular escenarios", "Rejilla (clave=valores, clave+=..., clave*=...):",
+                ultimaRejilla);
+        if (!texto.isPresent()) {
+            return;
+        }
+        List<L_Escenario> escenarios;
+        try {
+            escenarios = L_Rejilla.parsear(texto.get());
+        } catch (IllegalArgumentException e) {
+            taDatosSalariales.setText("Rejilla no válida: " + e.getMessage());
+            return;
+        }
+        ultimaRejilla = texto.get().trim();
+
+        F_CatalogoPerfiles perfiles = J_Configuracion.perfiles();
+        long version = fichero.lastModified();
+        L_Simulador anterior = fichero.equals(plantillaSimulada) && version == versionPlantillaSimulada
+                && perfiles == perfilesSimulados ? simulador : null;
+        L_Simulador[] usado = {anterior};
+
+        taDatosSalariales.setText("Simulando " + escenarios.size() + " escenarios...");
+        H_EjecutorBD.ejecutar(avance -> {
+            if (usado[0] == null) {
+                usado[0] = new L_Simulador(L_Plantilla.leer(fichero.toPath(), perfiles, error -> { }));
+            }
+            return usado[0].simular(escenarios);
+        }, resultados -> {
+            simulador = usado[0];
+            plantillaSimulada = fichero;
+            versionPlantillaSimulada = version;
+            perfilesSimulados = perfiles;
+            L_Plantilla plantilla = simulador.getPlantilla();
+            StringBuilder sb = new StringBuilder("=== Simulación sobre ").append(plantilla.getTamano())
+                    .append(" trabajadores");
+            if (plantilla.getErrores() > 0) {
+                sb.append(" (").append(plantilla.getErrores()).append(" líneas descartadas)");
+            }
+            sb.append(" ===");
+            for (L_ResultadoEscenario resultado : resultados) {
+                sb.append('\n').append(resultado);
+            }
+            taDatosSalariales.setText(sb.toString());
+        }, error -> taDatosSalariales.setText("Error en la simulación: " + error.getMessage()));
+    }
+
+    /*
+     * Pide un texto en un diálogo. Vacío si se cancela.
+     */
+    private Optional<String> pedirTexto(String titulo, String etiqueta, String valorInicial) {
+        TextInputDialog dialogo = new TextInputDialog(valorInicial);
+        dialogo.setTitle(titulo);
+        dialogo.setHeaderText(null);
+        dialogo.setContentText(etiqueta);
+        return dialogo.showAndWait();
+    }
+
+    /**
+     * Rellena los campos de entrada con las tarifas y valores del empleado seleccionado,
+     * o con el perfil por defecto si aún no se ha abierto la base de datos. Los perfiles
+     * ya están compilados en memoria (ver J_Configuracion), así que no se lee el archivo.
      */
     @FXML
     private void cargarConfiguracion() {
-        Properties config = leerConfiguracionDesdeArchivo();
-
-        tfAtrasos.setText(config.getProperty("atrasos", "0"));
-        tfATEPEmpresa.setText(config.getProperty("atepEmpresa", "2.75"));
-        tfContingenciasComunesEmpresa.setText(config.getProperty("ccEmpresa", "23.6"));
-        tfContingenciasComunesTrabajador.setText(config.getProperty("ccTrabajador", "4.7"));
-        tfCompensacionFinContrato.setText(config.getProperty("compensacionFin", "0.366"));
-        tfDesempleoEmpresa.setText(config.getProperty("desempleoEmpresa", "6.7"));
-        tfDesempleoTrabajador.setText(config.getProperty("desempleoTrabajador", "1.6"));
-        tfDietaDiaria.setText(config.getProperty("dietaDiaria", "25.0"));
-        tfDiasConDieta.setText(config.getProperty("diasDieta", "0"));
-        tfHorasFestivas.setText(config.getProperty("festivas", "0"));
-        tfFOGASAEmpresa.setText(config.getProperty("fogasaEmpresa", "0.2"));
-        tfFormacionProfesionalEmpresa.setText(config.getProperty("fpEmpresa", "0.6"));
-        tfFormacionProfesionalTrabajador.setText(config.getProperty("fpTrabajador", "0.1"));
-        tfHorasExtras.setText(config.getProperty("horasExtras", "0"));
-        tfHorasNormales.setText(config.getProperty("horasNormales", "8"));
-        tfIRPF.setText(config.getProperty("irpf", "15"));
-        tfKilometrosRecorridos.setText(config.getProperty("kilometros", "0"));
-        tfPensionesMEIEmpresa.setText(config.getProperty("meiEmpresa", "0.5"));
-        tfPensionesMEITrabajador.setText(config.getProperty("meiTrabajador", "0.1"));
-        tfNochesFuera.setText(config.getProperty("nochesFuera", "0"));
-        tfHorasNocturnas.setText(config.getProperty("nocturnas", "0"));
-        tfOtrosGastos.setText(config.getProperty("otrosGastos", "0"));
-        tfPlusFestivos.setText(config.getProperty("plusFestivos", "5.0"));
-        tfPlusHorasExtras.setText(config.getProperty("plusHorasExtras", "0"));
-        tfPlusNocturnidad.setText(config.getProperty("plusNocturnidad", "2.0"));
-        tfPlusTurnicidad.setText(config.getProperty("plusTurnicidad", "2.23"));
-        tfPrecioPorKilometro.setText(config.getProperty("precioKilometro", "0.20"));
-        tfPrecioPorNoche.setText(config.getProperty("precioNoche", "60.0"));
-        tfProrrataPagaExtra.setText(config.getProperty("prorrataExtra", "1.58"));
-        tfProrrataVacaciones.setText(config.getProperty("prorrataVacaciones", "0.79"));
-        tfSalarioBase.setText(config.getProperty("salarioBase", "8.79"));
-        tfTotalTransportePublico.setText(config.getProperty("transporte", "0"));
+        if (empleadoActual != null) {
+            aplicarEmpleado(empleadoActual, false);
+        } else {
+            aplicarPerfil(J_Configuracion.perfiles().getPorDefecto(), false);
+        }
+        mostrarEstadoConfiguracion();
+    }
 
+    /*
+     * Indica en las áreas de resultados si se encontró `config.properties`.
+     */
+    private void mostrarEstadoConfiguracion() {
+        if (!J_Configuracion.hayFichero()) {
+            taDatosSalariales.setText("No se pudo cargar la configuración. Se usarán valores por defecto.");
+            taGastosAdicionales.setText("No se pudo cargar la configuración. Se usarán valores por defecto.");
+            taRetenciones.setText("No se pudo cargar la configuración. Se usarán valores por defecto.");
+            return;
+        }
         taDatosSalariales.setText("Configuración cargada correctamente.");
         taGastosAdicionales.setText("Configuración cargada correctamente.");
         taRetenciones.setText("Configuración cargada correctamente.");
     }
 
 
-    /**
-     * Muestra una ventana emergente con el detalle completo del cálculo seleccionado en el historial.
-     *
-     * @param item Texto del ítem seleccionado que contiene la fecha del cálculo.
+    /*
+     * Escribe los valores de un perfil en los campos. Con conservarCambios solo se
+     * actualizan los campos que el usuario no ha tocado desde el último perfil.
      */
-    private void mostrarVentanaDetalle(String item) {
-        try {
-            // Extrae la fecha del historial, recupera el JSON y muestra el detalle en un cuadro de diálogo.
-            int inicio = item.indexOf("Fecha: ") + 7;
-            int fin = item.indexOf(" - Bruto");
-            if (inicio < 7 || fin == -1) {
-                throw new IllegalArgumentException("Formato de historial no válido");
+    private void aplicarPerfil(F_PerfilTarifas perfil, boolean conservarCambios) {
+        for (Map.Entry<F_Parametro, TextField> campo : campos.entrySet()) {
+            TextField tf = campo.getValue();
+            if (conservarCambios && !tf.getText().equals(textosPerfil.get(campo.getKey()))) {
+                continue;
             }
+            String texto = BigDecimal.valueOf(perfil.get(campo.getKey())).stripTrailingZeros().toPlainString();
+            tf.setText(texto);
+            tf.setStyle("");
+            textosPerfil.put(campo.getKey(), texto);
+        }
+        perfilCargado = perfil;
+    }
 
-            String fecha = item.substring(inicio, fin).trim();
+    /**
+     * Rellena los campos con los valores del empleado elegido en el selector y, si el
+     * historial ya se estaba mostrando, lo vuelve a cargar solo con sus cálculos.
+     */
+    @FXML
+    private void seleccionarEmpleado() {
+        D_Empleado seleccionado = cbEmpleado.getValue();
+        if (seleccionado == null
+                || empleadoActual != null && seleccionado.getCodigo().equals(empleadoActual.getCodigo())) {
+            return;
+        }
+        elegirEmpleado(seleccionado.getCodigo(), false);
+    }
 
-            String detalleJson = D_BaseDatos.obtenerDetallePorFecha(fecha);
+    /*
+     * Lee el empleado de la base de datos (el de la lista puede no estar al día o no
+     * existir aún) y aplica sus tarifas a los campos.
+     */
+    private void elegirEmpleado(String codigo, boolean conservarCambios) {
+        H_EjecutorBD.ejecutar(avance -> D_Empleados.obtener(codigo),
+                empleado -> {
+                    D_Empleado seleccionado = cbEmpleado.getValue();
+                    if (seleccionado != null && !seleccionado.getCodigo().equals(codigo)) {
+                        return; // Entretanto se ha elegido otro
+                    }
+                    empleadoActual = empleado != null ? empleado : D_Empleado.nuevo(codigo);
+                    if (seleccionado == null) {
+                        cbEmpleado.setValue(empleadoActual);
+                    }
+                    aplicarEmpleado(empleadoActual, conservarCambios);
+                    if (historial != null) {
+                        historial.empleadoCambiado();
+                    }
+                },
+                error -> {
+                    taDatosSalariales.setText("Error al cargar el empleado: " + error.getMessage());
+                    taGastosAdicionales.setText("Error al cargar el empleado: " + error.getMessage());
+                    taRetenciones.setText("Error al cargar el empleado: " + error.getMessage());
+                });
+    }
 
+    /*
+     * Aplica a los campos las tarifas del empleado (su perfil vigente hoy, incluidos los
+     * convenios guardados, con sus valores propios encima). El índice de perfiles puede
+     * tener que leerse de la base de datos, así que se resuelve en segundo plano.
+     */
+    private void aplicarEmpleado(D_Empleado empleado, boolean conservarCambios) {
+        H_EjecutorBD.ejecutar(
+                avance -> empleado.tarifas(D_Perfiles.indice().catalogoEn(LocalDate.now(), J_Configuracion.perfiles())),
+                tarifas -> {
+                    if (empleado == empleadoActual) { // Si entretanto se ha elegido otro, se descarta
+                        aplicarPerfil(tarifas, conservarCambios);
+                    }
+                    if (inicioArranque != 0) {
+                        METRICA_ARRANQUE.registrar(inicioArranque);
+                        inicioArranque = 0;
+                    }
+                },
+                error -> {
+                    taDatosSalariales.setText("Error al cargar el empleado: " + error.getMessage());
+                    taGastosAdicionales.setText("Error al cargar el empleado: " + error.getMessage());
+                    taRetenciones.setText("Error al cargar el empleado: " + error.getMessage());
+                });
+    }
+
+    /*
+     * Empleado al que se asignan los cálculos que se guardan desde la interfaz.
+     */
+    private String codigoEmpleado() {
+        return empleadoActual != null ? empleadoActual.getCodigo() : D_Esquema.EMPLEADO_POR_DEFECTO;
+    }
+
+    /*
+     * Asocia cada parámetro con su campo de texto y toma el texto inicial de cada campo
+     * como el del perfil, para que el primer perfil cargado solo rellene los que no se
+     * hayan tocado.
+     */
+    private void asociarCampos() {
+        campos.put(F_Parametro.HORAS_NORMALES, tfHorasNormales);
+        campos.put(F_Parametro.HORAS_NOCTURNAS, tfHorasNocturnas);
+        campos.put(F_Parametro.HORAS_EXTRAS, tfHorasExtras);
+        campos.put(F_Parametro.HORAS_FESTIVAS, tfHorasFestivas);
+        campos.put(F_Parametro.DIAS_CON_DIETA, tfDiasConDieta);
+        campos.put(F_Parametro.KILOMETROS_RECORRIDOS, tfKilometrosRecorridos);
+        campos.put(F_Parametro.NOCHES_FUERA, tfNochesFuera);
+        campos.put(F_Parametro.TRANSPORTE_PUBLICO, tfTotalTransportePublico);
+        campos.put(F_Parametro.OTROS_GASTOS, tfOtrosGastos);
+        campos.put(F_Parametro.ATRASOS, tfAtrasos);
+        campos.put(F_Parametro.SALARIO_BASE, tfSalarioBase);
+        campos.put(F_Parametro.PLUS_TURNICIDAD, tfPlusTurnicidad);
+        campos.put(F_Parametro.PLUS_NOCTURNIDAD, tfPlusNocturnidad);
+        campos.put(F_Parametro.PLUS_HORAS_EXTRAS, tfPlusHorasExtras);
+        campos.put(F_Parametro.PLUS_FESTIVOS, tfPlusFestivos);
+        campos.put(F_Parametro.PRORRATA_PAGA_EXTRA, tfProrrataPagaExtra);
+        campos.put(F_Parametro.PRORRATA_VACACIONES, tfProrrataVacaciones);
+        campos.put(F_Parametro.COMPENSACION_FIN_CONTRATO, tfCompensacionFinContrato);
+        campos.put(F_Parametro.DIETA_DIARIA, tfDietaDiaria);
+        campos.put(F_Parametro.PRECIO_POR_KILOMETRO, tfPrecioPorKilometro);
+        campos.put(F_Parametro.PRECIO_POR_NOCHE, tfPrecioPorNoche);
+        campos.put(F_Parametro.IRPF, tfIRPF);
+        campos.put(F_Parametro.CC_TRABAJADOR, tfContingenciasComunesTrabajador);
+        campos.put(F_Parametro.DESEMPLEO_TRABAJADOR, tfDesempleoTrabajador);
+        campos.put(F_Parametro.FP_TRABAJADOR, tfFormacionProfesionalTrabajador);
+        campos.put(F_Parametro.MEI_TRABAJADOR, tfPensionesMEITrabajador);
+        campos.put(F_Parametro.CC_EMPRESA, tfContingenciasComunesEmpresa);
+        campos.put(F_Parametro.ATEP_EMPRESA, tfATEPEmpresa);
+        campos.put(F_Parametro.DESEMPLEO_EMPRESA, tfDesempleoEmpresa);
+        campos.put(F_Parametro.FP_EMPRESA, tfFormacionProfesionalEmpresa);
+        campos.put(F_Parametro.FOGASA_EMPRESA, tfFOGASAEmpresa);
+        campos.put(F_Parametro.MEI_EMPRESA, tfPensionesMEIEmpresa);
+        for (Map.Entry<F_Parametro, TextField> campo : campos.entrySet()) {
+            textosPerfil.put(campo.getKey(), campo.getValue().getText());
+        }
+    }
+
+    /*
+     * Muestra un aviso en las tres áreas de resultados.
+     */
+    private void mostrarMensaje(String texto) {
+        taDatosSalariales.setText(texto);
+        taGastosAdicionales.setText(texto);
+        taRetenciones.setText(texto);
+    }
+
+    /**
+     * Muestra una ventana emergente con el detalle completo del cálculo seleccionado en el historial.
+     *
+     * @param item Registro seleccionado en el historial.
+     */
+    private void mostrarVentanaDetalle(D_RegistroHistorial item) {
+        // Recupera el JSON (de la caché si se consultó hace poco) en segundo plano y muestra el diálogo al llegar.
+        long inicio = System.nanoTime();
+        H_EjecutorBD.ejecutar(avance -> D_BaseDatos.obtenerDetalle(item.getId()),
+                detalleJson -> mostrarDetalle(item.getFecha(), detalleJson, inicio),
+                error -> {
+                    METRICA_DETALLE.fallo(inicio);
+                    mostrarErrorDetalle(error);
+                });
+    }
+
+    /*
+     * Muestra el detalle ya recuperado. Se ejecuta en el hilo de JavaFX. El tiempo se
+     * mide hasta que el diálogo está listo, sin contar lo que el usuario lo tiene abierto.
+     */
+    private void mostrarDetalle(String fecha, String detalleJson, long inicio) {
+        try {
             if (detalleJson != null) {
                 JSONObject json = new JSONObject(detalleJson);
 
-                String mensaje = json.optString("datosSalariales", "") + "\n\n"
-                        + json.optString("gastosAdicionales", "") + "\n\n"
-                        + json.optString("retenciones", "");
+                String mensaje;
+                JSONArray importes = json.optJSONArray("importes");
+                if (importes != null) {
+                    // Cálculos con desglose: obtenerDetalle() añade sus importes y se formatean al mostrarlos
+                    F_ResultadoNomina resultado = F_ResultadoNomina.desdeJson(importes);
+                    mensaje = "Empleado: " + json.optString("empleado", "") + "\n\n"
+                            + resultado.textoDatosSalariales(fecha) + "\n\n"
+                            + resultado.textoGastosAdicionales() + "\n\n"
+                            + resultado.textoRetenciones();
+                } else {
+                    mensaje = json.optString("datosSalariales", "") + "\n\n"
+                            + json.optString("gastosAdicionales", "") + "\n\n"
+                            + json.optString("retenciones", "");
+                }
 
                 Alert alerta = new Alert(Alert.AlertType.INFORMATION);
                 alerta.setTitle("Detalle del Cálculo");
@@ -535,30 +940,38 @@ public class B_InterfazPrincipalController implements Initializable {
                 alerta.getDialogPane().setPrefWidth(400);
                 alerta.getDialogPane().setPrefHeight(600);
 
+                METRICA_DETALLE.registrar(inicio);
                 alerta.showAndWait();
             } else {
                 Alert alerta = new Alert(Alert.AlertType.WARNING);
                 alerta.setTitle("Detalle no disponible");
                 alerta.setHeaderText("No se encontró información");
                 alerta.setContentText("No se encontró detalle para la fecha: " + fecha);
+                METRICA_DETALLE.registrar(inicio);
                 alerta.showAndWait();
             }
 
         } catch (Exception e) {
-            Alert alerta = new Alert(Alert.AlertType.ERROR);
-            alerta.setTitle("Error al mostrar detalle");
-            alerta.setHeaderText("Se produjo una excepción");
-            alerta.setContentText(e.getMessage());
-            alerta.showAndWait();
+            METRICA_DETALLE.fallo(inicio);
+            mostrarErrorDetalle(e);
         }
     }
 
+    private void mostrarErrorDetalle(Throwable e) {
+        Alert alerta = new Alert(Alert.AlertType.ERROR);
+        alerta.setTitle("Error al mostrar detalle");
+        alerta.setHeaderText("Se produjo una excepción");
+        alerta.setContentText(e.getMessage());
+        alerta.showAndWait();
+    }
+
     /**
-     * Cierra la aplicación.
+     * Cierra la aplicación. El cierre ordenado (guardados pendientes, diario, base de
+     * datos y métricas) lo hace A_Main.stop(), igual que al cerrar la ventana.
      */
     @FXML
     private void salirAplicacion() {
-        System.exit(0);
+        Platform.exit();
     }
 
 }
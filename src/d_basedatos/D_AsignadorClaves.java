@@ -0,0 +1,103 @@
+/**
+ * Objetivo de la clase: Asignar en memoria el id y la secuencia de los cálculos
+ *                       que se insertan en una transacción, para poder enviar las
+ *                       filas de `calculos` por lotes.
+ *
+ * Con el id devuelto por SQLite cada fila tenía que insertarse sola (y pedirse
+ * después con `last_insert_rowid()`) antes de añadir su desglose, y la secuencia
+ * era una subconsulta por fila. Como la conexión es única y sincronizada, basta
+ * con leer al empezar la transacción el último id usado y seguir contando, y con
+ * llevar la cuenta de la secuencia de cada empleado y periodo del tramo. Solo se
+ * consulta la base de datos por la secuencia de un empleado en un periodo que ya
+ * tenía nóminas antes del tramo.
+ *
+ * Se usa uno por transacción: al confirmarla se crea otro.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package d_basedatos;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+final class D_AsignadorClaves {
+
+    /*
+     * Con AUTOINCREMENT un id no se reutiliza aunque se borre su fila: el último
+     * asignado es el mayor entre sqlite_sequence y los ids que quedan.
+     */
+    private static final String SQL_ULTIMO_ID =
+            "SELECT MAX(COALESCE((SELECT seq FROM sqlite_sequence WHERE name = 'calculos'), 0), "
+            + "COALESCE((SELECT MAX(id) FROM calculos), 0))";
+    private static final String SQL_PERIODO_CON_NOMINAS = "SELECT 1 FROM resumen_periodo WHERE periodo = ?";
+    private static final String SQL_ULTIMA_SECUENCIA =
+            "SELECT COALESCE(MAX(secuencia), 0) FROM calculos WHERE empleado = ? AND periodo = ?";
+
+    private long ultimoId;
+
+    /*
+     * Última secuencia asignada por empleado y periodo, y si cada periodo tenía
+     * nóminas antes de empezar el tramo.
+     */
+    private final Map<String, Integer> secuencias = new HashMap<>();
+    private final Map<String, Boolean> periodosConNominas = new HashMap<>();
+
+    /**
+     * Lee el último id usado. Debe crearse dentro de la transacción en la que se insertan las filas.
+     *
+     * @throws SQLException Si falla la consulta.
+     */
+    D_AsignadorClaves() throws SQLException {
+        try (ResultSet rs = D_BaseDatos.preparar(SQL_ULTIMO_ID).executeQuery()) {
+            rs.next();
+            ultimoId = rs.getLong(1);
+        }
+    }
+
+    long siguienteId() {
+        return ++ultimoId;
+    }
+
+    /**
+     * @param empleado Identificador del trabajador.
+     * @param periodo Periodo (yyyy-MM).
+     * @return Primera secuencia libre del empleado en el periodo, contando las ya asignadas en el tramo.
+     * @throws SQLException Si falla la consulta.
+     */
+    int siguienteSecuencia(String empleado, String periodo) throws SQLException {
+        String clave = empleado + '\n' + periodo;
+        Integer ultima = secuencias.get(clave);
+        if (ultima == null) {
+            ultima = periodoConNominas(periodo) ? ultimaSecuencia(empleado, periodo) : 0;
+        }
+        secuencias.put(clave, ultima + 1);
+        return ultima + 1;
+    }
+
+    private boolean periodoConNominas(String periodo) throws SQLException {
+        Boolean conNominas = periodosConNominas.get(periodo);
+        if (conNominas == null) {
+            PreparedStatement pstmt = D_BaseDatos.preparar(SQL_PERIODO_CON_NOMINAS);
+            pstmt.setString(1, periodo);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                conNominas = rs.next();
+            }
+            periodosConNominas.put(periodo, conNominas);
+        }
+        return conNominas;
+    }
+
+    private static int ultimaSecuencia(String empleado, String periodo) throws SQLException {
+        PreparedStatement pstmt = D_BaseDatos.preparar(SQL_ULTIMA_SECUENCIA);
+        pstmt.setString(1, empleado);
+        pstmt.setString(2, periodo);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -3,39 +3,180 @@
  *                       para almacenar los cálculos de nómina.
 
  * La base de datos usada es: `calcu_nomina.db`
+ *
+ * Se mantiene una única conexión abierta durante toda la ejecución, con las
+ * sentencias preparadas en caché. El esquema se crea y se migra (ver D_Esquema)
+ * una sola vez en inicializar() y la base de datos trabaja en modo WAL.
  * 
  * @author Jairo Sánchez Ballesteros
  */
 
 package d_basedatos;
 
+import f_calculo.F_Concepto;
+import f_calculo.F_Dinero;
+import f_calculo.F_ResultadoNomina;
 import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import m_metricas.M_Contador;
+import m_metricas.M_Metricas;
 import org.json.JSONObject;
 
 public class D_BaseDatos {
     
     /*
-     * URL de conexión a la base de datos SQLite.
+     * URL de conexión a la base de datos SQLite. Por defecto `calcu_nomina.db` en el
+     * directorio de trabajo (ver usarBaseDatos()).
      */
-    private static final String URL = "jdbc:sqlite:calcu_nomina.db";
-    
+    private static volatile String url = "jdbc:sqlite:calcu_nomina.db";
+
+    /*
+     * Conexión compartida. Todo acceso se sincroniza sobre la clase.
+     */
+    private static Connection conexion;
+
+    /*
+     * Inserción de un cálculo con el id y la secuencia ya asignados (ver D_AsignadorClaves),
+     * para que las filas puedan ir por lotes como las de su desglose.
+     */
+    private static final String SQL_INSERTAR =
+            "INSERT INTO calculos (id, empleado, periodo, secuencia, fecha, bruto_centimos, neto_centimos, detalle_json, "
+            + "mes, instante) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /*
+     * Columnas de las consultas por rango. Los índices solo llevan las de búsqueda y orden;
+     * el resto se lee de la tabla para las pocas filas de cada consulta.
+     */
+    private static final String SQL_COLUMNAS_NOMINA =
+            "SELECT id, empleado, mes, secuencia, instante, bruto_centimos, neto_centimos FROM calculos ";
+
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /*
+     * Última fecha convertida a `instante`: en una importación todas las filas comparten fecha.
+     */
+    private static String ultimaFecha;
+    private static long ultimoInstante;
+
+    /*
+     * Id en la tabla `conceptos` de cada F_Concepto, indexado por ordinal(), y F_Concepto de
+     * cada id. El código guardado es el nombre del enumerado, así que reordenarlo no afecta a los datos.
+     */
+    private static int[] idsConceptos;
+    private static F_Concepto[] conceptosPorId;
+
+    /*
+     * Filas por transacción en las inserciones masivas si no se indica otro valor.
+     */
+    public static final int FILAS_POR_TRANSACCION_POR_DEFECTO = 10000;
+
+    /*
+     * Detalles JSON consultados recientemente, indexados por id.
+     */
+    private static final D_CacheDetalles cacheDetalles = new D_CacheDetalles(256);
+
+    /*
+     * Sentencias preparadas reutilizables, indexadas por su SQL.
+     */
+    private static final Map<String, PreparedStatement> sentencias = new HashMap<>();
+
+    /*
+     * Conexiones abiertas desde el arranque y abiertas ahora mismo (la compartida y las
+     * de los recorridos), por JMX y en el volcado de métricas (ver M_Metricas).
+     */
+    private static final M_Contador CONEXIONES_ABIERTAS = M_Metricas.contador("bd.conexiones.abiertas");
+    private static final M_Contador CONEXIONES_ACTIVAS = M_Metricas.contador("bd.conexiones.activas");
+    private static final M_Contador ACIERTOS_CACHE_DETALLES = M_Metricas.contador("bd.detalles.aciertosCache");
+
     /**
-     * Crea la tabla "calculos" si no existe.
-     * La tabla incluye:
+     * Abre la conexión compartida, configura SQLite y crea el esquema.
+     * Solo tiene efecto la primera vez; las siguientes llamadas no hacen nada.
+     *
+     * @throws SQLException Si no se puede abrir la base de datos.
+     */
+    public static synchronized void inicializar() throws SQLException {
+        if (conexion != null) {
+            return;
+        }
+        M_Metricas.medir("bd.inicializar", () -> {
+            abrir();
+            return null;
+        });
+    }
+
+    private static void abrir() throws SQLException {
+        conexion = conectar();
+        try (Statement stmt = conexion.createStatement()) {
+            // Solo afecta a bases de datos nuevas; debe fijarse antes de pasar a WAL
+            stmt.execute("PRAGMA page_size=4096");
+            // WAL permite leer mientras se escribe y reduce las sincronizaciones con disco
+            stmt.execute("PRAGMA journal_mode=WAL");
+            stmt.execute("PRAGMA synchronous=NORMAL");
+            stmt.execute("PRAGMA foreign_keys=ON");
+            stmt.execute("PRAGMA temp_store=MEMORY"); // Tablas temporales de las inserciones por tramos
+        }
+        crearTabla();
+        D_Esquema.actualizar(conexion);
+        cargarConceptos();
+    }
+
+    /*
+     * Registra en la tabla `conceptos` los de F_Concepto que falten y guarda sus ids.
+     */
+    private static void cargarConceptos() throws SQLException {
+        int[] ids = new int[F_Concepto.total()];
+        int maximo = 0;
+        try (PreparedStatement insertar = conexion.prepareStatement("INSERT OR IGNORE INTO conceptos (codigo) VALUES (?)");
+                PreparedStatement consultar = conexion.prepareStatement("SELECT id FROM conceptos WHERE codigo = ?")) {
+            for (F_Concepto concepto : F_Concepto.values()) {
+                insertar.setString(1, concepto.name());
+                insertar.executeUpdate();
+                consultar.setString(1, concepto.name());
+                try (ResultSet rs = consultar.executeQuery()) {
+                    rs.next();
+                    ids[concepto.ordinal()] = rs.getInt(1);
+                    maximo = Math.max(maximo, ids[concepto.ordinal()]);
+                }
+            }
+        }
+        F_Concepto[] porId = new F_Concepto[maximo + 1];
+        for (F_Concepto concepto : F_Concepto.values()) {
+            porId[ids[concepto.ordinal()]] = concepto;
+        }
+        idsConceptos = ids;
+        conceptosPorId = porId;
+    }
+
+    /**
+     * Crea la tabla "calculos" si no existe, en su forma original.
+     * D_Esquema la migra después a la versión actual (id, empleado, periodo, secuencia...).
+     * La tabla original incluye:
      * - fecha (clave primaria)
      * - salario_bruto
      * - salario_neto
      * - detalle_json (campo para almacenar detalles como JSON)
      */
-    public static void crearTabla() {
+    public static synchronized void crearTabla() {
         String sql = "CREATE TABLE IF NOT EXISTS calculos (" +
                      "fecha TEXT PRIMARY KEY," +
                      "salario_bruto REAL NOT NULL," +
                      "salario_neto REAL NOT NULL," +
                      "detalle_json TEXT)";
         
-        try (Connection conn = conectar();
-             Statement stmt = conn.createStatement()) {
+        try (Statement stmt = obtenerConexion().createStatement()) {
             stmt.execute(sql);
         } catch (SQLException e) {
             System.err.println("Error creando tabla: " + e.getMessage());
@@ -43,13 +184,151 @@ public class D_BaseDatos {
     }
     
     /**
-     * Establece una conexión con la base de datos.
+     * Establece una conexión nueva e independiente con la base de datos.
+     * Para las operaciones normales se usa la conexión compartida (ver ejecutar()).
+     * Cuenta como activa en las métricas hasta que se cierra con cerrarConexion().
      * 
      * @return Objeto Connection a la base de datos.
      * @throws SQLException Si ocurre un error al conectar.
      */
     public static Connection conectar() throws SQLException {
-        return DriverManager.getConnection(URL);
+        Connection conn = DriverManager.getConnection(url);
+        CONEXIONES_ABIERTAS.incrementar();
+        CONEXIONES_ACTIVAS.incrementar();
+        return conn;
+    }
+
+    /**
+     * Cierra una conexión abierta con conectar() y la descuenta de las activas.
+     *
+     * @param conn Conexión a cerrar.
+     * @throws SQLException Si falla el cierre.
+     */
+    public static void cerrarConexion(Connection conn) throws SQLException {
+        try {
+            conn.close();
+        } finally {
+            CONEXIONES_ACTIVAS.decrementar();
+        }
+    }
+
+    /*
+     * Conexión nueva e independiente que no puede modificar la base de datos, para
+     * los recorridos largos (ver D_CursorNominas y D_CursorHistorial).
+     */
+    static Connection conectarSoloLectura() throws SQLException {
+        obtenerConexion(); // Crea y migra el esquema si hace falta
+        Connection conn = conectar();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA query_only=ON"); // El controlador no deja cambiarlo con setReadOnly() ya abierta
+        } catch (SQLException e) {
+            cerrarConexion(conn);
+            throw e;
+        }
+        return conn;
+    }
+
+    /**
+     * Cambia el fichero de base de datos (por ejemplo, para las pruebas de rendimiento).
+     * Si había una conexión abierta se cierra; la siguiente operación abre el nuevo fichero.
+     *
+     * @param fichero Ruta del fichero SQLite.
+     */
+    public static synchronized void usarBaseDatos(String fichero) {
+        cerrar();
+        url = "jdbc:sqlite:" + fichero;
+    }
+
+    /**
+     * Ejecuta una operación sobre la conexión compartida en exclusiva.
+     *
+     * @param operacion Operación a ejecutar. No debe cerrar la conexión.
+     * @return Lo que devuelva la operación.
+     * @throws SQLException Si falla la operación.
+     */
+    public static synchronized <T> T ejecutar(D_Operacion<T> operacion) throws SQLException {
+        return M_Metricas.medir("bd.ejecutar", () -> {
+            return operacion.ejecutar(obtenerConexion());
+        });
+    }
+
+    /**
+     * Ejecuta una operación dentro de una transacción sobre la conexión compartida.
+     * Si la operación falla se deshacen los cambios no confirmados. La operación
+     * puede llamar a `commit()` para confirmar tramos intermedios.
+     *
+     * @param operacion Operación a ejecutar.
+     * @return Lo que devuelva la operación.
+     * @throws SQLException Si falla la operación.
+     */
+    public static synchronized <T> T enTransaccion(D_Operacion<T> operacion) throws SQLException {
+        return M_Metricas.medir("bd.enTransaccion", () -> {
+            Connection conn = obtenerConexion();
+            conn.setAutoCommit(false);
+            try {
+                T resultado = operacion.ejecutar(conn);
+                conn.commit();
+                return resultado;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        });
+    }
+
+    /**
+     * Devuelve una sentencia preparada de la caché, creándola la primera vez.
+     * Solo debe usarse desde dentro de ejecutar() o enTransaccion().
+     *
+     * @param sql Sentencia SQL con parámetros.
+     * @return Sentencia preparada lista para asignar parámetros.
+     * @throws SQLException Si la sentencia no es válida.
+     */
+    public static synchronized PreparedStatement preparar(String sql) throws SQLException {
+        PreparedStatement pstmt = sentencias.get(sql);
+        if (pstmt == null) {
+            pstmt = obtenerConexion().prepareStatement(sql);
+            sentencias.put(sql, pstmt);
+        } else {
+            pstmt.clearParameters();
+        }
+        return pstmt;
+    }
+
+    /**
+     * Cierra las sentencias en caché y la conexión compartida.
+     */
+    public static synchronized void cerrar() {
+        for (PreparedStatement pstmt : sentencias.values()) {
+            try {
+                pstmt.close();
+            } catch (SQLException e) {
+                System.err.println("Error cerrando sentencia: " + e.getMessage());
+            }
+        }
+        sentencias.clear();
+        cacheDetalles.vaciar();
+        D_Perfiles.vaciarCache();
+        if (conexion != null) {
+            try {
+                cerrarConexion(conexion);
+            } catch (SQLException e) {
+                System.err.println("Error cerrando conexión: " + e.getMessage());
+            }
+            conexion = null;
+        }
+    }
+
+    /*
+     * Devuelve la conexión compartida, abriéndola si hace falta.
+     */
+    private static synchronized Connection obtenerConexion() throws SQLException {
+        if (conexion == null) {
+            inicializar();
+        }
+        return conexion;
     }
 
     /**
@@ -66,74 +345,662 @@ public class D_BaseDatos {
         detalle.put("bruto", bruto);
         detalle.put("neto", neto);
         
-        String sql = "INSERT INTO calculos (fecha, salario_bruto, salario_neto, detalle_json) VALUES (?, ?, ?, ?)";
-        try (Connection conn = conectar(); 
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, fecha);
-            pstmt.setDouble(2, bruto);
-            pstmt.setDouble(3, neto);
-            pstmt.setString(4, detalle.toString());
-            pstmt.executeUpdate();
+        try {
+            insertarCalculo(fecha, bruto, neto, detalle.toString());
         } catch (SQLException e) {
             System.err.println("Error insertando cálculo: " + e.getMessage());
         }
     }
 
+    /**
+     * Inserta un nuevo cálculo con su detalle ya generado, para el empleado por defecto.
+     *
+     * @param fecha Fecha del cálculo.
+     * @param bruto Salario bruto calculado.
+     * @param neto  Salario neto calculado.
+     * @param detalleJson Detalle del cálculo en formato JSON.
+     * @return Identificador asignado al cálculo.
+     * @throws SQLException Si falla la inserción.
+     */
+    public static long insertarCalculo(String fecha, double bruto, double neto, String detalleJson)
+            throws SQLException {
+        return insertarCalculo(new D_Calculo(fecha, bruto, neto, detalleJson));
+    }
+
+    /**
+     * Inserta un nuevo cálculo y, si lo lleva, su desglose por conceptos.
+     *
+     * @param calculo Cálculo a insertar.
+     * @return Identificador asignado al cálculo.
+     * @throws SQLException Si falla la inserción; no queda guardada ninguna parte.
+     */
+    public static synchronized long insertarCalculo(D_Calculo calculo) throws SQLException {
+        return M_Metricas.medir("bd.insertarCalculo", () -> {
+            return enTransaccion(conn -> {
+                PreparedStatement pstmt = preparar(SQL_INSERTAR);
+                long id = anadirFila(pstmt, new D_AsignadorClaves(), calculo);
+                pstmt.executeBatch();
+                D_TramoCalculos tramo = new D_TramoCalculos(idsConceptos);
+                tramo.anadir(id, calculo.getResultado());
+                tramo.volcar();
+                return id;
+            });
+        });
+    }
+
+    /*
+     * Añade al lote de SQL_INSERTAR la fila de `calculos` y devuelve el id que se le asigna.
+     */
+    private static long anadirFila(PreparedStatement pstmt, D_AsignadorClaves claves, D_Calculo calculo)
+            throws SQLException {
+        long id = claves.siguienteId();
+        asignarParametros(pstmt, id, claves.siguienteSecuencia(calculo.getEmpleado(), calculo.getPeriodo()), calculo);
+        pstmt.addBatch();
+        return id;
+    }
+
+    /*
+     * Asigna los parámetros de SQL_INSERTAR.
+     */
+    private static void asignarParametros(PreparedStatement pstmt, long id, int secuencia, D_Calculo calculo)
+            throws SQLException {
+        pstmt.setLong(1, id);
+        pstmt.setString(2, calculo.getEmpleado());
+        pstmt.setString(3, calculo.getPeriodo());
+        pstmt.setInt(4, secuencia);
+        pstmt.setString(5, calculo.getFecha());
+        pstmt.setLong(6, F_Dinero.aCentimos(calculo.getBruto()));
+        pstmt.setLong(7, F_Dinero.aCentimos(calculo.getNeto()));
+        pstmt.setString(8, calculo.getDetalleJson());
+        pstmt.setInt(9, mes(calculo.getPeriodo()));
+        pstmt.setLong(10, instante(calculo.getFecha()));
+    }
+
+    /*
+     * Valor de la columna `mes` (año * 12 + mes - 1) de un periodo yyyy-MM, o 0 si no lo es.
+     */
+    static int mes(String periodo) {
+        if (periodo == null || periodo.length() != 7 || periodo.charAt(4) != '-') {
+            return 0;
+        }
+        int anio = 0;
+        int mes = 0;
+        for (int i = 0; i < 7; i++) {
+            char c = periodo.charAt(i);
+            if (i == 4) {
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+            if (i < 4) {
+                anio = anio * 10 + (c - '0');
+            } else {
+                mes = mes * 10 + (c - '0');
+            }
+        }
+        return mes >= 1 && mes <= 12 ? anio * 12 + mes - 1 : 0;
+    }
+
+    /*
+     * Periodo yyyy-MM de un valor de la columna `mes`.
+     */
+    static String periodo(int mes) {
+        return YearMonth.of(mes / 12, mes % 12 + 1).toString();
+    }
+
+    /*
+     * Valor de la columna `instante` (segundos desde 1970, sin zona horaria) de una fecha
+     * yyyy-MM-dd HH:mm:ss, o 0 si no lo es. Igual que strftime('%s', fecha) en SQLite.
+     */
+    private static long instante(String fecha) {
+        if (!fecha.equals(ultimaFecha)) {
+            try {
+                ultimoInstante = LocalDateTime.parse(fecha, FORMATO_FECHA).toEpochSecond(ZoneOffset.UTC);
+            } catch (DateTimeParseException e) {
+                ultimoInstante = 0;
+            }
+            ultimaFecha = fecha;
+        }
+        return ultimoInstante;
+    }
+
+    /*
+     * Valor de la columna `mes` de un periodo de consulta.
+     */
+    private static int mesConsulta(String periodo) {
+        int mes = mes(periodo);
+        if (mes == 0) {
+            throw new IllegalArgumentException("Periodo no válido (se espera yyyy-MM): " + periodo);
+        }
+        return mes;
+    }
+
+    /*
+     * Como mesConsulta(), para las consultas por el texto del periodo: con el formato
+     * yyyy-MM el orden del texto es el de los meses.
+     */
+    private static String periodoConsulta(String periodo) {
+        mesConsulta(periodo);
+        return periodo;
+    }
+
+    /**
+     * Inserta muchos cálculos con su desglose por conceptos, por lotes (`addBatch`/`executeBatch`),
+     * confirmando una transacción cada `filasPorTransaccion` filas.
+     *
+     * @param calculos Cálculos a insertar.
+     * @param filasPorTransaccion Filas que se confirman juntas.
+     * @return Resumen con el número de filas y la velocidad alcanzada.
+     * @throws SQLException Si falla la inserción; se deshace la transacción en curso.
+     */
+    public static D_ResumenInsercion insertarCalculos(Collection<D_Calculo> calculos, int filasPorTransaccion)
+            throws SQLException {
+        return insertarCalculos(calculos.iterator(), filasPorTransaccion);
+    }
+
+    /**
+     * Igual que insertarCalculos(Collection, int), pero consumiendo un Stream de forma
+     * perezosa: solo hay en memoria los cálculos de la transacción en curso.
+     *
+     * @param calculos Cálculos a insertar.
+     * @param filasPorTransaccion Filas que se confirman juntas.
+     * @return Resumen con el número de filas y la velocidad alcanzada.
+     * @throws SQLException Si falla la inserción; se deshace la transacción en curso.
+     */
+    public static D_ResumenInsercion insertarCalculos(Stream<D_Calculo> calculos, int filasPorTransaccion)
+            throws SQLException {
+        try (Stream<D_Calculo> s = calculos) {
+            return insertarCalculos(s.iterator(), filasPorTransaccion);
+        }
+    }
+
+    /**
+     * Inserta los cálculos que devuelva el iterador por tramos transaccionales.
+     * Las transacciones ya confirmadas se conservan si falla un tramo posterior.
+     *
+     * @param calculos Cálculos a insertar.
+     * @param filasPorTransaccion Filas que se confirman juntas.
+     * @return Resumen con el número de filas y la velocidad alcanzada.
+     * @throws SQLException Si falla la inserción; se deshace la transacción en curso.
+     */
+    public static D_ResumenInsercion insertarCalculos(Iterator<D_Calculo> calculos, int filasPorTransaccion)
+            throws SQLException {
+        return insertarCalculos(calculos, filasPorTransaccion, null);
+    }
+
+    /*
+     * Igual que insertarCalculos(Iterator, int), ejecutando además `antesDeConfirmar`
+     * dentro de cada transacción, justo antes de confirmarla (ver D_Diario).
+     */
+    static synchronized D_ResumenInsercion insertarCalculos(Iterator<D_Calculo> calculos, int filasPorTransaccion,
+            D_Operacion<?> antesDeConfirmar) throws SQLException {
+        return M_Metricas.medir("bd.insertarCalculos", () -> {
+            if (filasPorTransaccion <= 0) {
+                throw new IllegalArgumentException("Las filas por transacción deben ser positivas.");
+            }
+            long inicio = System.nanoTime();
+            long[] totales = new long[2]; // [0] filas, [1] transacciones
+
+            enTransaccion(conn -> {
+                // Los ids y las secuencias se asignan aquí, así que los cálculos van por lotes y
+                // su desglose y los resúmenes se actualizan de una vez al final de cada tramo.
+                PreparedStatement pstmt = preparar(SQL_INSERTAR);
+                D_TramoCalculos tramo = new D_TramoCalculos(idsConceptos);
+                try {
+                    D_AsignadorClaves claves = new D_AsignadorClaves();
+                    int pendientes = 0;
+                    while (calculos.hasNext()) {
+                        D_Calculo calculo = calculos.next();
+                        long id = anadirFila(pstmt, claves, calculo);
+                        tramo.anadir(id, calculo.getResultado());
+                        if (++pendientes == filasPorTransaccion) {
+                            pstmt.executeBatch();
+                            tramo.volcar();
+                            if (antesDeConfirmar != null) {
+                                antesDeConfirmar.ejecutar(conn);
+                            }
+                            conn.commit();
+                            totales[0] += pendientes;
+                            totales[1]++;
+                            pendientes = 0;
+                            claves = new D_AsignadorClaves();
+                        }
+                    }
+                    if (pendientes > 0) {
+                        pstmt.executeBatch();
+                        tramo.volcar();
+                        if (antesDeConfirmar != null) {
+                            antesDeConfirmar.ejecutar(conn);
+                        }
+                        totales[0] += pendientes;
+                        totales[1]++;
+                    }
+                } catch (SQLException | RuntimeException e) {
+                    pstmt.clearBatch(); // Las sentencias están en caché: no deben conservar filas del tramo fallido
+                    tramo.descartar();
+                    throw e;
+                }
+                return null;
+            });
+
+            return new D_ResumenInsercion(totales[0], totales[1], (System.nanoTime() - inicio) / 1e9);
+        });
+    }
+
+    /**
+     * Elimina un cálculo guardado.
+     *
+     * @param id Identificador del cálculo.
+     * @return Número de filas eliminadas (0 si no existía).
+     * @throws SQLException Si falla el borrado.
+     */
+    public static synchronized int eliminarCalculo(long id) throws SQLException {
+        return M_Metricas.medir("bd.eliminarCalculo", () -> {
+            PreparedStatement pstmt = preparar("DELETE FROM calculos WHERE id = ?");
+            pstmt.setLong(1, id);
+            cacheDetalles.eliminar(id);
+            return pstmt.executeUpdate();
+        });
+    }
+
+    /**
+     * Suma cada concepto en todos los cálculos de un periodo. Se lee del resumen
+     * `resumen_periodo_concepto`, así que no depende del número de cálculos.
+     *
+     * @param periodo Periodo (yyyy-MM).
+     * @return Total por concepto, en el orden de F_Concepto. Solo aparecen los conceptos con algún importe.
+     * @throws SQLException Si falla la consulta.
+     */
+    public static Map<F_Concepto, Double> obtenerTotalesPorConcepto(String periodo) throws SQLException {
+        return M_Metricas.medir("bd.obtenerTotalesPorConcepto", () -> {
+            Map<F_Concepto, Double> totales = new EnumMap<>(F_Concepto.class);
+            for (D_TotalConcepto total : D_Informes.totalesPorConcepto(periodo, periodo)) {
+                totales.put(total.getConcepto(), total.getImporte());
+            }
+            return totales;
+        });
+    }
+
+    /**
+     * Suma un concepto (por ejemplo FOGASA o nocturnidad) en todos los cálculos de un periodo.
+     *
+     * @param periodo Periodo (yyyy-MM).
+     * @param concepto Concepto a sumar.
+     * @return Total en euros (0 si no hay importes).
+     * @throws SQLException Si falla la consulta.
+     */
+    public static synchronized double obtenerTotalConcepto(String periodo, F_Concepto concepto) throws SQLException {
+        return M_Metricas.medir("bd.obtenerTotalConcepto", () -> {
+            PreparedStatement pstmt = preparar("SELECT centimos FROM resumen_periodo_concepto "
+                    + "WHERE periodo = ? AND concepto_id = ?");
+            pstmt.setString(1, periodo);
+            pstmt.setInt(2, idConcepto(concepto));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? F_Dinero.aEuros(rs.getLong(1)) : 0.0;
+            }
+        });
+    }
+
+    /**
+     * @param concepto Concepto.
+     * @return Id del concepto en la tabla `conceptos`.
+     * @throws SQLException Si no se puede abrir la base de datos.
+     */
+    static synchronized int idConcepto(F_Concepto concepto) throws SQLException {
+        obtenerConexion();
+        return idsConceptos[concepto.ordinal()];
+    }
+
+    /**
+     * Recupera el contenido JSON detallado de un cálculo a partir de su identificador.
+     * Si el cálculo tiene desglose, el JSON lleva sus importes en el array `importes`
+     * (en el orden de F_Concepto), rehecho desde `calculo_conceptos`.
+     * Los detalles consultados recientemente se sirven desde memoria sin acceder a la base de datos.
+     *
+     * @param id Identificador del cálculo.
+     * @return Cadena JSON con el detalle o `null` si no se encuentra.
+     * @throws SQLException Si falla la consulta.
+     */
+    public static String obtenerDetalle(long id) throws SQLException {
+        return M_Metricas.medir("bd.obtenerDetalle", () -> {
+            String detalle = cacheDetalles.obtener(id);
+            if (detalle != null) {
+                ACIERTOS_CACHE_DETALLES.incrementar();
+                return detalle;
+            }
+            synchronized (D_BaseDatos.class) {
+                PreparedStatement pstmt = preparar("SELECT c.detalle_json, l.concepto_id, l.centimos FROM calculos c "
+                        + "LEFT JOIN calculo_conceptos l ON l.calculo_id = c.id WHERE c.id = ?");
+                pstmt.setLong(1, id);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    detalle = rs.next() ? leerDetalle(rs) : null;
+                }
+                // Dentro del bloqueo: si no, un eliminarCalculo() entre la consulta y el guardado
+                // dejaría en la caché el detalle de un cálculo ya borrado
+                if (detalle != null) {
+                    cacheDetalles.guardar(id, detalle);
+                }
+            }
+            return detalle;
+        });
+    }
+
+    /*
+     * Lee el detalle de las filas de obtenerDetalle() y le añade los importes del desglose:
+     * se guardan solo en `calculo_conceptos`, no también en el JSON. Los cálculos guardados
+     * antes ya los llevan en el JSON, o no tienen desglose, y se devuelven tal cual.
+     */
+    private static String leerDetalle(ResultSet rs) throws SQLException {
+        String detalle = rs.getString(1);
+        long[] centimos = new long[F_Concepto.total()];
+        boolean conDesglose = false;
+        do {
+            int conceptoId = rs.getInt(2);
+            if (!rs.wasNull() && conceptoId < conceptosPorId.length && conceptosPorId[conceptoId] != null) {
+                centimos[conceptosPorId[conceptoId].ordinal()] = rs.getLong(3);
+                conDesglose = true;
+            }
+        } while (rs.next());
+
+        String base = detalle != null ? detalle : "{}";
+        if (!conDesglose || !base.endsWith("}") || base.contains("\"importes\":")) {
+            return detalle;
+        }
+        StringBuilder sb = new StringBuilder(base.length() + 512).append(base, 0, base.length() - 1)
+                .append(base.length() > 2 ? ",\"importes\":" : "\"importes\":");
+        return F_ResultadoNomina.desdeCentimos(centimos).anadirImportesJson(sb).append('}').toString();
+    }
+
     /**
      * Recupera el contenido JSON detallado de un cálculo, a partir de la fecha.
+     * Si hay varios cálculos con la misma fecha se devuelve el último guardado.
      * 
      * @param fecha Fecha del cálculo buscado.
      * @return Cadena JSON con el detalle o `null` si no se encuentra.
      */
-    public static String obtenerDetallePorFecha(String fecha) {
-        String sql = "SELECT detalle_json FROM calculos WHERE fecha = ?";
-        try (Connection conn = conectar(); 
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, fecha);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return rs.getString("detalle_json");
+    public static synchronized String obtenerDetallePorFecha(String fecha) {
+        return M_Metricas.medir("bd.obtenerDetallePorFecha", () -> {
+            try {
+                PreparedStatement pstmt = preparar(
+                        "SELECT detalle_json FROM calculos WHERE fecha = ? ORDER BY id DESC LIMIT 1");
+                pstmt.setString(1, fecha);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getString("detalle_json");
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error consultando detalle: " + e.getMessage());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Recupera una página del historial ordenada por fecha descendente, usando
+     * paginación por clave: la página empieza justo después del último registro
+     * de la anterior, así que el coste no depende de lo lejos que se haya llegado.
+     * Solo se leen las columnas del resumen, nunca `detalle_json`.
+     *
+     * @param anterior Último registro de la página anterior, o `null` para la primera.
+     * @param limite Número máximo de registros.
+     * @return Registros de la página (vacía si no hay más).
+     * @throws SQLException Si falla la consulta.
+     */
+    public static synchronized List<D_RegistroHistorial> obtenerPaginaHistorial(D_RegistroHistorial anterior, int limite)
+            throws SQLException {
+        return obtenerPaginaHistorial(null, anterior, limite);
+    }
+
+    /**
+     * Como obtenerPaginaHistorial(anterior, limite), pero solo con los cálculos de un
+     * empleado. Se buscan en idx_calculos_empleado_fecha, así que el coste depende de los
+     * cálculos del empleado y no del tamaño de la tabla.
+     *
+     * @param empleado Identificador del trabajador, o `null` para todos.
+     * @param anterior Último registro de la página anterior, o `null` para la primera.
+     * @param limite Número máximo de registros.
+     * @return Registros de la página (vacía si no hay más).
+     * @throws SQLException Si falla la consulta.
+     */
+    public static synchronized List<D_RegistroHistorial> obtenerPaginaHistorial(String empleado,
+            D_RegistroHistorial anterior, int limite) throws SQLException {
+        return M_Metricas.medir("bd.obtenerPaginaHistorial", () -> empleado != null
+                ? obtenerPaginaHistorialEmpleado(empleado, anterior, limite)
+                : obtenerPaginaHistorialTodos(anterior, limite));
+    }
+
+    private static List<D_RegistroHistorial> obtenerPaginaHistorialTodos(D_RegistroHistorial anterior, int limite)
+            throws SQLException {
+        List<D_RegistroHistorial> pagina = new ArrayList<>(limite);
+        PreparedStatement pstmt;
+        if (anterior == null) {
+            pstmt = preparar("SELECT id, fecha, bruto_centimos, neto_centimos FROM calculos "
+                    + "ORDER BY fecha DESC, id DESC LIMIT ?");
+            pstmt.setInt(1, limite);
+            leerPagina(pstmt, pagina);
+            return pagina;
+        }
+
+        // Se hace en dos búsquedas por índice (sin OR) para no recorrer los registros ya vistos:
+        // primero el resto de la misma fecha y después las fechas anteriores.
+        pstmt = preparar("SELECT id, fecha, bruto_centimos, neto_centimos FROM calculos "
+                + "WHERE fecha = ? AND id < ? ORDER BY id DESC LIMIT ?");
+        pstmt.setString(1, anterior.getFecha());
+        pstmt.setLong(2, anterior.getId());
+        pstmt.setInt(3, limite);
+        leerPagina(pstmt, pagina);
+
+        if (pagina.size() < limite) {
+            pstmt = preparar("SELECT id, fecha, bruto_centimos, neto_centimos FROM calculos "
+                    + "WHERE fecha < ? ORDER BY fecha DESC, id DESC LIMIT ?");
+            pstmt.setString(1, anterior.getFecha());
+            pstmt.setInt(2, limite - pagina.size());
+            leerPagina(pstmt, pagina);
+        }
+        return pagina;
+    }
+
+    private static List<D_RegistroHistorial> obtenerPaginaHistorialEmpleado(String empleado,
+            D_RegistroHistorial anterior, int limite) throws SQLException {
+        List<D_RegistroHistorial> pagina = new ArrayList<>(limite);
+        PreparedStatement pstmt;
+        if (anterior == null) {
+            pstmt = preparar("SELECT id, fecha, bruto_centimos, neto_centimos FROM calculos "
+                    + "WHERE empleado = ? ORDER BY fecha DESC, id DESC LIMIT ?");
+            pstmt.setString(1, empleado);
+            pstmt.setInt(2, limite);
+            leerPagina(pstmt, pagina);
+            return pagina;
+        }
+
+        // Las mismas dos búsquedas que sin empleado, dentro de su tramo del índice
+        pstmt = preparar("SELECT id, fecha, bruto_centimos, neto_centimos FROM calculos "
+                + "WHERE empleado = ? AND fecha = ? AND id < ? ORDER BY id DESC LIMIT ?");
+        pstmt.setString(1, empleado);
+        pstmt.setString(2, anterior.getFecha());
+        pstmt.setLong(3, anterior.getId());
+        pstmt.setInt(4, limite);
+        leerPagina(pstmt, pagina);
+
+        if (pagina.size() < limite) {
+            pstmt = preparar("SELECT id, fecha, bruto_centimos, neto_centimos FROM calculos "
+                    + "WHERE empleado = ? AND fecha < ? ORDER BY fecha DESC, id DESC LIMIT ?");
+            pstmt.setString(1, empleado);
+            pstmt.setString(2, anterior.getFecha());
+            pstmt.setInt(3, limite - pagina.size());
+            leerPagina(pstmt, pagina);
+        }
+        return pagina;
+    }
+
+    private static void leerPagina(PreparedStatement pstmt, List<D_RegistroHistorial> pagina) throws SQLException {
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                pagina.add(new D_RegistroHistorial(rs.getLong(1), rs.getString(2), F_Dinero.aEuros(rs.getLong(3)),
+                        F_Dinero.aEuros(rs.getLong(4))));
             }
-        } catch (SQLException e) {
-            System.err.println("Error consultando detalle: " + e.getMessage());
         }
-        return null;
     }
 
     /**
-     * Recupera todos los cálculos ordenados por fecha descendente.
-     * 
-     * @return ResultSet con las columnas: fecha, salario_bruto, salario_neto.
-     * @throws SQLException Si ocurre un error en la consulta.
+     * Nóminas de un empleado en un rango de periodos, por ejemplo las del año hasta la
+     * fecha. Se buscan por la clave única (empleado, periodo, secuencia), así que el coste
+     * depende de las nóminas del empleado en el rango, no del tamaño de la tabla.
+     *
+     * @param empleado Identificador del trabajador.
+     * @param desde Primer periodo incluido (yyyy-MM).
+     * @param hasta Último periodo incluido (yyyy-MM).
+     * @return Nóminas en orden de periodo y secuencia.
+     * @throws SQLException Si falla la consulta.
      */
-    public static ResultSet obtenerTodosLosCalculos() throws SQLException {
-        Connection conn = conectar();
-        conn.setAutoCommit(false); // Mejora el control de transacciones
-        
-        String sql = "SELECT fecha, salario_bruto, salario_neto FROM calculos ORDER BY fecha DESC";
-        Statement stmt = conn.createStatement(
-            ResultSet.TYPE_SCROLL_INSENSITIVE, 
-            ResultSet.CONCUR_READ_ONLY
-        );
-        return stmt.executeQuery(sql);
+    public static synchronized List<D_RegistroNomina> obtenerNominasEmpleado(String empleado, String desde, String hasta)
+            throws SQLException {
+        return M_Metricas.medir("bd.obtenerNominasEmpleado", () -> {
+            PreparedStatement pstmt = preparar(SQL_COLUMNAS_NOMINA
+                    + "WHERE empleado = ? AND periodo BETWEEN ? AND ? ORDER BY periodo, secuencia");
+            pstmt.setString(1, empleado);
+            pstmt.setString(2, periodoConsulta(desde));
+            pstmt.setString(3, periodoConsulta(hasta));
+            List<D_RegistroNomina> nominas = new ArrayList<>();
+            leerNominas(pstmt, nominas);
+            return nominas;
+        });
     }
-    
+
     /**
-     * Cierra un ResultSet y sus recursos asociados (Statement y Connection).
-     * 
-     * @param rs ResultSet que se desea cerrar.
+     * Totales de un empleado en un rango de periodos, buscados por la clave única (empleado,
+     * periodo, secuencia). De cada periodo solo cuenta la última versión guardada de la
+     * nómina, como los informes.
+     *
+     * @param empleado Identificador del trabajador.
+     * @param desde Primer periodo incluido (yyyy-MM).
+     * @param hasta Último periodo incluido (yyyy-MM).
+     * @return Nóminas, bruto y neto del rango (a cero si no hay nóminas).
+     * @throws SQLException Si falla la consulta.
      */
-    public static void cerrarResultSet(ResultSet rs) {
-        try {
-            if (rs != null) {
-                Statement stmt = rs.getStatement();
-                Connection conn = stmt.getConnection();
-                rs.close();
-                stmt.close();
-                conn.close();
+    public static synchronized D_TotalEmpleado obtenerTotalEmpleado(String empleado, String desde, String hasta)
+            throws SQLException {
+        return M_Metricas.medir("bd.obtenerTotalEmpleado", () -> {
+            PreparedStatement pstmt = preparar("SELECT COUNT(*), COALESCE(SUM(bruto_centimos), 0), "
+                    + "COALESCE(SUM(neto_centimos), 0) FROM calculos c WHERE empleado = ? AND periodo BETWEEN ? AND ? "
+                    + "AND NOT EXISTS (SELECT 1 FROM calculos d WHERE d.empleado = c.empleado AND d.periodo = c.periodo "
+                    + "AND d.secuencia > c.secuencia)");
+            pstmt.setString(1, empleado);
+            pstmt.setString(2, periodoConsulta(desde));
+            pstmt.setString(3, periodoConsulta(hasta));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return new D_TotalEmpleado(empleado, rs.getLong(1), F_Dinero.aEuros(rs.getLong(2)),
+                        F_Dinero.aEuros(rs.getLong(3)));
+            }
+        });
+    }
+
+    /**
+     * Totales de un empleado desde enero hasta un periodo del mismo año, con una nómina
+     * por periodo aunque se haya vuelto a guardar.
+     *
+     * @param empleado Identificador del trabajador.
+     * @param hasta Último periodo incluido (yyyy-MM).
+     * @return Nóminas, bruto y neto del año hasta ese periodo.
+     * @throws SQLException Si falla la consulta.
+     */
+    public static D_TotalEmpleado obtenerAcumuladoAnual(String empleado, String hasta) throws SQLException {
+        return obtenerTotalEmpleado(empleado, hasta.substring(0, Math.min(4, hasta.length())) + "-01", hasta);
+    }
+
+    /**
+     * Página de las nóminas de un rango de periodos, ordenadas por periodo, empleado y
+     * secuencia, con paginación por clave como obtenerPaginaHistorial(). Se buscan en
+     * idx_calculos_mes.
+     *
+     * @param desde Primer periodo incluido (yyyy-MM).
+     * @param hasta Último periodo incluido (yyyy-MM).
+     * @param anterior Última nómina de la página anterior, o `null` para la primera.
+     * @param limite Número máximo de nóminas.
+     * @return Nóminas de la página (vacía si no hay más).
+     * @throws SQLException Si falla la consulta.
+     */
+    public static synchronized List<D_RegistroNomina> obtenerPaginaNominas(String desde, String hasta,
+            D_RegistroNomina anterior, int limite) throws SQLException {
+        return M_Metricas.medir("bd.obtenerPaginaNominas", () -> {
+            int mesDesde = mesConsulta(desde);
+            int mesHasta = mesConsulta(hasta);
+            List<D_RegistroNomina> pagina = new ArrayList<>(limite);
+            PreparedStatement pstmt;
+            if (anterior == null) {
+                pstmt = preparar(SQL_COLUMNAS_NOMINA
+                        + "WHERE mes BETWEEN ? AND ? ORDER BY mes, empleado, secuencia LIMIT ?");
+                pstmt.setInt(1, mesDesde);
+                pstmt.setInt(2, mesHasta);
+                pstmt.setInt(3, limite);
+                leerNominas(pstmt, pagina);
+                return pagina;
+            }
+
+            // Tres búsquedas por índice (sin OR): el resto del mismo empleado y periodo,
+            // los empleados siguientes del periodo y los periodos siguientes del rango.
+            pstmt = preparar(SQL_COLUMNAS_NOMINA
+                    + "WHERE mes = ? AND empleado = ? AND secuencia > ? ORDER BY secuencia LIMIT ?");
+            pstmt.setInt(1, anterior.getMes());
+            pstmt.setString(2, anterior.getEmpleado());
+            pstmt.setInt(3, anterior.getSecuencia());
+            pstmt.setInt(4, limite);
+            leerNominas(pstmt, pagina);
+
+            if (pagina.size() < limite) {
+                pstmt = preparar(SQL_COLUMNAS_NOMINA
+                        + "WHERE mes = ? AND empleado > ? ORDER BY empleado, secuencia LIMIT ?");
+                pstmt.setInt(1, anterior.getMes());
+                pstmt.setString(2, anterior.getEmpleado());
+                pstmt.setInt(3, limite - pagina.size());
+                leerNominas(pstmt, pagina);
+            }
+            if (pagina.size() < limite) {
+                pstmt = preparar(SQL_COLUMNAS_NOMINA
+                        + "WHERE mes > ? AND mes <= ? ORDER BY mes, empleado, secuencia LIMIT ?");
+                pstmt.setInt(1, anterior.getMes());
+                pstmt.setInt(2, mesHasta);
+                pstmt.setInt(3, limite - pagina.size());
+                leerNominas(pstmt, pagina);
+            }
+            return pagina;
+        });
+    }
+
+    private static void leerNominas(PreparedStatement pstmt, List<D_RegistroNomina> nominas) throws SQLException {
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                String fecha = LocalDateTime.ofEpochSecond(rs.getLong(5), 0, ZoneOffset.UTC).format(FORMATO_FECHA);
+                nominas.add(new D_RegistroNomina(rs.getLong(1), rs.getString(2), rs.getInt(3), rs.getInt(4), fecha,
+                        F_Dinero.aEuros(rs.getLong(6)), F_Dinero.aEuros(rs.getLong(7))));
             }
-        } catch (SQLException e) {
-            System.err.println("Error cerrando recursos: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Recorre todo el historial ordenado por fecha descendente, de uno en uno y sin
+     * cargarlo en memoria (ver D_CursorHistorial). La conexión de lectura se cierra
+     * siempre al terminar, también si la acción lanza una excepción.
+     *
+     * @param filasPorLectura Filas que se piden al controlador de cada vez.
+     * @param accion Recibe cada cálculo.
+     * @return Número de cálculos recorridos.
+     * @throws SQLException Si falla la consulta.
+     */
+    public static long recorrerHistorial(int filasPorLectura, Consumer<D_RegistroHistorial> accion)
+            throws SQLException {
+        return M_Metricas.medir("bd.recorrerHistorial", () -> {
+            long n = 0;
+            try (D_CursorHistorial cursor = new D_CursorHistorial(filasPorLectura)) {
+                for (D_RegistroHistorial registro = cursor.siguiente(); registro != null; registro = cursor.siguiente()) {
+                    accion.accept(registro);
+                    n++;
+                }
+            }
+            return n;
+        });
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Objetivo de la clase: Guardar en memoria el detalle JSON de los últimos cálculos
+ *                       consultados, para no volver a la base de datos al abrir de
+ *                       nuevo el mismo registro.
+ *
+ * Es una caché LRU de tamaño fijo: al llenarse se descarta el registro que lleva
+ * más tiempo sin consultarse.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package d_basedatos;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class D_CacheDetalles {
+
+    private final Map<Long, String> detalles;
+
+    /**
+     * @param capacidad Número máximo de detalles que se conservan.
+     */
+    public D_CacheDetalles(int capacidad) {
+        // accessOrder = true: cada consulta mueve el registro al final de la lista
+        this.detalles = new LinkedHashMap<Long, String>(capacidad * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String> masAntiguo) {
+                return size() > capacidad;
+            }
+        };
+    }
+
+    /**
+     * @param id Identificador del cálculo.
+     * @return Detalle JSON guardado o `null` si no está en caché.
+     */
+    public synchronized String obtener(long id) {
+        return detalles.get(id);
+    }
+
+    public synchronized void guardar(long id, String detalleJson) {
+        detalles.put(id, detalleJson);
+    }
+
+    public synchronized void eliminar(long id) {
+        detalles.remove(id);
+    }
+
+    public synchronized void vaciar() {
+        detalles.clear();
+    }
+}
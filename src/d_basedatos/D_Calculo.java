@@ -0,0 +1,96 @@
+/**
+ * Objetivo de la clase: Representar una fila de la tabla `calculos` lista para
+ *                       insertarse (empleado, periodo, fecha, bruto, neto y
+ *                       detalle en JSON), junto con los importes por concepto
+ *                       que van a `calculo_conceptos`. La secuencia dentro del
+ *                       periodo la asigna la base de datos al insertar.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package d_basedatos;
+
+import f_calculo.F_ResultadoNomina;
+
+public class D_Calculo {
+
+    private final String empleado;
+    private final String periodo;
+    private final String fecha;
+    private final double bruto;
+    private final double neto;
+    private final String detalleJson;
+    private final F_ResultadoNomina resultado;
+
+    /**
+     * Crea un cálculo del empleado por defecto, en el periodo (yyyy-MM) de su fecha.
+     *
+     * @param fecha Fecha del cálculo (yyyy-MM-dd HH:mm:ss).
+     * @param bruto Salario bruto redondeado a céntimos.
+     * @param neto Salario neto redondeado a céntimos.
+     * @param detalleJson Detalle del cálculo en formato JSON.
+     */
+    public D_Calculo(String fecha, double bruto, double neto, String detalleJson) {
+        this(D_Esquema.EMPLEADO_POR_DEFECTO, fecha.substring(0, 7), fecha, bruto, neto, detalleJson);
+    }
+
+    /**
+     * @param empleado Identificador del trabajador.
+     * @param periodo Periodo de la nómina (yyyy-MM).
+     * @param fecha Fecha del cálculo (yyyy-MM-dd HH:mm:ss).
+     * @param bruto Salario bruto redondeado a céntimos.
+     * @param neto Salario neto redondeado a céntimos.
+     * @param detalleJson Detalle del cálculo en formato JSON.
+     */
+    public D_Calculo(String empleado, String periodo, String fecha, double bruto, double neto, String detalleJson) {
+        this(empleado, periodo, fecha, bruto, neto, detalleJson, null);
+    }
+
+    /**
+     * @param empleado Identificador del trabajador.
+     * @param periodo Periodo de la nómina (yyyy-MM).
+     * @param fecha Fecha del cálculo (yyyy-MM-dd HH:mm:ss).
+     * @param bruto Salario bruto redondeado a céntimos.
+     * @param neto Salario neto redondeado a céntimos.
+     * @param detalleJson Detalle del cálculo en formato JSON.
+     * @param resultado Importes por concepto, o `null` si no se guardan desglosados.
+     */
+    public D_Calculo(String empleado, String periodo, String fecha, double bruto, double neto, String detalleJson,
+            F_ResultadoNomina resultado) {
+        this.empleado = empleado;
+        this.periodo = periodo;
+        this.fecha = fecha;
+        this.bruto = bruto;
+        this.neto = neto;
+        this.detalleJson = detalleJson;
+        this.resultado = resultado;
+    }
+
+    public String getEmpleado() {
+        return empleado;
+    }
+
+    public String getPeriodo() {
+        return periodo;
+    }
+
+    public String getFecha() {
+        return fecha;
+    }
+
+    public double getBruto() {
+        return bruto;
+    }
+
+    public double getNeto() {
+        return neto;
+    }
+
+    public String getDetalleJson() {
+        return detalleJson;
+    }
+
+    public F_ResultadoNomina getResultado() {
+        return resultado;
+    }
+}
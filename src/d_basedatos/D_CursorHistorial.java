@@ -0,0 +1,90 @@
+/**
+ * Objetivo de la clase: Recorrer todo el historial de cálculos, de uno en uno y
+ *                       ordenado por fecha descendente, sin cargarlo en memoria.
+ *
+ * Como D_CursorNominas, usa una conexión propia de solo lectura y en autocommit,
+ * con una consulta de solo avance, así que no deja transacciones abiertas ni
+ * bloquea a quien guarda. Debe cerrarse con try-with-resources; si no se quiere
+ * controlar el recorrido, D_BaseDatos.recorrerHistorial() lo abre y lo cierra.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package d_basedatos;
+
+import f_calculo.F_Dinero;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public final class D_CursorHistorial implements AutoCloseable {
+
+    /*
+     * Filas que se piden al controlador de cada vez si no se indica otro valor.
+     */
+    public static final int FILAS_POR_LECTURA_POR_DEFECTO = 1024;
+
+    private final Connection conn;
+    private final PreparedStatement pstmt;
+    private final ResultSet rs;
+
+    /**
+     * Abre el recorrido con el tamaño de lectura por defecto.
+     *
+     * @throws SQLException Si no se puede abrir la consulta.
+     */
+    public D_CursorHistorial() throws SQLException {
+        this(FILAS_POR_LECTURA_POR_DEFECTO);
+    }
+
+    /**
+     * @param filasPorLectura Filas que se piden al controlador de cada vez.
+     * @throws SQLException Si no se puede abrir la consulta.
+     */
+    public D_CursorHistorial(int filasPorLectura) throws SQLException {
+        if (filasPorLectura <= 0) {
+            throw new IllegalArgumentException("Las filas por lectura deben ser positivas.");
+        }
+        conn = D_BaseDatos.conectarSoloLectura();
+        try {
+            // idx_calculos_fecha ya lleva el id, así que el orden sale del índice sin ordenar
+            pstmt = conn.prepareStatement("SELECT id, fecha, bruto_centimos, neto_centimos FROM calculos "
+                    + "ORDER BY fecha DESC, id DESC", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(filasPorLectura);
+            rs = pstmt.executeQuery();
+        } catch (SQLException | RuntimeException e) {
+            D_BaseDatos.cerrarConexion(conn);
+            throw e;
+        }
+    }
+
+    /**
+     * Avanza al cálculo siguiente.
+     *
+     * @return El cálculo, o `null` si no quedan.
+     * @throws SQLException Si falla la lectura.
+     */
+    public D_RegistroHistorial siguiente() throws SQLException {
+        if (!rs.next()) {
+            return null;
+        }
+        return new D_RegistroHistorial(rs.getLong(1), rs.getString(2), F_Dinero.aEuros(rs.getLong(3)),
+                F_Dinero.aEuros(rs.getLong(4)));
+    }
+
+    /**
+     * Cierra la consulta y su conexión.
+     *
+     * @throws SQLException Si falla el cierre.
+     */
+    @Override
+    public void close() throws SQLException {
+        try {
+            rs.close();
+            pstmt.close();
+        } finally {
+            D_BaseDatos.cerrarConexion(conn);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * Objetivo de la clase: Recorrer las nóminas guardadas de un periodo, de una en
+ *                       una y con su desglose por concepto, sin cargarlas en memoria.
+ *
+ * Usa una conexión propia de solo lectura, así que no bloquea la conexión
+ * compartida mientras dura el recorrido (en modo WAL se puede seguir guardando).
+ * La consulta es de solo avance y los importes de la nómina actual se guardan en
+ * un único array que se reutiliza, de modo que la memoria no depende del número
+ * de nóminas. Debe cerrarse con try-with-resources.
+ *
+ * Solo se recorren las nóminas con importes en `calculo_conceptos`; las antiguas
+ * que solo tienen `detalle_json` se omiten. De cada empleado se devuelve solo la
+ * última versión guardada en el periodo (la de mayor `secuencia`): las anteriores
+ * quedan en el historial, pero exportarlas pagaría dos veces la misma nómina.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package d_basedatos;
+
+import f_calculo.F_Concepto;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+public final class D_CursorNominas implements AutoCloseable {
+
+    /*
+     * Filas que se piden al controlador de cada vez si no se indica otro valor.
+     */
+    public static final int FILAS_POR_LECTURA_POR_DEFECTO = 1024;
+
+    private final Connection conn;
+    private final PreparedStatement pstmt;
+    private final ResultSet rs;
+
+    /*
+     * F_Concepto de cada id de la tabla `conceptos`.
+     */
+    private final F_Concepto[] conceptosPorId;
+
+    private final long[] centimos = new long[F_Concepto.total()];
+    private long id;
+    private String empleado;
+    private String periodo;
+    private int secuencia;
+    private String fecha;
+
+    /*
+     * Hay una fila leída que pertenece a la nómina siguiente.
+     */
+    private boolean filaPendiente;
+
+    /**
+     * Abre el recorrido de las nóminas de un periodo por empleado y secuencia.
+     *
+     * @param periodo Periodo (yyyy-MM).
+     * @throws SQLException Si no se puede abrir la consulta.
+     */
+    public D_CursorNominas(String periodo) throws SQLException {
+        this(periodo, FILAS_POR_LECTURA_POR_DEFECTO);
+    }
+
+    /**
+     * @param periodo Periodo (yyyy-MM).
+     * @param filasPorLectura Filas que se piden al controlador de cada vez.
+     * @throws SQLException Si no se puede abrir la consulta.
+     */
+    public D_CursorNominas(String periodo, int filasPorLectura) throws SQLException {
+        if (filasPorLectura <= 0) {
+            throw new IllegalArgumentException("Las filas por lectura deben ser positivas.");
+        }
+        F_Concepto[] conceptos = F_Concepto.values();
+        int maximo = 0;
+        int[] ids = new int[conceptos.length];
+        for (F_Concepto c : conceptos) {
+            ids[c.ordinal()] = D_BaseDatos.idConcepto(c); // También crea y migra el esquema si hace falta
+            maximo = Math.max(maximo, ids[c.ordinal()]);
+        }
+        conceptosPorId = new F_Concepto[maximo + 1];
+        for (F_Concepto c : conceptos) {
+            conceptosPorId[ids[c.ordinal()]] = c;
+        }
+
+        conn = D_BaseDatos.conectarSoloLectura();
+        try {
+            // idx_calculos_mes ya devuelve las nóminas en este orden, así que no hace falta ordenar
+            pstmt = conn.prepareStatement(
+                    "SELECT c.id, c.empleado, c.periodo, c.secuencia, c.fecha, l.concepto_id, l.centimos "
+                    + "FROM calculos c JOIN calculo_conceptos l ON l.calculo_id = c.id "
+                    + "WHERE c.mes = ? ORDER BY c.empleado, c.secuencia",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(filasPorLectura);
+            pstmt.setInt(1, D_BaseDatos.mes(periodo));
+            rs = pstmt.executeQuery();
+            filaPendiente = rs.next();
+        } catch (SQLException | RuntimeException e) {
+            D_BaseDatos.cerrarConexion(conn);
+            throw e;
+        }
+    }
+
+    /**
+     * Avanza a la nómina siguiente, saltando las versiones de un empleado que tienen
+     * otra posterior en el periodo.
+     *
+     * @return `false` si no quedan nóminas.
+     * @throws SQLException Si falla la lectura.
+     */
+    public boolean siguiente() throws SQLException {
+        do {
+            if (!filaPendiente) {
+                return false;
+            }
+            leerNomina();
+        } while (filaPendiente && rs.getString(2).equals(empleado)); // Las filas van por empleado y secuencia
+        return true;
+    }
+
+    /*
+     * Lee todas las filas de la nómina en la que está el cursor.
+     */
+    private void leerNomina() throws SQLException {
+        Arrays.fill(centimos, 0);
+        id = rs.getLong(1);
+        empleado = rs.getString(2);
+        periodo = rs.getString(3);
+        secuencia = rs.getInt(4);
+        fecha = rs.getString(5);
+        do {
+            int conceptoId = rs.getInt(6);
+            if (conceptoId < conceptosPorId.length && conceptosPorId[conceptoId] != null) {
+                centimos[conceptosPorId[conceptoId].ordinal()] = rs.getLong(7);
+            }
+            filaPendiente = rs.next();
+        } while (filaPendiente && rs.getLong(1) == id);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getEmpleado() {
+        return empleado;
+    }
+
+    public String getPeriodo() {
+        return periodo;
+    }
+
+    public int getSecuencia() {
+        return secuencia;
+    }
+
+    public String getFecha() {
+        return fecha;
+    }
+
+    /**
+     * @param concepto Concepto a consultar.
+     * @return Importe de la nómina actual en céntimos (0 si no se guardó).
+     */
+    public long getCentimos(F_Concepto concepto) {
+        return centimos[concepto.ordinal()];
+    }
+
+    /**
+     * Cierra la consulta y su conexión.
+     *
+     * @throws SQLException Si falla el cierre.
+     */
+    @Override
+    public void close() throws SQLException {
+        try {
+            rs.close();
+            pstmt.close();
+        } finally {
+            D_BaseDatos.cerrarConexion(conn);
+        }
+    }
+}
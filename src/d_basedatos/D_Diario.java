@@ -0,0 +1,576 @@
+/**
+ * Objetivo de la clase: Guardar los cálculos primero en un diario binario de
+ *                       registros de tamaño fijo proyectado en memoria, y pasarlos
+ *                       a la tabla `calculos` en segundo plano.
+ *
+ * Añadir un cálculo es copiar unos cientos de bytes en el fichero proyectado, sin
+ * transacción ni sincronización con disco, así que quien guarda no espera a SQLite.
+ * Un hilo daemon compacta cada segundo los registros pendientes con
+ * D_BaseDatos.insertarCalculos() y, en la misma transacción, apunta en la tabla
+ * `diario` hasta qué registro ha llegado. Cuando todo está compactado el diario
+ * vuelve a empezar desde el principio con una generación nueva. Si se llena antes,
+ * quien añade compacta él mismo.
+ *
+ * Al abrir el diario se pasan a la base de datos los registros que quedaran
+ * pendientes, por ejemplo tras una caída del programa. Cada registro lleva su
+ * generación y un CRC32, de modo que los restos de generaciones anteriores o un
+ * registro a medio escribir no se toman por datos válidos. Lo escrito sobrevive a
+ * una caída del proceso; ante un corte de luz se pierde como mucho lo añadido desde
+ * el último forzar(), que el compactador hace en cada pasada.
+ *
+ * Solo admite cálculos con desglose por conceptos: el detalle JSON se vuelve a
+ * generar al compactar, con la misma forma que el de la interfaz y las importaciones.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package d_basedatos;
+
+import f_calculo.F_Concepto;
+import f_calculo.F_ResultadoNomina;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import org.json.JSONObject;
+
+public final class D_Diario implements AutoCloseable {
+
+    /*
+     * Registros que caben en un diario nuevo si no se indica otra capacidad (unos 50 MB).
+     */
+    public static final int CAPACIDAD_POR_DEFECTO = 1 << 17;
+
+    private static final long MILISEGUNDOS_ENTRE_COMPACTACIONES = 1000;
+
+    /*
+     * Cabecera del fichero: "CNDIARIO", versión del formato, tamaño de registro,
+     * número de conceptos y su huella, generación actual, capacidad e identificador.
+     */
+    private static final long MAGICO = 0x434E_4449_4152_494FL;
+    private static final int VERSION = 1;
+    private static final int TAMANO_CABECERA = 64;
+    private static final int C_VERSION = 8;
+    private static final int C_TAMANO_REGISTRO = 12;
+    private static final int C_CONCEPTOS = 16;
+    private static final int C_HUELLA = 20;
+    private static final int C_GENERACION = 24;
+    private static final int C_CAPACIDAD = 28;
+    private static final int C_IDENTIFICADOR = 32;
+
+    /*
+     * Campos de cada registro. La generación se escribe la última: un registro solo
+     * es válido si su generación es la actual y su CRC32 (del byte 8 al final) cuadra.
+     */
+    private static final int R_GENERACION = 0;
+    private static final int R_CRC = 4;
+    private static final int R_BRUTO = 8;
+    private static final int R_NETO = 16;
+    private static final int R_PERIODO = 24;
+    private static final int R_FECHA = 32;
+    private static final int R_EMPLEADO = 56;
+    private static final int R_IMPORTES = 96;
+    private static final int MAXIMO_PERIODO = R_FECHA - R_PERIODO;
+    private static final int MAXIMO_FECHA = R_EMPLEADO - R_FECHA;
+    private static final int MAXIMO_EMPLEADO = R_IMPORTES - R_EMPLEADO - 1;
+
+    /*
+     * Múltiplo de 64 bytes para que un registro no comparta línea de caché con otro.
+     */
+    private static final int TAMANO_REGISTRO = (R_IMPORTES + 8 * F_Concepto.total() + 63) & ~63;
+
+    private static final String SQL_LEER_POSICION = "SELECT generacion, compactados FROM diario WHERE id = ?";
+    private static final String SQL_GUARDAR_POSICION =
+            "INSERT OR REPLACE INTO diario (id, generacion, compactados) VALUES (?, ?, ?)";
+
+    /*
+     * Diario que usan la interfaz y las importaciones, si se ha activado.
+     */
+    private static volatile D_Diario activo;
+
+    private final Path fichero;
+    private final FileChannel canal;
+    private final MappedByteBuffer cabecera;
+    private final MappedByteBuffer registros;
+    private final long identificador;
+    private final int capacidad;
+
+    /*
+     * Vistas del fichero proyectado para quien añade y para quien compacta, cada
+     * una con su posición. Solo se usan con el cerrojo correspondiente.
+     */
+    private final ByteBuffer escritura;
+    private final ByteBuffer lectura;
+    private final CRC32 crcEscritura = new CRC32();
+    private final CRC32 crcLectura = new CRC32();
+
+    /*
+     * Protegidos por el propio diario.
+     */
+    private int generacion;
+    private int escritos;
+    private int compactados;
+    private boolean cerrado;
+
+    /*
+     * Solo compacta un hilo a la vez. Se toma siempre antes que el cerrojo del diario.
+     */
+    private final Object cerrojoCompactacion = new Object();
+    private final ScheduledExecutorService compactador;
+
+    private D_Diario(Path fichero, int capacidadNueva) throws IOException, SQLException {
+        this.fichero = fichero;
+        canal = FileChannel.open(fichero, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean nuevo = canal.size() == 0;
+            if (nuevo) {
+                capacidad = capacidadNueva;
+                identificador = ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+                generacion = 1;
+            } else {
+                ByteBuffer leida = ByteBuffer.allocate(TAMANO_CABECERA);
+                canal.read(leida, 0);
+                comprobarCabecera(leida);
+                capacidad = leida.getInt(C_CAPACIDAD);
+                identificador = leida.getLong(C_IDENTIFICADOR);
+                generacion = leida.getInt(C_GENERACION);
+            }
+
+            cabecera = canal.map(FileChannel.MapMode.READ_WRITE, 0, TAMANO_CABECERA);
+            registros = canal.map(FileChannel.MapMode.READ_WRITE, TAMANO_CABECERA, (long) capacidad * TAMANO_REGISTRO);
+            escritura = registros.duplicate();
+            lectura = registros.duplicate();
+            if (nuevo) {
+                cabecera.putLong(0, MAGICO)
+                        .putInt(C_VERSION, VERSION)
+                        .putInt(C_TAMANO_REGISTRO, TAMANO_REGISTRO)
+                        .putInt(C_CONCEPTOS, F_Concepto.total())
+                        .putInt(C_HUELLA, huellaConceptos())
+                        .putInt(C_GENERACION, generacion)
+                        .putInt(C_CAPACIDAD, capacidad)
+                        .putLong(C_IDENTIFICADOR, identificador);
+                cabecera.force();
+            }
+
+            compactados = leerPosicion();
+            escritos = compactados;
+            while (escritos < capacidad && valido(escritos)) {
+                escritos++;
+            }
+        } catch (IOException | SQLException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+
+        compactar(); // Lo que quedara pendiente de la ejecución anterior
+
+        compactador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "diario-calculos");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        compactador.scheduleWithFixedDelay(this::compactarEnSegundoPlano,
+                MILISEGUNDOS_ENTRE_COMPACTACIONES, MILISEGUNDOS_ENTRE_COMPACTACIONES, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Abre un diario, o lo crea con la capacidad por defecto si no existe, y pasa a
+     * la base de datos los registros que quedaran pendientes.
+     *
+     * @param fichero Fichero del diario.
+     * @return Diario abierto, con su compactación en segundo plano en marcha.
+     * @throws IOException Si no se puede abrir o no es un diario válido.
+     * @throws SQLException Si falla el paso de los registros pendientes.
+     */
+    public static D_Diario abrir(Path fichero) throws IOException, SQLException {
+        return abrir(fichero, CAPACIDAD_POR_DEFECTO);
+    }
+
+    /**
+     * @param fichero Fichero del diario.
+     * @param capacidad Registros que caben si se crea nuevo; un diario existente conserva la suya.
+     * @return Diario abierto, con su compactación en segundo plano en marcha.
+     * @throws IOException Si no se puede abrir o no es un diario válido.
+     * @throws SQLException Si falla el paso de los registros pendientes.
+     */
+    public static D_Diario abrir(Path fichero, int capacidad) throws IOException, SQLException {
+        if (capacidad <= 0 || (long) capacidad * TAMANO_REGISTRO > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Capacidad de diario no válida: " + capacidad);
+        }
+        return new D_Diario(fichero, capacidad);
+    }
+
+    /**
+     * Abre un diario y lo deja como el que usan la interfaz y las importaciones.
+     * Si había otro activo, se cierra antes.
+     *
+     * @param fichero Fichero del diario.
+     * @throws IOException Si no se puede abrir o no es un diario válido.
+     * @throws SQLException Si falla el paso de los registros pendientes.
+     */
+    public static synchronized void activar(Path fichero) throws IOException, SQLException {
+        desactivar();
+        activo = abrir(fichero);
+    }
+
+    /**
+     * @return Diario activo, o `null` si los cálculos se guardan directamente en la base de datos.
+     */
+    public static D_Diario activo() {
+        return activo;
+    }
+
+    /**
+     * Cierra el diario activo, si lo hay, pasando antes a la base de datos lo pendiente.
+     */
+    public static synchronized void desactivar() {
+        D_Diario diario = activo;
+        activo = null;
+        if (diario != null) {
+            try {
+                diario.close();
+            } catch (IOException | SQLException e) {
+                System.err.println("Error cerrando el diario: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Añade un cálculo al diario. Si el diario está lleno, compacta antes.
+     *
+     * @param calculo Cálculo con su desglose por conceptos.
+     * @return Registros pendientes de pasar a la base de datos, incluido este.
+     * @throws SQLException Si el diario está lleno y falla la compactación.
+     * @throws IllegalArgumentException Si el cálculo no lleva desglose o sus textos no caben en un registro.
+     */
+    public long anadir(D_Calculo calculo) throws SQLException {
+        if (calculo.getResultado() == null) {
+            throw new IllegalArgumentException("El diario solo admite cálculos con desglose por conceptos.");
+        }
+        byte[] empleado = calculo.getEmpleado().getBytes(StandardCharsets.UTF_8);
+        if (empleado.length > MAXIMO_EMPLEADO) {
+            throw new IllegalArgumentException("Empleado demasiado largo para el diario: " + calculo.getEmpleado());
+        }
+        if (calculo.getPeriodo().length() > MAXIMO_PERIODO || calculo.getFecha().length() > MAXIMO_FECHA) {
+            throw new IllegalArgumentException("Fecha o periodo no válidos para el diario: " + calculo.getFecha());
+        }
+        while (true) {
+            synchronized (this) {
+                if (cerrado) {
+                    throw new IllegalStateException("El diario " + fichero + " está cerrado.");
+                }
+                if (escritos < capacidad) {
+                    escribir(escritos, calculo, empleado);
+                    escritos++;
+                    return escritos - compactados;
+                }
+            }
+            compactar(); // Fuera del cerrojo del diario: el compactador lo toma después del suyo
+        }
+    }
+
+    /**
+     * Añade todos los cálculos que devuelva el iterador.
+     *
+     * @param calculos Cálculos con su desglose por conceptos.
+     * @return Resumen con los cálculos añadidos (sin transacciones) y la velocidad alcanzada.
+     * @throws SQLException Si el diario se llena y falla la compactación.
+     */
+    public D_ResumenInsercion anadir(Iterator<D_Calculo> calculos) throws SQLException {
+        long inicio = System.nanoTime();
+        long filas = 0;
+        while (calculos.hasNext()) {
+            anadir(calculos.next());
+            filas++;
+        }
+        return new D_ResumenInsercion(filas, 0, (System.nanoTime() - inicio) / 1e9);
+    }
+
+    /**
+     * Pasa a la base de datos los registros pendientes, una transacción cada
+     * D_BaseDatos.FILAS_POR_TRANSACCION_POR_DEFECTO registros. Si al terminar no
+     * queda nada pendiente, el diario vuelve a empezar.
+     *
+     * @return Registros pasados.
+     * @throws SQLException Si falla la inserción; lo no confirmado sigue pendiente.
+     */
+    public long compactar() throws SQLException {
+        synchronized (cerrojoCompactacion) {
+            int desde;
+            int hasta;
+            int generacionActual;
+            synchronized (this) {
+                desde = compactados;
+                hasta = escritos;
+                generacionActual = generacion;
+            }
+
+            int inicio = desde;
+            while (desde < hasta) {
+                int fin = Math.min(hasta, desde + D_BaseDatos.FILAS_POR_TRANSACCION_POR_DEFECTO);
+                D_BaseDatos.insertarCalculos(new Registros(desde, fin), fin - desde,
+                        conn -> guardarPosicion(generacionActual, fin));
+                synchronized (this) {
+                    compactados = fin;
+                }
+                desde = fin;
+            }
+
+            synchronized (this) {
+                if (escritos > 0 && compactados == escritos && !cerrado) {
+                    reiniciar();
+                }
+            }
+            return hasta - inicio;
+        }
+    }
+
+    /**
+     * Escribe en disco lo añadido al diario, para que sobreviva también a un corte de luz.
+     */
+    public void forzar() {
+        registros.force();
+    }
+
+    /**
+     * @return Registros añadidos que aún no están en la base de datos.
+     */
+    public synchronized long pendientes() {
+        return escritos - compactados;
+    }
+
+    /**
+     * @return Registros que caben en el diario.
+     */
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    /**
+     * Detiene la compactación en segundo plano, pasa a la base de datos lo pendiente
+     * y cierra el fichero.
+     *
+     * @throws IOException Si falla el cierre del fichero.
+     * @throws SQLException Si falla la última compactación; los registros siguen en el diario.
+     */
+    @Override
+    public void close() throws IOException, SQLException {
+        compactador.shutdown();
+        try {
+            compactador.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            synchronized (this) {
+                if (cerrado) {
+                    return;
+                }
+                cerrado = true;
+            }
+            compactar();
+        } finally {
+            forzar();
+            canal.close();
+        }
+    }
+
+    /*
+     * Pasada periódica del compactador: los errores se muestran y se reintenta en la siguiente.
+     */
+    private void compactarEnSegundoPlano() {
+        try {
+            forzar();
+            compactar();
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Error compactando el diario " + fichero + ": " + e.getMessage());
+        }
+    }
+
+    /*
+     * Empieza una generación nueva desde el primer registro. Los registros de la
+     * anterior quedan en el fichero, pero ya no son válidos.
+     */
+    private void reiniciar() {
+        generacion++;
+        cabecera.putInt(C_GENERACION, generacion);
+        cabecera.force();
+        escritos = 0;
+        compactados = 0;
+    }
+
+    /*
+     * Escribe el registro `i` con los datos en el orden de los campos y la generación al final.
+     */
+    private void escribir(int i, D_Calculo calculo, byte[] empleado) {
+        int base = i * TAMANO_REGISTRO;
+        escritura.putLong(base + R_BRUTO, Math.round(calculo.getBruto() * 100));
+        escritura.putLong(base + R_NETO, Math.round(calculo.getNeto() * 100));
+        escribirAscii(base + R_PERIODO, calculo.getPeriodo(), MAXIMO_PERIODO);
+        escribirAscii(base + R_FECHA, calculo.getFecha(), MAXIMO_FECHA);
+        escritura.put(base + R_EMPLEADO, (byte) empleado.length);
+        for (int j = 0; j < empleado.length; j++) {
+            escritura.put(base + R_EMPLEADO + 1 + j, empleado[j]);
+        }
+        F_ResultadoNomina resultado = calculo.getResultado();
+        for (F_Concepto concepto : F_Concepto.values()) {
+            escritura.putLong(base + R_IMPORTES + 8 * concepto.ordinal(), resultado.getCentimos(concepto));
+        }
+
+        escritura.limit(base + TAMANO_REGISTRO).position(base + R_BRUTO);
+        crcEscritura.reset();
+        crcEscritura.update(escritura);
+        escritura.clear();
+        escritura.putInt(base + R_CRC, (int) crcEscritura.getValue());
+        escritura.putInt(base + R_GENERACION, generacion);
+    }
+
+    private void escribirAscii(int posicion, String texto, int ancho) {
+        for (int j = 0; j < ancho; j++) {
+            escritura.put(posicion + j, j < texto.length() ? (byte) texto.charAt(j) : 0);
+        }
+    }
+
+    /*
+     * Comprueba si el registro `i` es de la generación actual y está completo.
+     */
+    private boolean valido(int i) {
+        int base = i * TAMANO_REGISTRO;
+        if (lectura.getInt(base + R_GENERACION) != generacion) {
+            return false;
+        }
+        lectura.limit(base + TAMANO_REGISTRO).position(base + R_BRUTO);
+        crcLectura.reset();
+        crcLectura.update(lectura);
+        lectura.clear();
+        return lectura.getInt(base + R_CRC) == (int) crcLectura.getValue();
+    }
+
+    /*
+     * Reconstruye el cálculo del registro `i`, con el detalle JSON tal y como lo
+     * generan la interfaz y G_ImportadorHoras.
+     */
+    private D_Calculo leer(int i) {
+        int base = i * TAMANO_REGISTRO;
+        double bruto = lectura.getLong(base + R_BRUTO) / 100.0;
+        double neto = lectura.getLong(base + R_NETO) / 100.0;
+        String periodo = leerAscii(base + R_PERIODO, MAXIMO_PERIODO);
+        String fecha = leerAscii(base + R_FECHA, MAXIMO_FECHA);
+        byte[] bytesEmpleado = new byte[lectura.get(base + R_EMPLEADO)];
+        for (int j = 0; j < bytesEmpleado.length; j++) {
+            bytesEmpleado[j] = lectura.get(base + R_EMPLEADO + 1 + j);
+        }
+        String empleado = new String(bytesEmpleado, StandardCharsets.UTF_8);
+        long[] centimos = new long[F_Concepto.total()];
+        for (int j = 0; j < centimos.length; j++) {
+            centimos[j] = lectura.getLong(base + R_IMPORTES + 8 * j);
+        }
+        F_ResultadoNomina resultado = F_ResultadoNomina.desdeCentimos(centimos);
+
+        StringBuilder detalle = new StringBuilder(128);
+        detalle.append("{\"fecha\":").append(JSONObject.quote(fecha))
+                .append(",\"bruto\":").append(bruto)
+                .append(",\"neto\":").append(neto)
+                .append(",\"empleado\":").append(JSONObject.quote(empleado))
+                .append('}');
+
+        return new D_Calculo(empleado, periodo, fecha, bruto, neto, detalle.toString(), resultado);
+    }
+
+    private String leerAscii(int posicion, int ancho) {
+        char[] texto = new char[ancho];
+        int n = 0;
+        while (n < ancho && lectura.get(posicion + n) != 0) {
+            texto[n] = (char) lectura.get(posicion + n);
+            n++;
+        }
+        return new String(texto, 0, n);
+    }
+
+    /*
+     * Recorre los registros [desde, hasta) para insertarlos.
+     */
+    private final class Registros implements Iterator<D_Calculo> {
+
+        private int siguiente;
+        private final int hasta;
+
+        private Registros(int desde, int hasta) {
+            this.siguiente = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return siguiente < hasta;
+        }
+
+        @Override
+        public D_Calculo next() {
+            if (siguiente >= hasta) {
+                throw new NoSuchElementException();
+            }
+            return leer(siguiente++);
+        }
+    }
+
+    /*
+     * Registros de la generación actual ya pasados a la base de datos según la tabla `diario`.
+     */
+    private int leerPosicion() throws SQLException {
+        return D_BaseDatos.ejecutar(conn -> {
+            PreparedStatement pstmt = D_BaseDatos.preparar(SQL_LEER_POSICION);
+            pstmt.setLong(1, identificador);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next() && rs.getInt(1) == generacion) {
+                    return Math.min(rs.getInt(2), capacidad);
+                }
+                return 0;
+            }
+        });
+    }
+
+    private Void guardarPosicion(int generacionCompactada, int posicion) throws SQLException {
+        PreparedStatement pstmt = D_BaseDatos.preparar(SQL_GUARDAR_POSICION);
+        pstmt.setLong(1, identificador);
+        pstmt.setInt(2, generacionCompactada);
+        pstmt.setInt(3, posicion);
+        pstmt.executeUpdate();
+        return null;
+    }
+
+    private void comprobarCabecera(ByteBuffer leida) throws IOException {
+        if (leida.hasRemaining() || leida.getLong(0) != MAGICO || leida.getInt(C_VERSION) != VERSION) {
+            throw new IOException("El fichero " + fichero + " no es un diario de cálculos.");
+        }
+        if (leida.getInt(C_TAMANO_REGISTRO) != TAMANO_REGISTRO || leida.getInt(C_CONCEPTOS) != F_Concepto.total()
+                || leida.getInt(C_HUELLA) != huellaConceptos()) {
+            throw new IOException("El diario " + fichero + " se escribió con otra lista de conceptos.");
+        }
+    }
+
+    /*
+     * CRC32 de los nombres de F_Concepto en orden: cambia si se añaden, quitan o reordenan.
+     */
+    private static int huellaConceptos() {
+        CRC32 crc = new CRC32();
+        for (F_Concepto concepto : F_Concepto.values()) {
+            crc.update(concepto.name().getBytes(StandardCharsets.US_ASCII));
+            crc.update(',');
+        }
+        return (int) crc.getValue();
+    }
+}
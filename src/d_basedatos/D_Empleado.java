@@ -0,0 +1,104 @@
+/**
+ * Objetivo de la clase: Representar un empleado guardado en `calcu_nomina.db` con
+ *                       su perfil de tarifas y los valores propios que se le
+ *                       proponen por defecto al calcular su nómina.
+ *
+ * Los valores propios son solo los que cambian respecto a su perfil (por ejemplo,
+ * sus horas normales habituales o un salario base distinto), por su clave de
+ * `config.properties`, como en las versiones de los perfiles de convenio.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package d_basedatos;
+
+import f_calculo.F_CatalogoPerfiles;
+import f_calculo.F_Parametro;
+import f_calculo.F_PerfilTarifas;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+public class D_Empleado {
+
+    private final String codigo;
+    private final String nombre;
+    private final String perfil;
+    private final String alta;
+    private final Map<F_Parametro, Double> valores;
+
+    public D_Empleado(String codigo, String nombre, String perfil, String alta, Map<F_Parametro, Double> valores) {
+        this.codigo = codigo;
+        this.nombre = nombre;
+        this.perfil = perfil;
+        this.alta = alta;
+        this.valores = valores.isEmpty() ? Collections.<F_Parametro, Double>emptyMap()
+                : Collections.unmodifiableMap(new EnumMap<>(valores));
+    }
+
+    /**
+     * Empleado que aún no está dado de alta: perfil por defecto y sin valores propios.
+     * Se da de alta solo al guardar su primer cálculo.
+     *
+     * @param codigo Identificador del trabajador.
+     * @return Empleado con el código como nombre.
+     */
+    public static D_Empleado nuevo(String codigo) {
+        return new D_Empleado(codigo, codigo, F_CatalogoPerfiles.PERFIL_POR_DEFECTO, LocalDate.now().toString(),
+                Collections.<F_Parametro, Double>emptyMap());
+    }
+
+    /**
+     * @return Identificador del trabajador, el mismo que la columna `empleado` de los cálculos.
+     */
+    public String getCodigo() {
+        return codigo;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    /**
+     * @return Nombre del perfil de tarifas (ver F_CatalogoPerfiles).
+     */
+    public String getPerfil() {
+        return perfil;
+    }
+
+    /**
+     * @return Día de alta (yyyy-MM-dd).
+     */
+    public String getAlta() {
+        return alta;
+    }
+
+    /**
+     * @return Valores propios del empleado que cambian respecto a su perfil.
+     */
+    public Map<F_Parametro, Double> getValores() {
+        return valores;
+    }
+
+    /**
+     * Tarifas y valores con que se rellena la nómina del empleado: su perfil con sus
+     * valores propios encima. Si el perfil ya no existe se usa el perfil por defecto.
+     *
+     * @param catalogo Perfiles vigentes.
+     * @return Perfil con el código del empleado como nombre.
+     * @throws NumberFormatException Si algún valor propio no es válido.
+     */
+    public F_PerfilTarifas tarifas(F_CatalogoPerfiles catalogo) throws NumberFormatException {
+        F_PerfilTarifas base = catalogo.buscar(perfil);
+        if (base == null) {
+            base = catalogo.getPorDefecto();
+        }
+        return base.derivar(codigo, valores);
+    }
+
+    @Override
+    public String toString() {
+        return nombre.equals(codigo) ? codigo : codigo + " - " + nombre;
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Objetivo de la clase: Guardar y consultar los empleados de `calcu_nomina.db`
+ *                       con su perfil de tarifas y sus valores por defecto.
+ *
+ * Los empleados que aparecen por primera vez en un cálculo (por ejemplo, al
+ * importar una hoja de horas) los da de alta un trigger con el perfil por defecto
+ * y sin valores propios; desde la interfaz se les pone nombre, perfil y valores.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package d_basedatos;
+
+import f_calculo.F_CatalogoPerfiles;
+import f_calculo.F_Parametro;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+public final class D_Empleados {
+
+    /*
+     * Columnas de un empleado con sus valores, en el orden que espera leer().
+     */
+    private static final String SQL_EMPLEADOS = "SELECT e.codigo, e.nombre, e.perfil, e.alta, v.parametro, v.valor FROM ";
+    private static final String SQL_VALORES = " e LEFT JOIN empleado_valores v ON v.empleado = e.codigo ";
+
+    private D_Empleados() {
+    }
+
+    /**
+     * Da de alta un empleado o, si ya existe, cambia su nombre y perfil y sustituye
+     * sus valores propios. La fecha de alta no cambia.
+     *
+     * @param codigo Identificador del trabajador.
+     * @param nombre Nombre para mostrar; vacío o `null` para usar el código.
+     * @param perfil Perfil de tarifas; vacío o `null` para el perfil por defecto.
+     * @param valores Valores que cambian respecto al perfil.
+     * @return El empleado guardado.
+     * @throws SQLException Si falla la escritura.
+     * @throws IllegalArgumentException Si el código está vacío o algún valor no es válido.
+     */
+    public static D_Empleado guardar(String codigo, String nombre, String perfil, Map<F_Parametro, Double> valores)
+            throws SQLException {
+        String clave = codigo == null ? "" : codigo.trim();
+        if (clave.isEmpty()) {
+            throw new IllegalArgumentException("Código de empleado no válido: " + codigo);
+        }
+        String nombreEmpleado = nombre == null || nombre.trim().isEmpty() ? clave : nombre.trim();
+        String perfilEmpleado = perfil == null || perfil.trim().isEmpty()
+                ? F_CatalogoPerfiles.PERFIL_POR_DEFECTO : perfil.trim();
+        for (Map.Entry<F_Parametro, Double> valor : valores.entrySet()) {
+            if (!(valor.getValue() >= 0)) {
+                throw new IllegalArgumentException("Campo inválido: " + valor.getKey().getNombre());
+            }
+        }
+
+        return D_BaseDatos.enTransaccion(conn -> {
+            // Sin UPSERT en la versión de SQLite del controlador: se intenta el alta y se actualiza
+            PreparedStatement alta = D_BaseDatos.preparar(
+                    "INSERT OR IGNORE INTO empleados (codigo, nombre, perfil, alta) VALUES (?, ?, ?, ?)");
+            alta.setString(1, clave);
+            alta.setString(2, nombreEmpleado);
+            alta.setString(3, perfilEmpleado);
+            alta.setString(4, LocalDate.now().toString());
+            alta.executeUpdate();
+            PreparedStatement datos = D_BaseDatos.preparar(
+                    "UPDATE empleados SET nombre = ?, perfil = ? WHERE codigo = ?");
+            datos.setString(1, nombreEmpleado);
+            datos.setString(2, perfilEmpleado);
+            datos.setString(3, clave);
+            datos.executeUpdate();
+
+            PreparedStatement borrar = D_BaseDatos.preparar("DELETE FROM empleado_valores WHERE empleado = ?");
+            borrar.setString(1, clave);
+            borrar.executeUpdate();
+            PreparedStatement valor = D_BaseDatos.preparar(
+                    "INSERT INTO empleado_valores (empleado, parametro, valor) VALUES (?, ?, ?)");
+            for (Map.Entry<F_Parametro, Double> entrada : valores.entrySet()) {
+                valor.setString(1, clave);
+                valor.setString(2, entrada.getKey().getClave());
+                valor.setDouble(3, entrada.getValue());
+                valor.addBatch();
+            }
+            valor.executeBatch();
+
+            return leer(clave, 0).get(0);
+        });
+    }
+
+    /**
+     * @param codigo Identificador del trabajador.
+     * @return El empleado con sus valores, o `null` si no está dado de alta.
+     * @throws SQLException Si falla la consulta.
+     */
+    public static D_Empleado obtener(String codigo) throws SQLException {
+        List<D_Empleado> empleados = D_BaseDatos.ejecutar(conn -> leer(codigo, 0));
+        return empleados.isEmpty() ? null : empleados.get(0);
+    }
+
+    /**
+     * @param limite Número máximo de empleados.
+     * @return Los primeros empleados por código, con sus valores.
+     * @throws SQLException Si falla la consulta.
+     */
+    public static List<D_Empleado> listar(int limite) throws SQLException {
+        return D_BaseDatos.ejecutar(conn -> leer(null, limite));
+    }
+
+    /*
+     * Lee un empleado o los primeros por código en una sola consulta, agrupando sus valores.
+     */
+    private static List<D_Empleado> leer(String codigo, int limite) throws SQLException {
+        PreparedStatement pstmt;
+        if (codigo == null) {
+            // El límite va en la subconsulta: es de empleados, no de filas con valores
+            pstmt = D_BaseDatos.preparar(SQL_EMPLEADOS + "(SELECT * FROM empleados ORDER BY codigo LIMIT ?)"
+                    + SQL_VALORES + "ORDER BY e.codigo");
+            pstmt.setInt(1, limite);
+        } else {
+            pstmt = D_BaseDatos.preparar(SQL_EMPLEADOS + "empleados" + SQL_VALORES + "WHERE e.codigo = ?");
+            pstmt.setString(1, codigo);
+        }
+        List<D_Empleado> empleados = new ArrayList<>();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            String actual = null;
+            String nombre = null;
+            String perfil = null;
+            String alta = null;
+            Map<F_Parametro, Double> valores = new EnumMap<>(F_Parametro.class);
+            while (rs.next()) {
+                String leido = rs.getString(1);
+                if (!leido.equals(actual)) {
+                    if (actual != null) {
+                        empleados.add(new D_Empleado(actual, nombre, perfil, alta, valores));
+                        valores.clear();
+                    }
+                    actual = leido;
+                    nombre = rs.getString(2);
+                    perfil = rs.getString(3);
+                    alta = rs.getString(4);
+                }
+                String clave = rs.getString(5);
+                if (clave != null) {
+                    F_Parametro parametro = F_Parametro.porClave(clave);
+                    if (parametro != null) {
+                        valores.put(parametro, rs.getDouble(6));
+                    }
+                }
+            }
+            if (actual != null) {
+                empleados.add(new D_Empleado(actual, nombre, perfil, alta, valores));
+            }
+        }
+        return empleados;
+    }
+}
@@ -0,0 +1,433 @@
+/**
+ * Objetivo de la clase: Mantener actualizado el esquema de `calcu_nomina.db`.
+ *
+ * La versión del esquema se guarda en `PRAGMA user_version`. Cada migración
+ * lleva la base de datos de una versión a la siguiente dentro de una
+ * transacción, de modo que una base de datos antigua se actualiza sola al
+ * arrancar la aplicación.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package d_basedatos;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+public final class D_Esquema {
+
+    /*
+     * Empleado asignado a los cálculos hechos desde la interfaz y a los registros antiguos.
+     */
+    public static final String EMPLEADO_POR_DEFECTO = "GENERAL";
+
+    /*
+     * Condición de que el cálculo `c` sea la última versión de su nómina.
+     */
+    private static final String ULTIMA_VERSION = "NOT EXISTS (SELECT 1 FROM calculos d "
+            + "WHERE d.empleado = c.empleado AND d.periodo = c.periodo AND d.secuencia > c.secuencia)";
+
+    /*
+     * Dentro de un trigger de borrado: id de la versión que pasa a ser la última al borrar
+     * OLD (NULL si no queda ninguna).
+     */
+    private static final String ANTERIOR = "(SELECT id FROM calculos WHERE empleado = OLD.empleado "
+            + "AND periodo = OLD.periodo ORDER BY secuencia DESC LIMIT 1)";
+
+    /*
+     * Migraciones en orden: la posición i lleva de la versión i+1 a la i+2.
+     * La versión 1 es la tabla original creada por D_BaseDatos.crearTabla().
+     */
+    private static final String[][] MIGRACIONES = {
+        // 1 -> 2: clave sustituta y clave natural (empleado, periodo, secuencia)
+        {
+            "CREATE TABLE calculos_v2 ("
+                + "id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "empleado TEXT NOT NULL DEFAULT '" + EMPLEADO_POR_DEFECTO + "',"
+                + "periodo TEXT NOT NULL,"
+                + "secuencia INTEGER NOT NULL,"
+                + "fecha TEXT NOT NULL,"
+                + "salario_bruto REAL NOT NULL,"
+                + "salario_neto REAL NOT NULL,"
+                + "detalle_json TEXT,"
+                + "UNIQUE (empleado, periodo, secuencia))",
+            // El rowid antiguo es único, así que sirve como secuencia de los registros existentes
+            "INSERT INTO calculos_v2 (empleado, periodo, secuencia, fecha, salario_bruto, salario_neto, detalle_json) "
+                + "SELECT '" + EMPLEADO_POR_DEFECTO + "', substr(fecha, 1, 7), rowid, fecha, salario_bruto, salario_neto, detalle_json "
+                + "FROM calculos ORDER BY rowid",
+            "DROP TABLE calculos",
+            "ALTER TABLE calculos_v2 RENAME TO calculos",
+            "CREATE INDEX idx_calculos_fecha ON calculos (fecha)"
+        },
+        // 2 -> 3: importes por concepto en columnas numéricas, uno por fila
+        {
+            "CREATE TABLE conceptos ("
+                + "id INTEGER PRIMARY KEY,"
+                + "codigo TEXT NOT NULL UNIQUE)",
+            "CREATE TABLE calculo_conceptos ("
+                + "calculo_id INTEGER NOT NULL,"
+                + "concepto_id INTEGER NOT NULL,"
+                + "importe REAL NOT NULL,"
+                + "PRIMARY KEY (calculo_id, concepto_id)) WITHOUT ROWID",
+            // Borrado en cascada con un trigger en vez de una clave ajena: la comprobación de la
+            // clave ajena en cada importe insertado duplicaba el coste de las importaciones.
+            "CREATE TRIGGER trg_calculos_borrar_conceptos AFTER DELETE ON calculos BEGIN "
+                + "DELETE FROM calculo_conceptos WHERE calculo_id = OLD.id; END",
+            // Los totales de un periodo recorren sus cálculos y buscan cada concepto por clave primaria
+            "CREATE INDEX idx_calculos_periodo ON calculos (periodo)"
+        },
+        // 3 -> 4: resúmenes por periodo, empleado y concepto para que los informes no tengan
+        // que recorrer todo el historial. Los triggers los mantienen al insertar y borrar cálculos;
+        // los importes por concepto los acumula D_BaseDatos por tramo.
+        {
+            "CREATE TABLE resumen_periodo ("
+                + "periodo TEXT PRIMARY KEY,"
+                + "nominas INTEGER NOT NULL,"
+                + "bruto REAL NOT NULL,"
+                + "neto REAL NOT NULL) WITHOUT ROWID",
+            "CREATE TABLE resumen_periodo_empleado ("
+                + "periodo TEXT NOT NULL,"
+                + "empleado TEXT NOT NULL,"
+                + "nominas INTEGER NOT NULL,"
+                + "bruto REAL NOT NULL,"
+                + "neto REAL NOT NULL,"
+                + "PRIMARY KEY (periodo, empleado)) WITHOUT ROWID",
+            "CREATE TABLE resumen_periodo_concepto ("
+                + "periodo TEXT NOT NULL,"
+                + "concepto_id INTEGER NOT NULL,"
+                + "nominas INTEGER NOT NULL,"
+                + "importe REAL NOT NULL,"
+                + "PRIMARY KEY (periodo, concepto_id)) WITHOUT ROWID",
+            "INSERT INTO resumen_periodo "
+                + "SELECT periodo, COUNT(*), SUM(salario_bruto), SUM(salario_neto) FROM calculos GROUP BY periodo",
+            "INSERT INTO resumen_periodo_empleado "
+                + "SELECT periodo, empleado, COUNT(*), SUM(salario_bruto), SUM(salario_neto) FROM calculos "
+                + "GROUP BY periodo, empleado",
+            "INSERT INTO resumen_periodo_concepto "
+                + "SELECT c.periodo, l.concepto_id, COUNT(*), SUM(l.importe) "
+                + "FROM calculos c JOIN calculo_conceptos l ON l.calculo_id = c.id GROUP BY c.periodo, l.concepto_id",
+            "CREATE TRIGGER trg_calculos_insertar AFTER INSERT ON calculos BEGIN "
+                + "INSERT OR IGNORE INTO resumen_periodo VALUES (NEW.periodo, 0, 0, 0); "
+                + "UPDATE resumen_periodo SET nominas = nominas + 1, bruto = bruto + NEW.salario_bruto, "
+                + "neto = neto + NEW.salario_neto WHERE periodo = NEW.periodo; "
+                + "INSERT OR IGNORE INTO resumen_periodo_empleado VALUES (NEW.periodo, NEW.empleado, 0, 0, 0); "
+                + "UPDATE resumen_periodo_empleado SET nominas = nominas + 1, bruto = bruto + NEW.salario_bruto, "
+                + "neto = neto + NEW.salario_neto WHERE periodo = NEW.periodo AND empleado = NEW.empleado; "
+                + "END",
+            // Sustituye al borrado en cascada de la versión 3: los importes deben restarse
+            // del resumen antes de borrarse, y en un único trigger el orden está garantizado.
+            "DROP TRIGGER trg_calculos_borrar_conceptos",
+            "CREATE TRIGGER trg_calculos_borrar AFTER DELETE ON calculos BEGIN "
+                + "UPDATE resumen_periodo SET nominas = nominas - 1, bruto = bruto - OLD.salario_bruto, "
+                + "neto = neto - OLD.salario_neto WHERE periodo = OLD.periodo; "
+                + "DELETE FROM resumen_periodo WHERE periodo = OLD.periodo AND nominas = 0; "
+                + "UPDATE resumen_periodo_empleado SET nominas = nominas - 1, bruto = bruto - OLD.salario_bruto, "
+                + "neto = neto - OLD.salario_neto WHERE periodo = OLD.periodo AND empleado = OLD.empleado; "
+                + "DELETE FROM resumen_periodo_empleado "
+                + "WHERE periodo = OLD.periodo AND empleado = OLD.empleado AND nominas = 0; "
+                + "UPDATE resumen_periodo_concepto SET nominas = nominas - 1, importe = importe - "
+                + "(SELECT l.importe FROM calculo_conceptos l "
+                + "WHERE l.calculo_id = OLD.id AND l.concepto_id = resumen_periodo_concepto.concepto_id) "
+                + "WHERE periodo = OLD.periodo "
+                + "AND concepto_id IN (SELECT concepto_id FROM calculo_conceptos WHERE calculo_id = OLD.id); "
+                + "DELETE FROM resumen_periodo_concepto WHERE periodo = OLD.periodo AND nominas = 0; "
+                + "DELETE FROM calculo_conceptos WHERE calculo_id = OLD.id; "
+                + "END"
+        },
+        // 4 -> 5: perfiles de tarifas por convenio, versionados y con fecha de vigencia.
+        // Guardar una versión nueva nunca sobrescribe las anteriores.
+        {
+            "CREATE TABLE perfiles ("
+                + "id INTEGER PRIMARY KEY,"
+                + "convenio TEXT NOT NULL,"
+                + "version INTEGER NOT NULL,"
+                + "vigente_desde TEXT NOT NULL,"
+                + "creado TEXT NOT NULL,"
+                + "UNIQUE (convenio, version))",
+            "CREATE INDEX idx_perfiles_vigencia ON perfiles (convenio, vigente_desde)",
+            // Solo los valores que cambian respecto al perfil general, por su clave de config.properties
+            "CREATE TABLE perfil_valores ("
+                + "perfil_id INTEGER NOT NULL,"
+                + "parametro TEXT NOT NULL,"
+                + "valor REAL NOT NULL,"
+                + "PRIMARY KEY (perfil_id, parametro)) WITHOUT ROWID"
+        },
+        // 5 -> 6: hasta dónde se ha pasado a `calculos` cada diario de cálculos (ver D_Diario).
+        // Se actualiza en la misma transacción que las filas, así que un diario nunca se aplica dos veces.
+        {
+            "CREATE TABLE diario ("
+                + "id INTEGER PRIMARY KEY,"
+                + "generacion INTEGER NOT NULL,"
+                + "compactados INTEGER NOT NULL)"
+        },
+        // 6 -> 7: periodo y fecha también como números (meses desde el año 0 y segundos desde 1970,
+        // sin zona horaria) para que las consultas por rango comparen enteros, e índices que
+        // cubren las consultas por empleado y por periodo sin leer la tabla.
+        {
+            "ALTER TABLE calculos ADD COLUMN mes INTEGER NOT NULL DEFAULT 0",
+            "ALTER TABLE calculos ADD COLUMN instante INTEGER NOT NULL DEFAULT 0",
+            "UPDATE calculos SET "
+                + "mes = CAST(substr(periodo, 1, 4) AS INTEGER) * 12 + CAST(substr(periodo, 6, 2) AS INTEGER) - 1, "
+                + "instante = COALESCE(CAST(strftime('%s', fecha) AS INTEGER), 0)",
+            "CREATE INDEX idx_calculos_empleado_mes "
+                + "ON calculos (empleado, mes, secuencia, instante, salario_bruto, salario_neto)",
+            // Sustituye al índice por el texto del periodo
+            "DROP INDEX idx_calculos_periodo",
+            "CREATE INDEX idx_calculos_mes ON calculos (mes, empleado, secuencia, instante, salario_bruto, salario_neto)"
+        },
+        // 7 -> 8: empleados con su perfil de tarifas y sus valores por defecto, e historial por empleado
+        {
+            "CREATE TABLE empleados ("
+                + "codigo TEXT PRIMARY KEY,"
+                + "nombre TEXT NOT NULL,"
+                + "perfil TEXT NOT NULL DEFAULT 'general',"
+                + "alta TEXT NOT NULL) WITHOUT ROWID",
+            // Solo los valores que cambian respecto a su perfil, por su clave de config.properties
+            "CREATE TABLE empleado_valores ("
+                + "empleado TEXT NOT NULL,"
+                + "parametro TEXT NOT NULL,"
+                + "valor REAL NOT NULL,"
+                + "PRIMARY KEY (empleado, parametro)) WITHOUT ROWID",
+            // Los empleados que ya tienen cálculos se dan de alta con la fecha del primero
+            "INSERT INTO empleados (codigo, nombre, perfil, alta) "
+                + "SELECT empleado, empleado, 'general', substr(MIN(fecha), 1, 10) FROM calculos GROUP BY empleado",
+            "INSERT OR IGNORE INTO empleados (codigo, nombre, perfil, alta) "
+                + "VALUES ('" + EMPLEADO_POR_DEFECTO + "', '" + EMPLEADO_POR_DEFECTO + "', 'general', date('now'))",
+            // Sin clave ajena en calculos: una importación puede traer empleados nuevos y se dan de alta solos
+            "CREATE TRIGGER trg_calculos_alta_empleado AFTER INSERT ON calculos BEGIN "
+                + "INSERT OR IGNORE INTO empleados (codigo, nombre, perfil, alta) "
+                + "VALUES (NEW.empleado, NEW.empleado, 'general', substr(NEW.fecha, 1, 10)); "
+                + "END",
+            // Cubre el historial de un empleado en orden de fecha e id sin leer la tabla ni ordenar
+            "CREATE INDEX idx_calculos_empleado_fecha ON calculos (empleado, fecha, id, salario_bruto, salario_neto)"
+        },
+        // 8 -> 9: importes en céntimos enteros, como los calcula el motor. Con REAL cada suma
+        // de los triggers y de los resúmenes redondeaba en binario y los totales de miles de
+        // nóminas se desviaban en céntimos. Los euros solo aparecen al leer.
+        {
+            // Se quitan antes los triggers: se recrean con las columnas nuevas
+            "DROP TRIGGER trg_calculos_insertar",
+            "DROP TRIGGER trg_calculos_borrar",
+            "DROP TRIGGER trg_calculos_alta_empleado",
+            "CREATE TABLE calculos_v9 ("
+                + "id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "empleado TEXT NOT NULL DEFAULT '" + EMPLEADO_POR_DEFECTO + "',"
+                + "periodo TEXT NOT NULL,"
+                + "secuencia INTEGER NOT NULL,"
+                + "fecha TEXT NOT NULL,"
+                + "bruto_centimos INTEGER NOT NULL,"
+                + "neto_centimos INTEGER NOT NULL,"
+                + "detalle_json TEXT,"
+                + "mes INTEGER NOT NULL DEFAULT 0,"
+                + "instante INTEGER NOT NULL DEFAULT 0,"
+                + "UNIQUE (empleado, periodo, secuencia))",
+            "INSERT INTO calculos_v9 (id, empleado, periodo, secuencia, fecha, bruto_centimos, neto_centimos, "
+                + "detalle_json, mes, instante) "
+                + "SELECT id, empleado, periodo, secuencia, fecha, CAST(ROUND(salario_bruto * 100) AS INTEGER), "
+                + "CAST(ROUND(salario_neto * 100) AS INTEGER), detalle_json, mes, instante FROM calculos ORDER BY id",
+            // La tabla nueva hereda el último id asignado, aunque su fila se haya borrado
+            "DELETE FROM sqlite_sequence WHERE name = 'calculos_v9'",
+            "UPDATE sqlite_sequence SET name = 'calculos_v9' WHERE name = 'calculos'",
+            "DROP TABLE calculos",
+            "ALTER TABLE calculos_v9 RENAME TO calculos",
+            "CREATE INDEX idx_calculos_fecha ON calculos (fecha)",
+            "CREATE INDEX idx_calculos_empleado_mes "
+                + "ON calculos (empleado, mes, secuencia, instante, bruto_centimos, neto_centimos)",
+            "CREATE INDEX idx_calculos_mes ON calculos (mes, empleado, secuencia, instante, bruto_centimos, neto_centimos)",
+            "CREATE INDEX idx_calculos_empleado_fecha ON calculos (empleado, fecha, id, bruto_centimos, neto_centimos)",
+
+            "CREATE TABLE calculo_conceptos_v9 ("
+                + "calculo_id INTEGER NOT NULL,"
+                + "concepto_id INTEGER NOT NULL,"
+                + "centimos INTEGER NOT NULL,"
+                + "PRIMARY KEY (calculo_id, concepto_id)) WITHOUT ROWID",
+            "INSERT INTO calculo_conceptos_v9 "
+                + "SELECT calculo_id, concepto_id, CAST(ROUND(importe * 100) AS INTEGER) FROM calculo_conceptos",
+            "DROP TABLE calculo_conceptos",
+            "ALTER TABLE calculo_conceptos_v9 RENAME TO calculo_conceptos",
+
+            // Los resúmenes se rehacen sumando los céntimos, sin arrastrar el error de los antiguos
+            "DROP TABLE resumen_periodo",
+            "DROP TABLE resumen_periodo_empleado",
+            "DROP TABLE resumen_periodo_concepto",
+            "CREATE TABLE resumen_periodo ("
+                + "periodo TEXT PRIMARY KEY,"
+                + "nominas INTEGER NOT NULL,"
+                + "bruto_centimos INTEGER NOT NULL,"
+                + "neto_centimos INTEGER NOT NULL) WITHOUT ROWID",
+            "CREATE TABLE resumen_periodo_empleado ("
+                + "periodo TEXT NOT NULL,"
+                + "empleado TEXT NOT NULL,"
+                + "nominas INTEGER NOT NULL,"
+                + "bruto_centimos INTEGER NOT NULL,"
+                + "neto_centimos INTEGER NOT NULL,"
+                + "PRIMARY KEY (periodo, empleado)) WITHOUT ROWID",
+            "CREATE TABLE resumen_periodo_concepto ("
+                + "periodo TEXT NOT NULL,"
+                + "concepto_id INTEGER NOT NULL,"
+                + "nominas INTEGER NOT NULL,"
+                + "centimos INTEGER NOT NULL,"
+                + "PRIMARY KEY (periodo, concepto_id)) WITHOUT ROWID",
+            "INSERT INTO resumen_periodo "
+                + "SELECT periodo, COUNT(*), SUM(bruto_centimos), SUM(neto_centimos) FROM calculos GROUP BY periodo",
+            "INSERT INTO resumen_periodo_empleado "
+                + "SELECT periodo, empleado, COUNT(*), SUM(bruto_centimos), SUM(neto_centimos) FROM calculos "
+                + "GROUP BY periodo, empleado",
+            "INSERT INTO resumen_periodo_concepto "
+                + "SELECT c.periodo, l.concepto_id, COUNT(*), SUM(l.centimos) "
+                + "FROM calculos c JOIN calculo_conceptos l ON l.calculo_id = c.id GROUP BY c.periodo, l.concepto_id",
+
+            "CREATE TRIGGER trg_calculos_insertar AFTER INSERT ON calculos BEGIN "
+                + "INSERT OR IGNORE INTO resumen_periodo VALUES (NEW.periodo, 0, 0, 0); "
+                + "UPDATE resumen_periodo SET nominas = nominas + 1, bruto_centimos = bruto_centimos + NEW.bruto_centimos, "
+                + "neto_centimos = neto_centimos + NEW.neto_centimos WHERE periodo = NEW.periodo; "
+                + "INSERT OR IGNORE INTO resumen_periodo_empleado VALUES (NEW.periodo, NEW.empleado, 0, 0, 0); "
+                + "UPDATE resumen_periodo_empleado SET nominas = nominas + 1, "
+                + "bruto_centimos = bruto_centimos + NEW.bruto_centimos, neto_centimos = neto_centimos + NEW.neto_centimos "
+                + "WHERE periodo = NEW.periodo AND empleado = NEW.empleado; "
+                + "END",
+            "CREATE TRIGGER trg_calculos_borrar AFTER DELETE ON calculos BEGIN "
+                + "UPDATE resumen_periodo SET nominas = nominas - 1, bruto_centimos = bruto_centimos - OLD.bruto_centimos, "
+                + "neto_centimos = neto_centimos - OLD.neto_centimos WHERE periodo = OLD.periodo; "
+                + "DELETE FROM resumen_periodo WHERE periodo = OLD.periodo AND nominas = 0; "
+                + "UPDATE resumen_periodo_empleado SET nominas = nominas - 1, "
+                + "bruto_centimos = bruto_centimos - OLD.bruto_centimos, neto_centimos = neto_centimos - OLD.neto_centimos "
+                + "WHERE periodo = OLD.periodo AND empleado = OLD.empleado; "
+                + "DELETE FROM resumen_periodo_empleado "
+                + "WHERE periodo = OLD.periodo AND empleado = OLD.empleado AND nominas = 0; "
+                + "UPDATE resumen_periodo_concepto SET nominas = nominas - 1, centimos = centimos - "
+                + "(SELECT l.centimos FROM calculo_conceptos l "
+                + "WHERE l.calculo_id = OLD.id AND l.concepto_id = resumen_periodo_concepto.concepto_id) "
+                + "WHERE periodo = OLD.periodo "
+                + "AND concepto_id IN (SELECT concepto_id FROM calculo_conceptos WHERE calculo_id = OLD.id); "
+                + "DELETE FROM resumen_periodo_concepto WHERE periodo = OLD.periodo AND nominas = 0; "
+                + "DELETE FROM calculo_conceptos WHERE calculo_id = OLD.id; "
+                + "END",
+            "CREATE TRIGGER trg_calculos_alta_empleado AFTER INSERT ON calculos BEGIN "
+                + "INSERT OR IGNORE INTO empleados (codigo, nombre, perfil, alta) "
+                + "VALUES (NEW.empleado, NEW.empleado, 'general', substr(NEW.fecha, 1, 10)); "
+                + "END"
+        },
+        // 9 -> 10: los resúmenes solo cuentan la última versión guardada de cada nómina (la de
+        // mayor secuencia del empleado en el periodo), como la exportación. Volver a guardar una
+        // nómina sustituye a la anterior en vez de sumarse a ella. Las inserciones los actualizan
+        // con unas pocas sentencias por tramo (ver D_TramoCalculos) en vez de con triggers por fila;
+        // los borrados siguen siendo de uno en uno y los mantienen los triggers.
+        {
+            "DROP TRIGGER trg_calculos_insertar",
+            "DROP TRIGGER trg_calculos_alta_empleado",
+            "DROP TRIGGER trg_calculos_borrar",
+            "DELETE FROM resumen_periodo_empleado",
+            "INSERT INTO resumen_periodo_empleado "
+                + "SELECT periodo, empleado, 1, bruto_centimos, neto_centimos FROM calculos c WHERE " + ULTIMA_VERSION,
+            "DELETE FROM resumen_periodo",
+            "INSERT INTO resumen_periodo "
+                + "SELECT periodo, SUM(nominas), SUM(bruto_centimos), SUM(neto_centimos) FROM resumen_periodo_empleado "
+                + "GROUP BY periodo",
+            "DELETE FROM resumen_periodo_concepto",
+            "INSERT INTO resumen_periodo_concepto "
+                + "SELECT c.periodo, l.concepto_id, COUNT(*), SUM(l.centimos) "
+                + "FROM calculos c JOIN calculo_conceptos l ON l.calculo_id = c.id WHERE " + ULTIMA_VERSION + " "
+                + "GROUP BY c.periodo, l.concepto_id",
+            // Borrar una versión anterior no cambia los resúmenes
+            "CREATE TRIGGER trg_calculos_borrar AFTER DELETE ON calculos "
+                + "WHEN EXISTS (SELECT 1 FROM calculos WHERE empleado = OLD.empleado AND periodo = OLD.periodo "
+                + "AND secuencia > OLD.secuencia) BEGIN "
+                + "DELETE FROM calculo_conceptos WHERE calculo_id = OLD.id; "
+                + "END",
+            // Borrar la última la resta y suma en su lugar la versión anterior, si queda alguna
+            "CREATE TRIGGER trg_calculos_borrar_ultima AFTER DELETE ON calculos "
+                + "WHEN NOT EXISTS (SELECT 1 FROM calculos WHERE empleado = OLD.empleado AND periodo = OLD.periodo "
+                + "AND secuencia > OLD.secuencia) BEGIN "
+                + "UPDATE resumen_periodo SET "
+                + "nominas = nominas - 1 + (SELECT COUNT(*) FROM calculos WHERE id = " + ANTERIOR + "), "
+                + "bruto_centimos = bruto_centimos - OLD.bruto_centimos "
+                + "+ COALESCE((SELECT bruto_centimos FROM calculos WHERE id = " + ANTERIOR + "), 0), "
+                + "neto_centimos = neto_centimos - OLD.neto_centimos "
+                + "+ COALESCE((SELECT neto_centimos FROM calculos WHERE id = " + ANTERIOR + "), 0) "
+                + "WHERE periodo = OLD.periodo; "
+                + "DELETE FROM resumen_periodo WHERE periodo = OLD.periodo AND nominas = 0; "
+                + "DELETE FROM resumen_periodo_empleado WHERE periodo = OLD.periodo AND empleado = OLD.empleado; "
+                + "INSERT INTO resumen_periodo_empleado "
+                + "SELECT periodo, empleado, 1, bruto_centimos, neto_centimos FROM calculos WHERE id = " + ANTERIOR + "; "
+                + "UPDATE resumen_periodo_concepto SET nominas = nominas - 1, centimos = centimos - "
+                + "(SELECT l.centimos FROM calculo_conceptos l "
+                + "WHERE l.calculo_id = OLD.id AND l.concepto_id = resumen_periodo_concepto.concepto_id) "
+                + "WHERE periodo = OLD.periodo "
+                + "AND concepto_id IN (SELECT concepto_id FROM calculo_conceptos WHERE calculo_id = OLD.id); "
+                + "INSERT OR IGNORE INTO resumen_periodo_concepto (periodo, concepto_id, nominas, centimos) "
+                + "SELECT OLD.periodo, concepto_id, 0, 0 FROM calculo_conceptos WHERE calculo_id = " + ANTERIOR + "; "
+                + "UPDATE resumen_periodo_concepto SET nominas = nominas + 1, centimos = centimos + "
+                + "(SELECT l.centimos FROM calculo_conceptos l "
+                + "WHERE l.calculo_id = " + ANTERIOR + " AND l.concepto_id = resumen_periodo_concepto.concepto_id) "
+                + "WHERE periodo = OLD.periodo "
+                + "AND concepto_id IN (SELECT concepto_id FROM calculo_conceptos WHERE calculo_id = " + ANTERIOR + "); "
+                + "DELETE FROM resumen_periodo_concepto WHERE periodo = OLD.periodo AND nominas = 0; "
+                + "DELETE FROM calculo_conceptos WHERE calculo_id = OLD.id; "
+                + "END"
+        },
+        // 10 -> 11: solo los índices que usa alguna consulta, y sin las columnas que solo servían
+        // para no leer la tabla: cada índice de más se actualiza en cada inserción.
+        // - UNIQUE (empleado, periodo, secuencia): las consultas por empleado y rango de periodos,
+        //   la secuencia de las nóminas nuevas y la última versión de cada nómina.
+        // - idx_calculos_mes: la exportación de un periodo y las páginas de nóminas por periodo.
+        // - idx_calculos_fecha: el historial completo y la búsqueda por fecha.
+        // - idx_calculos_empleado_fecha: el historial de un empleado.
+        {
+            "DROP INDEX idx_calculos_empleado_mes",
+            "DROP INDEX idx_calculos_mes",
+            "CREATE INDEX idx_calculos_mes ON calculos (mes, empleado, secuencia)",
+            "DROP INDEX idx_calculos_empleado_fecha",
+            "CREATE INDEX idx_calculos_empleado_fecha ON calculos (empleado, fecha)"
+        }
+    };
+
+    private D_Esquema() {
+    }
+
+    /**
+     * @return Versión más reciente del esquema.
+     */
+    public static int versionActual() {
+        return MIGRACIONES.length + 1;
+    }
+
+    /**
+     * Aplica las migraciones pendientes. La tabla original debe existir ya.
+     *
+     * @param conn Conexión con autocommit activado.
+     * @throws SQLException Si falla alguna migración; esa migración se deshace.
+     */
+    static void actualizar(Connection conn) throws SQLException {
+        int version = leerVersion(conn);
+        if (version == 0) {
+            version = 1; // Bases de datos creadas antes de versionar el esquema
+        }
+
+        while (version < versionActual()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : MIGRACIONES[version - 1]) {
+                    stmt.execute(sql);
+                }
+                stmt.execute("PRAGMA user_version = " + (version + 1));
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw new SQLException("Error migrando el esquema a la versión " + (version + 1) + ": " + e.getMessage(), e);
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            version++;
+        }
+    }
+
+    private static int leerVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
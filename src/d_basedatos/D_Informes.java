@@ -0,0 +1,150 @@
+/**
+ * Objetivo de la clase: Obtener informes agregados del historial de cálculos
+ *                       (totales por periodo, por empleado y por concepto, medias
+ *                       y coste para la empresa) en un rango de periodos.
+ *
+ * Los informes leen las tablas de resumen (`resumen_periodo`,
+ * `resumen_periodo_empleado` y `resumen_periodo_concepto`), que se actualizan al
+ * insertar y borrar cálculos, así que su coste depende del número de periodos y
+ * empleados del rango, no del número de nóminas guardadas. Como la exportación,
+ * solo cuentan la última versión guardada de cada nómina de un empleado.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package d_basedatos;
+
+import f_calculo.F_Concepto;
+import f_calculo.F_Dinero;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+public final class D_Informes {
+
+    private D_Informes() {
+    }
+
+    /**
+     * Totales de cada periodo del rango.
+     *
+     * @param desde Primer periodo incluido (yyyy-MM).
+     * @param hasta Último periodo incluido (yyyy-MM).
+     * @return Un total por periodo con nóminas, en orden cronológico.
+     * @throws SQLException Si falla la consulta.
+     */
+    public static List<D_TotalPeriodo> totalesPorPeriodo(String desde, String hasta) throws SQLException {
+        validarRango(desde, hasta);
+        int aportaciones = D_BaseDatos.idConcepto(F_Concepto.APORTACIONES_EMPRESA);
+        return D_BaseDatos.ejecutar(conn -> {
+            PreparedStatement pstmt = D_BaseDatos.preparar(
+                    "SELECT p.periodo, p.nominas, p.bruto_centimos, p.neto_centimos, COALESCE(c.centimos, 0) "
+                    + "FROM resumen_periodo p LEFT JOIN resumen_periodo_concepto c "
+                    + "ON c.periodo = p.periodo AND c.concepto_id = ? "
+                    + "WHERE p.periodo BETWEEN ? AND ? ORDER BY p.periodo");
+            pstmt.setInt(1, aportaciones);
+            pstmt.setString(2, desde);
+            pstmt.setString(3, hasta);
+            List<D_TotalPeriodo> totales = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    totales.add(new D_TotalPeriodo(rs.getString(1), rs.getLong(2), F_Dinero.aEuros(rs.getLong(3)),
+                            F_Dinero.aEuros(rs.getLong(4)), F_Dinero.aEuros(rs.getLong(5))));
+                }
+            }
+            return totales;
+        });
+    }
+
+    /**
+     * Total acumulado de todo el rango (por ejemplo, del año hasta la fecha).
+     *
+     * @param desde Primer periodo incluido (yyyy-MM).
+     * @param hasta Último periodo incluido (yyyy-MM).
+     * @return Total con periodo "desde..hasta".
+     * @throws SQLException Si falla la consulta.
+     */
+    public static D_TotalPeriodo totalAcumulado(String desde, String hasta) throws SQLException {
+        long nominas = 0;
+        long bruto = 0;
+        long neto = 0;
+        long aportaciones = 0;
+        for (D_TotalPeriodo total : totalesPorPeriodo(desde, hasta)) { // Suma exacta en céntimos
+            nominas += total.getNominas();
+            bruto += F_Dinero.aCentimos(total.getBruto());
+            neto += F_Dinero.aCentimos(total.getNeto());
+            aportaciones += F_Dinero.aCentimos(total.getAportacionesEmpresa());
+        }
+        return new D_TotalPeriodo(desde + ".." + hasta, nominas, F_Dinero.aEuros(bruto),
+                F_Dinero.aEuros(neto), F_Dinero.aEuros(aportaciones));
+    }
+
+    /**
+     * Totales de cada empleado en el rango.
+     *
+     * @param desde Primer periodo incluido (yyyy-MM).
+     * @param hasta Último periodo incluido (yyyy-MM).
+     * @return Un total por empleado, ordenado por empleado.
+     * @throws SQLException Si falla la consulta.
+     */
+    public static List<D_TotalEmpleado> totalesPorEmpleado(String desde, String hasta) throws SQLException {
+        validarRango(desde, hasta);
+        return D_BaseDatos.ejecutar(conn -> {
+            PreparedStatement pstmt = D_BaseDatos.preparar(
+                    "SELECT empleado, SUM(nominas), SUM(bruto_centimos), SUM(neto_centimos) "
+                    + "FROM resumen_periodo_empleado WHERE periodo BETWEEN ? AND ? "
+                    + "GROUP BY empleado ORDER BY empleado");
+            pstmt.setString(1, desde);
+            pstmt.setString(2, hasta);
+            List<D_TotalEmpleado> totales = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    totales.add(new D_TotalEmpleado(rs.getString(1), rs.getLong(2), F_Dinero.aEuros(rs.getLong(3)),
+                            F_Dinero.aEuros(rs.getLong(4))));
+                }
+            }
+            return totales;
+        });
+    }
+
+    /**
+     * Totales de cada concepto en el rango.
+     *
+     * @param desde Primer periodo incluido (yyyy-MM).
+     * @param hasta Último periodo incluido (yyyy-MM).
+     * @return Un total por concepto con importes, en el orden de F_Concepto.
+     * @throws SQLException Si falla la consulta.
+     */
+    public static List<D_TotalConcepto> totalesPorConcepto(String desde, String hasta) throws SQLException {
+        validarRango(desde, hasta);
+        List<D_TotalConcepto> totales = D_BaseDatos.ejecutar(conn -> {
+            PreparedStatement pstmt = D_BaseDatos.preparar(
+                    "SELECT k.codigo, SUM(r.nominas), SUM(r.centimos) "
+                    + "FROM resumen_periodo_concepto r JOIN conceptos k ON k.id = r.concepto_id "
+                    + "WHERE r.periodo BETWEEN ? AND ? GROUP BY k.codigo");
+            pstmt.setString(1, desde);
+            pstmt.setString(2, hasta);
+            List<D_TotalConcepto> filas = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    F_Concepto concepto = F_Concepto.porCodigo(rs.getString(1));
+                    if (concepto != null) { // Conceptos guardados que ya no existen en F_Concepto
+                        filas.add(new D_TotalConcepto(concepto, rs.getLong(2), F_Dinero.aEuros(rs.getLong(3))));
+                    }
+                }
+            }
+            return filas;
+        });
+        totales.sort(Comparator.comparing(D_TotalConcepto::getConcepto));
+        return totales;
+    }
+
+    private static void validarRango(String desde, String hasta) {
+        if (!desde.matches("\\d{4}-\\d{2}") || !hasta.matches("\\d{4}-\\d{2}")) {
+            throw new IllegalArgumentException("Periodo no válido (se espera yyyy-MM): " + desde + ", " + hasta);
+        }
+    }
+}
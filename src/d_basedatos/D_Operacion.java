@@ -0,0 +1,24 @@
+/**
+ * Objetivo de la clase: Representar una operación sobre la conexión compartida de
+ *                       D_BaseDatos que puede lanzar SQLException.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package d_basedatos;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface D_Operacion<T> {
+
+    /**
+     * Ejecuta la operación.
+     *
+     * @param conn Conexión compartida. No debe cerrarse.
+     * @return Resultado de la operación (puede ser `null`).
+     * @throws SQLException Si falla la operación.
+     */
+    T ejecutar(Connection conn) throws SQLException;
+}
@@ -0,0 +1,184 @@
+/**
+ * Objetivo de la clase: Guardar en `calcu_nomina.db` las versiones de las tarifas
+ *                       de cada convenio y cargarlas en un índice en memoria.
+ *
+ * Cada guardado crea una versión nueva con su fecha de vigencia; las anteriores
+ * se conservan. El índice (F_IndicePerfiles) se lee con una sola consulta y se
+ * guarda en caché hasta el siguiente guardado, de modo que calcular un lote no
+ * hace ninguna consulta por nómina.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package d_basedatos;
+
+import f_calculo.F_CatalogoPerfiles;
+import f_calculo.F_IndicePerfiles;
+import f_calculo.F_Parametro;
+import f_calculo.F_VersionPerfil;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+public final class D_Perfiles {
+
+    private static volatile F_IndicePerfiles indice;
+
+    private D_Perfiles() {
+    }
+
+    /**
+     * Guarda una versión nueva de las tarifas de un convenio.
+     *
+     * @param convenio Nombre del convenio (distinto del perfil general).
+     * @param vigenteDesde Primer día en que se aplican las tarifas.
+     * @param valores Valores que cambian respecto al perfil general.
+     * @return La versión guardada, con su número.
+     * @throws SQLException Si falla la escritura.
+     * @throws IllegalArgumentException Si el convenio está vacío o algún valor no es válido.
+     */
+    public static F_VersionPerfil guardar(String convenio, LocalDate vigenteDesde, Map<F_Parametro, Double> valores)
+            throws SQLException {
+        String nombre = convenio == null ? "" : convenio.trim();
+        if (nombre.isEmpty() || F_CatalogoPerfiles.PERFIL_POR_DEFECTO.equals(nombre)) {
+            throw new IllegalArgumentException("Nombre de convenio no válido: " + convenio);
+        }
+        for (Map.Entry<F_Parametro, Double> valor : valores.entrySet()) {
+            if (!(valor.getValue() >= 0)) {
+                throw new IllegalArgumentException("Campo inválido: " + valor.getKey().getNombre());
+            }
+        }
+
+        return D_BaseDatos.enTransaccion(conn -> {
+            PreparedStatement siguiente = D_BaseDatos.preparar(
+                    "SELECT COALESCE(MAX(version), 0) + 1 FROM perfiles WHERE convenio = ?");
+            siguiente.setString(1, nombre);
+            int version;
+            try (ResultSet rs = siguiente.executeQuery()) {
+                rs.next();
+                version = rs.getInt(1);
+            }
+
+            PreparedStatement perfil = D_BaseDatos.preparar(
+                    "INSERT INTO perfiles (convenio, version, vigente_desde, creado) VALUES (?, ?, ?, ?)");
+            perfil.setString(1, nombre);
+            perfil.setInt(2, version);
+            perfil.setString(3, vigenteDesde.toString());
+            perfil.setString(4, LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+            perfil.executeUpdate();
+            long id;
+            try (ResultSet rs = D_BaseDatos.preparar("SELECT last_insert_rowid()").executeQuery()) {
+                rs.next();
+                id = rs.getLong(1);
+            }
+
+            PreparedStatement valor = D_BaseDatos.preparar(
+                    "INSERT INTO perfil_valores (perfil_id, parametro, valor) VALUES (?, ?, ?)");
+            for (Map.Entry<F_Parametro, Double> entrada : valores.entrySet()) {
+                valor.setLong(1, id);
+                valor.setString(2, entrada.getKey().getClave());
+                valor.setDouble(3, entrada.getValue());
+                valor.addBatch();
+            }
+            valor.executeBatch();
+            indice = null; // Se vuelve a leer en la siguiente consulta
+            return new F_VersionPerfil(nombre, version, vigenteDesde, valores);
+        });
+    }
+
+    /**
+     * Devuelve el índice de versiones, leyéndolo de la base de datos solo si ha
+     * cambiado desde la última vez.
+     *
+     * @return Índice en memoria por (convenio, fecha).
+     * @throws SQLException Si falla la consulta.
+     */
+    public static F_IndicePerfiles indice() throws SQLException {
+        F_IndicePerfiles actual = indice;
+        if (actual != null) {
+            return actual;
+        }
+        // Se lee y se guarda con la conexión bloqueada, para no guardar un índice ya sustituido
+        return D_BaseDatos.ejecutar(conn -> {
+            if (indice == null) {
+                indice = new F_IndicePerfiles(leerVersiones());
+            }
+            return indice;
+        });
+    }
+
+    /**
+     * Todas las versiones guardadas, incluidas las sustituidas, para consultarlas.
+     *
+     * @return Versiones por convenio, fecha y número.
+     * @throws SQLException Si falla la consulta.
+     */
+    public static List<F_VersionPerfil> historial() throws SQLException {
+        return D_BaseDatos.ejecutar(conn -> leerVersiones());
+    }
+
+    /*
+     * Olvida el índice en caché (por ejemplo, al cerrar o cambiar de base de datos).
+     */
+    static void vaciarCache() {
+        indice = null;
+    }
+
+    /*
+     * Lee todas las versiones con sus valores en una sola consulta.
+     */
+    private static List<F_VersionPerfil> leerVersiones() throws SQLException {
+        PreparedStatement pstmt = D_BaseDatos.preparar(
+                "SELECT p.id, p.convenio, p.version, p.vigente_desde, v.parametro, v.valor "
+                + "FROM perfiles p LEFT JOIN perfil_valores v ON v.perfil_id = p.id "
+                + "ORDER BY p.convenio, p.vigente_desde, p.version");
+        List<F_VersionPerfil> versiones = new ArrayList<>();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            long idActual = -1;
+            String convenio = null;
+            int version = 0;
+            LocalDate desde = null;
+            Map<F_Parametro, Double> valores = new EnumMap<>(F_Parametro.class);
+            while (rs.next()) {
+                long id = rs.getLong(1);
+                if (id != idActual) {
+                    if (idActual >= 0) {
+                        versiones.add(new F_VersionPerfil(convenio, version, desde, valores));
+                        valores.clear();
+                    }
+                    idActual = id;
+                    convenio = rs.getString(2);
+                    version = rs.getInt(3);
+                    desde = leerFecha(rs.getString(4));
+                }
+                String clave = rs.getString(5);
+                if (clave != null) {
+                    F_Parametro parametro = F_Parametro.porClave(clave);
+                    if (parametro != null) {
+                        valores.put(parametro, rs.getDouble(6));
+                    }
+                }
+            }
+            if (idActual >= 0) {
+                versiones.add(new F_VersionPerfil(convenio, version, desde, valores));
+            }
+        }
+        return versiones;
+    }
+
+    private static LocalDate leerFecha(String texto) throws SQLException {
+        try {
+            return LocalDate.parse(texto);
+        } catch (DateTimeParseException e) {
+            throw new SQLException("Fecha de vigencia no válida en la tabla perfiles: " + texto, e);
+        }
+    }
+}
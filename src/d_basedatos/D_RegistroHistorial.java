@@ -0,0 +1,39 @@
+/**
+ * Objetivo de la clase: Representar una fila resumida del historial de cálculos
+ *                       (identificador, fecha, bruto y neto), sin el detalle JSON.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package d_basedatos;
+
+public class D_RegistroHistorial {
+
+    private final long id;
+    private final String fecha;
+    private final double bruto;
+    private final double neto;
+
+    public D_RegistroHistorial(long id, String fecha, double bruto, double neto) {
+        this.id = id;
+        this.fecha = fecha;
+        this.bruto = bruto;
+        this.neto = neto;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getFecha() {
+        return fecha;
+    }
+
+    public double getBruto() {
+        return bruto;
+    }
+
+    public double getNeto() {
+        return neto;
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Objetivo de la clase: Representar una nómina guardada en una consulta por
+ *                       rango (identificador, empleado, periodo, secuencia, fecha,
+ *                       bruto y neto), leída solo de los índices que la cubren.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package d_basedatos;
+
+public class D_RegistroNomina {
+
+    private final long id;
+    private final String empleado;
+    private final int mes;
+    private final int secuencia;
+    private final String fecha;
+    private final double bruto;
+    private final double neto;
+
+    D_RegistroNomina(long id, String empleado, int mes, int secuencia, String fecha, double bruto, double neto) {
+        this.id = id;
+        this.empleado = empleado;
+        this.mes = mes;
+        this.secuencia = secuencia;
+        this.fecha = fecha;
+        this.bruto = bruto;
+        this.neto = neto;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getEmpleado() {
+        return empleado;
+    }
+
+    /**
+     * @return Periodo de la nómina (yyyy-MM).
+     */
+    public String getPeriodo() {
+        return D_BaseDatos.periodo(mes);
+    }
+
+    public int getSecuencia() {
+        return secuencia;
+    }
+
+    public String getFecha() {
+        return fecha;
+    }
+
+    public double getBruto() {
+        return bruto;
+    }
+
+    public double getNeto() {
+        return neto;
+    }
+
+    /*
+     * Valor de la columna `mes`, para continuar la paginación.
+     */
+    int getMes() {
+        return mes;
+    }
+}
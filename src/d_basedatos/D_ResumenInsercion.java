@@ -0,0 +1,46 @@
+/**
+ * Objetivo de la clase: Resumir una inserción masiva en la tabla `calculos`
+ *                       (filas, transacciones y velocidad alcanzada).
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package d_basedatos;
+
+public class D_ResumenInsercion {
+
+    private final long filas;
+    private final long transacciones;
+    private final double segundos;
+
+    public D_ResumenInsercion(long filas, long transacciones, double segundos) {
+        this.filas = filas;
+        this.transacciones = transacciones;
+        this.segundos = segundos;
+    }
+
+    public long getFilas() {
+        return filas;
+    }
+
+    public long getTransacciones() {
+        return transacciones;
+    }
+
+    public double getSegundos() {
+        return segundos;
+    }
+
+    /**
+     * @return Filas insertadas por segundo.
+     */
+    public double getFilasPorSegundo() {
+        return filas / Math.max(segundos, 1e-9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Insertadas %d filas en %d transacciones en %.2f s (%.0f filas/s)",
+                filas, transacciones, segundos, getFilasPorSegundo());
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Objetivo de la clase: Representar el total de un concepto de nómina en un rango
+ *                       de periodos (importe y número de nóminas en que aparece).
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package d_basedatos;
+
+import f_calculo.F_Concepto;
+
+public class D_TotalConcepto {
+
+    private final F_Concepto concepto;
+    private final long nominas;
+    private final double importe;
+
+    public D_TotalConcepto(F_Concepto concepto, long nominas, double importe) {
+        this.concepto = concepto;
+        this.nominas = nominas;
+        this.importe = importe;
+    }
+
+    public F_Concepto getConcepto() {
+        return concepto;
+    }
+
+    /**
+     * @return Nóminas con un importe distinto de cero en este concepto.
+     */
+    public long getNominas() {
+        return nominas;
+    }
+
+    public double getImporte() {
+        return importe;
+    }
+
+    /**
+     * @return Importe medio por nómina en que aparece el concepto.
+     */
+    public double getMedia() {
+        return nominas == 0 ? 0.0 : Math.round(importe / nominas * 100.0) / 100.0;
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Objetivo de la clase: Representar los totales de un empleado en un rango de
+ *                       periodos (nóminas, bruto y neto).
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package d_basedatos;
+
+public class D_TotalEmpleado {
+
+    private final String empleado;
+    private final long nominas;
+    private final double bruto;
+    private final double neto;
+
+    public D_TotalEmpleado(String empleado, long nominas, double bruto, double neto) {
+        this.empleado = empleado;
+        this.nominas = nominas;
+        this.bruto = bruto;
+        this.neto = neto;
+    }
+
+    public String getEmpleado() {
+        return empleado;
+    }
+
+    public long getNominas() {
+        return nominas;
+    }
+
+    public double getBruto() {
+        return bruto;
+    }
+
+    public double getNeto() {
+        return neto;
+    }
+
+    public double getMediaBruto() {
+        return nominas == 0 ? 0.0 : Math.round(bruto / nominas * 100.0) / 100.0;
+    }
+
+    public double getMediaNeto() {
+        return nominas == 0 ? 0.0 : Math.round(neto / nominas * 100.0) / 100.0;
+    }
+}
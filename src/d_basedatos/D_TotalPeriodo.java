@@ -0,0 +1,63 @@
+/**
+ * Objetivo de la clase: Representar los totales de un periodo (o de un rango de
+ *                       periodos): nóminas, bruto, neto y aportaciones de la empresa.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package d_basedatos;
+
+public class D_TotalPeriodo {
+
+    private final String periodo;
+    private final long nominas;
+    private final double bruto;
+    private final double neto;
+    private final double aportacionesEmpresa;
+
+    public D_TotalPeriodo(String periodo, long nominas, double bruto, double neto, double aportacionesEmpresa) {
+        this.periodo = periodo;
+        this.nominas = nominas;
+        this.bruto = bruto;
+        this.neto = neto;
+        this.aportacionesEmpresa = aportacionesEmpresa;
+    }
+
+    /**
+     * @return Periodo (yyyy-MM), o "desde..hasta" si es un acumulado.
+     */
+    public String getPeriodo() {
+        return periodo;
+    }
+
+    public long getNominas() {
+        return nominas;
+    }
+
+    public double getBruto() {
+        return bruto;
+    }
+
+    public double getNeto() {
+        return neto;
+    }
+
+    public double getAportacionesEmpresa() {
+        return aportacionesEmpresa;
+    }
+
+    /**
+     * @return Coste total para la empresa: salario bruto más sus aportaciones.
+     */
+    public double getCosteEmpresa() {
+        return Math.round((bruto + aportacionesEmpresa) * 100.0) / 100.0;
+    }
+
+    public double getMediaBruto() {
+        return nominas == 0 ? 0.0 : Math.round(bruto / nominas * 100.0) / 100.0;
+    }
+
+    public double getMediaNeto() {
+        return nominas == 0 ? 0.0 : Math.round(neto / nominas * 100.0) / 100.0;
+    }
+}
@@ -0,0 +1,249 @@
+/**
+ * Objetivo de la clase: Completar con unas pocas sentencias por tramo lo que
+ *                       acompaña a los cálculos insertados en una transacción:
+ *                       su desglose en `calculo_conceptos`, el alta de los
+ *                       empleados nuevos y los resúmenes de los informes.
+ *
+ * Con una fila de `calculo_conceptos` por importe, cada nómina eran unas 28
+ * inserciones por JDBC y ese era el mayor coste de las importaciones masivas.
+ * Ahora cada nómina deja sus importes en una sola fila de la tabla temporal
+ * `tramo_importes` (una columna por concepto) y al cerrar el tramo un único
+ * INSERT ... SELECT la cruza con `conceptos` y pasa los importes a
+ * `calculo_conceptos`, en el orden de su clave para que se añadan siempre al
+ * final del índice.
+ *
+ * Los resúmenes (`resumen_periodo`, `resumen_periodo_empleado` y
+ * `resumen_periodo_concepto`) solo cuentan la última versión de cada nómina.
+ * La tabla temporal `tramo_vigentes` guarda, de cada empleado y periodo del
+ * tramo, su última versión y la que lo era antes del tramo; cada resumen se
+ * actualiza con una sentencia que suma la primera y resta la segunda. Los ids
+ * de un tramo son consecutivos (ver D_AsignadorClaves), así que sus cálculos
+ * se localizan por rango de id.
+ *
+ * Se usa uno por transacción, dentro de ella: las tablas temporales también se
+ * deshacen si se deshace la transacción.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package d_basedatos;
+
+import f_calculo.F_Concepto;
+import f_calculo.F_ResultadoNomina;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+
+final class D_TramoCalculos {
+
+    /*
+     * Una columna `i<ordinal>` por concepto de F_Concepto; los importes a cero van como NULL.
+     */
+    private static final String SQL_CREAR_IMPORTES;
+    private static final String SQL_ANADIR;
+
+    static {
+        StringBuilder crear = new StringBuilder(
+                "CREATE TEMP TABLE IF NOT EXISTS tramo_importes (calculo_id INTEGER PRIMARY KEY");
+        StringBuilder anadir = new StringBuilder("INSERT INTO tramo_importes VALUES (?");
+        for (int i = 0; i < F_Concepto.total(); i++) {
+            crear.append(", i").append(i).append(" INTEGER");
+            anadir.append(", ?");
+        }
+        SQL_CREAR_IMPORTES = crear.append(')').toString();
+        SQL_ANADIR = anadir.append(')').toString();
+    }
+
+    private static final String SQL_CREAR_VIGENTES =
+            "CREATE TEMP TABLE IF NOT EXISTS tramo_vigentes (nuevo_id INTEGER PRIMARY KEY, anterior_id INTEGER)";
+
+    /*
+     * Última versión de cada nómina del tramo (ids ? a ?) y la que lo era antes del tramo, si
+     * había alguna. El `+` evita que SQLite busque `a` por rango de id en vez de por su clave.
+     */
+    private static final String SQL_VIGENTES =
+            "INSERT INTO tramo_vigentes (nuevo_id, anterior_id) "
+            + "SELECT c.id, (SELECT a.id FROM calculos a WHERE a.empleado = c.empleado AND a.periodo = c.periodo "
+            + "AND +a.id < ? ORDER BY a.secuencia DESC LIMIT 1) "
+            + "FROM calculos c WHERE c.id BETWEEN ? AND ? AND NOT EXISTS (SELECT 1 FROM calculos d "
+            + "WHERE d.empleado = c.empleado AND d.periodo = c.periodo AND d.secuencia > c.secuencia)";
+
+    private static final String SQL_ALTA_EMPLEADOS =
+            "INSERT OR IGNORE INTO empleados (codigo, nombre, perfil, alta) "
+            + "SELECT empleado, empleado, 'general', substr(MIN(fecha), 1, 10) FROM calculos "
+            + "WHERE id BETWEEN ? AND ? GROUP BY empleado";
+
+    /*
+     * Los totales del periodo se corrigen con la diferencia entre cada versión nueva y la que
+     * sustituye; solo las nóminas que no sustituyen a otra suman una más.
+     */
+    private static final String SQL_RESUMEN_PERIODO =
+            "INSERT OR REPLACE INTO resumen_periodo (periodo, nominas, bruto_centimos, neto_centimos) "
+            + "SELECT d.periodo, COALESCE(r.nominas, 0) + d.nominas, COALESCE(r.bruto_centimos, 0) + d.bruto, "
+            + "COALESCE(r.neto_centimos, 0) + d.neto "
+            + "FROM (SELECT n.periodo AS periodo, SUM(v.anterior_id IS NULL) AS nominas, "
+            + "SUM(n.bruto_centimos - COALESCE(a.bruto_centimos, 0)) AS bruto, "
+            + "SUM(n.neto_centimos - COALESCE(a.neto_centimos, 0)) AS neto "
+            + "FROM tramo_vigentes v JOIN calculos n ON n.id = v.nuevo_id LEFT JOIN calculos a ON a.id = v.anterior_id "
+            + "GROUP BY n.periodo) d "
+            + "LEFT JOIN resumen_periodo r ON r.periodo = d.periodo";
+
+    /*
+     * Cada empleado tiene una sola nómina vigente por periodo: la nueva sustituye a la anterior.
+     */
+    private static final String SQL_RESUMEN_EMPLEADO =
+            "INSERT OR REPLACE INTO resumen_periodo_empleado (periodo, empleado, nominas, bruto_centimos, neto_centimos) "
+            + "SELECT n.periodo, n.empleado, 1, n.bruto_centimos, n.neto_centimos "
+            + "FROM tramo_vigentes v JOIN calculos n ON n.id = v.nuevo_id";
+
+    /*
+     * Resta del resumen por concepto los importes de las versiones sustituidas.
+     */
+    private static final String SQL_RESTAR_CONCEPTOS =
+            "INSERT OR REPLACE INTO resumen_periodo_concepto (periodo, concepto_id, nominas, centimos) "
+            + "SELECT d.periodo, d.concepto_id, r.nominas - d.nominas, r.centimos - d.centimos "
+            + "FROM (SELECT a.periodo AS periodo, l.concepto_id AS concepto_id, COUNT(*) AS nominas, "
+            + "SUM(l.centimos) AS centimos "
+            + "FROM tramo_vigentes v JOIN calculos a ON a.id = v.anterior_id "
+            + "JOIN calculo_conceptos l ON l.calculo_id = a.id GROUP BY a.periodo, l.concepto_id) d "
+            + "JOIN resumen_periodo_concepto r ON r.periodo = d.periodo AND r.concepto_id = d.concepto_id";
+
+    private static final String SQL_QUITAR_CONCEPTOS_VACIOS = "DELETE FROM resumen_periodo_concepto WHERE nominas = 0";
+    private static final String SQL_VACIAR_IMPORTES = "DELETE FROM tramo_importes";
+    private static final String SQL_VACIAR_VIGENTES = "DELETE FROM tramo_vigentes";
+
+    private final PreparedStatement anadir;
+    private final String sqlDesglose;
+    private final String sqlSumarConceptos;
+    private long primerId; // Rango de ids del tramo; 0 si aún no hay ninguno
+    private long ultimoId;
+    private boolean conImportes;
+
+    /**
+     * Crea las tablas temporales si hace falta. Debe crearse dentro de la transacción en la
+     * que se insertan las filas.
+     *
+     * @param idsConceptos Id en la tabla `conceptos` de cada F_Concepto, indexado por ordinal().
+     * @throws SQLException Si falla la creación de las tablas.
+     */
+    D_TramoCalculos(int[] idsConceptos) throws SQLException {
+        D_BaseDatos.preparar(SQL_CREAR_IMPORTES).executeUpdate();
+        D_BaseDatos.preparar(SQL_CREAR_VIGENTES).executeUpdate();
+        anadir = D_BaseDatos.preparar(SQL_ANADIR);
+
+        // Cada fila del tramo se cruza con los conceptos y CASE elige la columna de cada uno.
+        // Los dos recorridos van por clave, así que las filas salen ya en orden y no hay que ordenarlas.
+        StringBuilder columna = new StringBuilder("CASE k.id");
+        for (int i = 0; i < idsConceptos.length; i++) {
+            columna.append(" WHEN ").append(idsConceptos[i]).append(" THEN t.i").append(i);
+        }
+        columna.append(" END");
+        StringBuilder sql = new StringBuilder("INSERT INTO calculo_conceptos (calculo_id, concepto_id, centimos) ")
+                .append("SELECT calculo_id, concepto_id, centimos FROM (SELECT t.calculo_id AS calculo_id, ")
+                .append("k.id AS concepto_id, ").append(columna).append(" AS centimos ")
+                .append("FROM tramo_importes t CROSS JOIN conceptos k) WHERE centimos IS NOT NULL");
+        sqlDesglose = sql.append(" ORDER BY 1, 2").toString();
+
+        // Las versiones nuevas se suman por periodo desde la tabla temporal (una fila por nómina,
+        // no una por importe) y los totales se reparten por concepto igual que el desglose
+        StringBuilder totales = new StringBuilder("SELECT n.periodo AS periodo");
+        StringBuilder nominas = new StringBuilder("CASE k.id");
+        StringBuilder centimos = new StringBuilder("CASE k.id");
+        for (int i = 0; i < idsConceptos.length; i++) {
+            totales.append(", COUNT(t.i").append(i).append(") AS n").append(i)
+                    .append(", SUM(t.i").append(i).append(") AS c").append(i);
+            nominas.append(" WHEN ").append(idsConceptos[i]).append(" THEN s.n").append(i);
+            centimos.append(" WHEN ").append(idsConceptos[i]).append(" THEN s.c").append(i);
+        }
+        totales.append(" FROM tramo_vigentes v JOIN calculos n ON n.id = v.nuevo_id ")
+                .append("JOIN tramo_importes t ON t.calculo_id = v.nuevo_id GROUP BY n.periodo");
+        sql = new StringBuilder("INSERT OR REPLACE INTO resumen_periodo_concepto (periodo, concepto_id, nominas, centimos) ")
+                .append("SELECT d.periodo, d.concepto_id, COALESCE(r.nominas, 0) + d.nominas, ")
+                .append("COALESCE(r.centimos, 0) + d.centimos ")
+                .append("FROM (SELECT s.periodo AS periodo, k.id AS concepto_id, ").append(nominas)
+                .append(" END AS nominas, ").append(centimos).append(" END AS centimos ")
+                .append("FROM (").append(totales).append(") s CROSS JOIN conceptos k) d ")
+                .append("LEFT JOIN resumen_periodo_concepto r ON r.periodo = d.periodo AND r.concepto_id = d.concepto_id");
+        sqlSumarConceptos = sql.append(" WHERE d.nominas > 0").toString();
+    }
+
+    /**
+     * Añade al tramo un cálculo ya añadido al lote de `calculos` y, si lo lleva, su desglose.
+     *
+     * @param id Id asignado al cálculo; los de un tramo son consecutivos.
+     * @param resultado Importes del cálculo, o `null` si no tiene desglose.
+     * @throws SQLException Si falla la asignación de parámetros.
+     */
+    void anadir(long id, F_ResultadoNomina resultado) throws SQLException {
+        if (primerId == 0) {
+            primerId = id;
+        }
+        ultimoId = id;
+        if (resultado == null) {
+            return;
+        }
+        anadir.setLong(1, id);
+        for (F_Concepto concepto : F_Concepto.values()) {
+            long centimos = resultado.getCentimos(concepto);
+            if (centimos != 0) {
+                anadir.setLong(concepto.ordinal() + 2, centimos);
+            } else {
+                anadir.setNull(concepto.ordinal() + 2, Types.INTEGER);
+            }
+        }
+        anadir.addBatch();
+        conImportes = true;
+    }
+
+    /**
+     * Escribe el desglose de los cálculos añadidos, da de alta a sus empleados, actualiza
+     * los resúmenes y vacía las tablas temporales. Las filas de `calculos` del tramo deben
+     * estar ya insertadas.
+     *
+     * @throws SQLException Si falla alguna sentencia.
+     */
+    void volcar() throws SQLException {
+        if (primerId == 0) {
+            return;
+        }
+        if (conImportes) {
+            anadir.executeBatch();
+            D_BaseDatos.preparar(sqlDesglose).executeUpdate();
+        }
+
+        PreparedStatement pstmt = D_BaseDatos.preparar(SQL_VIGENTES);
+        pstmt.setLong(1, primerId);
+        pstmt.setLong(2, primerId);
+        pstmt.setLong(3, ultimoId);
+        pstmt.executeUpdate();
+        pstmt = D_BaseDatos.preparar(SQL_ALTA_EMPLEADOS);
+        pstmt.setLong(1, primerId);
+        pstmt.setLong(2, ultimoId);
+        pstmt.executeUpdate();
+
+        // Las versiones sustituidas se restan antes de sumar las nuevas para que un concepto que
+        // solo tenía la anterior no se quede con una fila a cero
+        D_BaseDatos.preparar(SQL_RESUMEN_PERIODO).executeUpdate();
+        D_BaseDatos.preparar(SQL_RESUMEN_EMPLEADO).executeUpdate();
+        D_BaseDatos.preparar(SQL_RESTAR_CONCEPTOS).executeUpdate();
+        if (conImportes) {
+            D_BaseDatos.preparar(sqlSumarConceptos).executeUpdate();
+            D_BaseDatos.preparar(SQL_VACIAR_IMPORTES).executeUpdate();
+        }
+        D_BaseDatos.preparar(SQL_QUITAR_CONCEPTOS_VACIOS).executeUpdate();
+        D_BaseDatos.preparar(SQL_VACIAR_VIGENTES).executeUpdate();
+        primerId = 0;
+        conImportes = false;
+    }
+
+    /**
+     * Descarta lo añadido que aún no se ha enviado (por ejemplo, si se deshace la transacción).
+     *
+     * @throws SQLException Si falla el vaciado del lote.
+     */
+    void descartar() throws SQLException {
+        anadir.clearBatch(); // La sentencia está en caché: no debe conservar filas del tramo fallido
+        primerId = 0;
+        conImportes = false;
+    }
+}
@@ -0,0 +1,313 @@
+/**
+ * Objetivo de la clase: Mantener una nómina calculada y, al cambiar un parámetro,
+ *                       volver a calcular solo los importes que dependen de él.
+ *
+ * El cálculo se ve como un grafo: cada F_Concepto depende de unos parámetros y de
+ * otros conceptos (los devengos de las tarifas y las horas, la base de cotización
+ * de los devengos, cada cuota de la base y su tipo, el IRPF del bruto tributable...).
+ * Al cambiar un parámetro se marcan los conceptos que lo usan y se recalculan en el
+ * orden de F_Concepto, que ya es un orden válido del grafo; si un importe no varía,
+ * lo que depende de él no se toca. Los importes se calculan con las mismas fórmulas
+ * que F_MotorNomina (ver F_MotorNomina.concepto()), así que el resultado es idéntico
+ * al de un cálculo completo.
+ *
+ * Si el cambio alcanza a más de media nómina (las horas, el salario base o un plus
+ * llegan al bruto y de ahí a todas las cuotas) sale más barato el cálculo completo,
+ * que es código en línea, y se usa ese.
+ *
+ * Los conjuntos de conceptos se representan como máscaras de bits por
+ * F_Concepto.ordinal(). Una instancia no es segura entre hilos; los métodos
+ * estáticos no guardan estado.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package f_calculo;
+
+public final class F_CalculoIncremental {
+
+    /*
+     * Conceptos que usan directamente cada parámetro, indexados por F_Parametro.ordinal().
+     */
+    private static final long[] USOS_PARAMETRO = new long[F_Parametro.total()];
+
+    /*
+     * Conceptos que usan directamente cada concepto, indexados por F_Concepto.ordinal().
+     */
+    private static final long[] USOS_CONCEPTO = new long[F_Concepto.total()];
+
+    /*
+     * Todos los conceptos que pueden cambiar con cada parámetro (cierre de USOS_*).
+     */
+    private static final long[] AFECTADOS = new long[F_Parametro.total()];
+
+    /*
+     * Con más conceptos afectados que estos se hace el cálculo completo.
+     */
+    private static final int MAXIMO_INCREMENTAL = F_Concepto.total() / 2;
+
+    private static final F_Concepto[] CONCEPTOS = F_Concepto.values();
+
+    private static final F_Parametro[] HORAS = {
+        F_Parametro.HORAS_NORMALES, F_Parametro.HORAS_NOCTURNAS, F_Parametro.HORAS_EXTRAS, F_Parametro.HORAS_FESTIVAS
+    };
+
+    static {
+        if (F_Concepto.total() > Long.SIZE) {
+            throw new IllegalStateException("Hay más conceptos que bits en una máscara.");
+        }
+        usa(F_Concepto.HORAS_NORMALES, F_Parametro.SALARIO_BASE, F_Parametro.HORAS_NORMALES);
+        usa(F_Concepto.HORAS_NOCTURNAS, F_Parametro.SALARIO_BASE, F_Parametro.PLUS_NOCTURNIDAD,
+                F_Parametro.HORAS_NOCTURNAS);
+        usa(F_Concepto.HORAS_EXTRAS, F_Parametro.SALARIO_BASE, F_Parametro.PLUS_HORAS_EXTRAS, F_Parametro.HORAS_EXTRAS);
+        usa(F_Concepto.HORAS_FESTIVAS, F_Parametro.SALARIO_BASE, F_Parametro.PLUS_FESTIVOS,
+                F_Parametro.HORAS_FESTIVAS);
+        usa(F_Concepto.PLUS_TURNICIDAD, F_Parametro.PLUS_TURNICIDAD);
+        usa(F_Concepto.PLUS_TURNICIDAD, HORAS);
+        usa(F_Concepto.PRORRATA_PAGA_EXTRA, F_Parametro.PRORRATA_PAGA_EXTRA);
+        usa(F_Concepto.PRORRATA_PAGA_EXTRA, HORAS);
+        usa(F_Concepto.PRORRATA_VACACIONES, F_Parametro.PRORRATA_VACACIONES);
+        usa(F_Concepto.PRORRATA_VACACIONES, HORAS);
+        usa(F_Concepto.COMPENSACION_FIN_CONTRATO, F_Parametro.COMPENSACION_FIN_CONTRATO);
+        usa(F_Concepto.COMPENSACION_FIN_CONTRATO, HORAS);
+        usa(F_Concepto.ATRASOS, F_Parametro.ATRASOS);
+        usa(F_Concepto.SALARIO_BRUTO_TRIBUTABLE, F_Concepto.HORAS_NORMALES, F_Concepto.HORAS_NOCTURNAS,
+                F_Concepto.HORAS_EXTRAS, F_Concepto.HORAS_FESTIVAS, F_Concepto.PLUS_TURNICIDAD,
+                F_Concepto.PRORRATA_PAGA_EXTRA, F_Concepto.PRORRATA_VACACIONES,
+                F_Concepto.COMPENSACION_FIN_CONTRATO, F_Concepto.ATRASOS);
+
+        usa(F_Concepto.DIETAS, F_Parametro.DIETA_DIARIA, F_Parametro.DIAS_CON_DIETA);
+        usa(F_Concepto.KILOMETRAJE, F_Parametro.PRECIO_POR_KILOMETRO, F_Parametro.KILOMETROS_RECORRIDOS);
+        usa(F_Concepto.ALOJAMIENTO, F_Parametro.PRECIO_POR_NOCHE, F_Parametro.NOCHES_FUERA);
+        usa(F_Concepto.TRANSPORTE_PUBLICO, F_Parametro.TRANSPORTE_PUBLICO);
+        usa(F_Concepto.OTROS_GASTOS, F_Parametro.OTROS_GASTOS);
+        usa(F_Concepto.TOTAL_GASTOS_ADICIONALES, F_Concepto.DIETAS, F_Concepto.KILOMETRAJE, F_Concepto.ALOJAMIENTO,
+                F_Concepto.TRANSPORTE_PUBLICO, F_Concepto.OTROS_GASTOS);
+
+        usa(F_Concepto.BASE_COTIZACION, F_Concepto.HORAS_NORMALES, F_Concepto.HORAS_NOCTURNAS,
+                F_Concepto.HORAS_EXTRAS, F_Concepto.HORAS_FESTIVAS, F_Concepto.PLUS_TURNICIDAD,
+                F_Concepto.PRORRATA_PAGA_EXTRA, F_Concepto.PRORRATA_VACACIONES, F_Concepto.ATRASOS);
+        cuota(F_Concepto.CC_TRABAJADOR, F_Parametro.CC_TRABAJADOR);
+        cuota(F_Concepto.DESEMPLEO_TRABAJADOR, F_Parametro.DESEMPLEO_TRABAJADOR);
+        cuota(F_Concepto.FP_TRABAJADOR, F_Parametro.FP_TRABAJADOR);
+        cuota(F_Concepto.MEI_TRABAJADOR, F_Parametro.MEI_TRABAJADOR);
+        usa(F_Concepto.APORTACIONES_TRABAJADOR, F_Concepto.CC_TRABAJADOR, F_Concepto.DESEMPLEO_TRABAJADOR,
+                F_Concepto.FP_TRABAJADOR, F_Concepto.MEI_TRABAJADOR);
+        cuota(F_Concepto.CC_EMPRESA, F_Parametro.CC_EMPRESA);
+        cuota(F_Concepto.ATEP_EMPRESA, F_Parametro.ATEP_EMPRESA);
+        cuota(F_Concepto.DESEMPLEO_EMPRESA, F_Parametro.DESEMPLEO_EMPRESA);
+        cuota(F_Concepto.FP_EMPRESA, F_Parametro.FP_EMPRESA);
+        cuota(F_Concepto.FOGASA, F_Parametro.FOGASA_EMPRESA);
+        cuota(F_Concepto.MEI_EMPRESA, F_Parametro.MEI_EMPRESA);
+        usa(F_Concepto.APORTACIONES_EMPRESA, F_Concepto.CC_EMPRESA, F_Concepto.ATEP_EMPRESA,
+                F_Concepto.DESEMPLEO_EMPRESA, F_Concepto.FP_EMPRESA, F_Concepto.FOGASA, F_Concepto.MEI_EMPRESA);
+
+        // Con el IRPF manual solo cuenta el tipo, pero basta con marcar de más: si no cambia no se propaga
+        usa(F_Concepto.RETENCION_IRPF, F_Parametro.IRPF, F_Parametro.IRPF_AUTOMATICO, F_Parametro.PERIODOS_ANUALES,
+                F_Parametro.ESCALA_IRPF, F_Parametro.DESCENDIENTES);
+        usa(F_Concepto.RETENCION_IRPF, F_Concepto.SALARIO_BRUTO_TRIBUTABLE, F_Concepto.APORTACIONES_TRABAJADOR);
+        usa(F_Concepto.TOTAL_RETENCIONES, F_Concepto.APORTACIONES_TRABAJADOR, F_Concepto.RETENCION_IRPF);
+        usa(F_Concepto.SALARIO_BRUTO, F_Concepto.SALARIO_BRUTO_TRIBUTABLE, F_Concepto.TOTAL_GASTOS_ADICIONALES);
+        usa(F_Concepto.SALARIO_NETO, F_Concepto.SALARIO_BRUTO_TRIBUTABLE, F_Concepto.TOTAL_RETENCIONES,
+                F_Concepto.TOTAL_GASTOS_ADICIONALES);
+
+        // El recálculo recorre los conceptos por ordinal: cada uno solo puede depender de los anteriores
+        for (int c = 0; c < USOS_CONCEPTO.length; c++) {
+            if ((USOS_CONCEPTO[c] & ((2L << c) - 1)) != 0) {
+                throw new IllegalStateException("El orden de F_Concepto no respeta las dependencias: "
+                        + CONCEPTOS[c]);
+            }
+        }
+        for (int p = 0; p < AFECTADOS.length; p++) {
+            long afectados = USOS_PARAMETRO[p];
+            for (int c = 0; c < USOS_CONCEPTO.length; c++) {
+                if ((afectados & (1L << c)) != 0) {
+                    afectados |= USOS_CONCEPTO[c];
+                }
+            }
+            AFECTADOS[p] = afectados;
+        }
+    }
+
+    private final long[] p;
+    private final long[] r = new long[F_Concepto.total()];
+
+    /**
+     * Calcula la nómina completa una vez; los cambios posteriores son incrementales.
+     *
+     * @param parametros Parámetros de partida; se copian.
+     * @throws ArithmeticException Si algún importe no cabe en un long.
+     */
+    public F_CalculoIncremental(F_ParametrosNomina parametros) {
+        p = parametros.copia().fijos();
+        F_MotorNomina.calcular(p, r);
+    }
+
+    /**
+     * Cambia un parámetro y recalcula lo que depende de él.
+     *
+     * @param parametro Parámetro a cambiar.
+     * @param valor Nuevo valor, validado como en F_ParametrosNomina.set().
+     * @return Conceptos cuyo importe ha cambiado o, si se ha rehecho la nómina entera,
+     *         todos los que dependen del cambio; 0 si ninguno.
+     * @throws NumberFormatException Si el valor no es válido; no se cambia nada.
+     * @throws ArithmeticException Si algún importe no cabe en un long; se conserva el valor anterior.
+     */
+    public long set(F_Parametro parametro, double valor) throws NumberFormatException {
+        return cambiar(parametro.ordinal(), F_ParametrosNomina.aFijo(parametro, valor));
+    }
+
+    /**
+     * Pasa a los valores de otro juego de parámetros, recalculando solo lo que
+     * dependa de los que son distintos.
+     *
+     * @param parametros Nuevos valores; no se modifican.
+     * @return Conceptos cuyo importe ha cambiado o, si se ha rehecho la nómina entera,
+     *         todos los que dependen del cambio; 0 si ninguno.
+     * @throws ArithmeticException Si algún importe no cabe en un long; se conservan los valores anteriores.
+     */
+    public long cambiar(F_ParametrosNomina parametros) {
+        long[] nuevos = parametros.fijos();
+        long pendientes = 0;
+        long afectados = 0;
+        for (int i = 0; i < p.length; i++) {
+            if (p[i] != nuevos[i]) {
+                pendientes |= USOS_PARAMETRO[i];
+                afectados |= AFECTADOS[i];
+            }
+        }
+        if (pendientes == 0) {
+            return 0;
+        }
+        long[] anteriores = p.clone();
+        System.arraycopy(nuevos, 0, p, 0, p.length);
+        try {
+            return recalcular(p, r, pendientes, afectados);
+        } catch (ArithmeticException e) {
+            System.arraycopy(anteriores, 0, p, 0, p.length);
+            F_MotorNomina.calcular(p, r);
+            throw e;
+        }
+    }
+
+    /**
+     * @return Copia de los parámetros actuales.
+     */
+    public F_ParametrosNomina getParametros() {
+        F_ParametrosNomina copia = new F_ParametrosNomina();
+        System.arraycopy(p, 0, copia.fijos(), 0, p.length);
+        return copia;
+    }
+
+    /**
+     * @return Copia de los importes actuales.
+     */
+    public F_ResultadoNomina getResultado() {
+        return F_ResultadoNomina.desdeCentimos(r);
+    }
+
+    /**
+     * Recalcula en el sitio un resultado después de cambiar un parámetro, para volver a
+     * pasar un lote ya calculado sin repetir los importes que no dependen del cambio.
+     *
+     * @param parametros Parámetros con el nuevo valor ya asignado.
+     * @param resultado Resultado calculado con el valor anterior; se actualiza.
+     * @param cambiado Parámetro que ha cambiado.
+     * @return Conceptos cuyo importe ha cambiado o, si se ha rehecho la nómina entera,
+     *         todos los que dependen del cambio; 0 si ninguno.
+     * @throws ArithmeticException Si algún importe no cabe en un long; el resultado queda a medias.
+     */
+    public static long recalcular(F_ParametrosNomina parametros, F_ResultadoNomina resultado, F_Parametro cambiado) {
+        int i = cambiado.ordinal();
+        return recalcular(parametros.fijos(), resultado.centimos(), USOS_PARAMETRO[i], AFECTADOS[i]);
+    }
+
+    /**
+     * @param parametro Parámetro.
+     * @return Conceptos que pueden cambiar al cambiar el parámetro.
+     */
+    public static long afectados(F_Parametro parametro) {
+        return AFECTADOS[parametro.ordinal()];
+    }
+
+    /**
+     * @param conceptos Máscara de conceptos.
+     * @param c Concepto a comprobar.
+     * @return `true` si el concepto está en la máscara.
+     */
+    public static boolean incluye(long conceptos, F_Concepto c) {
+        return (conceptos & (1L << c.ordinal())) != 0;
+    }
+
+    /**
+     * @param conceptos Conceptos a incluir.
+     * @return Máscara con esos conceptos.
+     */
+    public static long mascara(F_Concepto... conceptos) {
+        long mascara = 0;
+        for (F_Concepto c : conceptos) {
+            mascara |= 1L << c.ordinal();
+        }
+        return mascara;
+    }
+
+    /*
+     * Recalcula los conceptos pendientes de menor a mayor ordinal, añadiendo los que
+     * dependen de cada importe que cambia. Devuelve los que han cambiado.
+     *
+     * Cada concepto suelto cuesta una llamada a F_MotorNomina.concepto(); si los
+     * afectados pasan de MAXIMO_INCREMENTAL se hace el cálculo completo y se devuelven
+     * todos, hayan cambiado o no.
+     */
+    static long recalcular(long[] p, long[] r, long pendientes, long afectados) {
+        if (Long.bitCount(afectados) > MAXIMO_INCREMENTAL) {
+            F_MotorNomina.calcular(p, r);
+            return afectados;
+        }
+        F_Concepto[] conceptos = CONCEPTOS;
+        long cambiados = 0;
+        while (pendientes != 0) {
+            int c = Long.numberOfTrailingZeros(pendientes);
+            pendientes &= pendientes - 1;
+            long importe = F_MotorNomina.concepto(conceptos[c], p, r);
+            if (importe != r[c]) {
+                r[c] = importe;
+                cambiados |= 1L << c;
+                pendientes |= USOS_CONCEPTO[c];
+            }
+        }
+        return cambiados;
+    }
+
+    private long cambiar(int parametro, long valor) {
+        if (p[parametro] == valor) {
+            return 0;
+        }
+        long anterior = p[parametro];
+        p[parametro] = valor;
+        try {
+            return recalcular(p, r, USOS_PARAMETRO[parametro], AFECTADOS[parametro]);
+        } catch (ArithmeticException e) {
+            p[parametro] = anterior;
+            F_MotorNomina.calcular(p, r);
+            throw e;
+        }
+    }
+
+    private static void usa(F_Concepto concepto, F_Parametro... parametros) {
+        for (F_Parametro parametro : parametros) {
+            USOS_PARAMETRO[parametro.ordinal()] |= 1L << concepto.ordinal();
+        }
+    }
+
+    private static void usa(F_Concepto concepto, F_Concepto... conceptos) {
+        for (F_Concepto usado : conceptos) {
+            USOS_CONCEPTO[usado.ordinal()] |= 1L << concepto.ordinal();
+        }
+    }
+
+    private static void cuota(F_Concepto concepto, F_Parametro tipo) {
+        usa(concepto, tipo);
+        usa(concepto, F_Concepto.BASE_COTIZACION);
+    }
+}
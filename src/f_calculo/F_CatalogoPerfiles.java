@@ -0,0 +1,91 @@
+/**
+ * Objetivo de la clase: Agrupar los perfiles de tarifas disponibles, buscándolos
+ *                       por nombre en memoria.
+ *
+ * El catálogo no cambia una vez creado: cuando cambia la configuración se crea
+ * uno nuevo y se sustituye entero, de modo que un lote en curso sigue usando
+ * siempre las mismas tarifas.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package f_calculo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class F_CatalogoPerfiles {
+
+    /*
+     * Nombre del perfil que se compila a partir de `config.properties`.
+     */
+    public static final String PERFIL_POR_DEFECTO = "general";
+
+    private final F_PerfilTarifas porDefecto;
+    private final Map<String, F_PerfilTarifas> perfiles;
+
+    /**
+     * @param porDefecto Perfil que se usa cuando no se indica ninguno.
+     * @param otros Resto de perfiles; si alguno repite nombre prevalece el último.
+     */
+    public F_CatalogoPerfiles(F_PerfilTarifas porDefecto, Collection<F_PerfilTarifas> otros) {
+        Map<String, F_PerfilTarifas> mapa = new HashMap<>();
+        mapa.put(porDefecto.getNombre(), porDefecto);
+        for (F_PerfilTarifas perfil : otros) {
+            mapa.put(perfil.getNombre(), perfil);
+        }
+        this.porDefecto = porDefecto;
+        this.perfiles = mapa;
+    }
+
+    /**
+     * @param base Parámetros del único perfil.
+     * @return Catálogo con un solo perfil, el de por defecto.
+     */
+    public static F_CatalogoPerfiles de(F_ParametrosNomina base) {
+        return new F_CatalogoPerfiles(F_PerfilTarifas.de(PERFIL_POR_DEFECTO, base),
+                Collections.<F_PerfilTarifas>emptyList());
+    }
+
+    public F_PerfilTarifas getPorDefecto() {
+        return porDefecto;
+    }
+
+    /**
+     * @param nombre Nombre del perfil; vacío o `null` para el perfil por defecto.
+     * @return El perfil, o `null` si no existe.
+     */
+    public F_PerfilTarifas buscar(String nombre) {
+        if (nombre == null || nombre.isEmpty()) {
+            return porDefecto;
+        }
+        return perfiles.get(nombre);
+    }
+
+    /**
+     * @return Nombres de los perfiles, ordenados alfabéticamente.
+     */
+    public List<String> nombres() {
+        List<String> nombres = new ArrayList<>(perfiles.keySet());
+        Collections.sort(nombres);
+        return nombres;
+    }
+
+    /*
+     * Todos los perfiles, incluido el de por defecto.
+     */
+    Collection<F_PerfilTarifas> todos() {
+        return perfiles.values();
+    }
+
+    /**
+     * @return Número de perfiles del catálogo.
+     */
+    public int tamano() {
+        return perfiles.size();
+    }
+}
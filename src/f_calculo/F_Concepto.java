@@ -0,0 +1,109 @@
+/**
+ * Objetivo de la clase: Enumerar los importes que produce el cálculo de nómina
+ *                       (devengos, gastos, bases, aportaciones, IRPF y neto),
+ *                       con la etiqueta que se muestra en la nómina y la regla
+ *                       con que se redondea a céntimos.
+ *
+ * Cada concepto calculado se redondea por separado y los totales son la suma de
+ * los importes ya redondeados, de modo que la nómina siempre cuadra al céntimo.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package f_calculo;
+
+public enum F_Concepto {
+
+    // ==== Devengos ====
+    HORAS_NORMALES("Horas normales"),
+    HORAS_NOCTURNAS("Horas nocturnas"),
+    HORAS_EXTRAS("Horas extras"),
+    HORAS_FESTIVAS("Horas festivas"),
+    PLUS_TURNICIDAD("Plus turnicidad"),
+    PRORRATA_PAGA_EXTRA("Prorrata paga extra"),
+    PRORRATA_VACACIONES("Prorrata vacaciones"),
+    COMPENSACION_FIN_CONTRATO("Compensación fin contrato"),
+    ATRASOS("Atrasos"),
+    SALARIO_BRUTO_TRIBUTABLE("Salario bruto"),
+
+    // ==== Gastos adicionales (exentos) ====
+    DIETAS("Dietas"),
+    KILOMETRAJE("Kilometraje"),
+    ALOJAMIENTO("Alojamiento"),
+    TRANSPORTE_PUBLICO("Transporte público"),
+    OTROS_GASTOS("Otros gastos"),
+    TOTAL_GASTOS_ADICIONALES("Total gastos adicionales"),
+
+    // ==== Cotizaciones ====
+    // Cada cuota se calcula sobre la base y se redondea al céntimo por separado
+    BASE_COTIZACION("Base de cotización"),
+    CC_TRABAJADOR("Contingencias comunes trabajador", F_Redondeo.MITAD_ARRIBA),
+    DESEMPLEO_TRABAJADOR("Desempleo trabajador", F_Redondeo.MITAD_ARRIBA),
+    FP_TRABAJADOR("Formación profesional trabajador", F_Redondeo.MITAD_ARRIBA),
+    MEI_TRABAJADOR("M.E.I. trabajador", F_Redondeo.MITAD_ARRIBA),
+    APORTACIONES_TRABAJADOR("Aportaciones trabajador"),
+    CC_EMPRESA("Contingencias comunes empresa", F_Redondeo.MITAD_ARRIBA),
+    ATEP_EMPRESA("AT y EP empresa", F_Redondeo.MITAD_ARRIBA),
+    DESEMPLEO_EMPRESA("Desempleo empresa", F_Redondeo.MITAD_ARRIBA),
+    FP_EMPRESA("Formación profesional empresa", F_Redondeo.MITAD_ARRIBA),
+    FOGASA("FOGASA", F_Redondeo.MITAD_ARRIBA),
+    MEI_EMPRESA("M.E.I. empresa", F_Redondeo.MITAD_ARRIBA),
+    APORTACIONES_EMPRESA("Aportaciones empresa"),
+
+    // ==== Retenciones y totales ====
+    RETENCION_IRPF("IRPF retenido", F_Redondeo.MITAD_ARRIBA),
+    TOTAL_RETENCIONES("Total retenciones trabajador"),
+    SALARIO_BRUTO("Salario bruto con gastos"),
+    SALARIO_NETO("Salario neto");
+
+    private static final F_Concepto[] TODOS = values();
+
+    private final String etiqueta;
+    private final F_Redondeo redondeo;
+
+    F_Concepto(String etiqueta) {
+        this(etiqueta, F_Redondeo.MITAD_ARRIBA);
+    }
+
+    F_Concepto(String etiqueta, F_Redondeo redondeo) {
+        this.etiqueta = etiqueta;
+        this.redondeo = redondeo;
+    }
+
+    /**
+     * @return Texto que acompaña al importe en la nómina.
+     */
+    public String getEtiqueta() {
+        return etiqueta;
+    }
+
+    /**
+     * @return Regla con que se redondea el importe a céntimos. Los totales se suman
+     *         sin redondeo adicional.
+     */
+    public F_Redondeo getRedondeo() {
+        return redondeo;
+    }
+
+    /**
+     * Busca un concepto por el código con que se guarda en la base de datos (su nombre).
+     *
+     * @param codigo Nombre del concepto, por ejemplo "FOGASA".
+     * @return Concepto o `null` si no existe.
+     */
+    public static F_Concepto porCodigo(String codigo) {
+        for (F_Concepto c : TODOS) {
+            if (c.name().equals(codigo)) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Número total de conceptos.
+     */
+    public static int total() {
+        return TODOS.length;
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Objetivo de la clase: Operar con importes en céntimos de euro (long) y con
+ *                       cantidades en coma fija, de forma exacta y sin reservar
+ *                       memoria.
+ *
+ * Convenio de unidades del motor de cálculo:
+ * - importes: céntimos de euro;
+ * - horas, días, noches y kilómetros: centésimas;
+ * - tarifas: diezmilésimas de euro;
+ * - tipos: diezmilésimas de punto porcentual (4,7 % = 47000).
+ *
+ * Los productos se comprueban con Math.multiplyExact, así que un desbordamiento
+ * lanza ArithmeticException en lugar de dar un importe erróneo.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package f_calculo;
+
+import java.math.BigDecimal;
+
+public final class F_Dinero {
+
+    /*
+     * tarifa (1e-4 €) * cantidad (1e-2) = 1e-6 €; entre 1e4 quedan céntimos.
+     */
+    static final long DIVISOR_TARIFA = 10_000L;
+
+    /*
+     * céntimos * tipo (1e-4 %) = 1e-6 céntimos; entre 1e6 quedan céntimos.
+     */
+    static final long DIVISOR_TIPO = 1_000_000L;
+
+    private F_Dinero() {
+    }
+
+    /**
+     * Importe de aplicar una tarifa a una cantidad (precio por hora, por kilómetro...).
+     *
+     * @param tarifa Tarifa en diezmilésimas de euro.
+     * @param cantidad Cantidad en centésimas.
+     * @param redondeo Regla de redondeo del concepto.
+     * @return Importe en céntimos.
+     */
+    public static long porTarifa(long tarifa, long cantidad, F_Redondeo redondeo) {
+        long producto = Math.multiplyExact(tarifa, cantidad);
+        if (producto >= 0 && redondeo == F_Redondeo.MITAD_ARRIBA) {
+            return (producto + DIVISOR_TARIFA / 2) / DIVISOR_TARIFA; // Caso habitual, sin ramas
+        }
+        long cociente = producto / DIVISOR_TARIFA; // Divisor constante: el JIT lo cambia por una multiplicación
+        return redondeo.ajustar(cociente, producto - cociente * DIVISOR_TARIFA, DIVISOR_TARIFA);
+    }
+
+    /**
+     * Importe de aplicar un tipo a una base.
+     *
+     * @param baseCentimos Base en céntimos.
+     * @param tipo Tipo en diezmilésimas de punto porcentual.
+     * @param redondeo Regla de redondeo del concepto.
+     * @return Importe en céntimos.
+     */
+    public static long porTipo(long baseCentimos, long tipo, F_Redondeo redondeo) {
+        long producto = Math.multiplyExact(baseCentimos, tipo);
+        if (producto >= 0 && redondeo == F_Redondeo.MITAD_ARRIBA) {
+            return (producto + DIVISOR_TIPO / 2) / DIVISOR_TIPO; // Caso habitual, sin ramas
+        }
+        long cociente = producto / DIVISOR_TIPO;
+        return redondeo.ajustar(cociente, producto - cociente * DIVISOR_TIPO, DIVISOR_TIPO);
+    }
+
+    /**
+     * @param valor Valor decimal.
+     * @param escala Unidades por entero (100 para centésimas, 10000 para diezmilésimas).
+     * @return Valor en coma fija redondeado a la unidad más próxima.
+     */
+    public static long aFijo(double valor, long escala) {
+        return Math.round(valor * escala);
+    }
+
+    /**
+     * @param euros Importe en euros.
+     * @return Importe en céntimos, redondeado al más próximo.
+     */
+    public static long aCentimos(double euros) {
+        return Math.round(euros * 100.0);
+    }
+
+    /**
+     * @param centimos Importe en céntimos.
+     * @return Importe en euros (exacto a dos decimales para mostrarlo o guardarlo).
+     */
+    public static double aEuros(long centimos) {
+        return centimos / 100.0;
+    }
+
+    /**
+     * @param centimos Importe en céntimos.
+     * @return Importe como BigDecimal con dos decimales, para quien necesite operar fuera del motor.
+     */
+    public static BigDecimal aBigDecimal(long centimos) {
+        return BigDecimal.valueOf(centimos, 2);
+    }
+
+    /**
+     * Escribe un importe con dos decimales y punto decimal, sin pasar por String.format.
+     *
+     * @param sb Destino del texto.
+     * @param centimos Importe en céntimos.
+     * @return El mismo StringBuilder.
+     */
+    public static StringBuilder anadir(StringBuilder sb, long centimos) {
+        if (centimos < 0) {
+            sb.append('-');
+            centimos = -centimos;
+        }
+        long resto = centimos % 100;
+        sb.append(centimos / 100).append('.');
+        if (resto < 10) {
+            sb.append('0');
+        }
+        return sb.append(resto);
+    }
+}
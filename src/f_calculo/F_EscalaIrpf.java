@@ -0,0 +1,86 @@
+/**
+ * Objetivo de la clase: Representar una escala de tramos de IRPF ya precalculada
+ *                       para aplicarla con una búsqueda binaria.
+ *
+ * Los tramos se guardan en arrays primitivos ordenados: el inicio de cada tramo
+ * en céntimos, su tipo en diezmilésimas de punto porcentual y la cuota acumulada
+ * al inicio del tramo. La cuota acumulada se guarda en millonésimas de céntimo
+ * para que la cuota sea exacta con cualquier tipo.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package f_calculo;
+
+import java.util.Arrays;
+
+public final class F_EscalaIrpf {
+
+    private final String nombre;
+    private final long[] desde;
+    private final long[] tipos;
+    private final long[] cuotaAcumulada;
+
+    private F_EscalaIrpf(String nombre, long[] desde, long[] tipos) {
+        this.nombre = nombre;
+        this.desde = desde;
+        this.tipos = tipos;
+        this.cuotaAcumulada = new long[desde.length];
+        for (int i = 1; i < desde.length; i++) {
+            cuotaAcumulada[i] = cuotaAcumulada[i - 1] + Math.multiplyExact(desde[i] - desde[i - 1], tipos[i - 1]);
+        }
+    }
+
+    /**
+     * Crea una escala a partir de sus tramos en euros y porcentajes.
+     *
+     * @param nombre Nombre de la escala.
+     * @param limites Límite superior en euros de cada tramo salvo el último, en orden creciente.
+     * @param porcentajes Tipo de cada tramo (uno más que límites).
+     * @return Escala precalculada.
+     * @throws IllegalArgumentException Si los tramos no están ordenados o no cuadran.
+     */
+    public static F_EscalaIrpf de(String nombre, double[] limites, double[] porcentajes) {
+        if (porcentajes.length != limites.length + 1) {
+            throw new IllegalArgumentException("La escala " + nombre + " necesita un tipo más que límites.");
+        }
+        long[] desde = new long[porcentajes.length];
+        long[] tipos = new long[porcentajes.length];
+        for (int i = 0; i < porcentajes.length; i++) {
+            if (i > 0) {
+                desde[i] = F_Dinero.aCentimos(limites[i - 1]);
+                if (desde[i] <= desde[i - 1]) {
+                    throw new IllegalArgumentException("Los tramos de la escala " + nombre + " no están ordenados.");
+                }
+            }
+            tipos[i] = F_Dinero.aFijo(porcentajes[i], 10_000);
+        }
+        return new F_EscalaIrpf(nombre, desde, tipos);
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    /**
+     * Cuota íntegra de una base.
+     *
+     * @param baseCentimos Base liquidable en céntimos.
+     * @return Cuota en millonésimas de céntimo (dividir entre F_Dinero.DIVISOR_TIPO para céntimos).
+     */
+    long cuota(long baseCentimos) {
+        if (baseCentimos <= 0) {
+            return 0;
+        }
+        int tramo = Arrays.binarySearch(desde, baseCentimos);
+        if (tramo < 0) {
+            tramo = -tramo - 2; // Tramo que contiene la base
+        }
+        return cuotaAcumulada[tramo] + Math.multiplyExact(baseCentimos - desde[tramo], tipos[tramo]);
+    }
+
+    @Override
+    public String toString() {
+        return nombre;
+    }
+}
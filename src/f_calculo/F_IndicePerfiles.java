@@ -0,0 +1,136 @@
+/**
+ * Objetivo de la clase: Encontrar en memoria la versión de un convenio vigente
+ *                       en una fecha.
+ *
+ * Por cada convenio se guardan sus versiones ordenadas por fecha de vigencia
+ * junto con esas fechas en un int[] (días desde 1970), de modo que cada consulta
+ * es una búsqueda binaria sin acceder a la base de datos. El índice no cambia
+ * una vez creado; al guardar una versión nueva se crea otro.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package f_calculo;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class F_IndicePerfiles {
+
+    /*
+     * Versiones de un convenio ordenadas por fecha; dias[i] es la fecha de versiones[i].
+     */
+    private static final class Serie {
+
+        private final int[] dias;
+        private final F_VersionPerfil[] versiones;
+
+        private Serie(int[] dias, F_VersionPerfil[] versiones) {
+            this.dias = dias;
+            this.versiones = versiones;
+        }
+    }
+
+    private final Map<String, Serie> series;
+
+    /**
+     * @param versiones Versiones de todos los convenios, en cualquier orden. Si dos
+     *                  versiones de un convenio empiezan el mismo día vale la de número mayor.
+     */
+    public F_IndicePerfiles(List<F_VersionPerfil> versiones) {
+        Map<String, List<F_VersionPerfil>> porConvenio = new HashMap<>();
+        for (F_VersionPerfil version : versiones) {
+            porConvenio.computeIfAbsent(version.getConvenio(), c -> new ArrayList<>()).add(version);
+        }
+
+        Map<String, Serie> mapa = new HashMap<>();
+        for (Map.Entry<String, List<F_VersionPerfil>> entrada : porConvenio.entrySet()) {
+            List<F_VersionPerfil> lista = entrada.getValue();
+            lista.sort((a, b) -> {
+                int orden = a.getVigenteDesde().compareTo(b.getVigenteDesde());
+                return orden != 0 ? orden : Integer.compare(a.getVersion(), b.getVersion());
+            });
+            int[] dias = new int[lista.size()];
+            F_VersionPerfil[] serie = new F_VersionPerfil[lista.size()];
+            int n = 0;
+            for (F_VersionPerfil version : lista) {
+                int dia = (int) version.getVigenteDesde().toEpochDay();
+                if (n > 0 && dias[n - 1] == dia) {
+                    n--; // Misma fecha: sustituye a la versión anterior
+                }
+                dias[n] = dia;
+                serie[n] = version;
+                n++;
+            }
+            mapa.put(entrada.getKey(), new Serie(Arrays.copyOf(dias, n), Arrays.copyOf(serie, n)));
+        }
+        this.series = mapa;
+    }
+
+    /**
+     * @return Índice sin convenios.
+     */
+    public static F_IndicePerfiles vacio() {
+        return new F_IndicePerfiles(Collections.<F_VersionPerfil>emptyList());
+    }
+
+    /**
+     * @param convenio Convenio a buscar.
+     * @param fecha Fecha de la nómina.
+     * @return La versión más reciente que empieza en esa fecha o antes, o `null` si no hay ninguna.
+     */
+    public F_VersionPerfil vigente(String convenio, LocalDate fecha) {
+        Serie serie = series.get(convenio);
+        if (serie == null) {
+            return null;
+        }
+        int posicion = Arrays.binarySearch(serie.dias, (int) fecha.toEpochDay());
+        if (posicion < 0) {
+            posicion = -posicion - 2; // Anterior al punto de inserción
+        }
+        return posicion >= 0 ? serie.versiones[posicion] : null;
+    }
+
+    /**
+     * Catálogo con las tarifas vigentes en una fecha: los perfiles de la base más,
+     * por cada convenio con una versión vigente, esa versión aplicada sobre el
+     * perfil por defecto. Si un convenio se llama igual que un perfil de la base,
+     * prevalece la versión del índice.
+     *
+     * @param fecha Fecha de las nóminas.
+     * @param base Perfiles sin fecha (los de `config.properties` y `perfiles/`).
+     * @return Catálogo para calcular todas las nóminas de esa fecha.
+     * @throws NumberFormatException Si alguna versión tiene un valor no válido.
+     */
+    public F_CatalogoPerfiles catalogoEn(LocalDate fecha, F_CatalogoPerfiles base) throws NumberFormatException {
+        if (series.isEmpty()) {
+            return base;
+        }
+        List<F_PerfilTarifas> perfiles = new ArrayList<>(base.todos());
+        for (String convenio : series.keySet()) {
+            F_VersionPerfil version = vigente(convenio, fecha);
+            if (version != null) {
+                perfiles.add(version.aplicar(base.getPorDefecto()));
+            }
+        }
+        return new F_CatalogoPerfiles(base.getPorDefecto(), perfiles);
+    }
+
+    /**
+     * @return Versiones que usa el índice, por convenio y fecha (sin las sustituidas el mismo día).
+     */
+    public List<F_VersionPerfil> versiones() {
+        List<String> convenios = new ArrayList<>(series.keySet());
+        Collections.sort(convenios);
+        List<F_VersionPerfil> todas = new ArrayList<>();
+        for (String convenio : convenios) {
+            todas.addAll(Arrays.asList(series.get(convenio).versiones));
+        }
+        return todas;
+    }
+}
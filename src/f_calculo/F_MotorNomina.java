@@ -0,0 +1,324 @@
+/**
+ * Objetivo de la clase: Realizar el cálculo de la nómina sin depender de JavaFX.
+ *                       Recibe los parámetros ya validados y devuelve todos los
+ *                       importes calculados. No guarda estado, por lo que puede
+ *                       usarse desde varios hilos a la vez.
+ *
+ * Todo el cálculo se hace con enteros en coma fija (ver F_Dinero): los importes
+ * en céntimos, redondeados según la regla de cada F_Concepto, y los totales como
+ * suma exacta de los importes redondeados. El núcleo no reserva memoria salvo
+ * al guardar en caché un tipo de IRPF automático nuevo (ver F_RetencionIrpf).
+ *
+ * concepto() calcula un solo importe a partir de los parámetros y de los importes
+ * de los que depende; lo usa F_CalculoIncremental para rehacer solo lo que cambia.
+ * Sus fórmulas tienen que ser las mismas que las de calcular(), que las repite en
+ * línea porque así es unas tres veces más rápido que llamar a concepto() para cada
+ * importe. calcularPorConceptos() hace ese recorrido, y I_BenchCalculo comprueba
+ * con parámetros aleatorios que da lo mismo que calcular() antes de medir.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package f_calculo;
+
+public final class F_MotorNomina {
+
+    private static final F_Concepto[] CONCEPTOS = F_Concepto.values();
+
+    private F_MotorNomina() {
+    }
+
+    /**
+     * Calcula la nómina y devuelve un resultado nuevo.
+     *
+     * @param parametros Parámetros de entrada validados.
+     * @return Resultado con todos los importes.
+     */
+    public static F_ResultadoNomina calcular(F_ParametrosNomina parametros) {
+        F_ResultadoNomina resultado = new F_ResultadoNomina();
+        calcular(parametros.fijos(), resultado.centimos());
+        return resultado;
+    }
+
+    /**
+     * Calcula la nómina escribiendo en un resultado ya existente, para reutilizarlo
+     * en cálculos por lotes sin reservar memoria por trabajador.
+     *
+     * @param parametros Parámetros de entrada validados.
+     * @param resultado Resultado que se sobrescribe.
+     */
+    public static void calcular(F_ParametrosNomina parametros, F_ResultadoNomina resultado) {
+        calcular(parametros.fijos(), resultado.centimos());
+    }
+
+    /**
+     * Calcula la nómina llamando a concepto() para cada importe, en el orden de
+     * F_Concepto. Da el mismo resultado que calcular(), pero más despacio; sirve
+     * para comprobar que las dos copias de las fórmulas coinciden.
+     *
+     * @param parametros Parámetros de entrada validados.
+     * @param resultado Resultado que se sobrescribe.
+     */
+    public static void calcularPorConceptos(F_ParametrosNomina parametros, F_ResultadoNomina resultado) {
+        long[] p = parametros.fijos();
+        long[] r = resultado.centimos();
+        for (F_Concepto c : CONCEPTOS) {
+            r[c.ordinal()] = concepto(c, p, r);
+        }
+    }
+
+    /**
+     * Núcleo del cálculo sobre arrays primitivos.
+     *
+     * @param p Valores de entrada en coma fija indexados por F_Parametro.ordinal().
+     * @param r Importes de salida en céntimos indexados por F_Concepto.ordinal().
+     * @throws ArithmeticException Si algún importe no cabe en un long.
+     */
+    static void calcular(long[] p, long[] r) {
+        long horasNormales = p[F_Parametro.HORAS_NORMALES.ordinal()];
+        long horasNocturnas = p[F_Parametro.HORAS_NOCTURNAS.ordinal()];
+        long horasExtras = p[F_Parametro.HORAS_EXTRAS.ordinal()];
+        long horasFestivas = p[F_Parametro.HORAS_FESTIVAS.ordinal()];
+        long salarioBase = p[F_Parametro.SALARIO_BASE.ordinal()];
+        long atrasos = p[F_Parametro.ATRASOS.ordinal()];
+        long totalHoras = horasNormales + horasNocturnas + horasExtras + horasFestivas;
+
+        // Devengos: tarifa (diezmilésimas de euro) por horas (centésimas)
+        long devengosHorasNormales = tarifa(salarioBase, horasNormales, F_Concepto.HORAS_NORMALES);
+        long devengosPlusTurnicidad = tarifa(p[F_Parametro.PLUS_TURNICIDAD.ordinal()], totalHoras,
+                F_Concepto.PLUS_TURNICIDAD);
+        long devengosHorasNocturnas = tarifa(salarioBase + p[F_Parametro.PLUS_NOCTURNIDAD.ordinal()], horasNocturnas,
+                F_Concepto.HORAS_NOCTURNAS);
+        long devengosHorasExtras = tarifa(salarioBase + p[F_Parametro.PLUS_HORAS_EXTRAS.ordinal()], horasExtras,
+                F_Concepto.HORAS_EXTRAS);
+        long devengosHorasFestivas = tarifa(salarioBase + p[F_Parametro.PLUS_FESTIVOS.ordinal()], horasFestivas,
+                F_Concepto.HORAS_FESTIVAS);
+        long devengosProrrataPagaExtra = tarifa(p[F_Parametro.PRORRATA_PAGA_EXTRA.ordinal()], totalHoras,
+                F_Concepto.PRORRATA_PAGA_EXTRA);
+        long devengosProrrataVacaciones = tarifa(p[F_Parametro.PRORRATA_VACACIONES.ordinal()], totalHoras,
+                F_Concepto.PRORRATA_VACACIONES);
+        long devengosCompensacionFinContrato = tarifa(p[F_Parametro.COMPENSACION_FIN_CONTRATO.ordinal()], totalHoras,
+                F_Concepto.COMPENSACION_FIN_CONTRATO);
+
+        // Gastos adicionales (transporte y otros gastos ya vienen en céntimos)
+        long totalDietas = tarifa(p[F_Parametro.DIETA_DIARIA.ordinal()], p[F_Parametro.DIAS_CON_DIETA.ordinal()],
+                F_Concepto.DIETAS);
+        long totalKilometraje = tarifa(p[F_Parametro.PRECIO_POR_KILOMETRO.ordinal()],
+                p[F_Parametro.KILOMETROS_RECORRIDOS.ordinal()], F_Concepto.KILOMETRAJE);
+        long totalAlojamiento = tarifa(p[F_Parametro.PRECIO_POR_NOCHE.ordinal()], p[F_Parametro.NOCHES_FUERA.ordinal()],
+                F_Concepto.ALOJAMIENTO);
+        long totalTransportePublico = p[F_Parametro.TRANSPORTE_PUBLICO.ordinal()];
+        long otrosGastos = p[F_Parametro.OTROS_GASTOS.ordinal()];
+        long totalGastosAdicionales = totalDietas + totalKilometraje + totalAlojamiento + totalTransportePublico + otrosGastos;
+
+        // Cotizaciones: cada cuota se redondea por separado y los totales son su suma
+        long basesDeCotizacion = devengosHorasNormales + devengosPlusTurnicidad + devengosHorasNocturnas + devengosHorasExtras
+                + devengosHorasFestivas + devengosProrrataPagaExtra + devengosProrrataVacaciones + atrasos;
+
+        long ccTrabajador = tipo(basesDeCotizacion, p[F_Parametro.CC_TRABAJADOR.ordinal()], F_Concepto.CC_TRABAJADOR);
+        long desempleoTrabajador = tipo(basesDeCotizacion, p[F_Parametro.DESEMPLEO_TRABAJADOR.ordinal()],
+                F_Concepto.DESEMPLEO_TRABAJADOR);
+        long fpTrabajador = tipo(basesDeCotizacion, p[F_Parametro.FP_TRABAJADOR.ordinal()], F_Concepto.FP_TRABAJADOR);
+        long meiTrabajador = tipo(basesDeCotizacion, p[F_Parametro.MEI_TRABAJADOR.ordinal()], F_Concepto.MEI_TRABAJADOR);
+        long ccEmpresa = tipo(basesDeCotizacion, p[F_Parametro.CC_EMPRESA.ordinal()], F_Concepto.CC_EMPRESA);
+        long atEpEmpresa = tipo(basesDeCotizacion, p[F_Parametro.ATEP_EMPRESA.ordinal()], F_Concepto.ATEP_EMPRESA);
+        long desempleoEmpresa = tipo(basesDeCotizacion, p[F_Parametro.DESEMPLEO_EMPRESA.ordinal()],
+                F_Concepto.DESEMPLEO_EMPRESA);
+        long fpEmpresa = tipo(basesDeCotizacion, p[F_Parametro.FP_EMPRESA.ordinal()], F_Concepto.FP_EMPRESA);
+        long fogasa = tipo(basesDeCotizacion, p[F_Parametro.FOGASA_EMPRESA.ordinal()], F_Concepto.FOGASA);
+        long meiEmpresa = tipo(basesDeCotizacion, p[F_Parametro.MEI_EMPRESA.ordinal()], F_Concepto.MEI_EMPRESA);
+
+        long totalAportacionesTrabajador = ccTrabajador + desempleoTrabajador + fpTrabajador + meiTrabajador;
+        long totalAportacionesEmpresa = ccEmpresa + atEpEmpresa + desempleoEmpresa + fpEmpresa + fogasa + meiEmpresa;
+
+        // Totales
+        long salarioBrutoTributable = devengosHorasNormales + devengosPlusTurnicidad + devengosHorasNocturnas
+                + devengosHorasExtras + devengosHorasFestivas + devengosProrrataPagaExtra
+                + devengosProrrataVacaciones + devengosCompensacionFinContrato + atrasos;
+        long salarioBruto = salarioBrutoTributable + totalGastosAdicionales;
+
+        long tipoIRPF = p[F_Parametro.IRPF.ordinal()];
+        if (p[F_Parametro.IRPF_AUTOMATICO.ordinal()] != 0) {
+            // Se anualiza la nómina con los periodos al año y se calcula el tipo con la escala progresiva
+            long periodos = Math.max(1, p[F_Parametro.PERIODOS_ANUALES.ordinal()]);
+            tipoIRPF = F_RetencionIrpf.tipo((int) p[F_Parametro.ESCALA_IRPF.ordinal()],
+                    Math.multiplyExact(salarioBrutoTributable, periodos),
+                    Math.multiplyExact(totalAportacionesTrabajador, periodos),
+                    (int) p[F_Parametro.DESCENDIENTES.ordinal()]);
+        }
+        long retencionIRPF = tipo(salarioBrutoTributable, tipoIRPF, F_Concepto.RETENCION_IRPF);
+        long totalRetenciones = totalAportacionesTrabajador + retencionIRPF;
+        long salarioNeto = salarioBrutoTributable - totalRetenciones + totalGastosAdicionales;
+
+        r[F_Concepto.HORAS_NORMALES.ordinal()] = devengosHorasNormales;
+        r[F_Concepto.HORAS_NOCTURNAS.ordinal()] = devengosHorasNocturnas;
+        r[F_Concepto.HORAS_EXTRAS.ordinal()] = devengosHorasExtras;
+        r[F_Concepto.HORAS_FESTIVAS.ordinal()] = devengosHorasFestivas;
+        r[F_Concepto.PLUS_TURNICIDAD.ordinal()] = devengosPlusTurnicidad;
+        r[F_Concepto.PRORRATA_PAGA_EXTRA.ordinal()] = devengosProrrataPagaExtra;
+        r[F_Concepto.PRORRATA_VACACIONES.ordinal()] = devengosProrrataVacaciones;
+        r[F_Concepto.COMPENSACION_FIN_CONTRATO.ordinal()] = devengosCompensacionFinContrato;
+        r[F_Concepto.ATRASOS.ordinal()] = atrasos;
+        r[F_Concepto.SALARIO_BRUTO_TRIBUTABLE.ordinal()] = salarioBrutoTributable;
+
+        r[F_Concepto.DIETAS.ordinal()] = totalDietas;
+        r[F_Concepto.KILOMETRAJE.ordinal()] = totalKilometraje;
+        r[F_Concepto.ALOJAMIENTO.ordinal()] = totalAlojamiento;
+        r[F_Concepto.TRANSPORTE_PUBLICO.ordinal()] = totalTransportePublico;
+        r[F_Concepto.OTROS_GASTOS.ordinal()] = otrosGastos;
+        r[F_Concepto.TOTAL_GASTOS_ADICIONALES.ordinal()] = totalGastosAdicionales;
+
+        r[F_Concepto.BASE_COTIZACION.ordinal()] = basesDeCotizacion;
+        r[F_Concepto.CC_TRABAJADOR.ordinal()] = ccTrabajador;
+        r[F_Concepto.DESEMPLEO_TRABAJADOR.ordinal()] = desempleoTrabajador;
+        r[F_Concepto.FP_TRABAJADOR.ordinal()] = fpTrabajador;
+        r[F_Concepto.MEI_TRABAJADOR.ordinal()] = meiTrabajador;
+        r[F_Concepto.APORTACIONES_TRABAJADOR.ordinal()] = totalAportacionesTrabajador;
+        r[F_Concepto.CC_EMPRESA.ordinal()] = ccEmpresa;
+        r[F_Concepto.ATEP_EMPRESA.ordinal()] = atEpEmpresa;
+        r[F_Concepto.DESEMPLEO_EMPRESA.ordinal()] = desempleoEmpresa;
+        r[F_Concepto.FP_EMPRESA.ordinal()] = fpEmpresa;
+        r[F_Concepto.FOGASA.ordinal()] = fogasa;
+        r[F_Concepto.MEI_EMPRESA.ordinal()] = meiEmpresa;
+        r[F_Concepto.APORTACIONES_EMPRESA.ordinal()] = totalAportacionesEmpresa;
+
+        r[F_Concepto.RETENCION_IRPF.ordinal()] = retencionIRPF;
+        r[F_Concepto.TOTAL_RETENCIONES.ordinal()] = totalRetenciones;
+        r[F_Concepto.SALARIO_BRUTO.ordinal()] = salarioBruto;
+        r[F_Concepto.SALARIO_NETO.ordinal()] = salarioNeto;
+    }
+
+    /**
+     * Calcula un único concepto. Los importes de los que depende (los de ordinal menor)
+     * tienen que estar ya calculados en `r`.
+     *
+     * @param c Concepto a calcular.
+     * @param p Valores de entrada en coma fija indexados por F_Parametro.ordinal().
+     * @param r Importes en céntimos indexados por F_Concepto.ordinal(); no se modifica.
+     * @return Importe del concepto en céntimos.
+     * @throws ArithmeticException Si el importe no cabe en un long.
+     */
+    static long concepto(F_Concepto c, long[] p, long[] r) {
+        long salarioBase = p[F_Parametro.SALARIO_BASE.ordinal()];
+        switch (c) {
+            case HORAS_NORMALES:
+                return tarifa(salarioBase, p[F_Parametro.HORAS_NORMALES.ordinal()], c);
+            case HORAS_NOCTURNAS:
+                return tarifa(salarioBase + p[F_Parametro.PLUS_NOCTURNIDAD.ordinal()],
+                        p[F_Parametro.HORAS_NOCTURNAS.ordinal()], c);
+            case HORAS_EXTRAS:
+                return tarifa(salarioBase + p[F_Parametro.PLUS_HORAS_EXTRAS.ordinal()],
+                        p[F_Parametro.HORAS_EXTRAS.ordinal()], c);
+            case HORAS_FESTIVAS:
+                return tarifa(salarioBase + p[F_Parametro.PLUS_FESTIVOS.ordinal()],
+                        p[F_Parametro.HORAS_FESTIVAS.ordinal()], c);
+            case PLUS_TURNICIDAD:
+                return tarifa(p[F_Parametro.PLUS_TURNICIDAD.ordinal()], totalHoras(p), c);
+            case PRORRATA_PAGA_EXTRA:
+                return tarifa(p[F_Parametro.PRORRATA_PAGA_EXTRA.ordinal()], totalHoras(p), c);
+            case PRORRATA_VACACIONES:
+                return tarifa(p[F_Parametro.PRORRATA_VACACIONES.ordinal()], totalHoras(p), c);
+            case COMPENSACION_FIN_CONTRATO:
+                return tarifa(p[F_Parametro.COMPENSACION_FIN_CONTRATO.ordinal()], totalHoras(p), c);
+            case ATRASOS:
+                return p[F_Parametro.ATRASOS.ordinal()];
+            case SALARIO_BRUTO_TRIBUTABLE:
+                return baseDeCotizacion(r) + r[F_Concepto.COMPENSACION_FIN_CONTRATO.ordinal()];
+
+            case DIETAS:
+                return tarifa(p[F_Parametro.DIETA_DIARIA.ordinal()], p[F_Parametro.DIAS_CON_DIETA.ordinal()], c);
+            case KILOMETRAJE:
+                return tarifa(p[F_Parametro.PRECIO_POR_KILOMETRO.ordinal()],
+                        p[F_Parametro.KILOMETROS_RECORRIDOS.ordinal()], c);
+            case ALOJAMIENTO:
+                return tarifa(p[F_Parametro.PRECIO_POR_NOCHE.ordinal()], p[F_Parametro.NOCHES_FUERA.ordinal()], c);
+            case TRANSPORTE_PUBLICO:
+                return p[F_Parametro.TRANSPORTE_PUBLICO.ordinal()];
+            case OTROS_GASTOS:
+                return p[F_Parametro.OTROS_GASTOS.ordinal()];
+            case TOTAL_GASTOS_ADICIONALES:
+                return r[F_Concepto.DIETAS.ordinal()] + r[F_Concepto.KILOMETRAJE.ordinal()]
+                        + r[F_Concepto.ALOJAMIENTO.ordinal()] + r[F_Concepto.TRANSPORTE_PUBLICO.ordinal()]
+                        + r[F_Concepto.OTROS_GASTOS.ordinal()];
+
+            case BASE_COTIZACION:
+                return baseDeCotizacion(r);
+            case CC_TRABAJADOR:
+                return cuota(r, p[F_Parametro.CC_TRABAJADOR.ordinal()], c);
+            case DESEMPLEO_TRABAJADOR:
+                return cuota(r, p[F_Parametro.DESEMPLEO_TRABAJADOR.ordinal()], c);
+            case FP_TRABAJADOR:
+                return cuota(r, p[F_Parametro.FP_TRABAJADOR.ordinal()], c);
+            case MEI_TRABAJADOR:
+                return cuota(r, p[F_Parametro.MEI_TRABAJADOR.ordinal()], c);
+            case APORTACIONES_TRABAJADOR:
+                return r[F_Concepto.CC_TRABAJADOR.ordinal()] + r[F_Concepto.DESEMPLEO_TRABAJADOR.ordinal()]
+                        + r[F_Concepto.FP_TRABAJADOR.ordinal()] + r[F_Concepto.MEI_TRABAJADOR.ordinal()];
+            case CC_EMPRESA:
+                return cuota(r, p[F_Parametro.CC_EMPRESA.ordinal()], c);
+            case ATEP_EMPRESA:
+                return cuota(r, p[F_Parametro.ATEP_EMPRESA.ordinal()], c);
+            case DESEMPLEO_EMPRESA:
+                return cuota(r, p[F_Parametro.DESEMPLEO_EMPRESA.ordinal()], c);
+            case FP_EMPRESA:
+                return cuota(r, p[F_Parametro.FP_EMPRESA.ordinal()], c);
+            case FOGASA:
+                return cuota(r, p[F_Parametro.FOGASA_EMPRESA.ordinal()], c);
+            case MEI_EMPRESA:
+                return cuota(r, p[F_Parametro.MEI_EMPRESA.ordinal()], c);
+            case APORTACIONES_EMPRESA:
+                return r[F_Concepto.CC_EMPRESA.ordinal()] + r[F_Concepto.ATEP_EMPRESA.ordinal()]
+                        + r[F_Concepto.DESEMPLEO_EMPRESA.ordinal()] + r[F_Concepto.FP_EMPRESA.ordinal()]
+                        + r[F_Concepto.FOGASA.ordinal()] + r[F_Concepto.MEI_EMPRESA.ordinal()];
+
+            case RETENCION_IRPF: {
+                long salarioBrutoTributable = r[F_Concepto.SALARIO_BRUTO_TRIBUTABLE.ordinal()];
+                long tipoIRPF = p[F_Parametro.IRPF.ordinal()];
+                if (p[F_Parametro.IRPF_AUTOMATICO.ordinal()] != 0) {
+                    long periodos = Math.max(1, p[F_Parametro.PERIODOS_ANUALES.ordinal()]);
+                    tipoIRPF = F_RetencionIrpf.tipo((int) p[F_Parametro.ESCALA_IRPF.ordinal()],
+                            Math.multiplyExact(salarioBrutoTributable, periodos),
+                            Math.multiplyExact(r[F_Concepto.APORTACIONES_TRABAJADOR.ordinal()], periodos),
+                            (int) p[F_Parametro.DESCENDIENTES.ordinal()]);
+                }
+                return tipo(salarioBrutoTributable, tipoIRPF, c);
+            }
+            case TOTAL_RETENCIONES:
+                return r[F_Concepto.APORTACIONES_TRABAJADOR.ordinal()] + r[F_Concepto.RETENCION_IRPF.ordinal()];
+            case SALARIO_BRUTO:
+                return r[F_Concepto.SALARIO_BRUTO_TRIBUTABLE.ordinal()] + r[F_Concepto.TOTAL_GASTOS_ADICIONALES.ordinal()];
+            case SALARIO_NETO:
+                return r[F_Concepto.SALARIO_BRUTO_TRIBUTABLE.ordinal()] - r[F_Concepto.TOTAL_RETENCIONES.ordinal()]
+                        + r[F_Concepto.TOTAL_GASTOS_ADICIONALES.ordinal()];
+            default:
+                throw new IllegalArgumentException("Concepto sin fórmula: " + c);
+        }
+    }
+
+    private static long totalHoras(long[] p) {
+        return p[F_Parametro.HORAS_NORMALES.ordinal()] + p[F_Parametro.HORAS_NOCTURNAS.ordinal()]
+                + p[F_Parametro.HORAS_EXTRAS.ordinal()] + p[F_Parametro.HORAS_FESTIVAS.ordinal()];
+    }
+
+    /*
+     * Devengos que cotizan (todos salvo la compensación por fin de contrato) más los atrasos.
+     */
+    private static long baseDeCotizacion(long[] r) {
+        return r[F_Concepto.HORAS_NORMALES.ordinal()] + r[F_Concepto.PLUS_TURNICIDAD.ordinal()]
+                + r[F_Concepto.HORAS_NOCTURNAS.ordinal()] + r[F_Concepto.HORAS_EXTRAS.ordinal()]
+                + r[F_Concepto.HORAS_FESTIVAS.ordinal()] + r[F_Concepto.PRORRATA_PAGA_EXTRA.ordinal()]
+                + r[F_Concepto.PRORRATA_VACACIONES.ordinal()] + r[F_Concepto.ATRASOS.ordinal()];
+    }
+
+    private static long cuota(long[] r, long tipo, F_Concepto concepto) {
+        return tipo(r[F_Concepto.BASE_COTIZACION.ordinal()], tipo, concepto);
+    }
+
+    private static long tarifa(long tarifa, long cantidad, F_Concepto concepto) {
+        return F_Dinero.porTarifa(tarifa, cantidad, concepto.getRedondeo());
+    }
+
+    private static long tipo(long baseCentimos, long tipo, F_Concepto concepto) {
+        return F_Dinero.porTipo(baseCentimos, tipo, concepto.getRedondeo());
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Objetivo de la clase: Enumerar los parámetros de entrada del cálculo de nómina
+ *                       (horas, gastos y tipos de cotización) junto con la clave
+ *                       que usan en `config.properties`, el nombre que se muestra
+ *                       al validar, su valor por defecto y los decimales con que
+ *                       los usa el motor (ver F_Dinero).
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package f_calculo;
+
+public enum F_Parametro {
+
+    // ==== Trabajo realizado (varía por trabajador) ====
+    HORAS_NORMALES("horasNormales", "Horas Normales", 8, true, 2),
+    HORAS_NOCTURNAS("nocturnas", "Horas Nocturnas", 0, true, 2),
+    HORAS_EXTRAS("horasExtras", "Horas Extras", 0, true, 2),
+    HORAS_FESTIVAS("festivas", "Horas Festivas", 0, true, 2),
+
+    // ==== Gastos adicionales (varían por trabajador) ====
+    DIAS_CON_DIETA("diasDieta", "Días con Dieta", 0, true, 2),
+    KILOMETROS_RECORRIDOS("kilometros", "Kilómetros Recorridos", 0, true, 2),
+    NOCHES_FUERA("nochesFuera", "Noches Fuera", 0, true, 2),
+    TRANSPORTE_PUBLICO("transporte", "Transporte Público", 0, true, 2),
+    OTROS_GASTOS("otrosGastos", "Otros Gastos", 0, true, 2),
+    ATRASOS("atrasos", "Atrasos", 0, true, 2),
+
+    // ==== Conceptos salariales (tarifas) ====
+    SALARIO_BASE("salarioBase", "Salario Base", 8.79, false, 4),
+    PLUS_TURNICIDAD("plusTurnicidad", "Plus Turnicidad", 2.23, false, 4),
+    PLUS_NOCTURNIDAD("plusNocturnidad", "Plus Nocturnidad", 2.0, false, 4),
+    PLUS_HORAS_EXTRAS("plusHorasExtras", "Plus Horas Extras", 0, false, 4),
+    PLUS_FESTIVOS("plusFestivos", "Plus Festivos", 5.0, false, 4),
+    PRORRATA_PAGA_EXTRA("prorrataExtra", "Prorrata Paga Extra", 1.58, false, 4),
+    PRORRATA_VACACIONES("prorrataVacaciones", "Prorrata Vacaciones", 0.79, false, 4),
+    COMPENSACION_FIN_CONTRATO("compensacionFin", "Compensación Fin Contrato", 0.366, false, 4),
+    DIETA_DIARIA("dietaDiaria", "Dieta Diaria", 25.0, false, 4),
+    PRECIO_POR_KILOMETRO("precioKilometro", "Precio por Kilómetro", 0.20, false, 4),
+    PRECIO_POR_NOCHE("precioNoche", "Precio por Noche", 60.0, false, 4),
+
+    // ==== Retenciones (porcentajes) ====
+    IRPF("irpf", "IRPF", 15, false, 4),
+    CC_TRABAJADOR("ccTrabajador", "Contingencias Comunes Trabajador", 4.7, false, 4),
+    DESEMPLEO_TRABAJADOR("desempleoTrabajador", "Desempleo Trabajador", 1.6, false, 4),
+    FP_TRABAJADOR("fpTrabajador", "Formación Profesional Trabajador", 0.1, false, 4),
+    MEI_TRABAJADOR("meiTrabajador", "M.E.I. Trabajador", 0.1, false, 4),
+    CC_EMPRESA("ccEmpresa", "Contingencias Comunes Empresa", 23.6, false, 4),
+    ATEP_EMPRESA("atepEmpresa", "AT y EP Empresa", 2.75, false, 4),
+    DESEMPLEO_EMPRESA("desempleoEmpresa", "Desempleo Empresa", 6.7, false, 4),
+    FP_EMPRESA("fpEmpresa", "Formación Profesional Empresa", 0.6, false, 4),
+    FOGASA_EMPRESA("fogasaEmpresa", "FOGASA", 0.2, false, 4),
+    MEI_EMPRESA("meiEmpresa", "M.E.I. Empresa", 0.5, false, 4),
+
+    // ==== Cálculo automático del IRPF (ver F_RetencionIrpf) ====
+    IRPF_AUTOMATICO("irpfAutomatico", "IRPF Automático", 0, false, 0),
+    ESCALA_IRPF("escalaIrpf", "Escala de IRPF", 0, false, 0),
+    DESCENDIENTES("descendientes", "Descendientes", 0, true, 0),
+    PERIODOS_ANUALES("periodosAnuales", "Periodos al Año", 12, false, 0);
+
+    /*
+     * Copia cacheada de values() para no clonar el array en cada búsqueda.
+     */
+    private static final F_Parametro[] TODOS = values();
+
+    private final String clave;
+    private final String nombre;
+    private final double valorPorDefecto;
+    private final boolean porTrabajador;
+    private final long escala;
+
+    F_Parametro(String clave, String nombre, double valorPorDefecto, boolean porTrabajador, int decimales) {
+        this.clave = clave;
+        this.nombre = nombre;
+        this.valorPorDefecto = valorPorDefecto;
+        this.porTrabajador = porTrabajador;
+        long e = 1;
+        for (int i = 0; i < decimales; i++) {
+            e *= 10;
+        }
+        this.escala = e;
+    }
+
+    /**
+     * @return Clave usada en `config.properties` y en las cabeceras de los ficheros de lote.
+     */
+    public String getClave() {
+        return clave;
+    }
+
+    /**
+     * @return Nombre legible del campo, usado en los mensajes de validación.
+     */
+    public String getNombre() {
+        return nombre;
+    }
+
+    /**
+     * @return Valor que se usa cuando la configuración no indica otro.
+     */
+    public double getValorPorDefecto() {
+        return valorPorDefecto;
+    }
+
+    /**
+     * @return `true` si el valor cambia de un trabajador a otro (horas y gastos),
+     *         `false` si es una tarifa o porcentaje común.
+     */
+    public boolean isPorTrabajador() {
+        return porTrabajador;
+    }
+
+    /**
+     * @return Unidades por entero con que el motor guarda el valor: 100 para horas,
+     *         cantidades e importes (centésimas o céntimos), 10000 para tarifas y tipos
+     *         y 1 para los valores enteros (descendientes, periodos...).
+     */
+    public long getEscala() {
+        return escala;
+    }
+
+    /**
+     * Busca un parámetro por su clave de configuración.
+     *
+     * @param clave Clave tal y como aparece en `config.properties`.
+     * @return El parámetro o `null` si la clave no existe.
+     */
+    public static F_Parametro porClave(String clave) {
+        for (F_Parametro p : TODOS) {
+            if (p.clave.equals(clave)) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Número total de parámetros.
+     */
+    public static int total() {
+        return TODOS.length;
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Objetivo de la clase: Agrupar los valores de entrada de un cálculo de nómina
+ *                       sin depender de la interfaz gráfica. Los valores se
+ *                       guardan en coma fija en un array indexado por F_Parametro.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package f_calculo;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+public class F_ParametrosNomina {
+
+    /*
+     * Valores en coma fija, con la escala de cada F_Parametro (ver F_Dinero),
+     * indexados por F_Parametro.ordinal().
+     */
+    private final long[] fijos;
+
+    /*
+     * Mayor valor admitido, para que los productos del motor no se desborden.
+     */
+    private static final double MAXIMO = 1e9;
+
+    /**
+     * Crea un juego de parámetros con los valores por defecto.
+     */
+    public F_ParametrosNomina() {
+        fijos = new long[F_Parametro.total()];
+        for (F_Parametro p : F_Parametro.values()) {
+            set(p, p.getValorPorDefecto());
+        }
+    }
+
+    private F_ParametrosNomina(long[] fijos) {
+        this.fijos = fijos;
+    }
+
+    /**
+     * Crea los parámetros a partir de un objeto Properties (por ejemplo `config.properties`).
+     * Las claves que falten toman su valor por defecto.
+     *
+     * @param props Propiedades cargadas.
+     * @return Parámetros validados.
+     * @throws NumberFormatException Si algún valor no es numérico o es negativo.
+     */
+    public static F_ParametrosNomina desdePropiedades(Properties props) throws NumberFormatException {
+        F_ParametrosNomina parametros = new F_ParametrosNomina();
+        for (F_Parametro p : F_Parametro.values()) {
+            String texto = props.getProperty(p.getClave());
+            if (texto != null) {
+                parametros.set(p, texto);
+            }
+        }
+        return parametros;
+    }
+
+    /**
+     * @param p Parámetro a consultar.
+     * @return Valor actual del parámetro, con los decimales que usa el cálculo.
+     */
+    public double get(F_Parametro p) {
+        return fijos[p.ordinal()] / (double) p.getEscala();
+    }
+
+    /**
+     * Asigna un valor validando que no sea negativo. Para el cálculo se redondea
+     * a la escala del parámetro (centésimas de hora, diezmilésimas de euro...).
+     *
+     * @param p Parámetro a modificar.
+     * @param valor Nuevo valor.
+     * @throws NumberFormatException Si el valor es negativo, demasiado grande, no es un número
+     *         o es una escala de IRPF que no existe.
+     */
+    public void set(F_Parametro p, double valor) throws NumberFormatException {
+        fijos[p.ordinal()] = aFijo(p, valor);
+    }
+
+    /*
+     * Valida un valor y lo pasa a la coma fija del parámetro, sin asignarlo.
+     */
+    static long aFijo(F_Parametro p, double valor) throws NumberFormatException {
+        if (!(valor >= 0) || valor > MAXIMO) {
+            throw new NumberFormatException("Campo inválido: " + p.getNombre());
+        }
+        long fijo = F_Dinero.aFijo(valor, p.getEscala());
+        if (p == F_Parametro.ESCALA_IRPF && !F_RetencionIrpf.existe(fijo)) {
+            throw new NumberFormatException("Campo inválido: " + p.getNombre());
+        }
+        return fijo;
+    }
+
+    /**
+     * Convierte y asigna un valor escrito como texto.
+     *
+     * @param p Parámetro a modificar.
+     * @param texto Valor en texto.
+     * @throws NumberFormatException Si el texto no es un número válido o es negativo.
+     */
+    public void set(F_Parametro p, String texto) throws NumberFormatException {
+        double valor;
+        try {
+            valor = Double.parseDouble(texto.trim());
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new NumberFormatException("Campo inválido: " + p.getNombre());
+        }
+        set(p, valor);
+    }
+
+    /**
+     * Copia aquí todos los valores de otro juego de parámetros, sin reservar memoria.
+     *
+     * @param origen Parámetros a copiar.
+     */
+    public void copiarDe(F_ParametrosNomina origen) {
+        System.arraycopy(origen.fijos, 0, fijos, 0, fijos.length);
+    }
+
+    /**
+     * @return Copia independiente de estos parámetros.
+     */
+    public F_ParametrosNomina copia() {
+        return new F_ParametrosNomina(Arrays.copyOf(fijos, fijos.length));
+    }
+
+    /**
+     * Acceso directo al array interno para el cálculo sin reservas de memoria.
+     * Solo lo usa el motor de cálculo, que no lo modifica.
+     *
+     * @return Valores en coma fija indexados por F_Parametro.ordinal().
+     */
+    long[] fijos() {
+        return fijos;
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Objetivo de la clase: Representar un perfil de tarifas con nombre (convenio,
+ *                       tipo de contrato...) ya compilado a coma fija.
+ *
+ * El perfil se construye una sola vez a partir de sus propiedades y no cambia
+ * después, así que puede compartirse entre hilos. Cada cálculo parte de una
+ * copia de sus parámetros, sin volver a leer ni a convertir texto.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package f_calculo;
+
+import java.util.Map;
+import java.util.Properties;
+
+public final class F_PerfilTarifas {
+
+    private final String nombre;
+    private final F_ParametrosNomina parametros;
+
+    private F_PerfilTarifas(String nombre, F_ParametrosNomina parametros) {
+        this.nombre = nombre;
+        this.parametros = parametros;
+    }
+
+    /**
+     * Compila un perfil a partir de sus propiedades. Las claves que falten toman
+     * el valor por defecto de las propiedades (ver Properties(Properties)) o, si
+     * tampoco está ahí, el de F_Parametro.
+     *
+     * @param nombre Nombre del perfil.
+     * @param props Propiedades con las claves de `config.properties`.
+     * @return Perfil validado.
+     * @throws NumberFormatException Si algún valor no es numérico o es negativo.
+     */
+    public static F_PerfilTarifas compilar(String nombre, Properties props) throws NumberFormatException {
+        return new F_PerfilTarifas(nombre, F_ParametrosNomina.desdePropiedades(props));
+    }
+
+    /**
+     * @param nombre Nombre del perfil.
+     * @param parametros Parámetros del perfil; se copian.
+     * @return Perfil con esos parámetros.
+     */
+    public static F_PerfilTarifas de(String nombre, F_ParametrosNomina parametros) {
+        return new F_PerfilTarifas(nombre, parametros.copia());
+    }
+
+    /**
+     * Crea un perfil nuevo a partir de este cambiando solo algunos valores.
+     *
+     * @param nombre Nombre del perfil nuevo.
+     * @param cambios Valores que cambian respecto a este perfil.
+     * @return Perfil derivado; este no se modifica.
+     * @throws NumberFormatException Si algún valor es negativo o demasiado grande.
+     */
+    public F_PerfilTarifas derivar(String nombre, Map<F_Parametro, Double> cambios) throws NumberFormatException {
+        F_ParametrosNomina derivados = parametros.copia();
+        for (Map.Entry<F_Parametro, Double> cambio : cambios.entrySet()) {
+            derivados.set(cambio.getKey(), cambio.getValue());
+        }
+        return new F_PerfilTarifas(nombre, derivados);
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    /**
+     * @param p Parámetro a consultar.
+     * @return Valor del parámetro en este perfil.
+     */
+    public double get(F_Parametro p) {
+        return parametros.get(p);
+    }
+
+    /**
+     * @return Copia de los parámetros del perfil, lista para añadir los datos de un trabajador.
+     */
+    public F_ParametrosNomina nuevosParametros() {
+        return parametros.copia();
+    }
+
+    @Override
+    public String toString() {
+        return nombre;
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Objetivo de la clase: Enumerar las reglas de redondeo a céntimos que se aplican
+ *                       a cada concepto de la nómina.
+ *
+ * Todas trabajan con enteros (sin BigDecimal ni reservas de memoria): reciben un
+ * numerador y un divisor positivo y devuelven el cociente redondeado.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package f_calculo;
+
+public enum F_Redondeo {
+
+    /*
+     * Al céntimo más próximo; los medios céntimos se alejan del cero (0,005 -> 0,01).
+     */
+    MITAD_ARRIBA,
+
+    /*
+     * Al céntimo más próximo; los medios céntimos van al par (redondeo bancario).
+     */
+    MITAD_PAR,
+
+    /*
+     * Se descartan las fracciones de céntimo.
+     */
+    TRUNCAR;
+
+    /**
+     * @param numerador Cantidad a dividir.
+     * @param divisor Divisor positivo.
+     * @return numerador / divisor redondeado según esta regla.
+     */
+    public long dividir(long numerador, long divisor) {
+        long cociente = numerador / divisor;
+        return ajustar(cociente, numerador - cociente * divisor, divisor);
+    }
+
+    /**
+     * Redondea un cociente ya calculado a partir de su resto. Permite que quien
+     * divide por una constante (ver F_Dinero) se ahorre la división genérica.
+     *
+     * @param cociente Cociente truncado hacia cero.
+     * @param resto Resto de la división, con el signo del numerador.
+     * @param divisor Divisor positivo.
+     * @return Cociente redondeado según esta regla.
+     */
+    long ajustar(long cociente, long resto, long divisor) {
+        if (resto == 0 || this == TRUNCAR) {
+            return cociente;
+        }
+        long doble = (resto < 0 ? -resto : resto) * 2; // Sin desbordamiento: |resto| < divisor
+        if (doble > divisor || (doble == divisor && (this == MITAD_ARRIBA || (cociente & 1) != 0))) {
+            return resto < 0 ? cociente - 1 : cociente + 1;
+        }
+        return cociente;
+    }
+}
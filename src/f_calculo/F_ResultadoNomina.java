@@ -0,0 +1,221 @@
+/**
+ * Objetivo de la clase: Guardar los importes calculados de una nómina y generar
+ *                       los textos que se muestran en la interfaz (datos salariales,
+ *                       gastos adicionales y retenciones).
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package f_calculo;
+
+import org.json.JSONArray;
+
+public class F_ResultadoNomina {
+
+    /*
+     * Importes en céntimos indexados por F_Concepto.ordinal().
+     */
+    private final long[] centimos;
+
+    /**
+     * Crea un resultado vacío listo para que el motor lo rellene.
+     */
+    public F_ResultadoNomina() {
+        this.centimos = new long[F_Concepto.total()];
+    }
+
+    /**
+     * @param c Concepto a consultar.
+     * @return Importe del concepto en euros (exacto al céntimo).
+     */
+    public double get(F_Concepto c) {
+        return F_Dinero.aEuros(centimos[c.ordinal()]);
+    }
+
+    /**
+     * @param c Concepto a consultar.
+     * @return Importe del concepto en céntimos.
+     */
+    public long getCentimos(F_Concepto c) {
+        return centimos[c.ordinal()];
+    }
+
+    public double getSalarioBrutoTributable() {
+        return get(F_Concepto.SALARIO_BRUTO_TRIBUTABLE);
+    }
+
+    public double getSalarioBruto() {
+        return get(F_Concepto.SALARIO_BRUTO);
+    }
+
+    public double getSalarioNeto() {
+        return get(F_Concepto.SALARIO_NETO);
+    }
+
+    public double getBaseCotizacion() {
+        return get(F_Concepto.BASE_COTIZACION);
+    }
+
+    public double getAportacionesTrabajador() {
+        return get(F_Concepto.APORTACIONES_TRABAJADOR);
+    }
+
+    public double getAportacionesEmpresa() {
+        return get(F_Concepto.APORTACIONES_EMPRESA);
+    }
+
+    public double getRetencionIRPF() {
+        return get(F_Concepto.RETENCION_IRPF);
+    }
+
+    /**
+     * Copia aquí todos los importes de otro resultado, sin reservar memoria.
+     *
+     * @param origen Resultado a copiar.
+     */
+    public void copiarDe(F_ResultadoNomina origen) {
+        System.arraycopy(origen.centimos, 0, centimos, 0, centimos.length);
+    }
+
+    /**
+     * Acceso directo al array interno para que el motor lo rellene sin copias.
+     *
+     * @return Array de importes en céntimos indexado por F_Concepto.ordinal().
+     */
+    long[] centimos() {
+        return centimos;
+    }
+
+    // ==== Conversión a JSON ====
+
+    /**
+     * Escribe los importes como un array JSON en el orden de F_Concepto, con dos decimales.
+     * Se construye a mano porque en las importaciones masivas se llama cientos de miles de veces.
+     *
+     * @param sb Destino del texto.
+     * @return El mismo StringBuilder.
+     */
+    public StringBuilder anadirImportesJson(StringBuilder sb) {
+        sb.append('[');
+        for (int i = 0; i < centimos.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            F_Dinero.anadir(sb, centimos[i]);
+        }
+        return sb.append(']');
+    }
+
+    /**
+     * Reconstruye un resultado a partir del array generado por anadirImportesJson().
+     * Los conceptos que falten quedan a cero.
+     *
+     * @param json Array JSON con los importes.
+     * @return Resultado reconstruido.
+     */
+    public static F_ResultadoNomina desdeJson(JSONArray json) {
+        F_ResultadoNomina resultado = new F_ResultadoNomina();
+        int n = Math.min(json.length(), resultado.centimos.length);
+        for (int i = 0; i < n; i++) {
+            resultado.centimos[i] = F_Dinero.aCentimos(json.optDouble(i, 0));
+        }
+        return resultado;
+    }
+
+    /**
+     * Reconstruye un resultado a partir de sus importes en céntimos.
+     *
+     * @param centimos Importes indexados por F_Concepto.ordinal(); se copian.
+     * @return Resultado reconstruido.
+     */
+    public static F_ResultadoNomina desdeCentimos(long[] centimos) {
+        F_ResultadoNomina resultado = new F_ResultadoNomina();
+        System.arraycopy(centimos, 0, resultado.centimos, 0, Math.min(centimos.length, resultado.centimos.length));
+        return resultado;
+    }
+
+    /**
+     * Escribe un importe redondeado a céntimos con punto decimal, sin pasar por String.format.
+     *
+     * @param sb Destino del texto.
+     * @param importe Importe en euros.
+     */
+    public static void anadirImporte(StringBuilder sb, double importe) {
+        F_Dinero.anadir(sb, F_Dinero.aCentimos(importe));
+    }
+
+    // ==== Textos para la interfaz ====
+
+    /*
+     * Conceptos de cada bloque de texto, en el orden en que se muestran.
+     */
+    private static final F_Concepto[] DATOS_SALARIALES = {
+        F_Concepto.HORAS_NORMALES, F_Concepto.HORAS_NOCTURNAS, F_Concepto.HORAS_EXTRAS, F_Concepto.HORAS_FESTIVAS,
+        F_Concepto.PLUS_TURNICIDAD, F_Concepto.PRORRATA_PAGA_EXTRA, F_Concepto.PRORRATA_VACACIONES,
+        F_Concepto.COMPENSACION_FIN_CONTRATO, F_Concepto.ATRASOS, F_Concepto.SALARIO_BRUTO_TRIBUTABLE,
+        F_Concepto.SALARIO_NETO
+    };
+    private static final F_Concepto[] GASTOS_ADICIONALES = {
+        F_Concepto.DIETAS, F_Concepto.KILOMETRAJE, F_Concepto.ALOJAMIENTO, F_Concepto.TRANSPORTE_PUBLICO,
+        F_Concepto.OTROS_GASTOS, F_Concepto.TOTAL_GASTOS_ADICIONALES
+    };
+    private static final F_Concepto[] RETENCIONES = {
+        F_Concepto.APORTACIONES_EMPRESA, F_Concepto.APORTACIONES_TRABAJADOR, F_Concepto.RETENCION_IRPF,
+        F_Concepto.TOTAL_RETENCIONES
+    };
+
+    /**
+     * @param fecha Fecha del cálculo.
+     * @return Bloque "Datos Salariales" tal y como se muestra en la interfaz.
+     */
+    public String textoDatosSalariales(String fecha) {
+        return bloque("=== Datos Salariales ===\nFecha: " + fecha, DATOS_SALARIALES);
+    }
+
+    /**
+     * @return Bloque "Gastos Adicionales" tal y como se muestra en la interfaz.
+     */
+    public String textoGastosAdicionales() {
+        return bloque("=== Gastos Adicionales (Exentos) ===", GASTOS_ADICIONALES);
+    }
+
+    /**
+     * @return Bloque "Retenciones" tal y como se muestra en la interfaz.
+     */
+    public String textoRetenciones() {
+        return bloque("=== Retenciones ===", RETENCIONES);
+    }
+
+    /**
+     * @return Conceptos del bloque "Datos Salariales" como máscara (ver F_CalculoIncremental).
+     */
+    public static long conceptosDatosSalariales() {
+        return F_CalculoIncremental.mascara(DATOS_SALARIALES);
+    }
+
+    /**
+     * @return Conceptos del bloque "Gastos Adicionales" como máscara (ver F_CalculoIncremental).
+     */
+    public static long conceptosGastosAdicionales() {
+        return F_CalculoIncremental.mascara(GASTOS_ADICIONALES);
+    }
+
+    /**
+     * @return Conceptos del bloque "Retenciones" como máscara (ver F_CalculoIncremental).
+     */
+    public static long conceptosRetenciones() {
+        return F_CalculoIncremental.mascara(RETENCIONES);
+    }
+
+    private String bloque(String cabecera, F_Concepto[] conceptos) {
+        StringBuilder sb = new StringBuilder(cabecera);
+        for (F_Concepto c : conceptos) {
+            sb.append('\n').append(linea(c));
+        }
+        return sb.toString();
+    }
+
+    private String linea(F_Concepto c) {
+        return c.getEtiqueta() + ": " + String.format("%.2f", get(c)) + " €";
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Objetivo de la clase: Calcular el tipo de retención de IRPF a partir de los
+ *                       ingresos anuales, las cotizaciones y la situación familiar,
+ *                       en lugar de escribirlo a mano.
+ *
+ * Sigue el procedimiento general de retención sobre rendimientos del trabajo:
+ * rendimiento neto (ingresos menos cotizaciones), menos otros gastos y la
+ * reducción por obtención de rendimientos; cuota de esa base menos cuota del
+ * mínimo personal y familiar; tipo = cuota / ingresos, con dos decimales.
+ *
+ * Las escalas se registran por código (el parámetro `escalaIrpf`). La 0 es la
+ * escala general de retenciones; otras escalas (por ejemplo, las forales) se
+ * añaden con registrar(). Los resultados se guardan en una caché de tamaño fijo
+ * indexada por un hash de los datos de entrada, así que los trabajadores con la
+ * misma situación no vuelven a calcularse.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package f_calculo;
+
+import java.util.Arrays;
+
+public final class F_RetencionIrpf {
+
+    /*
+     * Código de la escala general de retenciones.
+     */
+    public static final int ESCALA_GENERAL = 0;
+
+    /*
+     * Importes en céntimos: mínimo personal, mínimo por cada descendiente (del cuarto
+     * en adelante vale el último) y otros gastos deducibles.
+     */
+    private static final long MINIMO_PERSONAL = 555_000;
+    private static final long[] MINIMO_DESCENDIENTES = {240_000, 270_000, 400_000, 450_000};
+    private static final long OTROS_GASTOS = 200_000;
+
+    /*
+     * Reducción por obtención de rendimientos del trabajo, en céntimos, según el rendimiento neto.
+     */
+    private static final long REDUCCION_MAXIMA = 730_200;
+    private static final long REDUCCION_TRAMO_1 = 1_485_200;
+    private static final long REDUCCION_TRAMO_2 = 1_767_352;
+    private static final long REDUCCION_TRAMO_3 = 1_974_750;
+    private static final long REDUCCION_BASE_TRAMO_3 = 236_434;
+
+    private static final int BITS_CACHE = 12;
+
+    /*
+     * Resultado calculado. Inmutable, así que puede publicarse en la caché sin sincronizar.
+     */
+    private static final class Entrada {
+
+        private final F_EscalaIrpf escala;
+        private final long ingresos;
+        private final long cotizaciones;
+        private final int descendientes;
+        private final long tipo;
+
+        private Entrada(F_EscalaIrpf escala, long ingresos, long cotizaciones, int descendientes, long tipo) {
+            this.escala = escala;
+            this.ingresos = ingresos;
+            this.cotizaciones = cotizaciones;
+            this.descendientes = descendientes;
+            this.tipo = tipo;
+        }
+    }
+
+    private static volatile F_EscalaIrpf[] escalas = {
+        F_EscalaIrpf.de("general", new double[] {12_450, 20_200, 35_200, 60_000, 300_000},
+                new double[] {19, 24, 30, 37, 45, 47})
+    };
+
+    private static final Entrada[] cache = new Entrada[1 << BITS_CACHE];
+
+    private F_RetencionIrpf() {
+    }
+
+    /**
+     * Registra (o sustituye) una escala.
+     *
+     * @param codigo Código de la escala, el valor del parámetro `escalaIrpf`.
+     * @param escala Escala precalculada.
+     */
+    public static synchronized void registrar(int codigo, F_EscalaIrpf escala) {
+        if (codigo < 0) {
+            throw new IllegalArgumentException("Código de escala no válido: " + codigo);
+        }
+        F_EscalaIrpf[] nuevas = Arrays.copyOf(escalas, Math.max(escalas.length, codigo + 1));
+        nuevas[codigo] = escala;
+        escalas = nuevas;
+        Arrays.fill(cache, null); // Las entradas de la escala sustituida ya no valen
+    }
+
+    /**
+     * @param codigo Código de escala.
+     * @return `true` si hay una escala registrada con ese código.
+     */
+    public static boolean existe(long codigo) {
+        F_EscalaIrpf[] actuales = escalas;
+        return codigo >= 0 && codigo < actuales.length && actuales[(int) codigo] != null;
+    }
+
+    /**
+     * Tipo de retención para unos ingresos anuales, consultando antes la caché.
+     *
+     * @param codigoEscala Código de la escala.
+     * @param ingresosAnuales Retribuciones íntegras anuales en céntimos.
+     * @param cotizacionesAnuales Cotizaciones anuales del trabajador en céntimos.
+     * @param descendientes Número de descendientes que dan derecho a mínimo.
+     * @return Tipo en diezmilésimas de punto porcentual, redondeado a dos decimales (152300 = 15,23 %).
+     * @throws IllegalArgumentException Si la escala no existe.
+     */
+    public static long tipo(int codigoEscala, long ingresosAnuales, long cotizacionesAnuales, int descendientes) {
+        if (!existe(codigoEscala)) {
+            throw new IllegalArgumentException("Escala de IRPF desconocida: " + codigoEscala);
+        }
+        F_EscalaIrpf escala = escalas[codigoEscala];
+
+        long h = ingresosAnuales * 31 + cotizacionesAnuales;
+        h = (h * 31 + descendientes) * 31 + codigoEscala;
+        int posicion = (int) (((h ^ (h >>> 32)) * 0x9E3779B97F4A7C15L) >>> (64 - BITS_CACHE));
+        Entrada entrada = cache[posicion];
+        if (entrada != null && entrada.escala == escala && entrada.ingresos == ingresosAnuales
+                && entrada.cotizaciones == cotizacionesAnuales && entrada.descendientes == descendientes) {
+            return entrada.tipo;
+        }
+
+        long tipo = calcularTipo(escala, ingresosAnuales, cotizacionesAnuales, descendientes);
+        cache[posicion] = new Entrada(escala, ingresosAnuales, cotizacionesAnuales, descendientes, tipo);
+        return tipo;
+    }
+
+    /**
+     * Calcula el tipo sin usar la caché.
+     *
+     * @param escala Escala a aplicar.
+     * @param ingresosAnuales Retribuciones íntegras anuales en céntimos.
+     * @param cotizacionesAnuales Cotizaciones anuales del trabajador en céntimos.
+     * @param descendientes Número de descendientes que dan derecho a mínimo.
+     * @return Tipo en diezmilésimas de punto porcentual, redondeado a dos decimales.
+     */
+    static long calcularTipo(F_EscalaIrpf escala, long ingresosAnuales, long cotizacionesAnuales, int descendientes) {
+        if (ingresosAnuales <= 0) {
+            return 0;
+        }
+        long rendimientoNeto = ingresosAnuales - cotizacionesAnuales;
+        long base = Math.max(0, rendimientoNeto - OTROS_GASTOS - reduccion(rendimientoNeto));
+
+        long minimo = MINIMO_PERSONAL;
+        for (int i = 0; i < descendientes; i++) {
+            minimo += MINIMO_DESCENDIENTES[Math.min(i, MINIMO_DESCENDIENTES.length - 1)];
+        }
+
+        long cuota = escala.cuota(base) - escala.cuota(minimo);
+        if (cuota <= 0) {
+            return 0;
+        }
+        // cuota (millonésimas de céntimo) / ingresos (céntimos) ya es el tipo en diezmilésimas de punto;
+        // se redondea a centésimas de punto, como el tipo de retención oficial
+        return F_Redondeo.MITAD_ARRIBA.dividir(cuota, Math.multiplyExact(ingresosAnuales, 100)) * 100;
+    }
+
+    /*
+     * Reducción por obtención de rendimientos del trabajo.
+     */
+    private static long reduccion(long rendimientoNeto) {
+        if (rendimientoNeto <= REDUCCION_TRAMO_1) {
+            return REDUCCION_MAXIMA;
+        }
+        if (rendimientoNeto <= REDUCCION_TRAMO_2) {
+            return REDUCCION_MAXIMA - (rendimientoNeto - REDUCCION_TRAMO_1) * 175 / 100;
+        }
+        if (rendimientoNeto <= REDUCCION_TRAMO_3) {
+            return REDUCCION_BASE_TRAMO_3 - (rendimientoNeto - REDUCCION_TRAMO_2) * 114 / 100;
+        }
+        return 0;
+    }
+}
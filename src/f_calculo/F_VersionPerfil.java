@@ -0,0 +1,70 @@
+/**
+ * Objetivo de la clase: Representar una versión de las tarifas de un convenio,
+ *                       vigente desde una fecha, con solo los valores que cambian
+ *                       respecto al perfil general.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package f_calculo;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+public final class F_VersionPerfil {
+
+    private final String convenio;
+    private final int version;
+    private final LocalDate vigenteDesde;
+    private final Map<F_Parametro, Double> valores;
+
+    /**
+     * @param convenio Nombre del convenio o perfil.
+     * @param version Número de versión dentro del convenio (1, 2, 3...).
+     * @param vigenteDesde Primer día en que se aplican estas tarifas.
+     * @param valores Valores que cambian respecto al perfil general; se copian.
+     */
+    public F_VersionPerfil(String convenio, int version, LocalDate vigenteDesde, Map<F_Parametro, Double> valores) {
+        this.convenio = convenio;
+        this.version = version;
+        this.vigenteDesde = vigenteDesde;
+        Map<F_Parametro, Double> copia = new EnumMap<>(F_Parametro.class);
+        copia.putAll(valores);
+        this.valores = Collections.unmodifiableMap(copia);
+    }
+
+    public String getConvenio() {
+        return convenio;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public LocalDate getVigenteDesde() {
+        return vigenteDesde;
+    }
+
+    /**
+     * @return Valores que cambian respecto al perfil general (solo lectura).
+     */
+    public Map<F_Parametro, Double> getValores() {
+        return valores;
+    }
+
+    /**
+     * @param general Perfil del que se toman los valores que esta versión no cambia.
+     * @return Perfil compilado con el nombre del convenio.
+     * @throws NumberFormatException Si algún valor no es válido.
+     */
+    public F_PerfilTarifas aplicar(F_PerfilTarifas general) throws NumberFormatException {
+        return general.derivar(convenio, valores);
+    }
+
+    @Override
+    public String toString() {
+        return convenio + " v" + version + " desde " + vigenteDesde;
+    }
+}
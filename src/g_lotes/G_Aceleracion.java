@@ -0,0 +1,73 @@
+/**
+ * Objetivo de la clase: Resumir la comparación entre el cálculo secuencial y el
+ *                       paralelo de un mismo lote (tiempos, aceleración y si los
+ *                       resultados coinciden).
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package g_lotes;
+
+public class G_Aceleracion {
+
+    private final long nominas;
+    private final int hilos;
+    private final double segundosSecuencial;
+    private final double segundosParalelo;
+    private final boolean identicos;
+
+    public G_Aceleracion(long nominas, int hilos, double segundosSecuencial, double segundosParalelo,
+            boolean identicos) {
+        this.nominas = nominas;
+        this.hilos = hilos;
+        this.segundosSecuencial = segundosSecuencial;
+        this.segundosParalelo = segundosParalelo;
+        this.identicos = identicos;
+    }
+
+    public long getNominas() {
+        return nominas;
+    }
+
+    public int getHilos() {
+        return hilos;
+    }
+
+    public double getSegundosSecuencial() {
+        return segundosSecuencial;
+    }
+
+    public double getSegundosParalelo() {
+        return segundosParalelo;
+    }
+
+    /**
+     * @return `true` si las dos ejecuciones dieron los mismos resultados en el mismo orden.
+     */
+    public boolean isIdenticos() {
+        return identicos;
+    }
+
+    /**
+     * @return Tiempo secuencial entre tiempo paralelo.
+     */
+    public double getAceleracion() {
+        return segundosSecuencial / Math.max(segundosParalelo, 1e-9);
+    }
+
+    /**
+     * @return Aceleración por hilo (1 sería el reparto perfecto).
+     */
+    public double getEficiencia() {
+        return getAceleracion() / hilos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d nóminas: secuencial %.3f s (%.0f nóminas/s), %d hilos %.3f s (%.0f nóminas/s), "
+                + "aceleración %.2fx, eficiencia %.0f%%, resultados %s",
+                nominas, segundosSecuencial, nominas / Math.max(segundosSecuencial, 1e-9),
+                hilos, segundosParalelo, nominas / Math.max(segundosParalelo, 1e-9),
+                getAceleracion(), getEficiencia() * 100, identicos ? "idénticos" : "DISTINTOS");
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Objetivo de la clase: Interpretar la cabecera de un fichero de lote (CSV o TSV)
+ *                       y convertir cada línea en un G_RegistroLote.
+ *
+ * Las columnas usan las mismas claves que `config.properties` (horasNormales,
+ * nocturnas, diasDieta, kilometros...), más una columna `empleado` con el
+ * identificador del trabajador y otra opcional `perfil` con el perfil de tarifas
+ * de cada línea. Los parámetros que no aparecen en el fichero se toman del
+ * perfil de la línea o, si no tiene, del perfil por defecto.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package g_lotes;
+
+import f_calculo.F_CatalogoPerfiles;
+import f_calculo.F_Parametro;
+import f_calculo.F_ParametrosNomina;
+import f_calculo.F_PerfilTarifas;
+
+public class G_CabeceraLote {
+
+    /*
+     * Nombre de la columna con el identificador del trabajador.
+     */
+    public static final String COLUMNA_EMPLEADO = "empleado";
+
+    /*
+     * Nombre de la columna con el perfil de tarifas (ver F_CatalogoPerfiles).
+     */
+    public static final String COLUMNA_PERFIL = "perfil";
+
+    private final char separador;
+    private final int columnaEmpleado;
+    private final int columnaPerfil;
+
+    /*
+     * Parámetro asociado a cada columna (null para las columnas de empleado y perfil).
+     */
+    private final F_Parametro[] columnas;
+
+    /**
+     * Analiza la línea de cabecera detectando el separador (tabulador, punto y coma o coma).
+     *
+     * @param cabecera Primera línea del fichero.
+     * @throws IllegalArgumentException Si alguna columna no es un parámetro conocido.
+     */
+    public G_CabeceraLote(String cabecera) throws IllegalArgumentException {
+        if (cabecera == null || cabecera.trim().isEmpty()) {
+            throw new IllegalArgumentException("El fichero no tiene cabecera.");
+        }
+        if (cabecera.charAt(0) == '\uFEFF') {
+            cabecera = cabecera.substring(1); // Marca BOM de Excel
+        }
+
+        if (cabecera.indexOf('\t') >= 0) {
+            separador = '\t';
+        } else if (cabecera.indexOf(';') >= 0) {
+            separador = ';';
+        } else {
+            separador = ',';
+        }
+
+        String[] nombres = dividir(cabecera, separador, new String[contar(cabecera, separador)]);
+        columnas = new F_Parametro[nombres.length];
+        int empleado = -1;
+        int perfil = -1;
+        for (int i = 0; i < nombres.length; i++) {
+            String nombre = nombres[i].trim();
+            if (COLUMNA_EMPLEADO.equalsIgnoreCase(nombre)) {
+                empleado = i;
+                continue;
+            }
+            if (COLUMNA_PERFIL.equalsIgnoreCase(nombre)) {
+                perfil = i;
+                continue;
+            }
+            F_Parametro p = F_Parametro.porClave(nombre);
+            if (p == null) {
+                throw new IllegalArgumentException("Columna desconocida en la cabecera: " + nombre);
+            }
+            columnas[i] = p;
+        }
+        columnaEmpleado = empleado;
+        columnaPerfil = perfil;
+    }
+
+    /**
+     * @return Número de columnas declaradas en la cabecera.
+     */
+    public int getNumeroColumnas() {
+        return columnas.length;
+    }
+
+    /**
+     * @return Separador detectado.
+     */
+    public char getSeparador() {
+        return separador;
+    }
+
+    /**
+     * Convierte una línea en un registro, validando cada valor igual que
+     * `lecturaConValidacionDeCampo` en la interfaz.
+     *
+     * @param linea Número de línea en el fichero.
+     * @param texto Contenido de la línea.
+     * @param perfiles Perfiles de tarifas ya compilados; no se modifican.
+     * @return Registro válido o con el mensaje de error correspondiente.
+     */
+    public G_RegistroLote parsear(long linea, String texto, F_CatalogoPerfiles perfiles) {
+        String[] valores = dividir(texto, separador, new String[columnas.length]);
+        String empleado = columnaEmpleado >= 0 && valores[columnaEmpleado] != null
+                ? valores[columnaEmpleado].trim() : String.valueOf(linea);
+
+        int numeroCampos = contar(texto, separador);
+        if (numeroCampos != columnas.length) {
+            return new G_RegistroLote(linea, empleado,
+                    "Se esperaban " + columnas.length + " columnas y hay " + numeroCampos);
+        }
+
+        String nombrePerfil = columnaPerfil >= 0 ? valores[columnaPerfil].trim() : null;
+        F_PerfilTarifas perfil = perfiles.buscar(nombrePerfil);
+        if (perfil == null) {
+            return new G_RegistroLote(linea, empleado, "Perfil de tarifas desconocido: " + nombrePerfil);
+        }
+
+        F_ParametrosNomina parametros = perfil.nuevosParametros();
+        try {
+            for (int i = 0; i < columnas.length; i++) {
+                if (columnas[i] != null) {
+                    String valor = valores[i];
+                    if (separador != ',') {
+                        valor = valor.replace(',', '.'); // Admite coma decimal en CSV con ';' o TSV
+                    }
+                    parametros.set(columnas[i], valor);
+                }
+            }
+        } catch (NumberFormatException e) {
+            return new G_RegistroLote(linea, empleado, e.getMessage());
+        }
+        return new G_RegistroLote(linea, empleado, parametros);
+    }
+
+    /*
+     * Cuenta los campos de una línea.
+     */
+    private static int contar(String texto, char sep) {
+        int n = 1;
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) == sep) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /*
+     * Divide una línea sin expresiones regulares. Los campos que sobran se ignoran.
+     */
+    private static String[] dividir(String texto, char sep, String[] destino) {
+        int inicio = 0;
+        int campo = 0;
+        while (campo < destino.length) {
+            int fin = texto.indexOf(sep, inicio);
+            if (fin < 0) {
+                destino[campo] = texto.substring(inicio);
+                break;
+            }
+            destino[campo++] = texto.substring(inicio, fin);
+            inicio = fin + 1;
+        }
+        return destino;
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Objetivo de la clase: Medir cuánto se acelera el cálculo de un lote con varios
+ *                       hilos respecto al camino secuencial, comprobando que los
+ *                       resultados son los mismos y salen en el mismo orden.
+ *
+ * Solo se mide la lectura y el cálculo (no la escritura en la base de datos, que
+ * siempre la hace un único hilo). Cada modo se ejecuta una vez para calentar y
+ * luego se toma el mejor tiempo de las repeticiones.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package g_lotes;
+
+import f_calculo.F_CatalogoPerfiles;
+import f_calculo.F_Concepto;
+import f_calculo.F_ResultadoNomina;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class G_ComparadorParalelo {
+
+    private final F_CatalogoPerfiles perfiles;
+    private final int tamanoBloque;
+    private final int hilos;
+
+    /**
+     * @param perfiles Perfiles de tarifas; las líneas sin columna `perfil` usan el perfil por defecto.
+     * @param tamanoBloque Líneas por bloque.
+     * @param hilos Hilos del modo paralelo.
+     */
+    public G_ComparadorParalelo(F_CatalogoPerfiles perfiles, int tamanoBloque, int hilos) {
+        this.perfiles = perfiles;
+        this.tamanoBloque = tamanoBloque;
+        this.hilos = hilos;
+    }
+
+    /**
+     * @param fichero Lote en CSV o TSV con cabecera.
+     * @param repeticiones Ejecuciones medidas de cada modo.
+     * @return Comparación entre los dos modos.
+     * @throws IOException Si falla la lectura del fichero.
+     */
+    public G_Aceleracion comparar(Path fichero, int repeticiones) throws IOException {
+        G_ProcesadorLotes secuencial = new G_ProcesadorLotes(perfiles, tamanoBloque, 1);
+        G_ProcesadorLotes paralelo = new G_ProcesadorLotes(perfiles, tamanoBloque, hilos);
+
+        long[] huellaSecuencial = ejecutar(secuencial, fichero);
+        long[] huellaParalela = ejecutar(paralelo, fichero);
+        double segundosSecuencial = Double.MAX_VALUE;
+        double segundosParalelo = Double.MAX_VALUE;
+        for (int i = 0; i < repeticiones; i++) {
+            long inicio = System.nanoTime();
+            ejecutar(secuencial, fichero);
+            segundosSecuencial = Math.min(segundosSecuencial, (System.nanoTime() - inicio) / 1e9);
+
+            inicio = System.nanoTime();
+            ejecutar(paralelo, fichero);
+            segundosParalelo = Math.min(segundosParalelo, (System.nanoTime() - inicio) / 1e9);
+        }
+
+        boolean identicos = huellaSecuencial[0] == huellaParalela[0] && huellaSecuencial[1] == huellaParalela[1];
+        return new G_Aceleracion(huellaSecuencial[0], hilos, segundosSecuencial, segundosParalelo, identicos);
+    }
+
+    /*
+     * Procesa el fichero y devuelve [0] el número de registros y [1] una huella que
+     * depende de cada importe y del orden en que se entregan.
+     */
+    private static long[] ejecutar(G_ProcesadorLotes procesador, Path fichero) throws IOException {
+        long[] huella = new long[2];
+        try (BufferedReader lector = Files.newBufferedReader(fichero, StandardCharsets.UTF_8)) {
+            procesador.procesar(lector, registro -> {
+                long h = huella[1] * 31 + registro.getLinea();
+                if (registro.tieneError()) {
+                    h = h * 31 + registro.getError().hashCode();
+                } else {
+                    F_ResultadoNomina resultado = registro.getResultado();
+                    for (F_Concepto c : F_Concepto.values()) {
+                        h = h * 31 + Double.doubleToLongBits(resultado.get(c));
+                    }
+                }
+                huella[0]++;
+                huella[1] = h;
+            });
+        }
+        return huella;
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Objetivo de la clase: Importar hojas de horas exportadas en CSV/TSV, calcular la
+ *                       nómina de cada línea y guardarla en la tabla `calculos`.
+ *
+ * Cada línea usa el perfil de tarifas de su columna `perfil`: un perfil de fichero
+ * o un convenio guardado en la base de datos (ver D_Perfiles), en la versión
+ * vigente el primer día del periodo.
+ *
+ * El fichero se lee línea a línea por bloques (ver G_ProcesadorLotes), por lo que
+ * la memoria usada no depende del número de filas. Las filas se guardan con
+ * D_BaseDatos.insertarCalculos(), una transacción por bloque, con su desglose
+ * por conceptos en `calculo_conceptos`. Si hay un diario activo (ver D_Diario) se
+ * añaden a él y pasan a la base de datos en segundo plano.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package g_lotes;
+
+import d_basedatos.D_BaseDatos;
+import d_basedatos.D_Calculo;
+import d_basedatos.D_Diario;
+import d_basedatos.D_Perfiles;
+import d_basedatos.D_ResumenInsercion;
+import f_calculo.F_CatalogoPerfiles;
+import f_calculo.F_ResultadoNomina;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.json.JSONObject;
+
+public class G_ImportadorHoras {
+
+    private final F_CatalogoPerfiles perfiles;
+    private final int tamanoBloque;
+    private final String periodo;
+    private final LocalDate primerDia;
+
+    /**
+     * @param perfiles Perfiles de tarifas; las líneas sin columna `perfil` usan el perfil por defecto.
+     * @param tamanoBloque Líneas que se calculan y se insertan en cada transacción.
+     * @param periodo Periodo de las nóminas importadas (yyyy-MM).
+     */
+    public G_ImportadorHoras(F_CatalogoPerfiles perfiles, int tamanoBloque, String periodo) {
+        if (!periodo.matches("\\d{4}-\\d{2}")) {
+            throw new IllegalArgumentException("Periodo no válido (se espera yyyy-MM): " + periodo);
+        }
+        try {
+            this.primerDia = YearMonth.parse(periodo).atDay(1);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Periodo no válido (se espera yyyy-MM): " + periodo);
+        }
+        this.perfiles = perfiles;
+        this.tamanoBloque = tamanoBloque;
+        this.periodo = periodo;
+    }
+
+    /**
+     * Importa el fichero completo.
+     *
+     * @param fichero Hoja de horas en CSV o TSV con cabecera.
+     * @param errores Recibe un mensaje por cada línea no válida, con su número de línea.
+     * @return Resumen de la importación.
+     * @throws IOException Si falla la lectura del fichero.
+     * @throws SQLException Si falla la escritura en la base de datos.
+     */
+    public G_ResumenImportacion importar(Path fichero, Consumer<String> errores) throws IOException, SQLException {
+        // Todas las filas de una importación comparten fecha; la clave la pone la base de datos.
+        String fechaImportacion = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        long inicio = System.nanoTime();
+        long[] numeroErrores = new long[1];
+        D_ResumenInsercion insercion;
+
+        // Tarifas de cada convenio vigentes el primer día del periodo: una búsqueda por convenio, no por nómina
+        F_CatalogoPerfiles vigentes = D_Perfiles.indice().catalogoEn(primerDia, perfiles);
+
+        try (BufferedReader lector = Files.newBufferedReader(fichero, StandardCharsets.UTF_8)) {
+            G_ProcesadorLotes procesador = new G_ProcesadorLotes(vigentes, tamanoBloque);
+            Stream<D_Calculo> calculos = StreamSupport
+                    .stream(Spliterators.spliteratorUnknownSize(procesador.iterar(lector), Spliterator.ORDERED), false)
+                    .filter(registro -> {
+                        if (registro.tieneError()) {
+                            numeroErrores[0]++;
+                            errores.accept(registro.getError());
+                            return false;
+                        }
+                        return true;
+                    })
+                    .map(registro -> aCalculo(periodo, fechaImportacion, registro));
+
+            D_Diario diario = D_Diario.activo();
+            if (diario != null) {
+                try (Stream<D_Calculo> s = calculos) {
+                    insercion = diario.anadir(s.iterator());
+                }
+            } else {
+                insercion = D_BaseDatos.insertarCalculos(calculos, tamanoBloque);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        return new G_ResumenImportacion(insercion.getFilas() + numeroErrores[0], insercion.getFilas(),
+                numeroErrores[0], segundos);
+    }
+
+    /*
+     * Convierte un registro ya calculado en la fila que se guarda.
+     */
+    private static D_Calculo aCalculo(String periodo, String fecha, G_RegistroLote registro) {
+        F_ResultadoNomina resultado = registro.getResultado();
+        double bruto = resultado.getSalarioBruto(); // Ya exactos al céntimo
+        double neto = resultado.getSalarioNeto();
+
+        // JSON compacto escrito a mano. Los importes solo se guardan en `calculo_conceptos`;
+        // D_BaseDatos.obtenerDetalle() los añade al JSON al leerlo
+        StringBuilder detalle = new StringBuilder(128);
+        detalle.append("{\"fecha\":").append(JSONObject.quote(fecha))
+                .append(",\"bruto\":").append(bruto)
+                .append(",\"neto\":").append(neto)
+                .append(",\"empleado\":").append(JSONObject.quote(registro.getEmpleado()))
+                .append('}');
+
+        return new D_Calculo(registro.getEmpleado(), periodo, fecha, bruto, neto, detalle.toString(), resultado);
+    }
+}
@@ -0,0 +1,256 @@
+/**
+ * Objetivo de la clase: Leer un fichero de lote línea a línea y calcular las nóminas
+ *                       en paralelo por bloques, entregando los resultados en el
+ *                       mismo orden del fichero.
+ *
+ * Los bloques se calculan en un ForkJoinPool con el número de hilos indicado y,
+ * mientras se entrega un bloque, ya se está calculando el siguiente. Cada línea
+ * se calcula de forma independiente y los bloques se entregan en orden, así que
+ * el resultado es el mismo con cualquier número de hilos. Con un solo hilo se
+ * calcula todo en el hilo que consume, que es el camino secuencial de referencia.
+ *
+ * Solo se mantienen en memoria dos bloques de líneas, de modo que el consumo de
+ * memoria no depende del tamaño del fichero.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package g_lotes;
+
+import f_calculo.F_CatalogoPerfiles;
+import f_calculo.F_MotorNomina;
+import f_calculo.F_ParametrosNomina;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+public class G_ProcesadorLotes {
+
+    /*
+     * Número de líneas por bloque si no se indica otro.
+     */
+    public static final int TAMANO_BLOQUE_POR_DEFECTO = 8192;
+
+    private final F_CatalogoPerfiles perfiles;
+    private final int tamanoBloque;
+    private final int paralelismo;
+
+    /**
+     * Procesador que usa todos los núcleos disponibles.
+     *
+     * @param base Parámetros comunes (tarifas y porcentajes) para todo el lote.
+     * @param tamanoBloque Número de líneas que se calculan en paralelo de cada vez.
+     */
+    public G_ProcesadorLotes(F_ParametrosNomina base, int tamanoBloque) {
+        this(base, tamanoBloque, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param base Parámetros comunes (tarifas y porcentajes) para todo el lote.
+     * @param tamanoBloque Número de líneas que se calculan en paralelo de cada vez.
+     * @param paralelismo Hilos de cálculo; con 1 se calcula de forma secuencial en el hilo que consume.
+     */
+    public G_ProcesadorLotes(F_ParametrosNomina base, int tamanoBloque, int paralelismo) {
+        this(F_CatalogoPerfiles.de(base), tamanoBloque, paralelismo);
+    }
+
+    /**
+     * Procesador que usa todos los núcleos disponibles.
+     *
+     * @param perfiles Perfiles de tarifas que pueden indicar las líneas en la columna `perfil`.
+     * @param tamanoBloque Número de líneas que se calculan en paralelo de cada vez.
+     */
+    public G_ProcesadorLotes(F_CatalogoPerfiles perfiles, int tamanoBloque) {
+        this(perfiles, tamanoBloque, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param perfiles Perfiles de tarifas que pueden indicar las líneas en la columna `perfil`.
+     * @param tamanoBloque Número de líneas que se calculan en paralelo de cada vez.
+     * @param paralelismo Hilos de cálculo; con 1 se calcula de forma secuencial en el hilo que consume.
+     */
+    public G_ProcesadorLotes(F_CatalogoPerfiles perfiles, int tamanoBloque, int paralelismo) {
+        if (tamanoBloque <= 0) {
+            throw new IllegalArgumentException("El tamaño de bloque debe ser positivo.");
+        }
+        if (paralelismo <= 0) {
+            throw new IllegalArgumentException("El número de hilos debe ser positivo.");
+        }
+        this.perfiles = perfiles;
+        this.tamanoBloque = tamanoBloque;
+        this.paralelismo = paralelismo;
+    }
+
+    /**
+     * @return Hilos de cálculo.
+     */
+    public int getParalelismo() {
+        return paralelismo;
+    }
+
+    /**
+     * Procesa el fichero completo. La primera línea debe ser la cabecera.
+     * Las líneas vacías se ignoran.
+     *
+     * @param lector Lector del fichero de lote.
+     * @param salida Recibe cada registro (válido o con error) en el orden del fichero.
+     * @return Número de registros entregados.
+     * @throws IOException Si falla la lectura.
+     * @throws IllegalArgumentException Si la cabecera no es válida.
+     */
+    public long procesar(BufferedReader lector, Consumer<G_RegistroLote> salida) throws IOException {
+        Iterator<G_RegistroLote> registros = iterar(lector);
+        long total = 0;
+        try {
+            while (registros.hasNext()) {
+                salida.accept(registros.next());
+                total++;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return total;
+    }
+
+    /**
+     * Devuelve los registros del fichero de forma perezosa: mientras se recorre un
+     * bloque se lee y se calcula en paralelo el siguiente.
+     *
+     * @param lector Lector del fichero de lote, situado al principio (cabecera).
+     *               Solo lo usa un bloque cada vez, aunque no siempre desde el mismo hilo.
+     * @return Iterador en el orden del fichero. Lanza UncheckedIOException si falla la lectura.
+     * @throws IOException Si no se puede leer la cabecera.
+     * @throws IllegalArgumentException Si la cabecera no es válida.
+     */
+    public Iterator<G_RegistroLote> iterar(BufferedReader lector) throws IOException {
+        G_CabeceraLote cabecera = new G_CabeceraLote(lector.readLine());
+        ForkJoinPool pool = paralelismo > 1 ? new ForkJoinPool(paralelismo) : null;
+        return new Iterator<G_RegistroLote>() {
+
+            private G_RegistroLote[] registros = new G_RegistroLote[0];
+            private CompletableFuture<G_RegistroLote[]> pendiente;
+            private long numeroLinea = 1; // Solo lo modifica el bloque que se está leyendo
+            private int siguiente = 0;
+            private boolean finFichero = false;
+
+            @Override
+            public boolean hasNext() {
+                if (siguiente < registros.length) {
+                    return true;
+                }
+                if (pendiente == null) {
+                    if (finFichero) {
+                        return false;
+                    }
+                    pendiente = lanzarBloque();
+                }
+                registros = esperar(pendiente);
+                pendiente = null;
+                siguiente = 0;
+                finFichero = registros.length < tamanoBloque;
+                if (finFichero) {
+                    terminar();
+                } else {
+                    pendiente = lanzarBloque(); // Se calcula mientras se consume el actual
+                }
+                return registros.length > 0;
+            }
+
+            @Override
+            public G_RegistroLote next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                G_RegistroLote registro = registros[siguiente];
+                registros[siguiente++] = null;
+                return registro;
+            }
+
+            private CompletableFuture<G_RegistroLote[]> lanzarBloque() {
+                if (pool == null) {
+                    CompletableFuture<G_RegistroLote[]> bloque = new CompletableFuture<>();
+                    try {
+                        bloque.complete(leerYCalcular());
+                    } catch (RuntimeException e) {
+                        bloque.completeExceptionally(e);
+                    }
+                    return bloque;
+                }
+                return CompletableFuture.supplyAsync(this::leerYCalcular, pool);
+            }
+
+            private G_RegistroLote[] esperar(CompletableFuture<G_RegistroLote[]> bloque) {
+                try {
+                    return bloque.join();
+                } catch (CompletionException e) {
+                    terminar();
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+
+            private void terminar() {
+                finFichero = true;
+                if (pool != null) {
+                    pool.shutdown();
+                }
+            }
+
+            /*
+             * Lee hasta llenar un bloque, saltando líneas vacías, y lo calcula.
+             */
+            private G_RegistroLote[] leerYCalcular() {
+                String[] textos = new String[tamanoBloque];
+                long[] lineas = new long[tamanoBloque];
+                int leidas = 0;
+                try {
+                    String texto;
+                    while (leidas < tamanoBloque && (texto = lector.readLine()) != null) {
+                        numeroLinea++;
+                        if (texto.trim().isEmpty()) {
+                            continue;
+                        }
+                        textos[leidas] = texto;
+                        lineas[leidas] = numeroLinea;
+                        leidas++;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                G_RegistroLote[] bloque = new G_RegistroLote[leidas];
+                calcularBloque(cabecera, textos, lineas, bloque, pool != null);
+                return bloque;
+            }
+        };
+    }
+
+    /*
+     * Valida y calcula un bloque. En paralelo se reparte entre los hilos del pool
+     * desde el que se llama.
+     */
+    private void calcularBloque(G_CabeceraLote cabecera, String[] textos, long[] lineas,
+            G_RegistroLote[] registros, boolean enParalelo) {
+        IntStream indices = IntStream.range(0, registros.length);
+        (enParalelo ? indices.parallel() : indices).forEach(i -> {
+            G_RegistroLote registro = cabecera.parsear(lineas[i], textos[i], perfiles);
+            if (!registro.tieneError()) {
+                try {
+                    registro.setResultado(F_MotorNomina.calcular(registro.getParametros()));
+                } catch (ArithmeticException e) {
+                    registro = new G_RegistroLote(lineas[i], registro.getEmpleado(), "Importes fuera de rango");
+                }
+            }
+            registros[i] = registro;
+            textos[i] = null;
+        });
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Objetivo de la clase: Representar una línea de un fichero de lote (un trabajador)
+ *                       con sus parámetros, el resultado calculado o el error de
+ *                       validación encontrado.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package g_lotes;
+
+import f_calculo.F_ParametrosNomina;
+import f_calculo.F_ResultadoNomina;
+
+public class G_RegistroLote {
+
+    private final long linea;
+    private final String empleado;
+    private final F_ParametrosNomina parametros;
+    private final String error;
+    private F_ResultadoNomina resultado;
+
+    /**
+     * Crea un registro válido pendiente de calcular.
+     *
+     * @param linea Número de línea en el fichero (empezando en 1).
+     * @param empleado Identificador del trabajador.
+     * @param parametros Parámetros ya validados.
+     */
+    public G_RegistroLote(long linea, String empleado, F_ParametrosNomina parametros) {
+        this.linea = linea;
+        this.empleado = empleado;
+        this.parametros = parametros;
+        this.error = null;
+    }
+
+    /**
+     * Crea un registro inválido.
+     *
+     * @param linea Número de línea en el fichero (empezando en 1).
+     * @param empleado Identificador del trabajador, si se pudo leer.
+     * @param error Mensaje de validación.
+     */
+    public G_RegistroLote(long linea, String empleado, String error) {
+        this.linea = linea;
+        this.empleado = empleado;
+        this.parametros = null;
+        this.error = error;
+    }
+
+    public long getLinea() {
+        return linea;
+    }
+
+    public String getEmpleado() {
+        return empleado;
+    }
+
+    public F_ParametrosNomina getParametros() {
+        return parametros;
+    }
+
+    public F_ResultadoNomina getResultado() {
+        return resultado;
+    }
+
+    void setResultado(F_ResultadoNomina resultado) {
+        this.resultado = resultado;
+    }
+
+    /**
+     * @return `true` si la línea no superó la validación.
+     */
+    public boolean tieneError() {
+        return error != null;
+    }
+
+    /**
+     * @return Mensaje de error con el número de línea, o `null` si es válido.
+     */
+    public String getError() {
+        return error == null ? null : "Línea " + linea + ": " + error;
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Objetivo de la clase: Resumir el resultado de una importación de hojas de horas
+ *                       (líneas leídas, nóminas guardadas, errores y tiempo empleado).
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package g_lotes;
+
+public class G_ResumenImportacion {
+
+    private final long leidas;
+    private final long guardadas;
+    private final long errores;
+    private final double segundos;
+
+    public G_ResumenImportacion(long leidas, long guardadas, long errores, double segundos) {
+        this.leidas = leidas;
+        this.guardadas = guardadas;
+        this.errores = errores;
+        this.segundos = segundos;
+    }
+
+    public long getLeidas() {
+        return leidas;
+    }
+
+    public long getGuardadas() {
+        return guardadas;
+    }
+
+    public long getErrores() {
+        return errores;
+    }
+
+    public double getSegundos() {
+        return segundos;
+    }
+
+    /**
+     * @return Nóminas guardadas por segundo.
+     */
+    public double getNominasPorSegundo() {
+        return guardadas / Math.max(segundos, 1e-9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Leídas %d líneas, guardadas %d nóminas, %d con errores en %.2f s (%.0f nóminas/s)",
+                leidas, guardadas, errores, segundos, getNominasPorSegundo());
+    }
+}
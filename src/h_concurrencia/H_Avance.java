@@ -0,0 +1,29 @@
+/**
+ * Objetivo de la clase: Permitir que un trabajo en segundo plano informe de su
+ *                       progreso y compruebe si se ha cancelado.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package h_concurrencia;
+
+public interface H_Avance {
+
+    /**
+     * Actualiza el progreso del trabajo.
+     *
+     * @param hecho Unidades completadas.
+     * @param total Unidades totales (o -1 si no se conoce).
+     */
+    void progreso(long hecho, long total);
+
+    /**
+     * @param texto Mensaje de estado para la interfaz.
+     */
+    void mensaje(String texto);
+
+    /**
+     * @return `true` si se ha pedido cancelar el trabajo; el trabajo debe terminar cuanto antes.
+     */
+    boolean cancelado();
+}
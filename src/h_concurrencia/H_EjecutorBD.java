@@ -0,0 +1,101 @@
+/**
+ * Objetivo de la clase: Ejecutar las operaciones de base de datos fuera del hilo
+ *                       de JavaFX y devolver el resultado a la interfaz.
+ *
+ * Cada trabajo se envuelve en un `javafx.concurrent.Task`, de modo que la interfaz
+ * puede observar su progreso, su mensaje de estado y cancelarlo. Los callbacks de
+ * éxito y error se ejecutan siempre en el hilo de JavaFX. Si la JVM dispone de
+ * hilos virtuales (Java 21 o posterior) se usan; si no, un grupo de hilos daemon.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package h_concurrencia;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javafx.concurrent.Task;
+
+public final class H_EjecutorBD {
+
+    private static final ExecutorService ejecutor = crearEjecutor();
+
+    private H_EjecutorBD() {
+    }
+
+    /**
+     * Lanza un trabajo en segundo plano.
+     *
+     * @param trabajo Trabajo a ejecutar (por ejemplo, una llamada a D_BaseDatos).
+     * @param alTerminar Recibe el resultado en el hilo de JavaFX.
+     * @param alFallar Recibe la excepción en el hilo de JavaFX.
+     * @return La tarea, para observar su progreso o cancelarla.
+     */
+    public static <T> Task<T> ejecutar(H_Trabajo<T> trabajo, Consumer<T> alTerminar, Consumer<Throwable> alFallar) {
+        Task<T> tarea = new Task<T>() {
+            @Override
+            protected T call() throws Exception {
+                return trabajo.ejecutar(new H_Avance() {
+                    @Override
+                    public void progreso(long hecho, long total) {
+                        updateProgress(hecho, total);
+                    }
+
+                    @Override
+                    public void mensaje(String texto) {
+                        updateMessage(texto);
+                    }
+
+                    @Override
+                    public boolean cancelado() {
+                        return isCancelled();
+                    }
+                });
+            }
+        };
+        tarea.setOnSucceeded(evento -> alTerminar.accept(tarea.getValue()));
+        tarea.setOnFailed(evento -> alFallar.accept(tarea.getException()));
+        ejecutor.execute(tarea);
+        return tarea;
+    }
+
+    /**
+     * Deja de aceptar trabajos y espera un tiempo prudencial a que terminen los pendientes
+     * (por ejemplo, un guardado en curso) antes de cerrar la base de datos.
+     *
+     * @param segundos Tiempo máximo de espera.
+     */
+    public static void cerrar(long segundos) {
+        ejecutor.shutdown();
+        try {
+            if (!ejecutor.awaitTermination(segundos, TimeUnit.SECONDS)) {
+                ejecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            ejecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     * Usa hilos virtuales si la JVM los ofrece. Se accede por reflexión porque el
+     * proyecto se compila para Java 8.
+     */
+    private static ExecutorService crearEjecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            AtomicInteger contador = new AtomicInteger();
+            ThreadFactory fabrica = r -> {
+                Thread hilo = new Thread(r, "bd-" + contador.incrementAndGet());
+                hilo.setDaemon(true);
+                return hilo;
+            };
+            return Executors.newCachedThreadPool(fabrica);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * Objetivo de la clase: Representar un trabajo (normalmente de base de datos) que
+ *                       se ejecuta fuera del hilo de la interfaz.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package h_concurrencia;
+
+@FunctionalInterface
+public interface H_Trabajo<T> {
+
+    /**
+     * Ejecuta el trabajo en un hilo en segundo plano.
+     *
+     * @param avance Permite informar del progreso y comprobar la cancelación.
+     * @return Resultado que se entrega en el hilo de la interfaz.
+     * @throws Exception Si falla el trabajo.
+     */
+    T ejecutar(H_Avance avance) throws Exception;
+}
@@ -0,0 +1,262 @@
+/**
+ * Objetivo de la clase: Cargar los perfiles de tarifas desde disco una sola vez,
+ *                       mantenerlos en memoria y recargarlos cuando cambian los
+ *                       ficheros.
+ *
+ * El perfil por defecto sale de `config.properties`. Cada fichero
+ * `perfiles/<nombre>.properties` define otro perfil (un convenio, un tipo de
+ * contrato...) con solo las claves que cambian: el resto se toman de
+ * `config.properties`.
+ *
+ * Con vigilar() un hilo daemon observa los ficheros con un WatchService y, al
+ * cambiar, compila un catálogo nuevo y lo sustituye de una vez. Si el fichero
+ * modificado no es válido se mantiene el catálogo anterior.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package j_configuracion;
+
+import f_calculo.F_CatalogoPerfiles;
+import f_calculo.F_PerfilTarifas;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public final class J_Configuracion {
+
+    /*
+     * Fichero del perfil por defecto.
+     */
+    public static final Path FICHERO = Paths.get("config.properties");
+
+    /*
+     * Carpeta con un fichero `.properties` por perfil adicional.
+     */
+    public static final Path DIRECTORIO_PERFILES = Paths.get("perfiles");
+
+    private static final String EXTENSION = ".properties";
+
+    /*
+     * Tiempo que se espera tras un cambio para agrupar las escrituras de un mismo guardado.
+     */
+    private static final long ESPERA_CAMBIOS_MS = 200;
+
+    private static volatile F_CatalogoPerfiles catalogo;
+    private static volatile boolean ficheroEncontrado;
+    private static final List<Consumer<F_CatalogoPerfiles>> oyentes = new CopyOnWriteArrayList<>();
+    private static WatchService vigilante;
+
+    private J_Configuracion() {
+    }
+
+    /**
+     * Devuelve el catálogo en memoria. La primera llamada lo carga de disco; si no
+     * se puede, se usan los valores por defecto de cada parámetro.
+     *
+     * @return Catálogo actual; no cambia aunque se recargue la configuración.
+     */
+    public static F_CatalogoPerfiles perfiles() {
+        F_CatalogoPerfiles actual = catalogo;
+        if (actual == null) {
+            synchronized (J_Configuracion.class) {
+                if (catalogo == null) {
+                    try {
+                        recargar();
+                    } catch (IOException | NumberFormatException e) {
+                        System.err.println("No se pudo cargar la configuración: " + e.getMessage()
+                                + ". Se usarán valores por defecto.");
+                        catalogo = new F_CatalogoPerfiles(
+                                F_PerfilTarifas.compilar(F_CatalogoPerfiles.PERFIL_POR_DEFECTO, new Properties()),
+                                new ArrayList<F_PerfilTarifas>());
+                    }
+                }
+                actual = catalogo;
+            }
+        }
+        return actual;
+    }
+
+    /**
+     * @return `true` si la última carga encontró `config.properties`.
+     */
+    public static boolean hayFichero() {
+        perfiles();
+        return ficheroEncontrado;
+    }
+
+    /**
+     * Lee y compila de nuevo todos los perfiles y sustituye el catálogo.
+     *
+     * @return El catálogo nuevo.
+     * @throws IOException Si algún fichero existe pero no se puede leer.
+     * @throws NumberFormatException Si algún perfil tiene un valor no válido; el catálogo no cambia.
+     */
+    public static synchronized F_CatalogoPerfiles recargar() throws IOException, NumberFormatException {
+        Properties general = new Properties();
+        boolean encontrado = Files.exists(FICHERO);
+        if (encontrado) {
+            leer(FICHERO, general);
+        }
+        F_PerfilTarifas porDefecto = compilar(F_CatalogoPerfiles.PERFIL_POR_DEFECTO, general);
+
+        List<F_PerfilTarifas> otros = new ArrayList<>();
+        if (Files.isDirectory(DIRECTORIO_PERFILES)) {
+            try (DirectoryStream<Path> ficheros = Files.newDirectoryStream(DIRECTORIO_PERFILES, "*" + EXTENSION)) {
+                for (Path fichero : ficheros) {
+                    String nombre = fichero.getFileName().toString();
+                    Properties props = new Properties(general);
+                    leer(fichero, props);
+                    otros.add(compilar(nombre.substring(0, nombre.length() - EXTENSION.length()), props));
+                }
+            }
+        }
+
+        F_CatalogoPerfiles nuevo = new F_CatalogoPerfiles(porDefecto, otros);
+        ficheroEncontrado = encontrado;
+        catalogo = nuevo;
+        return nuevo;
+    }
+
+    /**
+     * Registra un oyente que recibe cada catálogo recargado por la vigilancia de ficheros.
+     * Se llama desde el hilo de vigilancia.
+     *
+     * @param oyente Oyente a registrar.
+     */
+    public static void alCambiar(Consumer<F_CatalogoPerfiles> oyente) {
+        oyentes.add(oyente);
+    }
+
+    /**
+     * Empieza a vigilar `config.properties` y la carpeta de perfiles. Llamarlo más
+     * de una vez no tiene efecto.
+     *
+     * @throws IOException Si no se puede crear el WatchService.
+     */
+    public static synchronized void vigilar() throws IOException {
+        if (vigilante != null) {
+            return;
+        }
+        perfiles();
+        WatchService servicio = FICHERO.toAbsolutePath().getFileSystem().newWatchService();
+        Path carpeta = FICHERO.toAbsolutePath().getParent();
+        carpeta.register(servicio, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        registrarPerfiles(servicio);
+        vigilante = servicio;
+
+        Thread hilo = new Thread(() -> vigilar(servicio), "config-vigilancia");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Deja de vigilar los ficheros.
+     */
+    public static synchronized void cerrar() {
+        if (vigilante != null) {
+            try {
+                vigilante.close();
+            } catch (IOException e) {
+                System.err.println("Error al cerrar la vigilancia de la configuración: " + e.getMessage());
+            }
+            vigilante = null;
+        }
+    }
+
+    /*
+     * Bucle del hilo de vigilancia: espera un cambio, agrupa los que llegan seguidos y recarga.
+     */
+    private static void vigilar(WatchService servicio) {
+        try {
+            while (true) {
+                WatchKey clave = servicio.take();
+                boolean cambio = procesar(servicio, clave);
+                while ((clave = servicio.poll(ESPERA_CAMBIOS_MS, TimeUnit.MILLISECONDS)) != null) {
+                    cambio |= procesar(servicio, clave);
+                }
+                if (cambio) {
+                    try {
+                        F_CatalogoPerfiles nuevo = recargar();
+                        for (Consumer<F_CatalogoPerfiles> oyente : oyentes) {
+                            oyente.accept(nuevo);
+                        }
+                    } catch (IOException | NumberFormatException e) {
+                        System.err.println("Configuración no válida, se mantienen las tarifas anteriores: " + e.getMessage());
+                    }
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Vigilancia cerrada
+        }
+    }
+
+    /*
+     * Indica si los eventos de la clave afectan a la configuración y la rearma.
+     */
+    private static boolean procesar(WatchService servicio, WatchKey clave) {
+        boolean cambio = false;
+        Path carpeta = (Path) clave.watchable();
+        boolean enPerfiles = carpeta.endsWith(DIRECTORIO_PERFILES.getFileName());
+        for (WatchEvent<?> evento : clave.pollEvents()) {
+            if (evento.kind() == StandardWatchEventKinds.OVERFLOW) {
+                cambio = true;
+                continue;
+            }
+            Path nombre = (Path) evento.context();
+            if (enPerfiles) {
+                cambio |= nombre.toString().endsWith(EXTENSION);
+            } else if (nombre.equals(FICHERO.getFileName())) {
+                cambio = true;
+            } else if (nombre.equals(DIRECTORIO_PERFILES.getFileName())) {
+                cambio = true;
+                try {
+                    registrarPerfiles(servicio); // La carpeta de perfiles se ha creado después de arrancar
+                } catch (IOException e) {
+                    System.err.println("No se puede vigilar la carpeta de perfiles: " + e.getMessage());
+                }
+            }
+        }
+        clave.reset();
+        return cambio;
+    }
+
+    private static void registrarPerfiles(WatchService servicio) throws IOException {
+        if (Files.isDirectory(DIRECTORIO_PERFILES)) {
+            DIRECTORIO_PERFILES.toAbsolutePath().register(servicio, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        }
+    }
+
+    private static void leer(Path fichero, Properties props) throws IOException {
+        try (InputStream input = Files.newInputStream(fichero)) {
+            props.load(input);
+        }
+    }
+
+    /*
+     * Compila un perfil añadiendo su nombre al mensaje de error.
+     */
+    private static F_PerfilTarifas compilar(String nombre, Properties props) throws NumberFormatException {
+        try {
+            return F_PerfilTarifas.compilar(nombre, props);
+        } catch (NumberFormatException e) {
+            throw new NumberFormatException("Perfil " + nombre + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Objetivo de la clase: Representar una cuenta bancaria con su titular para las
+ *                       transferencias SEPA (la de cada empleado y la de la empresa).
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package k_exportacion;
+
+public class K_Cuenta {
+
+    private final String titular;
+    private final String iban;
+
+    /**
+     * @param titular Nombre del titular.
+     * @param iban IBAN; se admiten espacios y minúsculas.
+     * @throws IllegalArgumentException Si el IBAN no es válido.
+     */
+    public K_Cuenta(String titular, String iban) {
+        this.titular = titular.trim();
+        this.iban = normalizarIban(iban);
+        if (!ibanValido(this.iban)) {
+            throw new IllegalArgumentException("IBAN no válido: " + iban);
+        }
+    }
+
+    public String getTitular() {
+        return titular;
+    }
+
+    /**
+     * @return IBAN sin espacios y en mayúsculas.
+     */
+    public String getIban() {
+        return iban;
+    }
+
+    private static String normalizarIban(String iban) {
+        StringBuilder sb = new StringBuilder(34);
+        for (int i = 0; i < iban.length(); i++) {
+            char c = iban.charAt(i);
+            if (c != ' ') {
+                sb.append(Character.toUpperCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    /*
+     * Comprueba el formato y los dígitos de control (ISO 13616, módulo 97).
+     */
+    private static boolean ibanValido(String iban) {
+        if (iban.length() < 15 || iban.length() > 34) {
+            return false;
+        }
+        int resto = 0;
+        for (int i = 0; i < iban.length(); i++) {
+            char c = iban.charAt((i + 4) % iban.length()); // Los cuatro primeros van al final
+            int valor;
+            if (c >= '0' && c <= '9') {
+                valor = c - '0';
+            } else if (c >= 'A' && c <= 'Z') {
+                valor = c - 'A' + 10;
+            } else {
+                return false;
+            }
+            resto = (valor < 10 ? resto * 10 : resto * 100) + valor;
+            resto %= 97;
+        }
+        return resto == 1 && Character.isLetter(iban.charAt(0)) && Character.isLetter(iban.charAt(1));
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Objetivo de la clase: Cargar las cuentas bancarias de los empleados desde un
+ *                       fichero `empleado;iban;nombre` para la remesa SEPA.
+ *
+ * Solo se guardan el IBAN y el nombre de cada empleado; las nóminas se siguen
+ * leyendo de una en una.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package k_exportacion;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+public class K_Cuentas {
+
+    private final Map<String, K_Cuenta> cuentas;
+
+    private K_Cuentas(Map<String, K_Cuenta> cuentas) {
+        this.cuentas = cuentas;
+    }
+
+    /**
+     * Lee el fichero de cuentas. Se ignoran las líneas vacías y una cabecera que
+     * empiece por "empleado". El nombre es opcional; si falta se usa el código del empleado.
+     *
+     * @param fichero Fichero con una cuenta por línea separada por ';' o tabuladores.
+     * @return Cuentas por empleado.
+     * @throws IOException Si falla la lectura.
+     * @throws IllegalArgumentException Si alguna línea no es válida, con su número de línea.
+     */
+    public static K_Cuentas leer(Path fichero) throws IOException {
+        Map<String, K_Cuenta> cuentas = new HashMap<>();
+        try (BufferedReader lector = Files.newBufferedReader(fichero, StandardCharsets.UTF_8)) {
+            String linea;
+            int numero = 0;
+            while ((linea = lector.readLine()) != null) {
+                numero++;
+                if (linea.trim().isEmpty() || (numero == 1 && linea.toLowerCase().startsWith("empleado"))) {
+                    continue;
+                }
+                String[] campos = linea.split("[;\t]", -1);
+                if (campos.length < 2 || campos[0].trim().isEmpty()) {
+                    throw new IllegalArgumentException("Línea " + numero + ": se espera empleado;iban;nombre");
+                }
+                String empleado = campos[0].trim();
+                String titular = campos.length > 2 && !campos[2].trim().isEmpty() ? campos[2] : empleado;
+                try {
+                    cuentas.put(empleado, new K_Cuenta(titular, campos[1]));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Línea " + numero + ": " + e.getMessage());
+                }
+            }
+        }
+        return new K_Cuentas(cuentas);
+    }
+
+    /**
+     * @param empleado Código del empleado.
+     * @return Su cuenta o `null` si no tiene.
+     */
+    public K_Cuenta buscar(String empleado) {
+        return cuentas.get(empleado);
+    }
+
+    public int tamano() {
+        return cuentas.size();
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Objetivo de la clase: Exportar las nóminas guardadas de un periodo a uno o
+ *                       varios formatos a la vez, en una sola pasada.
+ *
+ * Las nóminas se leen con un D_CursorNominas y cada una se entrega a todos los
+ * formatos antes de pasar a la siguiente, así que la base de datos se recorre una
+ * vez y la memoria no depende del número de nóminas.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package k_exportacion;
+
+import d_basedatos.D_CursorNominas;
+import h_concurrencia.H_Avance;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.CancellationException;
+
+public final class K_Exportador {
+
+    /*
+     * Cada cuántas nóminas se informa del avance.
+     */
+    private static final int AVISO_CADA = 5000;
+
+    private static final H_Avance SIN_AVANCE = new H_Avance() {
+        @Override
+        public void progreso(long hecho, long total) {
+        }
+
+        @Override
+        public void mensaje(String texto) {
+        }
+
+        @Override
+        public boolean cancelado() {
+            return false;
+        }
+    };
+
+    private K_Exportador() {
+    }
+
+    /**
+     * @param periodo Periodo a exportar (yyyy-MM).
+     * @param formatos Ficheros de destino ya abiertos; se terminan pero no se cierran.
+     * @return Resumen de la exportación.
+     * @throws IOException Si falla la escritura de algún fichero.
+     * @throws SQLException Si falla la lectura.
+     */
+    public static K_ResumenExportacion exportar(String periodo, K_Formato... formatos) throws IOException, SQLException {
+        return exportar(periodo, SIN_AVANCE, formatos);
+    }
+
+    /**
+     * @param periodo Periodo a exportar (yyyy-MM).
+     * @param avance Recibe las nóminas exportadas y permite cancelar.
+     * @param formatos Ficheros de destino ya abiertos; se terminan pero no se cierran.
+     * @return Resumen de la exportación.
+     * @throws IOException Si falla la escritura de algún fichero.
+     * @throws SQLException Si falla la lectura.
+     * @throws CancellationException Si se cancela; los ficheros quedan incompletos.
+     */
+    public static K_ResumenExportacion exportar(String periodo, H_Avance avance, K_Formato... formatos)
+            throws IOException, SQLException {
+        long inicio = System.nanoTime();
+        long nominas = 0;
+        long omitidas = 0;
+        try (D_CursorNominas cursor = new D_CursorNominas(periodo)) {
+            while (cursor.siguiente()) {
+                boolean completa = true;
+                for (K_Formato formato : formatos) {
+                    completa &= formato.escribir(cursor);
+                }
+                if (!completa) {
+                    omitidas++;
+                }
+                if (++nominas % AVISO_CADA == 0) {
+                    if (avance.cancelado()) {
+                        throw new CancellationException("Exportación cancelada");
+                    }
+                    avance.progreso(nominas, -1);
+                    avance.mensaje("Exportadas " + nominas + " nóminas");
+                }
+            }
+        }
+        for (K_Formato formato : formatos) {
+            formato.terminar();
+        }
+        return new K_ResumenExportacion(nominas, omitidas, (System.nanoTime() - inicio) / 1e9);
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * Objetivo de la clase: Representar un fichero de exportación que se escribe
+ *                       nómina a nómina mientras se recorre el periodo.
+ *
+ * El exportador llama a escribir() una vez por nómina, en orden, y a terminar()
+ * al final para cerrar la estructura del fichero. close() libera el fichero en
+ * cualquier caso; si no se llamó a terminar() el fichero queda incompleto.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package k_exportacion;
+
+import d_basedatos.D_CursorNominas;
+import java.io.Closeable;
+import java.io.IOException;
+
+public interface K_Formato extends Closeable {
+
+    /**
+     * Escribe la nómina actual del cursor. No debe avanzar el cursor.
+     *
+     * @param nomina Cursor posicionado en la nómina a escribir.
+     * @return `false` si la nómina no se ha incluido en este fichero (por ejemplo, sin cuenta bancaria).
+     * @throws IOException Si falla la escritura.
+     */
+    boolean escribir(D_CursorNominas nomina) throws IOException;
+
+    /**
+     * Escribe el final del fichero (totales, índices...) y lo deja completo.
+     *
+     * @throws IOException Si falla la escritura.
+     */
+    void terminar() throws IOException;
+}
@@ -0,0 +1,64 @@
+/**
+ * Objetivo de la clase: Exportar las nóminas de un periodo a un CSV contable con
+ *                       una fila por nómina y una columna por concepto.
+ *
+ * Mismo formato que la salida del modo por lotes: separador ';', punto decimal
+ * y los conceptos con su código en minúsculas.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package k_exportacion;
+
+import d_basedatos.D_CursorNominas;
+import f_calculo.F_Concepto;
+import f_calculo.F_Dinero;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class K_FormatoCsv implements K_Formato {
+
+    private static final F_Concepto[] CONCEPTOS = F_Concepto.values();
+
+    private final BufferedWriter salida;
+    private final StringBuilder sb = new StringBuilder(512);
+
+    /**
+     * @param fichero Fichero de destino; se sobrescribe si existe.
+     * @throws IOException Si no se puede crear.
+     */
+    public K_FormatoCsv(Path fichero) throws IOException {
+        salida = Files.newBufferedWriter(fichero, StandardCharsets.UTF_8);
+        sb.append("empleado;periodo;secuencia;fecha");
+        for (F_Concepto c : CONCEPTOS) {
+            sb.append(';').append(c.name().toLowerCase());
+        }
+        salida.append(sb).append('\n');
+    }
+
+    @Override
+    public boolean escribir(D_CursorNominas nomina) throws IOException {
+        sb.setLength(0);
+        sb.append(nomina.getEmpleado()).append(';').append(nomina.getPeriodo()).append(';')
+                .append(nomina.getSecuencia()).append(';').append(nomina.getFecha());
+        for (F_Concepto c : CONCEPTOS) {
+            sb.append(';');
+            F_Dinero.anadir(sb, nomina.getCentimos(c));
+        }
+        salida.append(sb.append('\n'));
+        return true;
+    }
+
+    @Override
+    public void terminar() throws IOException {
+        salida.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        salida.close();
+    }
+}
@@ -0,0 +1,322 @@
+/**
+ * Objetivo de la clase: Exportar las nóminas de un periodo a un PDF con una
+ *                       página por nómina, escrito directamente sin librerías.
+ *
+ * El PDF se escribe en orden y de una sola pasada: cada página y su contenido se
+ * vuelcan en cuanto se generan. Los números de objeto de cada página se deducen
+ * de su posición, así que la lista de páginas se escribe al final sin haberla
+ * guardado; las posiciones de los objetos (la tabla xref) se van anotando en un
+ * fichero temporal y se copian al final. La memoria no depende del número de
+ * nóminas.
+ *
+ * Lo que es igual en todas las nóminas (títulos de bloque y etiquetas) se escribe
+ * una sola vez como plantilla (un Form XObject) que cada página dibuja; el
+ * contenido de cada página solo lleva la cabecera y los importes, comprimidos con
+ * Deflate reutilizando el mismo compresor y búfer. Se usan las fuentes estándar
+ * (Helvetica y Courier) con WinAnsiEncoding, que incluye las letras acentuadas y
+ * el símbolo del euro.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package k_exportacion;
+
+import d_basedatos.D_CursorNominas;
+import f_calculo.F_Concepto;
+import f_calculo.F_Dinero;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+public class K_FormatoPdf implements K_Formato {
+
+    /*
+     * Caracteres de WinAnsi entre 0x80 y 0x9F (el resto coincide con Latin-1).
+     */
+    private static final char[] WIN_ANSI_80 = new String(rango(0x80, 0x9F), Charset.forName("windows-1252"))
+            .toCharArray();
+
+    /*
+     * Objetos fijos: 1 catálogo, 2 árbol de páginas, 3-5 fuentes y 6 la plantilla.
+     * La página i (desde 0) es el objeto PRIMERA_PAGINA + 2i y su contenido el siguiente.
+     */
+    private static final int PLANTILLA = 6;
+    private static final int PRIMERA_PAGINA = 7;
+
+    /*
+     * Bloques de la nómina con sus conceptos; el último de cada bloque es su total.
+     */
+    private static final String[] TITULOS = {
+        "Devengos", "Gastos adicionales (exentos)", "Deducciones del trabajador", "Aportaciones de la empresa", "Totales"
+    };
+    private static final F_Concepto[][] BLOQUES = {
+        {F_Concepto.HORAS_NORMALES, F_Concepto.HORAS_NOCTURNAS, F_Concepto.HORAS_EXTRAS, F_Concepto.HORAS_FESTIVAS,
+            F_Concepto.PLUS_TURNICIDAD, F_Concepto.PRORRATA_PAGA_EXTRA, F_Concepto.PRORRATA_VACACIONES,
+            F_Concepto.COMPENSACION_FIN_CONTRATO, F_Concepto.ATRASOS, F_Concepto.SALARIO_BRUTO_TRIBUTABLE},
+        {F_Concepto.DIETAS, F_Concepto.KILOMETRAJE, F_Concepto.ALOJAMIENTO, F_Concepto.TRANSPORTE_PUBLICO,
+            F_Concepto.OTROS_GASTOS, F_Concepto.TOTAL_GASTOS_ADICIONALES},
+        {F_Concepto.BASE_COTIZACION, F_Concepto.CC_TRABAJADOR, F_Concepto.DESEMPLEO_TRABAJADOR,
+            F_Concepto.FP_TRABAJADOR, F_Concepto.MEI_TRABAJADOR, F_Concepto.APORTACIONES_TRABAJADOR,
+            F_Concepto.RETENCION_IRPF, F_Concepto.TOTAL_RETENCIONES},
+        {F_Concepto.CC_EMPRESA, F_Concepto.ATEP_EMPRESA, F_Concepto.DESEMPLEO_EMPRESA, F_Concepto.FP_EMPRESA,
+            F_Concepto.FOGASA, F_Concepto.MEI_EMPRESA, F_Concepto.APORTACIONES_EMPRESA},
+        {F_Concepto.SALARIO_BRUTO, F_Concepto.SALARIO_NETO}
+    };
+
+    /*
+     * Los importes se alinean a la derecha en X_FIN_IMPORTE: en Courier de 10 puntos
+     * cada carácter mide 6 puntos.
+     */
+    private static final int X_FIN_IMPORTE = 490;
+    private static final int ANCHO_CARACTER = 6;
+
+    /*
+     * Conceptos en el orden en que se escriben sus importes y altura de cada línea.
+     */
+    private static final F_Concepto[] LINEAS;
+    private static final int[] ALTURAS;
+
+    static {
+        int total = 0;
+        for (F_Concepto[] bloque : BLOQUES) {
+            total += bloque.length;
+        }
+        LINEAS = new F_Concepto[total];
+        ALTURAS = new int[total];
+        int n = 0;
+        int y = 740;
+        for (F_Concepto[] bloque : BLOQUES) {
+            y -= 15; // Título del bloque
+            for (F_Concepto c : bloque) {
+                LINEAS[n] = c;
+                ALTURAS[n++] = y;
+                y -= 13;
+            }
+            y -= 8;
+        }
+    }
+
+    private final Path temporalXref;
+    private final OutputStream salida;
+    private final OutputStream xref;
+    private final StringBuilder sb = new StringBuilder(2048);
+    private final StringBuilder importe = new StringBuilder(24);
+    private char[] caracteres = new char[4096];
+    private byte[] contenido = new byte[4096];
+    private final Deflater compresor = new Deflater(Deflater.BEST_SPEED);
+    private byte[] comprimido = new byte[4096];
+
+    private long posicion;
+    private long posicionCatalogo;
+    private int paginas;
+
+    /**
+     * @param fichero Fichero de destino; se sobrescribe si existe.
+     * @throws IOException Si no se puede crear el fichero o el temporal.
+     */
+    public K_FormatoPdf(Path fichero) throws IOException {
+        temporalXref = Files.createTempFile("nominas", ".xref");
+        xref = new BufferedOutputStream(Files.newOutputStream(temporalXref), 1 << 16);
+        salida = new BufferedOutputStream(Files.newOutputStream(fichero), 1 << 16);
+
+        // El comentario con bytes altos indica a los lectores que el fichero es binario
+        escribir("%PDF-1.4\n%âãÏÓ\n");
+        posicionCatalogo = posicion;
+        escribir("1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n");
+        anotarObjeto();
+        escribir("3 0 obj\n<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>\nendobj\n");
+        anotarObjeto();
+        escribir("4 0 obj\n<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica-Bold /Encoding /WinAnsiEncoding >>\n"
+                + "endobj\n");
+        anotarObjeto();
+        escribir("5 0 obj\n<< /Type /Font /Subtype /Type1 /BaseFont /Courier /Encoding /WinAnsiEncoding >>\nendobj\n");
+
+        // Plantilla: títulos de bloque y etiquetas, en negrita la del total de cada bloque
+        sb.setLength(0);
+        int y = 740;
+        for (int b = 0; b < BLOQUES.length; b++) {
+            texto("F2", 11, 50, y, TITULOS[b]);
+            y -= 15;
+            for (int i = 0; i < BLOQUES[b].length; i++) {
+                texto(i == BLOQUES[b].length - 1 ? "F2" : "F1", 10, 60, y, BLOQUES[b][i].getEtiqueta());
+                y -= 13;
+            }
+            y -= 8;
+        }
+        int longitud = comprimir();
+        anotarObjeto();
+        escribir(PLANTILLA + " 0 obj\n<< /Type /XObject /Subtype /Form /BBox [0 0 595 842] "
+                + "/Resources << /Font << /F1 3 0 R /F2 4 0 R >> >> /Length " + longitud
+                + " /Filter /FlateDecode >>\nstream\n");
+        escribirComprimido(longitud);
+        escribir("\nendstream\nendobj\n");
+    }
+
+    @Override
+    public boolean escribir(D_CursorNominas nomina) throws IOException {
+        int objetoPagina = PRIMERA_PAGINA + 2 * paginas;
+
+        sb.setLength(0);
+        sb.append("/P Do\n");
+        texto("F2", 16, 50, 790, "Nómina " + nomina.getPeriodo());
+        texto("F1", 10, 50, 770, "Empleado: " + nomina.getEmpleado() + "    Nº: " + nomina.getSecuencia()
+                + "    Fecha: " + nomina.getFecha());
+        sb.append("BT /F3 10 Tf\n");
+        for (int i = 0; i < LINEAS.length; i++) {
+            importe.setLength(0);
+            F_Dinero.anadir(importe, nomina.getCentimos(LINEAS[i])).append(" €");
+            sb.append("1 0 0 1 ").append(X_FIN_IMPORTE - importe.length() * ANCHO_CARACTER).append(' ')
+                    .append(ALTURAS[i]).append(" Tm (").append(importe).append(") Tj\n");
+        }
+        sb.append("ET\n");
+        int longitud = comprimir();
+
+        anotarObjeto();
+        escribir(objetoPagina + " 0 obj\n<< /Type /Page /Parent 2 0 R /MediaBox [0 0 595 842] "
+                + "/Resources << /Font << /F1 3 0 R /F2 4 0 R /F3 5 0 R >> /XObject << /P " + PLANTILLA
+                + " 0 R >> >> /Contents " + (objetoPagina + 1) + " 0 R >>\nendobj\n");
+        anotarObjeto();
+        escribir((objetoPagina + 1) + " 0 obj\n<< /Length " + longitud + " /Filter /FlateDecode >>\nstream\n");
+        escribirComprimido(longitud);
+        escribir("\nendstream\nendobj\n");
+        paginas++;
+        return true;
+    }
+
+    @Override
+    public void terminar() throws IOException {
+        long posicionPaginas = posicion;
+        StringBuilder kids = new StringBuilder(64);
+        escribir("2 0 obj\n<< /Type /Pages /Count " + paginas + " /Kids [");
+        for (int i = 0; i < paginas; i++) {
+            kids.setLength(0);
+            kids.append(PRIMERA_PAGINA + 2 * i).append(" 0 R ");
+            escribir(kids.toString());
+        }
+        escribir("] >>\nendobj\n");
+
+        long posicionXref = posicion;
+        int objetos = PRIMERA_PAGINA + 2 * paginas;
+        escribir("xref\n0 " + objetos + "\n0000000000 65535 f \n");
+        escribir(entradaXref(posicionCatalogo));
+        escribir(entradaXref(posicionPaginas));
+        xref.close();
+        Files.copy(temporalXref, salida); // Objetos 3 en adelante, en orden
+        escribir("trailer\n<< /Size " + objetos + " /Root 1 0 R >>\nstartxref\n" + posicionXref + "\n%%EOF\n");
+        salida.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        compresor.end();
+        try {
+            xref.close();
+            salida.close();
+        } finally {
+            Files.deleteIfExists(temporalXref);
+        }
+    }
+
+    /*
+     * Añade al contenido una línea de texto en la posición indicada.
+     */
+    private void texto(String fuente, int tamano, int x, int y, String texto) {
+        sb.append("BT /").append(fuente).append(' ').append(tamano).append(" Tf ")
+                .append(x).append(' ').append(y).append(" Td (");
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '(' || c == ')' || c == '\\') {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        sb.append(") Tj ET\n");
+    }
+
+    /*
+     * Codifica `sb` en WinAnsi y lo comprime en `comprimido`; devuelve la longitud comprimida.
+     */
+    private int comprimir() {
+        int n = sb.length();
+        if (caracteres.length < n) {
+            caracteres = new char[n * 2];
+            contenido = new byte[n * 2];
+        }
+        sb.getChars(0, n, caracteres, 0);
+        for (int i = 0; i < n; i++) {
+            contenido[i] = aWinAnsi(caracteres[i]);
+        }
+
+        compresor.reset();
+        compresor.setInput(contenido, 0, n);
+        compresor.finish();
+        int longitud = 0;
+        while (!compresor.finished()) {
+            if (longitud == comprimido.length) {
+                comprimido = Arrays.copyOf(comprimido, comprimido.length * 2);
+            }
+            longitud += compresor.deflate(comprimido, longitud, comprimido.length - longitud);
+        }
+        return longitud;
+    }
+
+    /*
+     * WinAnsi coincide con Latin-1 salvo entre 0x80 y 0x9F, donde están el euro y
+     * otros signos; lo que no existe se sustituye por '?'.
+     */
+    private static byte aWinAnsi(char c) {
+        if (c < 0x80 || (c >= 0xA0 && c <= 0xFF)) {
+            return (byte) c;
+        }
+        for (int i = 0; i < WIN_ANSI_80.length; i++) {
+            if (WIN_ANSI_80[i] == c) {
+                return (byte) (0x80 + i);
+            }
+        }
+        return '?';
+    }
+
+    private void escribirComprimido(int longitud) throws IOException {
+        salida.write(comprimido, 0, longitud);
+        posicion += longitud;
+    }
+
+    /*
+     * Anota la posición del objeto que se va a escribir a continuación.
+     */
+    private void anotarObjeto() throws IOException {
+        xref.write(entradaXref(posicion).getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /*
+     * Entrada de la tabla xref: exactamente 20 bytes.
+     */
+    private static String entradaXref(long desplazamiento) {
+        String numero = Long.toString(desplazamiento);
+        StringBuilder entrada = new StringBuilder(20);
+        for (int i = numero.length(); i < 10; i++) {
+            entrada.append('0');
+        }
+        return entrada.append(numero).append(" 00000 n \n").toString();
+    }
+
+    private static byte[] rango(int desde, int hasta) {
+        byte[] bytes = new byte[hasta - desde + 1];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (desde + i);
+        }
+        return bytes;
+    }
+
+    private void escribir(String texto) throws IOException {
+        byte[] bytes = texto.getBytes(StandardCharsets.ISO_8859_1);
+        salida.write(bytes);
+        posicion += bytes.length;
+    }
+}
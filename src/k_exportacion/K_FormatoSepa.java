@@ -0,0 +1,188 @@
+/**
+ * Objetivo de la clase: Exportar el neto de las nóminas de un periodo como una
+ *                       remesa de transferencias SEPA (ISO 20022 pain.001.001.03).
+ *
+ * La cabecera del mensaje lleva el número de transferencias y la suma de control,
+ * que no se conocen hasta el final. Para escribir en una sola pasada, la cabecera
+ * se escribe con esos dos campos rellenos de ceros a ancho fijo y al terminar se
+ * sobrescriben en su sitio con un FileChannel. Los textos se reducen al juego de
+ * caracteres SEPA (sin acentos), así que la cabecera es ASCII y la posición de
+ * cada campo en bytes coincide con la del texto.
+ *
+ * Se omiten las nóminas sin cuenta del empleado y las de neto cero o negativo.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package k_exportacion;
+
+import d_basedatos.D_CursorNominas;
+import f_calculo.F_Concepto;
+import f_calculo.F_Dinero;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+public class K_FormatoSepa implements K_Formato {
+
+    /*
+     * Anchos máximos que admite el esquema: 15 dígitos para el número de operaciones
+     * y 18 dígitos en total para la suma de control.
+     */
+    private static final int ANCHO_OPERACIONES = 15;
+    private static final int ANCHO_SUMA = 19;
+
+    private final Path fichero;
+    private final BufferedWriter salida;
+    private final K_Cuentas cuentas;
+    private final String concepto;
+    private final StringBuilder sb = new StringBuilder(1024);
+
+    private final int posicionOperaciones;
+    private final int posicionSuma;
+
+    private long transferencias;
+    private long totalCentimos;
+
+    /**
+     * @param fichero Fichero de destino; se sobrescribe si existe.
+     * @param periodo Periodo de las nóminas (para el concepto de cada transferencia).
+     * @param ordenante Cuenta de la empresa que paga.
+     * @param cuentas Cuentas de los empleados.
+     * @param fechaEjecucion Fecha en que el banco debe hacer las transferencias.
+     * @throws IOException Si no se puede crear el fichero.
+     */
+    public K_FormatoSepa(Path fichero, String periodo, K_Cuenta ordenante, K_Cuentas cuentas, LocalDate fechaEjecucion)
+            throws IOException {
+        this.fichero = fichero;
+        this.cuentas = cuentas;
+        this.concepto = "Nomina " + periodo;
+
+        LocalDateTime ahora = LocalDateTime.now().withNano(0);
+        String mensaje = texto("NOMINAS-" + periodo + "-" + ahora.format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")), 35);
+        String nombreOrdenante = texto(ordenante.getTitular(), 70);
+
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<Document xmlns=\"urn:iso:std:iso:20022:tech:xsd:pain.001.001.03\">\n")
+                .append("<CstmrCdtTrfInitn>\n<GrpHdr><MsgId>").append(mensaje).append("</MsgId>")
+                .append("<CreDtTm>").append(ahora.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).append("</CreDtTm>")
+                .append("<NbOfTxs>");
+        posicionOperaciones = sb.length();
+        ceros(ANCHO_OPERACIONES);
+        sb.append("</NbOfTxs><CtrlSum>");
+        posicionSuma = sb.length();
+        ceros(ANCHO_SUMA - 3);
+        sb.append(".00</CtrlSum><InitgPty><Nm>").append(nombreOrdenante).append("</Nm></InitgPty></GrpHdr>\n")
+                .append("<PmtInf><PmtInfId>").append(mensaje).append("</PmtInfId><PmtMtd>TRF</PmtMtd>")
+                .append("<PmtTpInf><SvcLvl><Cd>SEPA</Cd></SvcLvl><CtgyPurp><Cd>SALA</Cd></CtgyPurp></PmtTpInf>")
+                .append("<ReqdExctnDt>").append(fechaEjecucion).append("</ReqdExctnDt>")
+                .append("<Dbtr><Nm>").append(nombreOrdenante).append("</Nm></Dbtr>")
+                .append("<DbtrAcct><Id><IBAN>").append(ordenante.getIban()).append("</IBAN></Id></DbtrAcct>")
+                .append("<DbtrAgt><FinInstnId><Othr><Id>NOTPROVIDED</Id></Othr></FinInstnId></DbtrAgt>")
+                .append("<ChrgBr>SLEV</ChrgBr>\n");
+
+        salida = Files.newBufferedWriter(fichero, StandardCharsets.UTF_8);
+        salida.append(sb);
+    }
+
+    @Override
+    public boolean escribir(D_CursorNominas nomina) throws IOException {
+        long neto = nomina.getCentimos(F_Concepto.SALARIO_NETO);
+        K_Cuenta cuenta = cuentas.buscar(nomina.getEmpleado());
+        if (cuenta == null || neto <= 0) {
+            return false;
+        }
+        sb.setLength(0);
+        sb.append("<CdtTrfTxInf><PmtId><EndToEndId>NOMINA-").append(nomina.getId()).append("</EndToEndId></PmtId>")
+                .append("<Amt><InstdAmt Ccy=\"EUR\">");
+        F_Dinero.anadir(sb, neto);
+        sb.append("</InstdAmt></Amt><Cdtr><Nm>").append(texto(cuenta.getTitular(), 70)).append("</Nm></Cdtr>")
+                .append("<CdtrAcct><Id><IBAN>").append(cuenta.getIban()).append("</IBAN></Id></CdtrAcct>")
+                .append("<RmtInf><Ustrd>").append(concepto).append("</Ustrd></RmtInf></CdtTrfTxInf>\n");
+        salida.append(sb);
+        transferencias++;
+        totalCentimos = Math.addExact(totalCentimos, neto);
+        return true;
+    }
+
+    @Override
+    public void terminar() throws IOException {
+        salida.append("</PmtInf>\n</CstmrCdtTrfInitn>\n</Document>\n");
+        salida.close();
+
+        // Ahora se conocen los totales: se escriben sobre los ceros de la cabecera
+        try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.wrap(rellenar(Long.toString(transferencias), ANCHO_OPERACIONES)),
+                    posicionOperaciones);
+            String suma = F_Dinero.anadir(new StringBuilder(ANCHO_SUMA), totalCentimos).toString();
+            canal.write(ByteBuffer.wrap(rellenar(suma, ANCHO_SUMA)), posicionSuma);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        salida.close();
+    }
+
+    /**
+     * @return Transferencias incluidas hasta ahora.
+     */
+    public long getTransferencias() {
+        return transferencias;
+    }
+
+    /**
+     * @return Suma de las transferencias incluidas, en céntimos.
+     */
+    public long getTotalCentimos() {
+        return totalCentimos;
+    }
+
+    private void ceros(int n) {
+        for (int i = 0; i < n; i++) {
+            sb.append('0');
+        }
+    }
+
+    /*
+     * Número con ceros a la izquierda hasta el ancho indicado.
+     */
+    private static byte[] rellenar(String numero, int ancho) throws IOException {
+        if (numero.length() > ancho) {
+            throw new IOException("La remesa SEPA supera el máximo del campo: " + numero);
+        }
+        StringBuilder relleno = new StringBuilder(ancho);
+        for (int i = numero.length(); i < ancho; i++) {
+            relleno.append('0');
+        }
+        return relleno.append(numero).toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /*
+     * Reduce un texto al juego de caracteres SEPA (letras sin acentos, dígitos y
+     * / - ? : ( ) . , ' +), sustituyendo el resto por espacios, y lo recorta.
+     */
+    static String texto(String texto, int maximo) {
+        String base = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(Math.min(base.length(), maximo));
+        for (int i = 0; i < base.length() && sb.length() < maximo; i++) {
+            char c = base.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            boolean valido = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || "/-?:().,'+ ".indexOf(c) >= 0;
+            sb.append(valido ? c : ' ');
+        }
+        return sb.toString().trim();
+    }
+}
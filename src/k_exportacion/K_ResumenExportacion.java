@@ -0,0 +1,50 @@
+/**
+ * Objetivo de la clase: Resumir el resultado de una exportación (nóminas
+ *                       recorridas, nóminas que algún fichero no incluyó y tiempo).
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package k_exportacion;
+
+public class K_ResumenExportacion {
+
+    private final long nominas;
+    private final long omitidas;
+    private final double segundos;
+
+    public K_ResumenExportacion(long nominas, long omitidas, double segundos) {
+        this.nominas = nominas;
+        this.omitidas = omitidas;
+        this.segundos = segundos;
+    }
+
+    public long getNominas() {
+        return nominas;
+    }
+
+    /**
+     * @return Nóminas que no se incluyeron en algún fichero (por ejemplo, la remesa SEPA
+     *         sin cuenta del empleado).
+     */
+    public long getOmitidas() {
+        return omitidas;
+    }
+
+    public double getSegundos() {
+        return segundos;
+    }
+
+    /**
+     * @return Nóminas exportadas por segundo.
+     */
+    public double getNominasPorSegundo() {
+        return nominas / Math.max(segundos, 1e-9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Exportadas %d nóminas (%d no incluidas en algún fichero) en %.2f s (%.0f nóminas/s)",
+                nominas, omitidas, segundos, getNominasPorSegundo());
+    }
+}
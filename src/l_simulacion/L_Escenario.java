@@ -0,0 +1,91 @@
+/**
+ * Objetivo de la clase: Agrupar los cambios de parámetros que definen un escenario
+ *                       de simulación ("¿y si la contingencia común de empresa
+ *                       fuera del 24 % y el plus de nocturnidad subiera 0,50 €?").
+ *
+ * Los cambios se guardan ordenados por parámetro, de modo que dos escenarios con
+ * los mismos cambios escritos en otro orden son iguales y comparten entrada en la
+ * caché de L_Simulador. Un escenario sin cambios es la situación actual.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package l_simulacion;
+
+import f_calculo.F_CalculoIncremental;
+import f_calculo.F_ParametrosNomina;
+import f_calculo.F_ResultadoNomina;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+public final class L_Escenario {
+
+    private final L_Variacion[] variaciones;
+
+    /**
+     * @param variaciones Cambios del escenario; como mucho uno por parámetro.
+     * @throws IllegalArgumentException Si dos cambios afectan al mismo parámetro.
+     */
+    public L_Escenario(List<L_Variacion> variaciones) {
+        this.variaciones = variaciones.toArray(new L_Variacion[0]);
+        Arrays.sort(this.variaciones, Comparator.comparing(L_Variacion::getParametro));
+        for (int i = 1; i < this.variaciones.length; i++) {
+            if (this.variaciones[i].getParametro() == this.variaciones[i - 1].getParametro()) {
+                throw new IllegalArgumentException("Parámetro repetido en el escenario: "
+                        + this.variaciones[i].getParametro().getClave());
+            }
+        }
+    }
+
+    /**
+     * @return Cambios del escenario, ordenados por parámetro.
+     */
+    public List<L_Variacion> getVariaciones() {
+        return Arrays.asList(variaciones.clone());
+    }
+
+    /**
+     * Aplica el escenario a una nómina ya calculada, rehaciendo tras cada cambio solo
+     * los importes que dependen de él (ver F_CalculoIncremental).
+     *
+     * @param parametros Parámetros de la nómina; se modifican.
+     * @param resultado Resultado calculado con esos parámetros; se actualiza.
+     * @throws NumberFormatException Si algún valor resultante no es válido.
+     * @throws ArithmeticException Si algún importe no cabe en un long.
+     */
+    public void aplicar(F_ParametrosNomina parametros, F_ResultadoNomina resultado) {
+        for (L_Variacion variacion : variaciones) {
+            variacion.aplicar(parametros);
+            F_CalculoIncremental.recalcular(parametros, resultado, variacion.getParametro());
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof L_Escenario && Arrays.equals(variaciones, ((L_Escenario) o).variaciones);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(variaciones);
+    }
+
+    /**
+     * @return Los cambios separados por espacios, o `base` si no hay ninguno.
+     */
+    @Override
+    public String toString() {
+        if (variaciones.length == 0) {
+            return "base";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (L_Variacion variacion : variaciones) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(variacion);
+        }
+        return sb.toString();
+    }
+}
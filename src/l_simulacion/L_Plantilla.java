@@ -0,0 +1,111 @@
+/**
+ * Objetivo de la clase: Guardar en memoria un conjunto de trabajadores (la plantilla)
+ *                       con sus parámetros y su nómina actual, como punto de partida
+ *                       de las simulaciones.
+ *
+ * Se lee de una hoja de horas en el mismo formato que los lotes (ver G_CabeceraLote):
+ * cada línea válida es un trabajador con su perfil de tarifas y sus horas y gastos.
+ * Las nóminas de partida se calculan una sola vez al leerla; cada escenario parte de
+ * ellas y solo rehace los importes que cambian.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package l_simulacion;
+
+import f_calculo.F_CatalogoPerfiles;
+import f_calculo.F_ParametrosNomina;
+import f_calculo.F_ResultadoNomina;
+import g_lotes.G_ProcesadorLotes;
+import g_lotes.G_RegistroLote;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+public final class L_Plantilla {
+
+    private final String[] empleados;
+    private final F_ParametrosNomina[] parametros;
+    private final F_ResultadoNomina[] resultados;
+    private final long errores;
+
+    private L_Plantilla(List<G_RegistroLote> registros, long errores) {
+        int n = registros.size();
+        this.empleados = new String[n];
+        this.parametros = new F_ParametrosNomina[n];
+        this.resultados = new F_ResultadoNomina[n];
+        for (int i = 0; i < n; i++) {
+            G_RegistroLote registro = registros.get(i);
+            empleados[i] = registro.getEmpleado();
+            parametros[i] = registro.getParametros();
+            resultados[i] = registro.getResultado();
+        }
+        this.errores = errores;
+    }
+
+    /**
+     * Lee y calcula la plantilla de una hoja de horas. Las líneas no válidas se descartan.
+     *
+     * @param fichero Hoja de horas en CSV o TSV con cabecera.
+     * @param perfiles Perfiles de tarifas; las líneas sin columna `perfil` usan el perfil por defecto.
+     * @param errores Recibe un mensaje por cada línea descartada, con su número de línea.
+     * @return Plantilla leída.
+     * @throws IOException Si falla la lectura del fichero.
+     * @throws IllegalArgumentException Si la cabecera no es válida.
+     */
+    public static L_Plantilla leer(Path fichero, F_CatalogoPerfiles perfiles, Consumer<String> errores)
+            throws IOException {
+        List<G_RegistroLote> registros = new ArrayList<>();
+        long[] descartadas = new long[1];
+        try (BufferedReader lector = Files.newBufferedReader(fichero, StandardCharsets.UTF_8)) {
+            new G_ProcesadorLotes(perfiles, G_ProcesadorLotes.TAMANO_BLOQUE_POR_DEFECTO).procesar(lector, registro -> {
+                if (registro.tieneError()) {
+                    descartadas[0]++;
+                    errores.accept(registro.getError());
+                } else {
+                    registros.add(registro);
+                }
+            });
+        }
+        return new L_Plantilla(registros, descartadas[0]);
+    }
+
+    /**
+     * @return Número de trabajadores.
+     */
+    public int getTamano() {
+        return empleados.length;
+    }
+
+    /**
+     * @return Líneas del fichero que se descartaron por no ser válidas.
+     */
+    public long getErrores() {
+        return errores;
+    }
+
+    /**
+     * @param i Posición del trabajador.
+     * @return Identificador del trabajador.
+     */
+    public String getEmpleado(int i) {
+        return empleados[i];
+    }
+
+    /*
+     * Parámetros y nómina de partida de cada trabajador. No se modifican: los
+     * escenarios trabajan sobre copias.
+     */
+    F_ParametrosNomina parametros(int i) {
+        return parametros[i];
+    }
+
+    F_ResultadoNomina resultado(int i) {
+        return resultados[i];
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Objetivo de la clase: Convertir una rejilla de variaciones escrita como texto en
+ *                       la lista de escenarios que resulta de combinarlas todas.
+ *
+ * Cada eje es una clave de `config.properties`, una operación (`=`, `+=` o `*=`)
+ * y una lista de valores separados por comas, con punto decimal:
+ *
+ *   ccEmpresa=23.6,24,24.5 plusNocturnidad+=0,0.5 horasExtras*=1,1.1
+ *
+ * da 3 x 2 x 2 = 12 escenarios. Los ejes se separan con espacios o saltos de línea.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package l_simulacion;
+
+import f_calculo.F_Parametro;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public final class L_Rejilla {
+
+    /*
+     * Mayor número de escenarios que se admite en una rejilla.
+     */
+    public static final int MAXIMO_ESCENARIOS = 10_000;
+
+    private L_Rejilla() {
+    }
+
+    /**
+     * @param texto Ejes de la rejilla separados por espacios o saltos de línea.
+     * @return Escenarios en orden: el último eje es el que varía más deprisa.
+     * @throws IllegalArgumentException Si algún eje no es válido o salen demasiados escenarios.
+     */
+    public static List<L_Escenario> parsear(String texto) {
+        String limpio = texto == null ? "" : texto.trim();
+        if (limpio.isEmpty()) {
+            throw new IllegalArgumentException("La rejilla no tiene ningún eje.");
+        }
+        return parsear(limpio.split("\\s+"));
+    }
+
+    /**
+     * @param ejes Ejes de la rejilla, uno por elemento.
+     * @return Escenarios en orden: el último eje es el que varía más deprisa.
+     * @throws IllegalArgumentException Si algún eje no es válido o salen demasiados escenarios.
+     */
+    public static List<L_Escenario> parsear(String... ejes) {
+        List<List<L_Variacion>> valores = new ArrayList<>();
+        long total = 1;
+        for (String eje : ejes) {
+            List<L_Variacion> variaciones = parsearEje(eje);
+            total *= variaciones.size();
+            if (total > MAXIMO_ESCENARIOS) {
+                throw new IllegalArgumentException("La rejilla da más de " + MAXIMO_ESCENARIOS + " escenarios.");
+            }
+            valores.add(variaciones);
+        }
+
+        List<L_Escenario> escenarios = new ArrayList<>((int) total);
+        int[] indices = new int[valores.size()];
+        for (long n = 0; n < total; n++) {
+            List<L_Variacion> combinacion = new ArrayList<>(indices.length);
+            for (int i = 0; i < indices.length; i++) {
+                combinacion.add(valores.get(i).get(indices[i]));
+            }
+            escenarios.add(new L_Escenario(combinacion));
+            for (int i = indices.length - 1; i >= 0 && ++indices[i] == valores.get(i).size(); i--) {
+                indices[i] = 0;
+            }
+        }
+        return Collections.unmodifiableList(escenarios);
+    }
+
+    /*
+     * Un eje: clave, operación y valores separados por comas.
+     */
+    private static List<L_Variacion> parsearEje(String eje) {
+        int igual = eje.indexOf('=');
+        if (igual <= 0 || igual == eje.length() - 1) {
+            throw new IllegalArgumentException("Eje no válido (se espera clave=valores): " + eje);
+        }
+        L_Variacion.Operacion operacion = L_Variacion.Operacion.ASIGNAR;
+        int finClave = igual;
+        char anterior = eje.charAt(igual - 1);
+        if (anterior == '+') {
+            operacion = L_Variacion.Operacion.SUMAR;
+            finClave--;
+        } else if (anterior == '*') {
+            operacion = L_Variacion.Operacion.MULTIPLICAR;
+            finClave--;
+        }
+        F_Parametro parametro = F_Parametro.porClave(eje.substring(0, finClave));
+        if (parametro == null) {
+            throw new IllegalArgumentException("Clave desconocida: " + eje.substring(0, finClave));
+        }
+
+        List<L_Variacion> variaciones = new ArrayList<>();
+        for (String valor : eje.substring(igual + 1).split(",")) {
+            try {
+                variaciones.add(new L_Variacion(parametro, operacion, Double.parseDouble(valor.trim())));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Valor no válido para " + parametro.getClave() + ": " + valor);
+            }
+        }
+        return variaciones;
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Objetivo de la clase: Resumir lo que supondría un escenario para toda la plantilla:
+ *                       coste para la empresa y neto de los trabajadores, antes y
+ *                       después del cambio.
+ *
+ * El coste para la empresa es el salario bruto (con gastos) más las aportaciones de
+ * la empresa, como en los informes (ver D_TotalPeriodo). Los importes van en
+ * céntimos. Las nóminas en las que el escenario da un valor no válido (por ejemplo,
+ * horas negativas) no cuentan en ninguno de los dos lados.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package l_simulacion;
+
+import f_calculo.F_Dinero;
+
+public class L_ResultadoEscenario {
+
+    private final L_Escenario escenario;
+    private final long nominas;
+    private final long descartadas;
+    private final long costeBase;
+    private final long coste;
+    private final long netoBase;
+    private final long neto;
+
+    public L_ResultadoEscenario(L_Escenario escenario, long nominas, long descartadas, long costeBase, long coste,
+            long netoBase, long neto) {
+        this.escenario = escenario;
+        this.nominas = nominas;
+        this.descartadas = descartadas;
+        this.costeBase = costeBase;
+        this.coste = coste;
+        this.netoBase = netoBase;
+        this.neto = neto;
+    }
+
+    public L_Escenario getEscenario() {
+        return escenario;
+    }
+
+    /**
+     * @return Nóminas que cuentan en los totales.
+     */
+    public long getNominas() {
+        return nominas;
+    }
+
+    /**
+     * @return Nóminas en las que el escenario no es aplicable.
+     */
+    public long getDescartadas() {
+        return descartadas;
+    }
+
+    public long getCosteBase() {
+        return costeBase;
+    }
+
+    public long getCoste() {
+        return coste;
+    }
+
+    public long getNetoBase() {
+        return netoBase;
+    }
+
+    public long getNeto() {
+        return neto;
+    }
+
+    /**
+     * @return Coste del escenario menos el actual, en céntimos.
+     */
+    public long getDiferenciaCoste() {
+        return coste - costeBase;
+    }
+
+    /**
+     * @return Neto del escenario menos el actual, en céntimos.
+     */
+    public long getDiferenciaNeto() {
+        return neto - netoBase;
+    }
+
+    /**
+     * @param sb Destino del texto.
+     * @return La misma línea que escribe A_MainLote: escenario, nóminas, descartadas,
+     *         coste, diferencia de coste, neto y diferencia de neto, separados por ';'.
+     */
+    public StringBuilder anadirCsv(StringBuilder sb) {
+        sb.append(escenario).append(';').append(nominas).append(';').append(descartadas).append(';');
+        F_Dinero.anadir(sb, coste).append(';');
+        F_Dinero.anadir(sb, getDiferenciaCoste()).append(';');
+        F_Dinero.anadir(sb, neto).append(';');
+        return F_Dinero.anadir(sb, getDiferenciaNeto());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(escenario.toString()).append(": coste ");
+        F_Dinero.anadir(sb, coste).append(" € (");
+        anadirDiferencia(sb, getDiferenciaCoste()).append(" €), neto ");
+        F_Dinero.anadir(sb, neto).append(" € (");
+        anadirDiferencia(sb, getDiferenciaNeto()).append(" €), ").append(nominas).append(" nóminas");
+        if (descartadas > 0) {
+            sb.append(", ").append(descartadas).append(" descartadas");
+        }
+        return sb.toString();
+    }
+
+    private static StringBuilder anadirDiferencia(StringBuilder sb, long centimos) {
+        if (centimos >= 0) {
+            sb.append('+');
+        }
+        return F_Dinero.anadir(sb, centimos);
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * Objetivo de la clase: Evaluar escenarios de simulación sobre una plantilla en
+ *                       paralelo y guardar cada resultado para que repetir un
+ *                       barrido sea inmediato.
+ *
+ * El trabajo se reparte en tareas de un escenario por un bloque de trabajadores,
+ * así que se aprovechan los hilos tanto con muchos escenarios como con uno solo
+ * sobre una plantilla grande. Cada tarea reutiliza una copia de los parámetros y
+ * de la nómina de partida y aplica el escenario con F_CalculoIncremental, por lo
+ * que un cambio de tipo de cotización solo rehace las cuotas y los totales. Las
+ * sumas son enteras en céntimos, así que el resultado no depende del reparto.
+ *
+ * La caché se indexa por escenario (ver L_Escenario) y no tiene límite: cada
+ * resultado son unos pocos números. Vale mientras no cambie la plantilla, que es
+ * inmutable; para otra plantilla se crea otro simulador.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package l_simulacion;
+
+import f_calculo.F_Concepto;
+import f_calculo.F_ParametrosNomina;
+import f_calculo.F_ResultadoNomina;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+public class L_Simulador {
+
+    /*
+     * Trabajadores por tarea.
+     */
+    private static final int TAMANO_BLOQUE = 4096;
+
+    /*
+     * Posiciones de las sumas parciales de cada tarea.
+     */
+    private static final int NOMINAS = 0;
+    private static final int DESCARTADAS = 1;
+    private static final int COSTE_BASE = 2;
+    private static final int COSTE = 3;
+    private static final int NETO_BASE = 4;
+    private static final int NETO = 5;
+    private static final int SUMAS = 6;
+
+    private final L_Plantilla plantilla;
+    private final int paralelismo;
+    private final Map<L_Escenario, L_ResultadoEscenario> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Simulador que usa todos los núcleos disponibles.
+     *
+     * @param plantilla Trabajadores sobre los que se evalúan los escenarios.
+     */
+    public L_Simulador(L_Plantilla plantilla) {
+        this(plantilla, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param plantilla Trabajadores sobre los que se evalúan los escenarios.
+     * @param paralelismo Hilos de cálculo; con 1 se calcula en el hilo que llama.
+     */
+    public L_Simulador(L_Plantilla plantilla, int paralelismo) {
+        if (paralelismo <= 0) {
+            throw new IllegalArgumentException("El número de hilos debe ser positivo.");
+        }
+        this.plantilla = plantilla;
+        this.paralelismo = paralelismo;
+    }
+
+    public L_Plantilla getPlantilla() {
+        return plantilla;
+    }
+
+    /**
+     * @return Escenarios con el resultado guardado.
+     */
+    public int getEscenariosEnCache() {
+        return cache.size();
+    }
+
+    /**
+     * Evalúa un escenario, o lo devuelve de la caché si ya se evaluó.
+     *
+     * @param escenario Escenario a evaluar.
+     * @return Resultado del escenario.
+     */
+    public L_ResultadoEscenario simular(L_Escenario escenario) {
+        List<L_Escenario> uno = new ArrayList<>(1);
+        uno.add(escenario);
+        return simular(uno).get(0);
+    }
+
+    /**
+     * Evalúa los escenarios que no estén en la caché, en paralelo, y devuelve todos.
+     *
+     * @param escenarios Escenarios a evaluar (por ejemplo, los de L_Rejilla.parsear()).
+     * @return Un resultado por escenario, en el mismo orden.
+     */
+    public List<L_ResultadoEscenario> simular(List<L_Escenario> escenarios) {
+        LinkedHashSet<L_Escenario> pendientes = new LinkedHashSet<>();
+        for (L_Escenario escenario : escenarios) {
+            if (!cache.containsKey(escenario)) {
+                pendientes.add(escenario);
+            }
+        }
+        if (!pendientes.isEmpty()) {
+            evaluar(new ArrayList<>(pendientes));
+        }
+        List<L_ResultadoEscenario> resultados = new ArrayList<>(escenarios.size());
+        for (L_Escenario escenario : escenarios) {
+            resultados.add(cache.get(escenario));
+        }
+        return resultados;
+    }
+
+    /*
+     * Evalúa los escenarios por tareas (escenario x bloque) y guarda en la caché la
+     * suma de los bloques de cada uno.
+     */
+    private void evaluar(List<L_Escenario> escenarios) {
+        int bloques = Math.max(1, (plantilla.getTamano() + TAMANO_BLOQUE - 1) / TAMANO_BLOQUE);
+        long[][] sumas = new long[escenarios.size() * bloques][];
+        IntStream tareas = IntStream.range(0, sumas.length);
+        if (paralelismo == 1) {
+            tareas.forEach(t -> sumas[t] = evaluarBloque(escenarios.get(t / bloques), t % bloques));
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(paralelismo);
+            try {
+                pool.submit(() -> tareas.parallel()
+                        .forEach(t -> sumas[t] = evaluarBloque(escenarios.get(t / bloques), t % bloques))).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Simulación interrumpida.", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        for (int e = 0; e < escenarios.size(); e++) {
+            long[] total = new long[SUMAS];
+            for (int b = 0; b < bloques; b++) {
+                long[] parcial = sumas[e * bloques + b];
+                for (int i = 0; i < SUMAS; i++) {
+                    total[i] += parcial[i];
+                }
+            }
+            L_Escenario escenario = escenarios.get(e);
+            cache.put(escenario, new L_ResultadoEscenario(escenario, total[NOMINAS], total[DESCARTADAS],
+                    total[COSTE_BASE], total[COSTE], total[NETO_BASE], total[NETO]));
+        }
+    }
+
+    private long[] evaluarBloque(L_Escenario escenario, int bloque) {
+        long[] sumas = new long[SUMAS];
+        F_ParametrosNomina parametros = new F_ParametrosNomina();
+        F_ResultadoNomina resultado = new F_ResultadoNomina();
+        int fin = Math.min(plantilla.getTamano(), (bloque + 1) * TAMANO_BLOQUE);
+        for (int i = bloque * TAMANO_BLOQUE; i < fin; i++) {
+            F_ResultadoNomina base = plantilla.resultado(i);
+            parametros.copiarDe(plantilla.parametros(i));
+            resultado.copiarDe(base);
+            try {
+                escenario.aplicar(parametros, resultado);
+            } catch (NumberFormatException | ArithmeticException e) {
+                sumas[DESCARTADAS]++;
+                continue;
+            }
+            sumas[NOMINAS]++;
+            sumas[COSTE_BASE] += coste(base);
+            sumas[COSTE] += coste(resultado);
+            sumas[NETO_BASE] += base.getCentimos(F_Concepto.SALARIO_NETO);
+            sumas[NETO] += resultado.getCentimos(F_Concepto.SALARIO_NETO);
+        }
+        return sumas;
+    }
+
+    private static long coste(F_ResultadoNomina resultado) {
+        return resultado.getCentimos(F_Concepto.SALARIO_BRUTO) + resultado.getCentimos(F_Concepto.APORTACIONES_EMPRESA);
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Objetivo de la clase: Representar un cambio en un parámetro de la nómina dentro
+ *                       de un escenario de simulación: asignar un valor, sumarlo
+ *                       o multiplicar por él.
+ *
+ * Las tarifas y tipos suelen asignarse (`ccEmpresa=24`), mientras que las horas y
+ * gastos de cada trabajador se varían en relativo (`horasExtras*=1.1`,
+ * `nocturnas+=2`), porque cada uno tiene las suyas.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package l_simulacion;
+
+import f_calculo.F_Parametro;
+import f_calculo.F_ParametrosNomina;
+
+public final class L_Variacion {
+
+    /**
+     * Forma de aplicar el valor, con el símbolo que se usa al escribirla.
+     */
+    public enum Operacion {
+        ASIGNAR("="),
+        SUMAR("+="),
+        MULTIPLICAR("*=");
+
+        private final String simbolo;
+
+        Operacion(String simbolo) {
+            this.simbolo = simbolo;
+        }
+
+        public String getSimbolo() {
+            return simbolo;
+        }
+    }
+
+    private final F_Parametro parametro;
+    private final Operacion operacion;
+    private final double valor;
+
+    /**
+     * @param parametro Parámetro que cambia.
+     * @param operacion Forma de aplicar el valor.
+     * @param valor Valor a asignar, a sumar o por el que multiplicar.
+     */
+    public L_Variacion(F_Parametro parametro, Operacion operacion, double valor) {
+        if (parametro == null || operacion == null) {
+            throw new IllegalArgumentException("Falta el parámetro o la operación.");
+        }
+        if (Double.isNaN(valor) || Double.isInfinite(valor)) {
+            throw new IllegalArgumentException("Valor no válido para " + parametro.getClave() + ": " + valor);
+        }
+        this.parametro = parametro;
+        this.operacion = operacion;
+        this.valor = valor;
+    }
+
+    public F_Parametro getParametro() {
+        return parametro;
+    }
+
+    public Operacion getOperacion() {
+        return operacion;
+    }
+
+    public double getValor() {
+        return valor;
+    }
+
+    /**
+     * Aplica el cambio a unos parámetros.
+     *
+     * @param parametros Parámetros que se modifican.
+     * @throws NumberFormatException Si el valor resultante no es válido (por ejemplo, negativo).
+     */
+    public void aplicar(F_ParametrosNomina parametros) throws NumberFormatException {
+        switch (operacion) {
+            case SUMAR:
+                parametros.set(parametro, parametros.get(parametro) + valor);
+                break;
+            case MULTIPLICAR:
+                parametros.set(parametro, parametros.get(parametro) * valor);
+                break;
+            default:
+                parametros.set(parametro, valor);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof L_Variacion)) {
+            return false;
+        }
+        L_Variacion otra = (L_Variacion) o;
+        return parametro == otra.parametro && operacion == otra.operacion
+                && Double.compare(valor, otra.valor) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return (parametro.hashCode() * 31 + operacion.hashCode()) * 31 + Double.hashCode(valor);
+    }
+
+    /**
+     * @return El cambio tal y como se escribe en una rejilla, por ejemplo `ccEmpresa=24.0`.
+     */
+    @Override
+    public String toString() {
+        return parametro.getClave() + operacion.getSimbolo() + valor;
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * Objetivo de la clase: Contar sucesos sin duración (por ejemplo, conexiones
+ *                       abiertas) o llevar un valor que sube y baja (conexiones
+ *                       abiertas en este momento).
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package m_metricas;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public final class M_Contador implements M_ContadorMBean {
+
+    private final String nombre;
+    private final LongAdder valor = new LongAdder();
+
+    M_Contador(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    @Override
+    public long getValor() {
+        return valor.sum();
+    }
+
+    public void incrementar() {
+        valor.increment();
+    }
+
+    public void decrementar() {
+        valor.decrement();
+    }
+}
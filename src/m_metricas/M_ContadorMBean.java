@@ -0,0 +1,13 @@
+/**
+ * Objetivo de la clase: Definir el atributo que se publica por JMX de cada
+ *                       contador (ver M_Contador).
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package m_metricas;
+
+public interface M_ContadorMBean {
+
+    long getValor();
+}
@@ -0,0 +1,104 @@
+/**
+ * Objetivo de la clase: Acumular duraciones en nanosegundos en un histograma de
+ *                       tamaño fijo del que se sacan la media, el máximo y los
+ *                       percentiles.
+ *
+ * Los intervalos son logarítmicos: cada potencia de dos se parte en 8 tramos, así
+ * que un percentil tiene un error relativo de como mucho un 12,5 % y se cubre
+ * desde 1 ns hasta siglos con menos de 500 contadores. Registrar una duración son
+ * unas pocas sumas atómicas, sin bloqueos ni memoria nueva, así que puede hacerse
+ * desde varios hilos en cada operación.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package m_metricas;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+final class M_Histograma {
+
+    /*
+     * Bits de subdivisión de cada potencia de dos (2^3 = 8 tramos).
+     */
+    private static final int BITS_TRAMO = 3;
+    private static final int TRAMOS = 1 << BITS_TRAMO;
+    private static final int INTERVALOS = (64 - BITS_TRAMO + 1) * TRAMOS;
+
+    private final AtomicLongArray cuentas = new AtomicLongArray(INTERVALOS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder suma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    /**
+     * @param nanos Duración; las negativas (relojes que retroceden) cuentan como 0.
+     */
+    void registrar(long nanos) {
+        long valor = Math.max(0, nanos);
+        cuentas.incrementAndGet(intervalo(valor));
+        total.increment();
+        suma.add(valor);
+        long actual = maximo.get();
+        while (valor > actual && !maximo.compareAndSet(actual, valor)) {
+            actual = maximo.get();
+        }
+    }
+
+    long getCuenta() {
+        return total.sum();
+    }
+
+    long getSuma() {
+        return suma.sum();
+    }
+
+    long getMaximo() {
+        return maximo.get();
+    }
+
+    /**
+     * @param fraccion Entre 0 y 1 (0.99 para el percentil 99).
+     * @return Límite superior del intervalo del percentil, sin pasar del máximo; 0 si está vacío.
+     */
+    long percentil(double fraccion) {
+        long n = getCuenta();
+        if (n == 0) {
+            return 0;
+        }
+        long posicion = Math.max(1, (long) Math.ceil(fraccion * n));
+        long acumulado = 0;
+        for (int i = 0; i < INTERVALOS; i++) {
+            acumulado += cuentas.get(i);
+            if (acumulado >= posicion) {
+                return Math.min(limiteSuperior(i), getMaximo());
+            }
+        }
+        return getMaximo(); // Se registraron valores mientras se recorría
+    }
+
+    /*
+     * Los valores menores que TRAMOS tienen un intervalo cada uno; a partir de ahí,
+     * el exponente elige la potencia de dos y los bits siguientes, el tramo.
+     */
+    private static int intervalo(long valor) {
+        if (valor < TRAMOS) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int tramo = (int) (valor >>> (exponente - BITS_TRAMO)) & (TRAMOS - 1);
+        return (exponente - BITS_TRAMO + 1) * TRAMOS + tramo;
+    }
+
+    private static long limiteSuperior(int intervalo) {
+        if (intervalo < TRAMOS) {
+            return intervalo;
+        }
+        int exponente = intervalo / TRAMOS + BITS_TRAMO - 1;
+        int tramo = intervalo % TRAMOS;
+        long ancho = 1L << (exponente - BITS_TRAMO);
+        long inferior = (long) (TRAMOS + tramo) << (exponente - BITS_TRAMO);
+        return inferior + ancho - 1 < 0 ? Long.MAX_VALUE : inferior + ancho - 1;
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Objetivo de la clase: Medir una operación con nombre: cuántas veces se ejecuta,
+ *                       cuántas falla y cuánto tarda (histograma de latencias).
+ *
+ * Se obtiene con M_Metricas.metrica() y se comparte entre hilos. Para medir un
+ * tramo que empieza y acaba en sitios distintos (por ejemplo, una consulta en
+ * segundo plano cuyo resultado se muestra en el hilo de JavaFX) se guarda
+ * System.nanoTime() al empezar y se pasa a registrar() o fallo() al terminar.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package m_metricas;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public final class M_Metrica implements M_MetricaMBean {
+
+    private static final double NANOS_POR_MS = 1e6;
+
+    private final String nombre;
+    private final M_Histograma latencias = new M_Histograma();
+    private final LongAdder errores = new LongAdder();
+    private volatile long primera; // System.nanoTime() de la primera medida, 0 si no hay
+
+    M_Metrica(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    /**
+     * Registra una ejecución correcta.
+     *
+     * @param inicio System.nanoTime() al empezar.
+     */
+    public void registrar(long inicio) {
+        if (primera == 0) {
+            primera = inicio;
+        }
+        latencias.registrar(System.nanoTime() - inicio);
+    }
+
+    /**
+     * Registra una ejecución que ha fallado; su duración también cuenta.
+     *
+     * @param inicio System.nanoTime() al empezar.
+     */
+    public void fallo(long inicio) {
+        errores.increment();
+        registrar(inicio);
+    }
+
+    @Override
+    public long getCuenta() {
+        return latencias.getCuenta();
+    }
+
+    @Override
+    public long getErrores() {
+        return errores.sum();
+    }
+
+    @Override
+    public double getPorSegundo() {
+        long desde = primera;
+        if (desde == 0) {
+            return 0;
+        }
+        double segundos = (System.nanoTime() - desde) / 1e9;
+        return segundos > 0 ? getCuenta() / segundos : 0;
+    }
+
+    @Override
+    public double getMediaMs() {
+        long n = latencias.getCuenta();
+        return n == 0 ? 0 : latencias.getSuma() / NANOS_POR_MS / n;
+    }
+
+    @Override
+    public double getP50Ms() {
+        return latencias.percentil(0.50) / NANOS_POR_MS;
+    }
+
+    @Override
+    public double getP90Ms() {
+        return latencias.percentil(0.90) / NANOS_POR_MS;
+    }
+
+    @Override
+    public double getP99Ms() {
+        return latencias.percentil(0.99) / NANOS_POR_MS;
+    }
+
+    @Override
+    public double getMaximoMs() {
+        return latencias.getMaximo() / NANOS_POR_MS;
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * Objetivo de la clase: Definir los atributos que se publican por JMX de cada
+ *                       operación medida (ver M_Metrica).
+ *
+ * Los tiempos van en milisegundos para leerlos directamente en JConsole o VisualVM.
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package m_metricas;
+
+public interface M_MetricaMBean {
+
+    /**
+     * @return Veces que se ha ejecutado la operación, con error o sin él.
+     */
+    long getCuenta();
+
+    /**
+     * @return Ejecuciones que terminaron con una excepción.
+     */
+    long getErrores();
+
+    /**
+     * @return Ejecuciones por segundo desde que se midió la primera.
+     */
+    double getPorSegundo();
+
+    double getMediaMs();
+
+    double getP50Ms();
+
+    double getP90Ms();
+
+    double getP99Ms();
+
+    double getMaximoMs();
+}
@@ -0,0 +1,234 @@
+/**
+ * Objetivo de la clase: Registrar las métricas de la aplicación por nombre y
+ *                       publicarlas por JMX y en un fichero de texto.
+ *
+ * Las métricas se miden siempre (cuesta unas decenas de nanosegundos por
+ * operación); publicarlas es opcional. Con activar() cada métrica, también las
+ * que se creen después, se registra en el servidor JMX de la JVM como
+ * `calcunomina:type=Metrica,name=<nombre>` (o `type=Contador`) y un hilo en segundo
+ * plano vuelca todas al fichero indicado cada cierto tiempo. El fichero es TSV con
+ * una fila por métrica y se sustituye entero en cada volcado, así que siempre
+ * tiene la última foto completa.
+ *
+ * Los nombres siguen la forma `capa.operacion` (por ejemplo `bd.obtenerDetalle` o
+ * `ui.calcularNomina`).
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package m_metricas;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public final class M_Metricas {
+
+    /*
+     * Segundos entre volcados al fichero si no se indica otro valor.
+     */
+    public static final long SEGUNDOS_ENTRE_VOLCADOS_POR_DEFECTO = 60;
+
+    private static final String DOMINIO_JMX = "calcunomina";
+
+    private static final Map<String, M_Metrica> metricas = new ConcurrentHashMap<>();
+    private static final Map<String, M_Contador> contadores = new ConcurrentHashMap<>();
+
+    /*
+     * Servidor JMX y fichero de volcado mientras la publicación está activa.
+     */
+    private static MBeanServer servidor;
+    private static Path fichero;
+    private static ScheduledExecutorService volcador;
+    private static boolean volcadoAlSalir;
+
+    private M_Metricas() {
+    }
+
+    /**
+     * @param nombre Nombre de la operación.
+     * @return La métrica de ese nombre, creándola la primera vez.
+     */
+    public static M_Metrica metrica(String nombre) {
+        M_Metrica metrica = metricas.get(nombre);
+        if (metrica == null) {
+            metrica = metricas.computeIfAbsent(nombre, M_Metrica::new);
+            publicar("Metrica", nombre, metrica);
+        }
+        return metrica;
+    }
+
+    /**
+     * @param nombre Nombre del contador.
+     * @return El contador de ese nombre, creándolo la primera vez.
+     */
+    public static M_Contador contador(String nombre) {
+        M_Contador contador = contadores.get(nombre);
+        if (contador == null) {
+            contador = contadores.computeIfAbsent(nombre, M_Contador::new);
+            publicar("Contador", nombre, contador);
+        }
+        return contador;
+    }
+
+    /**
+     * Ejecuta una operación y registra su duración y, si lanza una excepción, el error.
+     *
+     * @param nombre Nombre de la operación.
+     * @param tarea Operación a medir.
+     * @return Lo que devuelva la operación.
+     * @throws E La excepción de la operación, sin envolver.
+     */
+    public static <T, E extends Exception> T medir(String nombre, M_Tarea<T, E> tarea) throws E {
+        M_Metrica metrica = metrica(nombre);
+        long inicio = System.nanoTime();
+        T resultado;
+        try {
+            resultado = tarea.ejecutar();
+        } catch (Exception | Error e) {
+            metrica.fallo(inicio);
+            throw e;
+        }
+        metrica.registrar(inicio);
+        return resultado;
+    }
+
+    /**
+     * Publica las métricas por JMX y empieza a volcarlas al fichero cada cierto tiempo
+     * y al terminar la JVM (también con System.exit()). Si ya estaba activo solo cambia
+     * el fichero y el intervalo.
+     *
+     * @param destino Fichero de volcado.
+     * @param segundosEntreVolcados Segundos entre volcados.
+     */
+    public static synchronized void activar(Path destino, long segundosEntreVolcados) {
+        if (segundosEntreVolcados <= 0) {
+            throw new IllegalArgumentException("Los segundos entre volcados deben ser positivos.");
+        }
+        if (volcador != null) {
+            volcador.shutdown();
+        }
+        fichero = destino;
+        if (servidor == null) {
+            servidor = ManagementFactory.getPlatformMBeanServer();
+            for (M_Metrica metrica : metricas.values()) {
+                publicar("Metrica", metrica.getNombre(), metrica);
+            }
+            for (M_Contador contador : contadores.values()) {
+                publicar("Contador", contador.getNombre(), contador);
+            }
+        }
+        volcador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "volcado-metricas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        volcador.scheduleWithFixedDelay(M_Metricas::volcarSinExcepcion, segundosEntreVolcados,
+                segundosEntreVolcados, TimeUnit.SECONDS);
+        if (!volcadoAlSalir) {
+            Runtime.getRuntime().addShutdownHook(new Thread(M_Metricas::volcarSinExcepcion, "volcado-metricas-final"));
+            volcadoAlSalir = true;
+        }
+    }
+
+    /**
+     * Deja de volcar y hace un último volcado, por ejemplo al salir. Las métricas
+     * siguen publicadas por JMX hasta que termine la JVM.
+     */
+    public static synchronized void desactivar() {
+        if (volcador == null) {
+            return;
+        }
+        volcador.shutdown();
+        volcador = null;
+        volcarSinExcepcion();
+    }
+
+    /**
+     * Escribe todas las métricas en el fichero de volcado, sustituyéndolo.
+     *
+     * @throws IOException Si falla la escritura.
+     */
+    public static synchronized void volcar() throws IOException {
+        if (fichero == null) {
+            return;
+        }
+        // Se escribe aparte y se mueve para que quien lea el fichero nunca lo vea a medias
+        Path temporal = fichero.resolveSibling(fichero.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(temporal, StandardCharsets.UTF_8)) {
+            volcar(out);
+        }
+        Files.move(temporal, fichero, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Escribe todas las métricas en TSV: primero las operaciones (tiempos en ms) y
+     * después los contadores, cada grupo ordenado por nombre.
+     *
+     * @param out Destino del texto.
+     * @throws IOException Si falla la escritura.
+     */
+    public static void volcar(Writer out) throws IOException {
+        out.write("# " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) + "\n");
+        out.write("metrica\tcuenta\terrores\tpor_segundo\tmedia_ms\tp50_ms\tp90_ms\tp99_ms\tmaximo_ms\n");
+        List<String> nombres = new ArrayList<>(metricas.keySet());
+        Collections.sort(nombres);
+        for (String nombre : nombres) {
+            M_Metrica m = metricas.get(nombre);
+            out.write(String.format(Locale.ROOT, "%s\t%d\t%d\t%.1f\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\n", nombre,
+                    m.getCuenta(), m.getErrores(), m.getPorSegundo(), m.getMediaMs(), m.getP50Ms(), m.getP90Ms(),
+                    m.getP99Ms(), m.getMaximoMs()));
+        }
+        out.write("\ncontador\tvalor\n");
+        nombres = new ArrayList<>(contadores.keySet());
+        Collections.sort(nombres);
+        for (String nombre : nombres) {
+            out.write(nombre + "\t" + contadores.get(nombre).getValor() + "\n");
+        }
+    }
+
+    private static void volcarSinExcepcion() {
+        try {
+            volcar();
+        } catch (IOException e) {
+            System.err.println("Error volcando las métricas: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Registra un MBean si la publicación está activa. Solo lo hace quien crea la
+     * métrica, y activar() registra las anteriores, así que ninguna se registra dos veces.
+     */
+    private static synchronized void publicar(String tipo, String nombre, Object mbean) {
+        if (servidor == null) {
+            return;
+        }
+        try {
+            // Los nombres son `capa.operacion`, sin caracteres que haya que escapar
+            ObjectName objeto = new ObjectName(DOMINIO_JMX + ":type=" + tipo + ",name=" + nombre);
+            if (!servidor.isRegistered(objeto)) {
+                servidor.registerMBean(mbean, objeto);
+            }
+        } catch (JMException e) {
+            System.err.println("Error publicando la métrica " + nombre + " por JMX: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * Objetivo de la clase: Representar una operación que se mide con
+ *                       M_Metricas.medir() y que puede lanzar una excepción
+ *                       comprobada concreta (por ejemplo, SQLException).
+ *
+ * @author Jairo Sánchez Ballesteros
+ */
+
+package m_metricas;
+
+@FunctionalInterface
+public interface M_Tarea<T, E extends Exception> {
+
+    /**
+     * @return Resultado de la operación (puede ser `null`).
+     * @throws E Si falla la operación.
+     */
+    T ejecutar() throws E;
+}